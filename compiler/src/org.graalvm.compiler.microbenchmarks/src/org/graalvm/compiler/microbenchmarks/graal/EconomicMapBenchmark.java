@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.compiler.microbenchmarks.graal;
+
+import java.util.Random;
+
+import org.graalvm.collections.EconomicMap;
+import org.graalvm.collections.IntIntEconomicMap;
+import org.graalvm.collections.IntObjectEconomicMap;
+import org.graalvm.collections.MapCursor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares {@link EconomicMap} with boxed {@link Integer} keys and values to the
+ * primitive-specialized {@link IntObjectEconomicMap} and {@link IntIntEconomicMap}. The
+ * {@code build*} benchmarks measure the cost of populating a map; run them with {@code -prof gc}
+ * to compare the memory allocated per map.
+ */
+public class EconomicMapBenchmark extends GraalBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class MapState {
+        @Param({"4", "32", "1024"}) int size;
+
+        int[] keys;
+        Integer[] boxedKeys;
+        EconomicMap<Integer, Object> boxedMap;
+        IntObjectEconomicMap<Object> intObjectMap;
+        EconomicMap<Integer, Integer> boxedCounts;
+        IntIntEconomicMap intIntCounts;
+
+        @Setup
+        public void setup() {
+            Random random = new Random(17);
+            keys = new int[size];
+            boxedKeys = new Integer[size];
+            boxedMap = EconomicMap.create();
+            intObjectMap = IntObjectEconomicMap.create();
+            boxedCounts = EconomicMap.create();
+            intIntCounts = IntIntEconomicMap.create();
+            for (int i = 0; i < size; i++) {
+                // Keys outside of the Integer cache range, like node or type ids.
+                int key = 1024 + random.nextInt(1 << 20);
+                keys[i] = key;
+                boxedKeys[i] = key;
+                boxedMap.put(key, this);
+                intObjectMap.put(key, this);
+                boxedCounts.put(key, i);
+                intIntCounts.put(key, i);
+            }
+        }
+    }
+
+    @Benchmark
+    public void lookupBoxed(MapState s, Blackhole bh) {
+        for (int key : s.keys) {
+            bh.consume(s.boxedMap.get(key));
+        }
+    }
+
+    @Benchmark
+    public void lookupBoxedPreboxedKeys(MapState s, Blackhole bh) {
+        for (Integer key : s.boxedKeys) {
+            bh.consume(s.boxedMap.get(key));
+        }
+    }
+
+    @Benchmark
+    public void lookupIntObject(MapState s, Blackhole bh) {
+        for (int key : s.keys) {
+            bh.consume(s.intObjectMap.get(key));
+        }
+    }
+
+    @Benchmark
+    public int lookupBoxedCounts(MapState s) {
+        int sum = 0;
+        for (int key : s.keys) {
+            sum += s.boxedCounts.get(key);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int lookupIntInt(MapState s) {
+        int sum = 0;
+        for (int key : s.keys) {
+            sum += s.intIntCounts.get(key, 0);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int iterateBoxed(MapState s) {
+        int sum = 0;
+        MapCursor<Integer, Integer> cursor = s.boxedCounts.getEntries();
+        while (cursor.advance()) {
+            sum += cursor.getKey() + cursor.getValue();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int iterateIntInt(MapState s) {
+        int sum = 0;
+        IntIntEconomicMap.Cursor cursor = s.intIntCounts.getEntries();
+        while (cursor.advance()) {
+            sum += cursor.getKey() + cursor.getValue();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public EconomicMap<Integer, Object> buildBoxed(MapState s) {
+        EconomicMap<Integer, Object> map = EconomicMap.create();
+        for (int key : s.keys) {
+            map.put(key, s);
+        }
+        return map;
+    }
+
+    @Benchmark
+    public IntObjectEconomicMap<Object> buildIntObject(MapState s) {
+        IntObjectEconomicMap<Object> map = IntObjectEconomicMap.create();
+        for (int key : s.keys) {
+            map.put(key, s);
+        }
+        return map;
+    }
+
+    @Benchmark
+    public EconomicMap<Integer, Integer> buildBoxedCounts(MapState s) {
+        EconomicMap<Integer, Integer> map = EconomicMap.create();
+        for (int key : s.keys) {
+            Integer count = map.get(key);
+            map.put(key, count == null ? 1 : count + 1);
+        }
+        return map;
+    }
+
+    @Benchmark
+    public IntIntEconomicMap buildIntIntCounts(MapState s) {
+        IntIntEconomicMap map = IntIntEconomicMap.create();
+        for (int key : s.keys) {
+            map.addTo(key, 1);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.truffle.regex.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Value;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.oracle.truffle.regex.tregex.test.TRegexTestDummyLanguage;
+
+/**
+ * Measures the compilation of the expressions of the {@link RegexCorpus}. Every invocation uses a
+ * new engine, so that the expression is not found in the compilation cache, and forces the
+ * compilation by searching the empty string. In {@code lazy} mode, the DFA is generated only after
+ * a number of searches, so parsing and NFA generation are measured. In {@code eager} mode, the
+ * engine option {@code GenerateDFAImmediately} adds the generation of the DFA. Run with
+ * {@code -prof gc} to measure the memory allocated per compilation.
+ */
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RegexCompileBenchmark extends BenchmarkBase {
+
+    @State(Scope.Benchmark)
+    public static class BenchState {
+
+        @Param({"js-email", "js-url", "js-ipv4", "js-timestamp", "js-access-log", "js-json-string", "js-unicode-word", "py-assignment", "py-query-param", "py-def",
+                        "pybytes-http-header", "pybytes-hex-escape", "js-repeated-word", "js-html-element", "py-quoted-string", "pybytes-repeated-header"}) String entry;
+        @Param({"lazy", "eager"}) String mode;
+
+        RegexCorpus.Entry corpusEntry;
+        String engineOptions;
+        Context context;
+        Value engineBuilder;
+
+        @Setup
+        public void setUp() {
+            corpusEntry = RegexCorpus.get(entry);
+            engineOptions = corpusEntry.getEngineOptions("eager".equals(mode) ? "GenerateDFAImmediately=true" : "");
+            context = Context.newBuilder().build();
+            context.enter();
+            engineBuilder = context.eval(TRegexTestDummyLanguage.ID, "");
+        }
+
+        @TearDown
+        public void tearDown() {
+            context.leave();
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public Value compile(BenchState state) {
+        Value regex = state.engineBuilder.execute(state.engineOptions).execute(state.corpusEntry.getPattern(), state.corpusEntry.getFlags());
+        regex.invokeMember("exec", "", 0);
+        return regex;
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.truffle.regex.jmh;
+
+import java.util.Locale;
+import java.util.Random;
+
+import org.graalvm.polyglot.Value;
+
+/**
+ * Curated expressions and inputs for the regex benchmarks. Every entry is named after its flavor
+ * ({@code js}, {@code py} or {@code pybytes}) and its use case. The input is a deterministically
+ * generated document mixing prose, e-mail addresses, URLs, server logs, JSON, Python source and
+ * HTTP headers, so that every expression finds matches in it at a realistic density.
+ */
+public final class RegexCorpus {
+
+    private static final String[] WORDS = {"the", "quick", "brown", "fox", "jumps", "over", "lazy", "dog", "regular", "expression", "engine", "matches", "input", "fast", "gr\u00f6\u00dfe",
+                    "na\u00efve", "caf\u00e9", "\u00c4rger", "r\u00e9sum\u00e9", "\u043f\u0440\u0438\u0432\u0435\u0442", "data", "stream", "server", "client", "request", "response"};
+    private static final String[] HOSTS = {"graalvm.org", "example.com", "mail.oracle.com", "lafo.ssw.uni-linz.ac.at", "localhost"};
+    private static final String[] PATHS = {"/", "/index.html", "/api/v1/users?id=42&sort=name", "/docs/reference-manual/", "/search?q=truffle+regex"};
+    private static final String[] METHODS = {"GET", "POST", "PUT", "DELETE"};
+
+    private static final String DOCUMENT = generateDocument(600);
+    /**
+     * The document with all characters above {@code 0xff} replaced, for the {@code PythonBytes}
+     * flavor.
+     */
+    private static final String LATIN_1_DOCUMENT = DOCUMENT.replaceAll("[^\\x00-\\xff]", "?");
+
+    public static final class Entry {
+
+        private final String name;
+        private final String flavor;
+        private final String pattern;
+        private final String flags;
+
+        private Entry(String name, String flavor, String pattern, String flags) {
+            this.name = name;
+            this.flavor = flavor;
+            this.pattern = pattern;
+            this.flags = flags;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getPattern() {
+            return pattern;
+        }
+
+        public String getFlags() {
+            return flags;
+        }
+
+        public String getInput() {
+            return "PythonBytes".equals(flavor) ? LATIN_1_DOCUMENT : DOCUMENT;
+        }
+
+        /**
+         * Returns the options for an engine of the entry's flavor, followed by
+         * {@code additionalOptions}.
+         */
+        public String getEngineOptions(String additionalOptions) {
+            String flavorOption = flavor == null ? "" : "Flavor=" + flavor;
+            if (flavorOption.isEmpty() || additionalOptions.isEmpty()) {
+                return flavorOption + additionalOptions;
+            }
+            return flavorOption + "," + additionalOptions;
+        }
+    }
+
+    private RegexCorpus() {
+    }
+
+    public static Entry get(String name) {
+        switch (name) {
+            case "js-email":
+                return new Entry(name, null, "[\\w.+-]+@[\\w-]+(?:\\.[\\w-]+)+", "");
+            case "js-url":
+                return new Entry(name, null, "(https?):\\/\\/([^\\/\\s:]+)(:\\d+)?(\\/[^\\s\"]*)?", "");
+            case "js-ipv4":
+                return new Entry(name, null, "(?:(?:25[0-5]|2[0-4]\\d|1?\\d?\\d)\\.){3}(?:25[0-5]|2[0-4]\\d|1?\\d?\\d)", "");
+            case "js-timestamp":
+                return new Entry(name, null, "(\\d{4})-(\\d{2})-(\\d{2})T(\\d{2}):(\\d{2}):(\\d{2})(?:\\.\\d+)?(Z|[+-]\\d{2}:\\d{2})", "");
+            case "js-access-log":
+                return new Entry(name, null, "^(\\S+) \\S+ \\S+ \\[([^\\]]+)\\] \"(GET|POST|PUT|DELETE) ([^\"]*) HTTP\\/1\\.[01]\" (\\d{3}) (\\d+)$", "m");
+            case "js-json-string":
+                return new Entry(name, null, "\"(?:[^\"\\\\]|\\\\.)*\"\\s*:", "");
+            case "js-unicode-word":
+                return new Entry(name, null, "\\w*[\\u00c0-\\u024f\\u0400-\\u04ff][\\w\\u00c0-\\u024f\\u0400-\\u04ff]*", "u");
+            case "py-assignment":
+                return new Entry(name, "PythonStr", "^[ \\t]*([A-Za-z_]\\w*)[ \\t]*=[ \\t]*(.+)$", "m");
+            case "py-query-param":
+                return new Entry(name, "PythonStr", "[?&](?P<key>[^=&\\s]+)=(?P<value>[^&\\s]*)", "");
+            case "py-def":
+                return new Entry(name, "PythonStr", "^\\s*def\\s+(?P<name>\\w+)\\s*\\((?P<args>[^)]*)\\)\\s*:", "m");
+            case "pybytes-http-header":
+                return new Entry(name, "PythonBytes", "^(?P<field>[A-Za-z][\\w-]*):[ \\t]*(?P<value>[^\\r\\n]*)\\r?$", "m");
+            case "pybytes-hex-escape":
+                return new Entry(name, "PythonBytes", "(?:\\\\x[0-9a-fA-F]{2})+", "");
+            case "js-repeated-word":
+                return new Entry(name, null, "\\b(\\w+)\\s+\\1\\b", "i");
+            case "js-html-element":
+                return new Entry(name, null, "<([a-z][a-z0-9]*)\\b[^>]*>([^<]*)<\\/\\1>", "i");
+            case "py-quoted-string":
+                return new Entry(name, "PythonStr", "(?P<quote>['\"])(?P<text>(?:\\\\.|(?!(?P=quote))[^\\\\])*)(?P=quote)", "");
+            case "pybytes-repeated-header":
+                return new Entry(name, "PythonBytes", "^(?P<field>[\\w-]+):.*\\r?\\n(?P=field):", "m");
+            default:
+                throw new IllegalArgumentException("unknown corpus entry: " + name);
+        }
+    }
+
+    /**
+     * Returns the number of non-overlapping matches of {@code regex} in {@code input}, searching
+     * like a global expression.
+     */
+    public static int countMatches(Value regex, String input) {
+        int nMatches = 0;
+        int fromIndex = 0;
+        while (fromIndex <= input.length()) {
+            Value result = regex.invokeMember("exec", input, fromIndex);
+            if (!result.getMember("isMatch").asBoolean()) {
+                break;
+            }
+            nMatches++;
+            int start = result.invokeMember("getStart", 0).asInt();
+            int end = result.invokeMember("getEnd", 0).asInt();
+            fromIndex = end == start ? end + 1 : end;
+        }
+        return nMatches;
+    }
+
+    private static String generateDocument(int nParagraphs) {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < nParagraphs; i++) {
+            switch (i % 6) {
+                case 0:
+                    for (int j = 0; j < 40; j++) {
+                        String word = pick(random, WORDS);
+                        sb.append(word).append(random.nextInt(20) == 0 ? " " + word : "").append(j % 12 == 11 ? ".\n" : " ");
+                    }
+                    sb.append("Contact ").append(pick(random, WORDS)).append('.').append(random.nextInt(100)).append('@').append(pick(random, HOSTS));
+                    sb.append(" or see <a href=\"https://").append(pick(random, HOSTS)).append(pick(random, PATHS)).append("\">the <b>docs</b></a>.\n");
+                    break;
+                case 1:
+                    sb.append(random.nextInt(256)).append('.').append(random.nextInt(256)).append('.').append(random.nextInt(256)).append('.').append(random.nextInt(256));
+                    sb.append(" - - [").append(format("%02d/Oct/2020:%02d:%02d:%02d +0200", 1 + random.nextInt(28), random.nextInt(24), random.nextInt(60), random.nextInt(60)));
+                    sb.append("] \"").append(pick(random, METHODS)).append(' ').append(pick(random, PATHS)).append(" HTTP/1.1\" ").append(random.nextBoolean() ? 200 : 404);
+                    sb.append(' ').append(random.nextInt(100000)).append('\n');
+                    break;
+                case 2:
+                    sb.append("{\"id\": ").append(random.nextInt(10000)).append(", \"name\": \"").append(pick(random, WORDS)).append("\\\"").append(pick(random, WORDS));
+                    sb.append("\\\"\", \"created\": \"").append(format("2020-%02d-%02dT%02d:%02d:%02d.%03dZ", 1 + random.nextInt(12), 1 + random.nextInt(28), random.nextInt(24),
+                                    random.nextInt(60), random.nextInt(60), random.nextInt(1000)));
+                    sb.append("\", \"url\": \"http://").append(pick(random, HOSTS)).append(':').append(8000 + random.nextInt(100)).append(pick(random, PATHS)).append("\"}\n");
+                    break;
+                case 3:
+                    sb.append("def ").append(pick(random, WORDS).replaceAll("\\W", "_")).append("_").append(i).append("(self, data, limit=").append(random.nextInt(100)).append("):\n");
+                    sb.append("    result = self.").append(pick(random, WORDS).replaceAll("\\W", "_")).append("(data, 'x\\'y', \"").append(pick(random, WORDS)).append("\")\n");
+                    sb.append("    payload = b'\\x").append(format("%02x", random.nextInt(256))).append("\\x").append(format("%02X", random.nextInt(256))).append("'\n");
+                    sb.append("    return result\n");
+                    break;
+                case 4:
+                    sb.append("Host: ").append(pick(random, HOSTS)).append("\r\nContent-Type: text/html; charset=utf-8\r\nContent-Length: ").append(random.nextInt(10000));
+                    sb.append("\r\n").append(random.nextBoolean() ? "Set-Cookie: a=1\r\nSet-Cookie: b=2\r\n" : "").append("X-Request-Id: ").append(Long.toHexString(random.nextLong())).append("\r\n\r\n");
+                    break;
+                default:
+                    sb.append("<p>Visit <a href=\"").append(pick(random, PATHS)).append("\">").append(pick(random, WORDS)).append("</a> or <em>").append(pick(random, WORDS));
+                    sb.append("</em> at ").append(format("2020-%02d-%02dT%02d:%02d:%02d+02:00", 1 + random.nextInt(12), 1 + random.nextInt(28), random.nextInt(24), random.nextInt(60),
+                                    random.nextInt(60))).append("</p>\n");
+                    break;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String format(String format, Object... args) {
+        return String.format(Locale.ROOT, format, args);
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
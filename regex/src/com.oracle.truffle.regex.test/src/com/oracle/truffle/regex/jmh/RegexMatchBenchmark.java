@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.truffle.regex.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Value;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.oracle.truffle.regex.tregex.test.TRegexTestDummyLanguage;
+
+/**
+ * Measures finding all matches of the expressions of the {@link RegexCorpus} that TRegex matches
+ * with automata. With the {@code dfa} executor, the engine switches to a DFA once the expression
+ * was executed often enough, which happens during warmup. With the {@code nfa} executor, the
+ * engine runs with {@code NFAOnly} and keeps simulating the NFA. Run with {@code -prof gc} to
+ * measure the memory allocated per search.
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RegexMatchBenchmark extends BenchmarkBase {
+
+    @State(Scope.Benchmark)
+    public static class BenchState {
+
+        @Param({"js-email", "js-url", "js-ipv4", "js-timestamp", "js-access-log", "js-json-string", "js-unicode-word", "py-assignment", "py-query-param", "py-def",
+                        "pybytes-http-header", "pybytes-hex-escape"}) String entry;
+        @Param({"dfa", "nfa"}) String executor;
+
+        String input;
+        Context context;
+        Value regex;
+
+        @Setup
+        public void setUp() {
+            RegexCorpus.Entry corpusEntry = RegexCorpus.get(entry);
+            input = corpusEntry.getInput();
+            context = Context.newBuilder().build();
+            context.enter();
+            Value engine = context.eval(TRegexTestDummyLanguage.ID, "").execute(corpusEntry.getEngineOptions("nfa".equals(executor) ? "NFAOnly=true" : ""));
+            regex = engine.execute(corpusEntry.getPattern(), corpusEntry.getFlags());
+        }
+
+        @TearDown
+        public void tearDown() {
+            context.leave();
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public int findAll(BenchState state) {
+        return RegexCorpus.countMatches(state.regex, state.input);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.truffle.regex.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Value;
+import org.graalvm.polyglot.proxy.ProxyArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.oracle.truffle.regex.tregex.test.TRegexTestDummyLanguage;
+
+/**
+ * Compares matching a set of expressions with a single regex set against matching every expression
+ * separately.
+ */
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RegexSetBenchmark extends BenchmarkBase {
+
+    private static final String[] KEYWORDS = {"abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const", "continue", "default", "double", "else", "enum",
+                    "extends", "final", "finally", "float", "for", "goto", "if", "implements", "import", "instanceof", "int", "interface", "long", "native", "new", "package", "private",
+                    "protected", "public", "return", "short", "static", "strictfp", "super", "switch", "synchronized", "this", "throw", "throws", "transient", "try", "void", "volatile",
+                    "while"};
+
+    @State(Scope.Benchmark)
+    public static class BenchState {
+
+        @Param({"8", "49"}) int nPatterns;
+
+        String input;
+        Context context;
+        Value[] tregexPatterns;
+        Value tregexSet;
+
+        @Setup
+        public void setUp() {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 200; i++) {
+                sb.append("the quick brown fox jumps over the lazy dog ");
+            }
+            input = sb.append("synchronized").toString();
+            context = Context.newBuilder().build();
+            context.enter();
+            Value engine = context.eval(TRegexTestDummyLanguage.ID, "").execute("");
+            String[] patterns = new String[nPatterns];
+            tregexPatterns = new Value[nPatterns];
+            for (int i = 0; i < nPatterns; i++) {
+                patterns[i] = "\\b" + KEYWORDS[KEYWORDS.length - nPatterns + i] + "\\b";
+                tregexPatterns[i] = engine.execute(patterns[i], "");
+            }
+            tregexSet = engine.invokeMember("compileSet", ProxyArray.fromArray((Object[]) patterns), "");
+        }
+
+        @TearDown
+        public void tearDown() {
+            context.leave();
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public int sequential(BenchState state) {
+        int nMatches = 0;
+        for (Value pattern : state.tregexPatterns) {
+            if (pattern.invokeMember("exec", state.input, 0).getMember("isMatch").asBoolean()) {
+                nMatches++;
+            }
+        }
+        return nMatches;
+    }
+
+    @Benchmark
+    public int regexSet(BenchState state) {
+        return (int) state.tregexSet.invokeMember("matches", state.input).getArraySize();
+    }
+}
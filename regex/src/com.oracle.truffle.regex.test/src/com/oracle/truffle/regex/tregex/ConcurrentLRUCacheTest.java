@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.truffle.regex.tregex;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.oracle.truffle.regex.util.ConcurrentLRUCache;
+
+public class ConcurrentLRUCacheTest {
+
+    @Test
+    public void hitsAndMisses() {
+        ConcurrentLRUCache<String, Integer> cache = new ConcurrentLRUCache<>(16, 1000, 1, (k, v) -> 1);
+        Assert.assertEquals(3, (int) cache.get("abc", String::length));
+        Assert.assertEquals(3, (int) cache.get("abc", k -> -1));
+        Assert.assertEquals(1, cache.getHits());
+        Assert.assertEquals(1, cache.getMisses());
+        Assert.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void evictLeastRecentlyUsed() {
+        ConcurrentLRUCache<String, Integer> cache = new ConcurrentLRUCache<>(2, 1000, 1, (k, v) -> 1);
+        cache.get("a", String::length);
+        cache.get("b", String::length);
+        cache.get("a", String::length);
+        cache.get("c", String::length);
+        Assert.assertEquals(1, cache.getEvictions());
+        Assert.assertEquals(2, cache.size());
+        cache.get("a", String::length);
+        Assert.assertEquals(2, cache.getHits());
+        cache.get("b", String::length);
+        Assert.assertEquals(4, cache.getMisses());
+    }
+
+    @Test
+    public void evictByWeight() {
+        ConcurrentLRUCache<String, Integer> cache = new ConcurrentLRUCache<>(100, 10, 1, (k, v) -> v);
+        cache.get("aaaa", String::length);
+        cache.get("bbbb", String::length);
+        Assert.assertEquals(8, cache.weight());
+        cache.get("cccc", String::length);
+        Assert.assertEquals(1, cache.getEvictions());
+        Assert.assertEquals(8, cache.weight());
+    }
+
+    @Test
+    public void failuresAreNotCached() {
+        ConcurrentLRUCache<String, Integer> cache = new ConcurrentLRUCache<>(16, 1000, 1, (k, v) -> 1);
+        try {
+            cache.get("a", k -> {
+                throw new IllegalArgumentException();
+            });
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(1, (int) cache.get("a", String::length));
+    }
+
+    @Test
+    public void computeOnce() throws Exception {
+        ConcurrentLRUCache<String, Integer> cache = new ConcurrentLRUCache<>(16, 1000, 4, (k, v) -> 1);
+        AtomicInteger computations = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        int nThreads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+        try {
+            Future<?>[] futures = new Future<?>[nThreads];
+            for (int i = 0; i < nThreads; i++) {
+                futures[i] = executor.submit(() -> {
+                    start.await();
+                    return cache.get("abc", k -> {
+                        computations.incrementAndGet();
+                        return k.length();
+                    });
+                });
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                Assert.assertEquals(3, future.get());
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        Assert.assertEquals(1, computations.get());
+        Assert.assertEquals(nThreads - 1, cache.getHits());
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.truffle.regex.tregex.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.PolyglotException;
+import org.graalvm.polyglot.Value;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AutomataFileTest {
+
+    private Context context;
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        context = Context.newBuilder().allowIO(true).build();
+        context.enter();
+        file = File.createTempFile("tregex-automata-", ".bin");
+        file.deleteOnExit();
+    }
+
+    @After
+    public void tearDown() {
+        context.leave();
+        context.close();
+        file.delete();
+    }
+
+    private Value createEngine(String options) {
+        return context.eval(TRegexTestDummyLanguage.ID, "").execute("RecordAutomata=true" + (options.isEmpty() ? "" : ",") + options);
+    }
+
+    /**
+     * Compiles and executes all patterns in an engine that generates their DFAs right away, and
+     * writes the DFAs to {@link #file}.
+     */
+    private int saveAutomata(String options, String... patterns) {
+        Value engine = createEngine("GenerateDFAImmediately=true" + (options.isEmpty() ? "" : ",") + options);
+        for (String pattern : patterns) {
+            engine.execute(pattern, "").invokeMember("exec", "xaab", 0);
+        }
+        int saved = engine.invokeMember("saveAutomata", file.getPath()).asInt();
+        assertTrue(saved > 0);
+        return saved;
+    }
+
+    private static void assertLoadFails(Value engine, String path, String expectedMessage) {
+        try {
+            engine.invokeMember("loadAutomata", path);
+            fail("automata file was loaded");
+        } catch (PolyglotException e) {
+            assertTrue(e.isGuestException());
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Cannot load TRegex automata from " + path));
+            assertTrue(e.getMessage(), e.getMessage().contains(expectedMessage));
+        }
+    }
+
+    private static void assertMatches(Value engine) {
+        Value result = engine.execute("(a+)(b)", "").invokeMember("exec", "xaab", 0);
+        assertTrue(result.getMember("isMatch").asBoolean());
+        assertEquals(1, result.invokeMember("getStart", 1).asInt());
+        assertEquals(3, result.invokeMember("getEnd", 1).asInt());
+        assertEquals(3, result.invokeMember("getStart", 2).asInt());
+        assertEquals(4, result.invokeMember("getEnd", 2).asInt());
+    }
+
+    @Test
+    public void testSaveAndLoad() {
+        int saved = saveAutomata("", "(a+)(b)", "a+b");
+        // the loading engine does not use the regression test mode, so the loaded DFAs replace the
+        // NFA right away and are the only automata executed.
+        Value loadingEngine = createEngine("");
+        assertEquals(saved, loadingEngine.invokeMember("loadAutomata", file.getPath()).asInt());
+        assertMatches(loadingEngine);
+        Value result = loadingEngine.execute("a+b", "").invokeMember("exec", "xaab", 0);
+        assertEquals(1, result.invokeMember("getStart", 0).asInt());
+        assertEquals(4, result.invokeMember("getEnd", 0).asInt());
+        assertFalse(loadingEngine.execute("a+b", "").invokeMember("exec", "xaa", 0).getMember("isMatch").asBoolean());
+    }
+
+    @Test
+    public void testLongPattern() {
+        char[] chars = new char[70000];
+        Arrays.fill(chars, 'x');
+        String pattern = "[" + new String(chars) + "a]+b";
+        int saved = saveAutomata("", pattern);
+        Value loadingEngine = createEngine("");
+        assertEquals(saved, loadingEngine.invokeMember("loadAutomata", file.getPath()).asInt());
+        assertEquals(0, loadingEngine.execute(pattern, "").invokeMember("exec", "xaab", 0).invokeMember("getStart", 0).asInt());
+    }
+
+    @Test
+    public void testTruncatedFile() throws IOException {
+        saveAutomata("", "(a+)(b)");
+        try (RandomAccessFile f = new RandomAccessFile(file, "rw")) {
+            f.setLength(f.length() / 2);
+        }
+        Value loadingEngine = createEngine("");
+        assertLoadFails(loadingEngine, file.getPath(), "");
+        // nothing was loaded, the engine still works
+        assertMatches(loadingEngine);
+    }
+
+    @Test
+    public void testCorruptFile() throws IOException {
+        saveAutomata("", "(a+)(b)");
+        try (RandomAccessFile f = new RandomAccessFile(file, "rw")) {
+            f.seek(f.length() - 1);
+            int last = f.read();
+            f.seek(f.length() - 1);
+            f.write(last ^ 0xff);
+        }
+        Value loadingEngine = createEngine("");
+        assertLoadFails(loadingEngine, file.getPath(), "corrupt TRegex automaton file");
+        assertMatches(loadingEngine);
+    }
+
+    @Test
+    public void testIncompatibleOptions() {
+        saveAutomata("U180EWhitespace=true", "a+b");
+        assertLoadFails(createEngine(""), file.getPath(), "incompatible regex options");
+    }
+
+    @Test
+    public void testMissingFile() {
+        assertTrue(file.delete());
+        assertLoadFails(createEngine(""), file.getPath(), "");
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.truffle.regex.tregex.test;
+
+import java.util.Collections;
+
+import org.graalvm.polyglot.PolyglotException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JsBacktrackingTests extends RegexTestBase {
+
+    private static final String MANY_AS_THEN_B = String.join("", Collections.nCopies(40, "a")) + "b";
+
+    @Override
+    String getEngineOptions() {
+        return "MemoizeBacktracking=true,BacktrackingStepLimit=100000";
+    }
+
+    @Test
+    public void memoizedExponentialPattern() {
+        test("^(?!b)(a|aa)*$", "", MANY_AS_THEN_B, 0, false);
+        test("(?!b)(a|aa)*$", "", MANY_AS_THEN_B, 0, true, 41, 41, -1, -1);
+    }
+
+    @Test
+    public void memoizedCaptureGroups() {
+        test("^(?!x)(a|ab)*(c)", "", "ababc", 0, true, 0, 5, 2, 4, 4, 5);
+        test("(?!x)(a|ab)*?(b)", "", "xabab", 0, true, 1, 3, 1, 2, 2, 3);
+    }
+
+    @Test
+    public void backReferenceWithinStepLimit() {
+        test("(a+)\\1", "", "xaaaa", 0, true, 1, 5, 1, 3);
+    }
+
+    @Test
+    public void stepLimitExceeded() {
+        try {
+            test("^(a)(?:\\1|a)*$", "", MANY_AS_THEN_B, 0, false);
+            Assert.fail("expected the step limit to be exceeded");
+        } catch (PolyglotException e) {
+            Assert.assertTrue(e.isCancelled());
+        }
+    }
+}
@@ -40,6 +40,9 @@
  */
 package com.oracle.truffle.regex.tregex.test;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 import org.junit.Test;
 
 public class JsTests extends RegexTestBase {
@@ -89,4 +92,169 @@ public class JsTests extends RegexTestBase {
         test("\\0", "u", "\u0000", 0, true, 0, 1);
     }
 
+    @Test
+    public void dfaTooBig() {
+        // The DFA of these expressions exceeds TRegexMaxDFASize, they are executed by the on-the-fly
+        // DFA executor.
+        test("[ab]*a[ab]{12}", "", "abbbbbbbbbbbb", 0, true, 0, 13);
+        test("[ab]*a[ab]{12}", "", "bbbbbbbbbbbbbbbbbbbb", 0, false);
+        test("[ab]*a[ab]{12}", "", "xxaaaaaaaaaaaaab", 0, true, 2, 16);
+        test("[ab]*a[ab]{12}", "", "xxaaaaaaaaaaaaab", 3, true, 3, 16);
+        test("[ab]*a[ab]{12}", "", "xxaaaaaaaaaaaaab", 4, false);
+        test("([ab]*)a([ab]{12})", "", "xxaaaaaaaaaaaaab", 0, true, 2, 16, 2, 3, 4, 16);
+        test("^[ab]*a[ab]{12}", "", "xxaaaaaaaaaaaaab", 0, false);
+        test("[ab]*a[ab]{12}$", "", "\u00e4abbbbbbbbbbbb\u00e4", 0, false);
+        test("[ab]*a[ab]{12}$", "", "\u00e4abbbbbbbbbbbb", 0, true, 1, 14);
+        // capture groups are calculated from the last position where no path was active
+        test("[ab]*a[ab]{12}|c.*d", "", "xcaaaaaaaaaaaaabd", 0, true, 1, 17);
+        test("[ab]*a[ab]{12}|c.*d", "", "cxdaaaaaaaaaaaaab", 0, true, 0, 3);
+        test("(?<=x)[ab]*a[ab]{12}", "", "aaaaaaaaaaaaabxabbbbbbbbbbbb", 0, true, 15, 28);
+        test("(?<=x)([ab]*)a([ab]{12})", "", "yaaaaaaaaaaaaabyxaaaaaaaaaaaaab", 0, true, 17, 31, 17, 18, 19, 31);
+        // successors of non-ASCII characters are cached by range
+        test("[\u00e0-\u00ff]*\u00e4[\u00e0-\u00ff]{12}", "", "\u00e0\u00e1\u00e2\u00e4\u00e5\u00e6\u00e7\u00e8\u00e9\u00ea\u00eb\u00ec\u00ed\u00ee\u00ef\u00f0", 0, true, 0, 16);
+        test("[\u00e0-\u00ff]*\u00e4[\u00e0-\u00ff]{12}", "", "\u0100\u00e4\u00e5\u00e6\u00e7\u00e8\u00e9\u00ea\u00eb\u00ec\u00ed\u00ee\u00ef\u00f0\u0101", 0, true, 1, 14);
+        test("[\u00e0-\u00ff]*\u00e4[\u00e0-\u00ff]{12}", "", "\u00e4\u00e5\u00e6\u00e7\u00e8\u00e9\u00ea\u00eb\u00ec\u00ed\u00ee\u00ef\u0100", 0, false);
+    }
+
+    @Test
+    public void innerLiteralRareInfix() {
+        // The inner literals of these expressions are searched for by their rarest two consecutive
+        // characters instead of their first two characters.
+        test("\\d seconds elapsed", "", "1 seconds elapse 2 seconds elapsed", 0, true, 17, 34);
+        test("\\d seconds elapsed", "", "1 seconds elapse 2 seconds elapse", 0, false);
+        test("\\d seconds elapsed", "", "1 seconds elapsed", 1, false);
+        test("(\\d) seconds elapsed", "", "x1 seconds elapsed", 0, true, 1, 18, 1, 2);
+        test("\\d ERROR:x", "i", "12 error: 3 Error:X", 0, true, 10, 19);
+        test("\\d ERROR:x", "i", "12 error: 3 Error:", 0, false);
+        test("a?jquery", "", "jquer ajquery", 0, true, 6, 13);
+    }
+
+    @Test
+    public void regexSet() {
+        String[] patterns = {"abc", "b+c", "^x", "c$", "d", "(?<=a)b", "a.*z", "x*"};
+        testSet(patterns, "", "abc", 0, 1, 3, 5, 7);
+        testSet(patterns, "", "xyz", 2, 7);
+        testSet(patterns, "", "", 7);
+        testSet(patterns, "", "abdz", 4, 5, 6, 7);
+        testSet(patterns, "", "abd\nz", 4, 5, 7);
+        testSet(new String[]{"ABC", "^b"}, "i", "xabc", 0);
+        testSet(new String[]{"a", "b"}, "y", "ab", 0);
+        testSet(new String[]{"\\u{1F600}", "^.$"}, "u", "\uD83D\uDE00", 0, 1);
+        testSet(new String[]{"[ab]*a[ab]{12}", "a{3}"}, "", "xxaaaaaaaaaaaaab", 0, 1);
+        testSet(new String[0], "", "abc");
+        String[] words = new String[100];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = "w" + i;
+        }
+        testSet(words, "", "w5 w70 w99", 5, 7, 9, 70, 99);
+    }
+
+    @Test
+    public void regexStream() {
+        testStream("ab*", "", new String[]{"ab", "bxa", "b"}, 0, 3, 4, 6);
+        testStream("x*", "", new String[]{"a", "b"}, 0, 0, 1, 1, 2, 2);
+        testStream("a|ab", "", new String[]{"a", "b", "a"}, 0, 1, 2, 3);
+        testStream("\\d+", "", new String[]{"12", "34", "x5"}, 0, 4, 5, 6);
+        testStream("\\u{1F600}", "u", new String[]{"x\uD83D", "\uDE00"}, 1, 3);
+        testStream("^a", "", new String[]{"a", "a"}, 0, 1);
+        testStream("c$", "", new String[]{"ab", "c"}, 2, 3);
+        testStream("c$", "", new String[]{"c", "x"});
+        testStream("a", "y", new String[]{"aab"}, 0, 1, 1, 2);
+        testStream("a\\d*b", "", new String[]{"xa1", "2", "", "3bya", "b"}, 1, 6, 7, 9);
+        testStream("[]", "", new String[]{"abc"});
+    }
+
+    @Test
+    public void regexStreamBytes() {
+        // code points split across chunks
+        testStreamBytes("\\u{1F600}", "u", "UTF-8", new Object[]{new byte[]{'x', (byte) 0xf0, (byte) 0x9f}, new byte[]{(byte) 0x98}, new byte[]{(byte) 0x80}}, 1, 5);
+        testStreamBytes(".", "u", "UTF-8", new Object[]{new byte[]{(byte) 0xc3}, ByteBuffer.wrap(new byte[]{'x', (byte) 0xa9, 'a'}, 1, 2)}, 0, 2, 2, 3);
+        testStreamBytes("\\u20ac+", "u", "UTF-8", new Object[]{new byte[]{(byte) 0xe2, (byte) 0x82}, new byte[]{(byte) 0xac, (byte) 0xe2}, new byte[]{(byte) 0x82, (byte) 0xac}}, 0, 6);
+        // a truncated sequence at the end of the input is one replacement character
+        testStreamBytes(".", "u", "UTF-8", new Object[]{new byte[]{'a', (byte) 0xe2, (byte) 0x82}}, 0, 1, 1, 3);
+        // overlong forms, encoded surrogates and code points above U+10FFFF are malformed
+        testStreamBytes(".", "u", "UTF-8", new Object[]{new byte[]{(byte) 0xc0, (byte) 0x80}}, 0, 1, 1, 2);
+        testStreamBytes(".", "u", "UTF-8", new Object[]{new byte[]{(byte) 0xe0, (byte) 0x80}, new byte[]{(byte) 0x80}}, 0, 1, 1, 2, 2, 3);
+        testStreamBytes(".", "u", "UTF-8", new Object[]{new byte[]{(byte) 0xe0, (byte) 0xa0, (byte) 0x80}}, 0, 3);
+        testStreamBytes(".", "u", "UTF-8", new Object[]{new byte[]{(byte) 0xed}, new byte[]{(byte) 0xa0, (byte) 0x80}}, 0, 1, 1, 2, 2, 3);
+        testStreamBytes(".", "u", "UTF-8", new Object[]{new byte[]{(byte) 0xed, (byte) 0x9f, (byte) 0xbf}}, 0, 3);
+        testStreamBytes(".", "u", "UTF-8", new Object[]{new byte[]{(byte) 0xf0, (byte) 0x8f, (byte) 0xbf, (byte) 0xbf}}, 0, 1, 1, 2, 2, 3, 3, 4);
+        testStreamBytes(".", "u", "UTF-8", new Object[]{new byte[]{(byte) 0xf4, (byte) 0x90, (byte) 0x80, (byte) 0x80}}, 0, 1, 1, 2, 2, 3, 3, 4);
+        testStreamBytes(".", "u", "UTF-8", new Object[]{new byte[]{(byte) 0xf4, (byte) 0x8f, (byte) 0xbf, (byte) 0xbf}}, 0, 4);
+        testStreamBytes("\\u00e9+", "", "LATIN-1", new Object[]{new byte[]{(byte) 0xe9}, new byte[]{'a', (byte) 0xe9, (byte) 0xe9}}, 0, 1, 2, 4);
+        testStreamBytes("\\u00e9\\u00ff", "", "LATIN-1", new Object[]{new byte[]{'a', (byte) 0xe9}, ByteBuffer.wrap(new byte[]{(byte) 0xff})}, 1, 3);
+    }
+
+    @Test
+    public void regexStreamFindAll() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 50000; i++) {
+            sb.append("foo ").append(i).append(i % 7 == 0 ? "\uD83D\uDE00" : " bar,");
+        }
+        String input = sb.toString();
+        testFindAll("\\d+", "", input);
+        testFindAll("[a-z]+\\s*\\d*", "", input);
+        testFindAll("x*", "", input);
+        testFindAll("\\u{1F600}|o+", "u", input);
+        testFindAll("r,f[^,]*", "", input);
+        testFindAll("foo[^]*", "", input);
+        testFindAll("^foo", "", input);
+        testFindAllUTF8("\\d+", "u", input);
+        testFindAllUTF8("\\u{1F600}|o+", "u", input);
+        testFindAllUTF8("[^\\d]+", "u", input);
+        testFindAllUTF8("foo[^]*", "u", input);
+    }
+
+    @Test
+    public void regexStreamFindAllChunkBounds() {
+        // In regression test mode, findAll splits even short inputs into chunks of a few elements,
+        // so the chunk bounds fall into every position of the multi-byte code points.
+        String codePoints = "\u00e9\u20ac\uD83D\uDE00x\u00e9\uD83D\uDE00\u20ac\u20acy\uD83D\uDE00\u00e9";
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 8; i++) {
+            String input = sb.toString() + codePoints + codePoints;
+            testFindAll("[^xy]", "u", input);
+            testFindAll("\\u{1F600}+|\u20ac", "u", input);
+            testFindAll("[^]", "", input);
+            testFindAllUTF8("[^xy]", "u", input);
+            testFindAllUTF8("\\u{1F600}|\u20ac+", "u", input);
+            testFindAllUTF8("\u00e9[^]?", "u", input);
+            sb.append('a');
+        }
+        testFindAll(".", "u", "\uD83Dab\uDE00\uD83D\uD83D\uDE00cd\uDE00\uDE00e");
+    }
+
+    @Test
+    public void utf8ByteInput() {
+        testUTF8(".+", "u", "a\u00f1\u20ac\ud83d\ude00b", 0, true, 0, 11);
+        testUTF8(".+", "u", "a\u20ac\u2028b", 0, true, 0, 4);
+        testUTF8("[^,]+", "u", "gr\u00f6\u00dfe,\u20ac", 0, true, 0, 7);
+        testUTF8("[^,]+", "u", "gr\u00f6\u00dfe,\u20ac", 8, true, 8, 11);
+        testUTF8("[a-z]+", "u", "\u20acabc", 0, true, 3, 6);
+        testUTF8("\\u00e9+", "u", "x\u00e9\u00e9", 0, true, 1, 5);
+        testUTF8("[\\u0080-\\u07ff]+", "u", "a\u00df\u0436\u20ac", 0, true, 1, 5);
+        testUTF8("[\\u{10000}-\\u{10ffff}]+", "u", "a\ud83d\ude00\ud83d\ude00", 0, true, 1, 9);
+        testUTF8("\\u{1F600}", "u", "\u20ac\ud83d\ude00", 0, true, 3, 7);
+        testUTF8("[^\\u0100-\\u017f]+", "u", "\u00ff\u0100", 0, true, 0, 2);
+        testUTF8("\\u0436", "u", "abc\u20ac", 0, false);
+        // invalid lead bytes must not be resolved from the lead byte alone in any DFA state
+        testUTF8("x[\\0-\\x7f]*", "u", new byte[]{'x', (byte) 0xc0, (byte) 0x80}, 0, true, 0, 1);
+        testUTF8("x[\\0-\\x7f]*", "u", new byte[]{'x', 'a', (byte) 0xc1, (byte) 0xbf}, 0, true, 0, 2);
+        // ED A0..BF decodes to a surrogate, which is not part of a set ending at U+D7FF
+        testUTF8("[\\u{d000}-\\u{d7ff}]+", "u", new byte[]{'a', (byte) 0xed, (byte) 0x9f, (byte) 0xbf, (byte) 0xed, (byte) 0xa0, (byte) 0x80}, 0, true, 1, 4);
+        testUTF8("[\\u{d000}-\\u{dfff}]+", "u", new byte[]{'a', (byte) 0xed, (byte) 0x9f, (byte) 0xbf, (byte) 0xed, (byte) 0xa0, (byte) 0x80}, 0, true, 1, 7);
+    }
+
+    @Test
+    public void utf8ByteBufferInput() {
+        byte[] bytes = "12gr\u00f6\u00dfe,x".getBytes(StandardCharsets.UTF_8);
+        testUTF8("[^,]+", "u", ByteBuffer.wrap(bytes), 0, true, 0, 9);
+        // offsets are relative to the position, the limit ends the input
+        testUTF8("[^,0-9]+", "u", ByteBuffer.wrap(bytes, 2, 4), 0, true, 0, 4);
+        testUTF8("[^,0-9]+", "u", ByteBuffer.wrap(bytes, 2, 4).slice(), 1, true, 1, 4);
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        testUTF8("e,x", "u", direct, 0, true, 8, 11);
+    }
+
 }
@@ -42,10 +42,15 @@ package com.oracle.truffle.regex.tregex.test;
 
 import static org.junit.Assert.assertEquals;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import org.graalvm.polyglot.Context;
 import org.graalvm.polyglot.Value;
+import org.graalvm.polyglot.proxy.ProxyArray;
 import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.BeforeClass;
@@ -88,9 +93,39 @@ public abstract class RegexTestBase {
     }
 
     void test(String pattern, String flags, Object input, int fromIndex, boolean isMatch, int... captureGroupBounds) {
-        assert captureGroupBounds.length % 2 == 0;
         Value compiledRegex = compileRegex(pattern, flags);
-        Value result = execRegex(compiledRegex, input, fromIndex);
+        checkResult(compiledRegex, execRegex(compiledRegex, input, fromIndex), isMatch, captureGroupBounds);
+    }
+
+    /**
+     * Matches {@code pattern} in the {@code UTF-8} encoding against the UTF-8 encoded bytes of
+     * {@code input}. {@code fromIndex} and {@code captureGroupBounds} are byte offsets.
+     */
+    void testUTF8(String pattern, String flags, String input, int fromIndex, boolean isMatch, int... captureGroupBounds) {
+        testUTF8(pattern, flags, input.getBytes(StandardCharsets.UTF_8), fromIndex, isMatch, captureGroupBounds);
+    }
+
+    /**
+     * Matches {@code pattern} in the {@code UTF-8} encoding against the raw bytes {@code input},
+     * which may contain invalid sequences.
+     */
+    void testUTF8(String pattern, String flags, byte[] input, int fromIndex, boolean isMatch, int... captureGroupBounds) {
+        Value compiledRegex = getEngine().execute(pattern, flags, "UTF-8");
+        checkResult(compiledRegex, compiledRegex.invokeMember("execBytes", input, fromIndex), isMatch, captureGroupBounds);
+    }
+
+    /**
+     * Matches {@code pattern} in the {@code UTF-8} encoding against the bytes of {@code input}
+     * between its position and its limit. {@code fromIndex} and {@code captureGroupBounds} are
+     * relative to the buffer's position.
+     */
+    void testUTF8(String pattern, String flags, ByteBuffer input, int fromIndex, boolean isMatch, int... captureGroupBounds) {
+        Value compiledRegex = getEngine().execute(pattern, flags, "UTF-8");
+        checkResult(compiledRegex, compiledRegex.invokeMember("execBytes", input, fromIndex), isMatch, captureGroupBounds);
+    }
+
+    private static void checkResult(Value compiledRegex, Value result, boolean isMatch, int... captureGroupBounds) {
+        assert captureGroupBounds.length % 2 == 0;
         assertEquals(isMatch, result.getMember("isMatch").asBoolean());
         if (isMatch) {
             assertEquals(captureGroupBounds.length / 2, compiledRegex.getMember("groupCount").asInt());
@@ -102,6 +137,80 @@ public abstract class RegexTestBase {
         }
     }
 
+    void testSet(String[] patterns, String flags, String input, int... expectedMatches) {
+        Value regexSet = getEngine().invokeMember("compileSet", ProxyArray.fromArray((Object[]) patterns), flags);
+        assertEquals(patterns.length, regexSet.getMember("size").asInt());
+        Value result = regexSet.invokeMember("matches", input);
+        int[] actualMatches = new int[(int) result.getArraySize()];
+        for (int i = 0; i < actualMatches.length; i++) {
+            actualMatches[i] = result.getArrayElement(i).asInt();
+        }
+        Assert.assertArrayEquals(expectedMatches, actualMatches);
+    }
+
+    void testStream(String pattern, String flags, String[] chunks, long... expectedMatches) {
+        Value scanner = getEngine().invokeMember("compileStream", pattern, flags).invokeMember("open");
+        List<Long> actualMatches = new ArrayList<>();
+        for (String chunk : chunks) {
+            addMatches(actualMatches, scanner.invokeMember("feed", chunk));
+        }
+        addMatches(actualMatches, scanner.invokeMember("finish"));
+        Assert.assertArrayEquals(expectedMatches, actualMatches.stream().mapToLong(Long::longValue).toArray());
+    }
+
+    /**
+     * Like {@link #testStream(String, String, String[], long...)}, but feeds {@code byte[]} or
+     * {@link ByteBuffer} chunks in the given {@code encoding}. Offsets are byte offsets.
+     */
+    void testStreamBytes(String pattern, String flags, String encoding, Object[] chunks, long... expectedMatches) {
+        Value scanner = getEngine().invokeMember("compileStream", pattern, flags, encoding).invokeMember("open");
+        List<Long> actualMatches = new ArrayList<>();
+        for (Object chunk : chunks) {
+            addMatches(actualMatches, scanner.invokeMember("feed", chunk));
+        }
+        addMatches(actualMatches, scanner.invokeMember("finish"));
+        Assert.assertArrayEquals(expectedMatches, actualMatches.stream().mapToLong(Long::longValue).toArray());
+    }
+
+    void testFindAll(String pattern, String flags, String input) {
+        Value regexStream = getEngine().invokeMember("compileStream", pattern, flags);
+        Value scanner = regexStream.invokeMember("open");
+        List<Long> expectedMatches = new ArrayList<>();
+        addMatches(expectedMatches, scanner.invokeMember("feed", input));
+        addMatches(expectedMatches, scanner.invokeMember("finish"));
+        List<Long> actualMatches = new ArrayList<>();
+        addMatches(actualMatches, regexStream.invokeMember("findAll", input));
+        Assert.assertEquals(expectedMatches, actualMatches);
+    }
+
+    /**
+     * Like {@link #testFindAll(String, String, String)}, but searches the UTF-8 encoded bytes of
+     * {@code input}, passed both as a {@code byte[]} and as a {@link ByteBuffer} whose position is
+     * not zero.
+     */
+    void testFindAllUTF8(String pattern, String flags, String input) {
+        byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+        Value regexStream = getEngine().invokeMember("compileStream", pattern, flags, "UTF-8");
+        Value scanner = regexStream.invokeMember("open");
+        List<Long> expectedMatches = new ArrayList<>();
+        addMatches(expectedMatches, scanner.invokeMember("feed", bytes));
+        addMatches(expectedMatches, scanner.invokeMember("finish"));
+        List<Long> actualMatches = new ArrayList<>();
+        addMatches(actualMatches, regexStream.invokeMember("findAll", bytes));
+        Assert.assertEquals(expectedMatches, actualMatches);
+        byte[] padded = new byte[bytes.length + 3];
+        System.arraycopy(bytes, 0, padded, 3, bytes.length);
+        actualMatches.clear();
+        addMatches(actualMatches, regexStream.invokeMember("findAll", ByteBuffer.wrap(padded, 3, bytes.length)));
+        Assert.assertEquals(expectedMatches, actualMatches);
+    }
+
+    private static void addMatches(List<Long> matches, Value result) {
+        for (int i = 0; i < result.getArraySize(); i++) {
+            matches.add(result.getArrayElement(i).asLong());
+        }
+    }
+
     private static void fail(Value result, int... captureGroupBounds) {
         StringBuilder sb = new StringBuilder("expected: ").append(Arrays.toString(captureGroupBounds)).append(", actual: [");
         for (int i = 0; i < captureGroupBounds.length / 2; i++) {
@@ -40,17 +40,39 @@
  */
 package com.oracle.truffle.regex;
 
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.interop.UnknownIdentifierException;
 import com.oracle.truffle.regex.tregex.TRegexOptions;
 import com.oracle.truffle.regex.util.CompilationResult;
-import com.oracle.truffle.regex.util.LRUCache;
+import com.oracle.truffle.regex.util.ConcurrentLRUCache;
+import com.oracle.truffle.regex.util.TruffleReadOnlyKeysArray;
+import com.oracle.truffle.regex.util.TruffleReadOnlyMap;
 
+/**
+ * A {@link RegexEngine} that caches compilation results in a {@link ConcurrentLRUCache}. Concurrent
+ * compilations of the same {@link RegexSource} are performed only once.
+ * <p>
+ * The automata of a {@link RegexObject} are generated lazily on its first execution, so the cache
+ * cannot weigh its entries by the actual size of their automata. Instead, the weight of an entry
+ * is estimated from the length of its pattern, which bounds the size of the regex's NFA.
+ * <p>
+ * The cache's counters are exported via the {@code cacheStatistics} member, which returns an
+ * object with the members {@code size}, {@code weight}, {@code hits}, {@code misses},
+ * {@code evictions} and {@code compileTimeNanos}.
+ */
 public class CachingRegexEngine extends RegexEngine {
 
-    private final Map<RegexSource, CompilationResult<RegexObject>> cache = Collections.synchronizedMap(new LRUCache<>(TRegexOptions.RegexMaxCacheSize));
+    static final String PROP_CACHE_STATISTICS = "cacheStatistics";
+    private static final TruffleReadOnlyKeysArray KEYS = new TruffleReadOnlyKeysArray(PROP_VALIDATE, PROP_COMPILE_SET, PROP_COMPILE_STREAM, PROP_SAVE_AUTOMATA, PROP_LOAD_AUTOMATA,
+                    PROP_CACHE_STATISTICS);
+
+    private static final int ENTRY_BASE_WEIGHT = 16;
+
+    private final ConcurrentLRUCache<RegexSource, CompilationResult<RegexObject>> cache = new ConcurrentLRUCache<>(
+                    TRegexOptions.RegexMaxCacheSize, TRegexOptions.RegexMaxCacheWeight, TRegexOptions.RegexCacheShards, (source, result) -> weigh(source));
 
     public CachingRegexEngine(RegexCompiler compiler, RegexOptions options) {
         super(compiler, options);
@@ -58,25 +80,40 @@ public class CachingRegexEngine extends RegexEngine {
 
     @Override
     public RegexObject compile(RegexSource regexSource) throws RegexSyntaxException, UnsupportedRegexException {
-        CompilationResult<RegexObject> result = cacheGet(regexSource);
-        if (result == null) {
-            result = doCompile(regexSource);
-            cachePut(regexSource, result);
-        }
-        return result.unpack();
+        return cacheGet(regexSource).unpack();
     }
 
-    private CompilationResult<RegexObject> doCompile(RegexSource regexSource) {
-        return CompilationResult.pack(() -> super.compile(regexSource));
+    @TruffleBoundary
+    private CompilationResult<RegexObject> cacheGet(RegexSource regexSource) {
+        return cache.get(regexSource, source -> CompilationResult.pack(() -> super.compile(source)));
     }
 
-    @TruffleBoundary
-    private CompilationResult<RegexObject> cacheGet(RegexSource source) {
-        return cache.get(source);
+    private static int weigh(RegexSource source) {
+        return ENTRY_BASE_WEIGHT + source.getPattern().length();
     }
 
     @TruffleBoundary
-    private CompilationResult<RegexObject> cachePut(RegexSource source, CompilationResult<RegexObject> result) {
-        return cache.put(source, result);
+    public TruffleReadOnlyMap getCacheStatistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("size", cache.size());
+        statistics.put("weight", cache.weight());
+        statistics.put("hits", cache.getHits());
+        statistics.put("misses", cache.getMisses());
+        statistics.put("evictions", cache.getEvictions());
+        statistics.put("compileTimeNanos", cache.getComputeTimeNanos());
+        return new TruffleReadOnlyMap(statistics);
+    }
+
+    @Override
+    public TruffleReadOnlyKeysArray getKeys() {
+        return KEYS;
+    }
+
+    @Override
+    public Object readMemberImpl(String symbol) throws UnknownIdentifierException {
+        if (PROP_CACHE_STATISTICS.equals(symbol)) {
+            return getCacheStatistics();
+        }
+        return super.readMemberImpl(symbol);
     }
 }
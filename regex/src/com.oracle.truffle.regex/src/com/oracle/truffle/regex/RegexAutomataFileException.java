@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2018, 2019, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * The Universal Permissive License (UPL), Version 1.0
@@ -38,24 +38,34 @@
  * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
  * SOFTWARE.
  */
-package com.oracle.truffle.regex.util;
+package com.oracle.truffle.regex;
 
-import java.util.LinkedHashMap;
+import com.oracle.truffle.api.TruffleException;
+import com.oracle.truffle.api.nodes.Node;
 
 /**
- * An implementation of a cache with a least-recently-used policy via LinkedHashMap.
+ * Thrown by {@link RegexEngine#saveAutomata(String)} and {@link RegexEngine#loadAutomata(String)}
+ * if the automata file cannot be accessed, or if it is rejected because it is not a TRegex
+ * automata file or was written with incompatible options.
  */
-public final class LRUCache<K, V> extends LinkedHashMap<K, V> {
-    private static final long serialVersionUID = 7813848977534444613L;
-    private final int maxCacheSize;
+@SuppressWarnings("serial")
+public final class RegexAutomataFileException extends RuntimeException implements TruffleException {
 
-    public LRUCache(int maxCacheSize) {
-        super(16, 0.75F, true);
-        this.maxCacheSize = maxCacheSize;
+    public RegexAutomataFileException(String message, Throwable cause) {
+        super(message, cause);
     }
 
+    /**
+     * For performance reasons, this exception does not record any stack trace information.
+     */
+    @SuppressWarnings("sync-override")
     @Override
-    protected boolean removeEldestEntry(java.util.Map.Entry<K, V> eldest) {
-        return size() > maxCacheSize;
+    public Throwable fillInStackTrace() {
+        return this;
+    }
+
+    @Override
+    public Node getLocation() {
+        return null;
     }
 }
@@ -40,18 +40,29 @@
  */
 package com.oracle.truffle.regex;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
 import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.TruffleFile;
 import com.oracle.truffle.api.dsl.Cached;
 import com.oracle.truffle.api.dsl.Cached.Shared;
 import com.oracle.truffle.api.interop.ArityException;
 import com.oracle.truffle.api.interop.InteropLibrary;
+import com.oracle.truffle.api.interop.InvalidArrayIndexException;
 import com.oracle.truffle.api.interop.TruffleObject;
 import com.oracle.truffle.api.interop.UnknownIdentifierException;
+import com.oracle.truffle.api.interop.UnsupportedMessageException;
 import com.oracle.truffle.api.interop.UnsupportedTypeException;
+import com.oracle.truffle.api.library.CachedLibrary;
 import com.oracle.truffle.api.library.ExportLibrary;
 import com.oracle.truffle.api.library.ExportMessage;
 import com.oracle.truffle.regex.runtime.nodes.StringEqualsNode;
 import com.oracle.truffle.regex.runtime.nodes.ToStringNode;
+import com.oracle.truffle.regex.tregex.TRegexCompiler;
+import com.oracle.truffle.regex.tregex.dfa.DFATableStore;
 import com.oracle.truffle.regex.tregex.parser.RegexValidator;
 import com.oracle.truffle.regex.tregex.parser.flavors.RegexFlavor;
 import com.oracle.truffle.regex.tregex.parser.flavors.RegexFlavorProcessor;
@@ -85,13 +96,28 @@ import com.oracle.truffle.regex.util.TruffleReadOnlyKeysArray;
  * engine</li>
  * </ul>
  * <p>
+ * The invocable member {@code compileSet} accepts the same arguments, except that {@code pattern}
+ * is an array of patterns, and compiles them to a {@link RegexSetObject}, which reports the indices
+ * of all patterns matching a string in a single pass over it.
+ * <p>
+ * The invocable member {@code compileStream} accepts the same arguments and compiles them to a
+ * {@link RegexStreamObject}, which searches inputs that are fed in chunks.
+ * <p>
+ * The invocable members {@code saveAutomata} and {@code loadAutomata} take a file path and write
+ * or read the {@link DFATableStore} of the engine's {@link TRegexCompiler}. Both return the number
+ * of stored expressions. See {@link RegexOptions#isRecordAutomata()}.
+ * <p>
  * A {@link RegexEngine} can be obtained by executing the {@link RegexEngineBuilder}.
  */
 @ExportLibrary(InteropLibrary.class)
 public class RegexEngine extends AbstractConstantKeysObject {
 
-    private static final String PROP_VALIDATE = "validate";
-    private static final TruffleReadOnlyKeysArray KEYS = new TruffleReadOnlyKeysArray(PROP_VALIDATE);
+    static final String PROP_VALIDATE = "validate";
+    static final String PROP_COMPILE_SET = "compileSet";
+    static final String PROP_COMPILE_STREAM = "compileStream";
+    static final String PROP_SAVE_AUTOMATA = "saveAutomata";
+    static final String PROP_LOAD_AUTOMATA = "loadAutomata";
+    private static final TruffleReadOnlyKeysArray KEYS = new TruffleReadOnlyKeysArray(PROP_VALIDATE, PROP_COMPILE_SET, PROP_COMPILE_STREAM, PROP_SAVE_AUTOMATA, PROP_LOAD_AUTOMATA);
 
     private final RegexCompiler compiler;
     private final RegexOptions options;
@@ -115,13 +141,101 @@ public class RegexEngine extends AbstractConstantKeysObject {
             options.getFeatureSet().checkSupport(regexSource, validator.getFeatures());
             regexObject = new RegexObject(compiler, regexSource, RegexFlags.parseFlags(regexSource.getFlags()), validator.getNumberOfCaptureGroups(), validator.getNamedCaptureGroups());
         }
-        if (options.isRegressionTestMode()) {
+        if (options.isRegressionTestMode() || options.isGenerateDFAImmediately()) {
             // Force the compilation of the RegExp.
             regexObject.getCompiledRegexObject();
         }
         return regexObject;
     }
 
+    /**
+     * Compiles a set of regular expressions sharing the same flags and encoding to a
+     * {@link RegexSetObject}, which matches all of them in a single pass. Regex sets are always
+     * compiled by {@link TRegexCompiler}, expressions it does not support are rejected with an
+     * {@link UnsupportedRegexException} instead of being handed to a fallback compiler.
+     */
+    @TruffleBoundary
+    public RegexSetObject compileSet(RegexSource[] regexSources, Encoding encoding) throws RegexSyntaxException, UnsupportedRegexException {
+        RegexFlavor flavor = options.getFlavor();
+        for (RegexSource regexSource : regexSources) {
+            if (flavor != null) {
+                flavor.forRegex(regexSource).validate();
+            } else {
+                RegexValidator validator = new RegexValidator(regexSource, options);
+                validator.validate();
+                options.getFeatureSet().checkSupport(regexSource, validator.getFeatures());
+            }
+        }
+        return getTRegexCompiler("regex sets").compileSet(regexSources, encoding);
+    }
+
+    /**
+     * Compiles a regular expression to a {@link RegexStreamObject}, which searches inputs that are
+     * fed in chunks. Like regex sets, regex streams are always compiled by {@link TRegexCompiler}.
+     */
+    @TruffleBoundary
+    public RegexStreamObject compileStream(RegexSource regexSource) throws RegexSyntaxException, UnsupportedRegexException {
+        RegexFlavor flavor = options.getFlavor();
+        if (flavor != null) {
+            flavor.forRegex(regexSource).validate();
+        } else {
+            RegexValidator validator = new RegexValidator(regexSource, options);
+            validator.validate();
+            options.getFeatureSet().checkSupport(regexSource, validator.getFeatures());
+        }
+        return getTRegexCompiler("regex streams").compileStream(regexSource);
+    }
+
+    private TRegexCompiler getTRegexCompiler(String feature) {
+        RegexCompiler tRegexCompiler = compiler instanceof RegexCompilerWithFallback ? ((RegexCompilerWithFallback) compiler).getMainCompiler() : compiler;
+        if (!(tRegexCompiler instanceof TRegexCompiler)) {
+            throw new UnsupportedRegexException(feature + " are only supported by TRegex");
+        }
+        return (TRegexCompiler) tRegexCompiler;
+    }
+
+    /**
+     * Writes all DFAs recorded by this engine to the given file.
+     *
+     * @return the number of regular expressions whose DFAs were written.
+     * @throws RegexAutomataFileException if the file cannot be written.
+     */
+    @TruffleBoundary
+    public int saveAutomata(String path) {
+        DFATableStore store = getTRegexCompiler("persisted automata").getDFATableStore();
+        try {
+            TruffleFile file = RegexLanguage.getCurrentContext().getEnv().getPublicTruffleFile(path);
+            try (DataOutputStream out = new DataOutputStream(file.newOutputStream())) {
+                store.write(out);
+                return store.size();
+            }
+        } catch (IOException | SecurityException | UnsupportedOperationException e) {
+            throw new RegexAutomataFileException(String.format("Cannot save TRegex automata to %s: %s", path, e.getMessage()), e);
+        }
+    }
+
+    /**
+     * Loads DFAs previously written by {@link #saveAutomata(String)}. Expressions with loaded DFAs
+     * skip the NFA profiling phase and the DFA generation.
+     *
+     * @return the number of regular expressions whose DFAs were read.
+     * @throws RegexAutomataFileException if the file cannot be read, is not a TRegex automata file,
+     *             is truncated or corrupt, or was written by an engine with incompatible options.
+     *             In this case, no DFAs are loaded.
+     */
+    @TruffleBoundary
+    public int loadAutomata(String path) {
+        DFATableStore store = getTRegexCompiler("persisted automata").getDFATableStore();
+        try {
+            TruffleFile file = RegexLanguage.getCurrentContext().getEnv().getPublicTruffleFile(path);
+            try (DataInputStream in = new DataInputStream(file.newInputStream())) {
+                return store.read(in);
+            }
+        } catch (IOException | SecurityException | UnsupportedOperationException e) {
+            throw new RegexAutomataFileException(String.format("Cannot load TRegex automata from %s: %s", path, e.getMessage()), e);
+        }
+    }
+
     @Override
     public TruffleReadOnlyKeysArray getKeys() {
         return KEYS;
@@ -132,6 +246,14 @@ public class RegexEngine extends AbstractConstantKeysObject {
         switch (symbol) {
             case PROP_VALIDATE:
                 return new ValidateMethod(this);
+            case PROP_COMPILE_SET:
+                return new CompileSetMethod(this);
+            case PROP_COMPILE_STREAM:
+                return new CompileStreamMethod(this);
+            case PROP_SAVE_AUTOMATA:
+                return new AutomataFileMethod(this, true);
+            case PROP_LOAD_AUTOMATA:
+                return new AutomataFileMethod(this, false);
             default:
                 CompilerDirectives.transferToInterpreterAndInvalidate();
                 throw UnknownIdentifierException.create(symbol);
@@ -154,22 +276,52 @@ public class RegexEngine extends AbstractConstantKeysObject {
     @SuppressWarnings("static-method")
     @ExportMessage
     boolean isMemberInvocable(String member,
-                    @Shared("isValidatePropNode") @Cached StringEqualsNode isValidatePropNode) {
-        return isValidatePropNode.execute(member, PROP_VALIDATE);
+                    @Shared("isValidatePropNode") @Cached StringEqualsNode isValidatePropNode,
+                    @Shared("isCompileSetPropNode") @Cached StringEqualsNode isCompileSetPropNode,
+                    @Shared("isCompileStreamPropNode") @Cached StringEqualsNode isCompileStreamPropNode,
+                    @Shared("isSaveAutomataPropNode") @Cached StringEqualsNode isSaveAutomataPropNode,
+                    @Shared("isLoadAutomataPropNode") @Cached StringEqualsNode isLoadAutomataPropNode) {
+        return isValidatePropNode.execute(member, PROP_VALIDATE) || isCompileSetPropNode.execute(member, PROP_COMPILE_SET) || isCompileStreamPropNode.execute(member, PROP_COMPILE_STREAM) ||
+                        isSaveAutomataPropNode.execute(member, PROP_SAVE_AUTOMATA) || isLoadAutomataPropNode.execute(member, PROP_LOAD_AUTOMATA);
     }
 
     @ExportMessage
     Object invokeMember(String member, Object[] args,
                     @Shared("isValidatePropNode") @Cached StringEqualsNode isValidatePropNode,
+                    @Shared("isCompileSetPropNode") @Cached StringEqualsNode isCompileSetPropNode,
+                    @Shared("isCompileStreamPropNode") @Cached StringEqualsNode isCompileStreamPropNode,
+                    @Shared("isSaveAutomataPropNode") @Cached StringEqualsNode isSaveAutomataPropNode,
+                    @Shared("isLoadAutomataPropNode") @Cached StringEqualsNode isLoadAutomataPropNode,
                     @Shared("patternToStringNode") @Cached ToStringNode patternToStringNode,
                     @Shared("flagsToStringNode") @Cached ToStringNode flagsToStringNode,
-                    @Shared("encodingToStringNode") @Cached ToStringNode encodingToStringNode) throws UnknownIdentifierException, ArityException, UnsupportedTypeException {
-        if (!isValidatePropNode.execute(member, PROP_VALIDATE)) {
+                    @Shared("encodingToStringNode") @Cached ToStringNode encodingToStringNode,
+                    @CachedLibrary(limit = "2") InteropLibrary patterns) throws UnknownIdentifierException, ArityException, UnsupportedTypeException {
+        if (isValidatePropNode.execute(member, PROP_VALIDATE)) {
+            RegexValidator.validate(argsToRegexSource(args, patternToStringNode, flagsToStringNode, encodingToStringNode));
+            return true;
+        }
+        if (isCompileSetPropNode.execute(member, PROP_COMPILE_SET)) {
+            return compileSet(args, patterns, patternToStringNode, flagsToStringNode, encodingToStringNode);
+        }
+        if (isCompileStreamPropNode.execute(member, PROP_COMPILE_STREAM)) {
+            return compileStream(argsToRegexSource(args, patternToStringNode, flagsToStringNode, encodingToStringNode));
+        }
+        if (isSaveAutomataPropNode.execute(member, PROP_SAVE_AUTOMATA)) {
+            return saveAutomata(argToPath(args, patternToStringNode));
+        }
+        if (isLoadAutomataPropNode.execute(member, PROP_LOAD_AUTOMATA)) {
+            return loadAutomata(argToPath(args, patternToStringNode));
+        }
+        CompilerDirectives.transferToInterpreterAndInvalidate();
+        throw UnknownIdentifierException.create(member);
+    }
+
+    private static String argToPath(Object[] args, ToStringNode pathToStringNode) throws ArityException {
+        if (args.length != 1) {
             CompilerDirectives.transferToInterpreterAndInvalidate();
-            throw UnknownIdentifierException.create(member);
+            throw ArityException.create(1, args.length);
         }
-        RegexValidator.validate(argsToRegexSource(args, patternToStringNode, flagsToStringNode, encodingToStringNode));
-        return true;
+        return pathToStringNode.execute(args[0]);
     }
 
     @ExportLibrary(InteropLibrary.class)
@@ -198,6 +350,124 @@ public class RegexEngine extends AbstractConstantKeysObject {
         }
     }
 
+    /**
+     * The {@code compileSet} method of {@link RegexEngine}. It takes the same arguments as
+     * {@link RegexEngine} itself, except that {@code pattern} is replaced by an array of patterns,
+     * and returns a {@link RegexSetObject}.
+     */
+    @ExportLibrary(InteropLibrary.class)
+    public static final class CompileSetMethod extends AbstractRegexObject {
+
+        private final RegexEngine engine;
+
+        private CompileSetMethod(RegexEngine engine) {
+            this.engine = engine;
+        }
+
+        @SuppressWarnings("static-method")
+        @ExportMessage
+        boolean isExecutable() {
+            return true;
+        }
+
+        @ExportMessage
+        Object execute(Object[] args,
+                        @CachedLibrary(limit = "2") InteropLibrary patterns,
+                        @Cached ToStringNode patternToStringNode,
+                        @Cached ToStringNode flagsToStringNode,
+                        @Cached ToStringNode encodingToStringNode) throws ArityException, UnsupportedTypeException {
+            return engine.compileSet(args, patterns, patternToStringNode, flagsToStringNode, encodingToStringNode);
+        }
+    }
+
+    /**
+     * The {@code compileStream} method of {@link RegexEngine}. It takes the same arguments as
+     * {@link RegexEngine} itself and returns a {@link RegexStreamObject}.
+     */
+    @ExportLibrary(InteropLibrary.class)
+    public static final class CompileStreamMethod extends AbstractRegexObject {
+
+        private final RegexEngine engine;
+
+        private CompileStreamMethod(RegexEngine engine) {
+            this.engine = engine;
+        }
+
+        @SuppressWarnings("static-method")
+        @ExportMessage
+        boolean isExecutable() {
+            return true;
+        }
+
+        @ExportMessage
+        Object execute(Object[] args,
+                        @Cached ToStringNode patternToStringNode,
+                        @Cached ToStringNode flagsToStringNode,
+                        @Cached ToStringNode encodingToStringNode) throws ArityException, UnsupportedTypeException {
+            return engine.compileStream(engine.argsToRegexSource(args, patternToStringNode, flagsToStringNode, encodingToStringNode));
+        }
+    }
+
+    /**
+     * The {@code saveAutomata} and {@code loadAutomata} methods of {@link RegexEngine}. They take a
+     * file path as their only argument.
+     */
+    @ExportLibrary(InteropLibrary.class)
+    public static final class AutomataFileMethod extends AbstractRegexObject {
+
+        private final RegexEngine engine;
+        private final boolean save;
+
+        private AutomataFileMethod(RegexEngine engine, boolean save) {
+            this.engine = engine;
+            this.save = save;
+        }
+
+        @SuppressWarnings("static-method")
+        @ExportMessage
+        boolean isExecutable() {
+            return true;
+        }
+
+        @ExportMessage
+        Object execute(Object[] args,
+                        @Cached ToStringNode pathToStringNode) throws ArityException {
+            String path = argToPath(args, pathToStringNode);
+            return save ? engine.saveAutomata(path) : engine.loadAutomata(path);
+        }
+    }
+
+    private RegexSetObject compileSet(Object[] args, InteropLibrary patterns, ToStringNode patternToStringNode, ToStringNode flagsToStringNode, ToStringNode encodingToStringNode)
+                    throws ArityException, UnsupportedTypeException {
+        if (args.length == 0 || args.length > 3) {
+            CompilerDirectives.transferToInterpreterAndInvalidate();
+            throw ArityException.create(3, args.length);
+        }
+        if (!patterns.hasArrayElements(args[0])) {
+            CompilerDirectives.transferToInterpreterAndInvalidate();
+            throw UnsupportedTypeException.create(args);
+        }
+        Object[] sourceArgs = args.clone();
+        RegexSource[] regexSources;
+        try {
+            long size = patterns.getArraySize(args[0]);
+            if (size > Integer.MAX_VALUE) {
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                throw UnsupportedTypeException.create(args);
+            }
+            regexSources = new RegexSource[(int) size];
+            for (int i = 0; i < regexSources.length; i++) {
+                sourceArgs[0] = patterns.readArrayElement(args[0], i);
+                regexSources[i] = argsToRegexSource(sourceArgs, patternToStringNode, flagsToStringNode, encodingToStringNode);
+            }
+        } catch (UnsupportedMessageException | InvalidArrayIndexException e) {
+            CompilerDirectives.transferToInterpreterAndInvalidate();
+            throw UnsupportedTypeException.create(args);
+        }
+        sourceArgs[0] = "";
+        return compileSet(regexSources, argsToRegexSource(sourceArgs, patternToStringNode, flagsToStringNode, encodingToStringNode).getEncoding());
+    }
+
     private RegexSource argsToRegexSource(Object[] args, ToStringNode patternToStringNode, ToStringNode flagsToStringNode, ToStringNode encodingToStringNode)
                     throws ArityException, UnsupportedTypeException {
         if (args.length == 0 || args.length > 3) {
@@ -79,6 +79,9 @@ import com.oracle.truffle.regex.tregex.TRegexCompiler;
  * </li>
  * <li>{@code StepExecution}: the execution of automata is traced and logged in JSON files</li>
  * <li>{@code AlwaysEager}: capture groups are always eagerly matched</li>
+ * <li>{@code NFAOnly}: expressions are always matched by the NFA executor, never by a DFA</li>
+ * <li>{@code GenerateDFAImmediately}: expressions are compiled when they are created, and their DFA
+ * is generated right away instead of after a number of searches</li>
  * </ul>
  * <li>{@link RegexCompiler} {@code fallbackCompiler} (optional): an optional {@link RegexCompiler}
  * to be used when compilation by {@link TRegexCompiler}, the native compiler of
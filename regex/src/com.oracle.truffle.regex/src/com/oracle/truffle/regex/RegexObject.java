@@ -102,6 +102,13 @@ import com.oracle.truffle.regex.util.TruffleReadOnlyMap;
  * The return value is a {@link RegexResult}. The contents of the {@code exec} can be compiled
  * lazily and so its first invocation might involve a longer delay as the regular expression is
  * compiled on the fly.
+ * <li>{@link RegexObjectExecUTF8Method} {@code execBytes}: analogous to {@code exec}, but matches
+ * against a host {@code byte[]} or {@link java.nio.ByteBuffer} and interprets {@code fromIndex} and
+ * the resulting match bounds as byte offsets. A buffer is matched from its position to its limit,
+ * offsets are relative to its position. Buffers that do not cover their whole backing array, e.g.
+ * direct buffers, are copied to a {@code byte[]} first. If the expression was compiled with the
+ * {@code UTF-8} encoding, the input is matched without transcoding it to UTF-16 first; the DFA takes
+ * its transitions on lead bytes whenever they determine the transition on their own.</li>
  * </ol>
  * <p>
  */
@@ -357,8 +364,9 @@ public final class RegexObject extends AbstractConstantKeysObject {
 
     /**
      * EXPERIMENTAL. This method is equivalent to {@link RegexObjectExecMethod}, except it expects a
-     * native byte array as input string. This violation of the interop protocol is probably a bad
-     * idea and will be replaced with a Truffle Library soon.
+     * host {@code byte[]} or {@link java.nio.ByteBuffer} as input string, see
+     * {@link ExpectByteArrayHostObjectNode}. This violation of the interop protocol is probably a
+     * bad idea and will be replaced with a Truffle Library soon.
      */
     @ExportLibrary(InteropLibrary.class)
     public static final class RegexObjectExecUTF8Method extends AbstractRegexObject {
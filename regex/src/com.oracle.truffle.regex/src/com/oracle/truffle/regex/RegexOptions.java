@@ -61,6 +61,16 @@ public final class RegexOptions {
     public static final String ALWAYS_EAGER_NAME = "AlwaysEager";
     private static final int UTF_16_EXPLODE_ASTRAL_SYMBOLS = 1 << 5;
     public static final String UTF_16_EXPLODE_ASTRAL_SYMBOLS_NAME = "UTF16ExplodeAstralSymbols";
+    private static final int RECORD_AUTOMATA = 1 << 6;
+    public static final String RECORD_AUTOMATA_NAME = "RecordAutomata";
+    private static final int MEMOIZE_BACKTRACKING = 1 << 7;
+    public static final String MEMOIZE_BACKTRACKING_NAME = "MemoizeBacktracking";
+    private static final int NFA_ONLY = 1 << 8;
+    public static final String NFA_ONLY_NAME = "NFAOnly";
+    private static final int GENERATE_DFA_IMMEDIATELY = 1 << 9;
+    public static final String GENERATE_DFA_IMMEDIATELY_NAME = "GenerateDFAImmediately";
+
+    public static final String BACKTRACKING_STEP_LIMIT_NAME = "BacktrackingStepLimit";
 
     private static final String FLAVOR_NAME = "Flavor";
     private static final String FLAVOR_PYTHON_STR = "PythonStr";
@@ -71,15 +81,18 @@ public final class RegexOptions {
     private static final String FEATURE_SET_TREGEX_JONI = "TRegexJoni";
     private static final String FEATURE_SET_JONI = "Joni";
 
-    public static final RegexOptions DEFAULT = new RegexOptions(0, null, RegexFeatureSet.DEFAULT);
+    public static final RegexOptions DEFAULT = new RegexOptions(0, 0, null, RegexFeatureSet.DEFAULT);
 
     private final int options;
+    private final int backtrackingStepLimit;
     private final RegexFlavor flavor;
     private final RegexFeatureSet featureSet;
 
-    private RegexOptions(int options, RegexFlavor flavor, RegexFeatureSet featureSet) {
+    private RegexOptions(int options, int backtrackingStepLimit, RegexFlavor flavor, RegexFeatureSet featureSet) {
         assert flavor == null || featureSet == RegexFeatureSet.DEFAULT;
+        assert backtrackingStepLimit >= 0;
         this.options = options;
+        this.backtrackingStepLimit = backtrackingStepLimit;
         this.flavor = flavor;
         this.featureSet = featureSet;
     }
@@ -91,6 +104,7 @@ public final class RegexOptions {
     @CompilerDirectives.TruffleBoundary
     public static RegexOptions parse(String optionsString) throws RegexSyntaxException {
         int options = 0;
+        int backtrackingStepLimit = 0;
         RegexFlavor flavor = null;
         RegexFeatureSet featureSet = RegexFeatureSet.DEFAULT;
         for (String propValue : optionsString.split(",")) {
@@ -122,6 +136,21 @@ public final class RegexOptions {
                 case UTF_16_EXPLODE_ASTRAL_SYMBOLS_NAME:
                     options = parseBooleanOption(optionsString, options, key, value, UTF_16_EXPLODE_ASTRAL_SYMBOLS);
                     break;
+                case RECORD_AUTOMATA_NAME:
+                    options = parseBooleanOption(optionsString, options, key, value, RECORD_AUTOMATA);
+                    break;
+                case MEMOIZE_BACKTRACKING_NAME:
+                    options = parseBooleanOption(optionsString, options, key, value, MEMOIZE_BACKTRACKING);
+                    break;
+                case NFA_ONLY_NAME:
+                    options = parseBooleanOption(optionsString, options, key, value, NFA_ONLY);
+                    break;
+                case GENERATE_DFA_IMMEDIATELY_NAME:
+                    options = parseBooleanOption(optionsString, options, key, value, GENERATE_DFA_IMMEDIATELY);
+                    break;
+                case BACKTRACKING_STEP_LIMIT_NAME:
+                    backtrackingStepLimit = parseNonNegativeIntOption(optionsString, key, value);
+                    break;
                 case FLAVOR_NAME:
                     flavor = parseFlavor(optionsString, value);
                     break;
@@ -132,7 +161,19 @@ public final class RegexOptions {
                     throw optionsSyntaxError(optionsString, "unexpected option " + key);
             }
         }
-        return new RegexOptions(options, flavor, featureSet);
+        return new RegexOptions(options, backtrackingStepLimit, flavor, featureSet);
+    }
+
+    private static int parseNonNegativeIntOption(String optionsString, String key, String value) throws RegexSyntaxException {
+        try {
+            int ret = Integer.parseInt(value);
+            if (ret >= 0) {
+                return ret;
+            }
+        } catch (NumberFormatException e) {
+            // fall through
+        }
+        throw optionsSyntaxError(optionsString, String.format("unexpected value '%s' for option '%s', expected a non-negative integer", value, key));
     }
 
     private static int parseBooleanOption(String optionsString, int options, String key, String value, int flag) throws RegexSyntaxException {
@@ -217,6 +258,51 @@ public final class RegexOptions {
         return isBitSet(UTF_16_EXPLODE_ASTRAL_SYMBOLS);
     }
 
+    /**
+     * Record the tables of all generated DFAs that can be saved to a file and loaded by another
+     * engine, see {@link com.oracle.truffle.regex.tregex.dfa.DFATableStore}.
+     */
+    public boolean isRecordAutomata() {
+        return isBitSet(RECORD_AUTOMATA);
+    }
+
+    /**
+     * Memoize the NFA states visited by the backtracking executor at every input position, so that
+     * states which already failed at a position are not explored again. This bounds the matching
+     * time of expressions without back-references and counted repetitions to
+     * {@code O(number of NFA states * input length)}, at the cost of a bit set of that size, which
+     * is limited by {@link com.oracle.truffle.regex.tregex.TRegexOptions#TRegexMaxBacktrackingMemoSize}.
+     */
+    public boolean isMemoizeBacktracking() {
+        return isBitSet(MEMOIZE_BACKTRACKING);
+    }
+
+    /**
+     * Never switch from the NFA executor to a DFA executor, regardless of the profile. Used for
+     * measuring the NFA executor.
+     */
+    public boolean isNFAOnly() {
+        return isBitSet(NFA_ONLY);
+    }
+
+    /**
+     * Compile expressions when they are created, and generate their DFA right away instead of
+     * waiting for {@link com.oracle.truffle.regex.tregex.TRegexOptions#TRegexGenerateDFAThreshold}
+     * searches. Used for measuring the DFA generation.
+     */
+    public boolean isGenerateDFAImmediately() {
+        return isBitSet(GENERATE_DFA_IMMEDIATELY);
+    }
+
+    /**
+     * The maximum number of NFA states the backtracking executor may visit in a single search,
+     * including those visited by look-around assertions. If the limit is exceeded, the search is
+     * aborted with a {@link RegexInterruptedException}. {@code 0} means no limit.
+     */
+    public int getBacktrackingStepLimit() {
+        return backtrackingStepLimit;
+    }
+
     public RegexFlavor getFlavor() {
         return flavor;
     }
@@ -233,7 +319,7 @@ public final class RegexOptions {
     @Override
     public int hashCode() {
         int flavorHash = flavor == null ? 0 : flavor.hashCode();
-        return options + 13 * flavorHash;
+        return options + 13 * flavorHash + 31 * backtrackingStepLimit;
     }
 
     @Override
@@ -245,7 +331,7 @@ public final class RegexOptions {
             return false;
         }
         RegexOptions other = (RegexOptions) obj;
-        return this.options == other.options && this.flavor == other.flavor;
+        return this.options == other.options && this.backtrackingStepLimit == other.backtrackingStepLimit && this.flavor == other.flavor;
     }
 
     @Override
@@ -266,6 +352,21 @@ public final class RegexOptions {
         if (isAlwaysEager()) {
             sb.append(ALWAYS_EAGER_NAME + "=true,");
         }
+        if (isRecordAutomata()) {
+            sb.append(RECORD_AUTOMATA_NAME + "=true,");
+        }
+        if (isMemoizeBacktracking()) {
+            sb.append(MEMOIZE_BACKTRACKING_NAME + "=true,");
+        }
+        if (isNFAOnly()) {
+            sb.append(NFA_ONLY_NAME + "=true,");
+        }
+        if (isGenerateDFAImmediately()) {
+            sb.append(GENERATE_DFA_IMMEDIATELY_NAME + "=true,");
+        }
+        if (backtrackingStepLimit > 0) {
+            sb.append(BACKTRACKING_STEP_LIMIT_NAME + "=" + backtrackingStepLimit + ",");
+        }
         if (flavor == PythonFlavor.STR_INSTANCE) {
             sb.append(FLAVOR_NAME + "=" + FLAVOR_PYTHON_STR + ",");
         } else if (flavor == PythonFlavor.BYTES_INSTANCE) {
@@ -278,11 +379,13 @@ public final class RegexOptions {
     public static final class Builder {
 
         private int options;
+        private int backtrackingStepLimit;
         private RegexFlavor flavor;
         private RegexFeatureSet featureSet;
 
         private Builder() {
             this.options = 0;
+            this.backtrackingStepLimit = 0;
             this.flavor = null;
             this.featureSet = RegexFeatureSet.DEFAULT;
         }
@@ -317,6 +420,31 @@ public final class RegexOptions {
             return this;
         }
 
+        public Builder recordAutomata(boolean enabled) {
+            updateOption(enabled, RECORD_AUTOMATA);
+            return this;
+        }
+
+        public Builder memoizeBacktracking(boolean enabled) {
+            updateOption(enabled, MEMOIZE_BACKTRACKING);
+            return this;
+        }
+
+        public Builder nfaOnly(boolean enabled) {
+            updateOption(enabled, NFA_ONLY);
+            return this;
+        }
+
+        public Builder generateDFAImmediately(boolean enabled) {
+            updateOption(enabled, GENERATE_DFA_IMMEDIATELY);
+            return this;
+        }
+
+        public Builder backtrackingStepLimit(@SuppressWarnings("hiding") int backtrackingStepLimit) {
+            this.backtrackingStepLimit = backtrackingStepLimit;
+            return this;
+        }
+
         public Builder flavor(@SuppressWarnings("hiding") RegexFlavor flavor) {
             this.flavor = flavor;
             return this;
@@ -328,7 +456,7 @@ public final class RegexOptions {
         }
 
         public RegexOptions build() {
-            return new RegexOptions(this.options, this.flavor, this.featureSet);
+            return new RegexOptions(this.options, this.backtrackingStepLimit, this.flavor, this.featureSet);
         }
 
         private void updateOption(boolean enabled, int bitMask) {
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.truffle.regex;
+
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.Cached.Shared;
+import com.oracle.truffle.api.interop.ArityException;
+import com.oracle.truffle.api.interop.InteropLibrary;
+import com.oracle.truffle.api.interop.UnknownIdentifierException;
+import com.oracle.truffle.api.interop.UnsupportedTypeException;
+import com.oracle.truffle.api.library.ExportLibrary;
+import com.oracle.truffle.api.library.ExportMessage;
+import com.oracle.truffle.regex.runtime.nodes.StringEqualsNode;
+import com.oracle.truffle.regex.runtime.nodes.ToStringNode;
+import com.oracle.truffle.regex.tregex.nfa.NFASetMatcher;
+import com.oracle.truffle.regex.util.TruffleReadOnlyIntArray;
+import com.oracle.truffle.regex.util.TruffleReadOnlyKeysArray;
+
+/**
+ * {@link RegexSetObject} represents a set of regular expressions that are matched against an input
+ * string together, in a single pass over the input. It is the result of invoking
+ * {@code compileSet} on a {@link RegexEngine}. It exposes the following properties:
+ * <ol>
+ * <li>{@code int size}: the number of regular expressions in the set.</li>
+ * <li>{@link RegexSetMatchesMethod} {@code matches}: an executable method that accepts a single
+ * {@link String} parameter {@code input} and returns an array of the indices of all regular
+ * expressions in the set that match anywhere in {@code input}, in ascending order.</li>
+ * </ol>
+ */
+@ExportLibrary(InteropLibrary.class)
+public final class RegexSetObject extends AbstractConstantKeysObject {
+
+    private static final String PROP_SIZE = "size";
+    private static final String PROP_MATCHES = "matches";
+    private static final TruffleReadOnlyKeysArray KEYS = new TruffleReadOnlyKeysArray(PROP_SIZE, PROP_MATCHES);
+
+    private final RegexSource[] sources;
+    private final NFASetMatcher matcher;
+
+    public RegexSetObject(RegexSource[] sources, NFASetMatcher matcher) {
+        this.sources = sources;
+        this.matcher = matcher;
+    }
+
+    public RegexSource getSource(int i) {
+        return sources[i];
+    }
+
+    public int getSize() {
+        return sources.length;
+    }
+
+    public NFASetMatcher getMatcher() {
+        return matcher;
+    }
+
+    @TruffleBoundary
+    TruffleReadOnlyIntArray matches(String input) {
+        return new TruffleReadOnlyIntArray(matcher.findMatches(input));
+    }
+
+    @Override
+    public TruffleReadOnlyKeysArray getKeys() {
+        return KEYS;
+    }
+
+    @Override
+    public Object readMemberImpl(String symbol) throws UnknownIdentifierException {
+        switch (symbol) {
+            case PROP_SIZE:
+                return getSize();
+            case PROP_MATCHES:
+                return new RegexSetMatchesMethod(this);
+            default:
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                throw UnknownIdentifierException.create(symbol);
+        }
+    }
+
+    @SuppressWarnings("static-method")
+    @ExportMessage
+    boolean isMemberInvocable(String member,
+                    @Shared("isMatchesPropNode") @Cached StringEqualsNode isMatchesPropNode) {
+        return isMatchesPropNode.execute(member, PROP_MATCHES);
+    }
+
+    @ExportMessage
+    Object invokeMember(String member, Object[] args,
+                    @Shared("isMatchesPropNode") @Cached StringEqualsNode isMatchesPropNode,
+                    @Shared("inputToStringNode") @Cached ToStringNode inputToStringNode) throws UnknownIdentifierException, ArityException, UnsupportedTypeException {
+        if (!isMatchesPropNode.execute(member, PROP_MATCHES)) {
+            CompilerDirectives.transferToInterpreterAndInvalidate();
+            throw UnknownIdentifierException.create(member);
+        }
+        return matches(argsToInput(args, inputToStringNode));
+    }
+
+    private static String argsToInput(Object[] args, ToStringNode inputToStringNode) throws ArityException, UnsupportedTypeException {
+        if (args.length != 1) {
+            CompilerDirectives.transferToInterpreterAndInvalidate();
+            throw ArityException.create(1, args.length);
+        }
+        return inputToStringNode.execute(args[0]);
+    }
+
+    @ExportLibrary(InteropLibrary.class)
+    public static final class RegexSetMatchesMethod extends AbstractRegexObject {
+
+        private final RegexSetObject regexSet;
+
+        private RegexSetMatchesMethod(RegexSetObject regexSet) {
+            this.regexSet = regexSet;
+        }
+
+        @SuppressWarnings("static-method")
+        @ExportMessage
+        boolean isExecutable() {
+            return true;
+        }
+
+        @ExportMessage
+        Object execute(Object[] args,
+                        @Cached ToStringNode inputToStringNode) throws ArityException, UnsupportedTypeException {
+            return regexSet.matches(argsToInput(args, inputToStringNode));
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.truffle.regex;
+
+import java.nio.ByteBuffer;
+
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.Cached.Shared;
+import com.oracle.truffle.api.interop.ArityException;
+import com.oracle.truffle.api.interop.InteropLibrary;
+import com.oracle.truffle.api.interop.UnknownIdentifierException;
+import com.oracle.truffle.api.interop.UnsupportedTypeException;
+import com.oracle.truffle.api.library.ExportLibrary;
+import com.oracle.truffle.api.library.ExportMessage;
+import com.oracle.truffle.regex.runtime.nodes.StringEqualsNode;
+import com.oracle.truffle.regex.runtime.nodes.ToStringNode;
+import com.oracle.truffle.regex.tregex.TRegexOptions;
+import com.oracle.truffle.regex.tregex.nfa.NFAParallelSearch;
+import com.oracle.truffle.regex.tregex.nfa.NFAStreamMatcher;
+import com.oracle.truffle.regex.tregex.nfa.NFAStreamScanner;
+import com.oracle.truffle.regex.util.TruffleReadOnlyKeysArray;
+import com.oracle.truffle.regex.util.TruffleReadOnlyLongArray;
+
+/**
+ * {@link RegexStreamObject} represents a regular expression compiled for searching inputs that are
+ * not available as a whole, but fed in chunks, e.g. while they are read from a socket or from a file
+ * that is too large to be materialized as a string. It is the result of invoking
+ * {@code compileStream} on a {@link RegexEngine}. It exposes the following properties:
+ * <ol>
+ * <li>{@link String} {@code pattern}: the source of the compiled regular expression.</li>
+ * <li>{@link RegexStreamOpenMethod} {@code open}: an executable method without parameters that
+ * returns a new {@link RegexStreamScannerObject}, which scans a single input.</li>
+ * <li>{@link RegexStreamFindAllMethod} {@code findAll}: an executable method that accepts a whole
+ * input, given in the same way as the chunks fed to a scanner, and returns all matches in the same
+ * format as a scanner. Large inputs are split into chunks that are searched in parallel, see
+ * {@link NFAParallelSearch}.</li>
+ * </ol>
+ * The compiled expression can be shared by any number of concurrently used scanners.
+ */
+@ExportLibrary(InteropLibrary.class)
+public final class RegexStreamObject extends AbstractConstantKeysObject {
+
+    private static final String PROP_PATTERN = "pattern";
+    private static final String PROP_OPEN = "open";
+    private static final String PROP_FIND_ALL = "findAll";
+    private static final TruffleReadOnlyKeysArray KEYS = new TruffleReadOnlyKeysArray(PROP_PATTERN, PROP_OPEN, PROP_FIND_ALL);
+
+    private final RegexSource source;
+    private final NFAStreamMatcher matcher;
+    private final boolean regressionTestMode;
+
+    /**
+     * @param regressionTestMode if {@code true}, {@code findAll} splits even short inputs into
+     *            chunks, so the parallel search is exercised regardless of the input size and the
+     *            number of available processors.
+     */
+    public RegexStreamObject(RegexSource source, NFAStreamMatcher matcher, boolean regressionTestMode) {
+        this.source = source;
+        this.matcher = matcher;
+        this.regressionTestMode = regressionTestMode;
+    }
+
+    public RegexSource getSource() {
+        return source;
+    }
+
+    public NFAStreamMatcher getMatcher() {
+        return matcher;
+    }
+
+    @TruffleBoundary
+    public RegexStreamScannerObject open() {
+        return new RegexStreamScannerObject(new NFAStreamScanner(matcher, source.getEncoding()));
+    }
+
+    TruffleReadOnlyLongArray findAll(Object input, ToStringNode inputToStringNode) throws UnsupportedTypeException {
+        if (NFAStreamScanner.supportsCharInput(source.getEncoding())) {
+            String string = inputToStringNode.execute(input);
+            if (regressionTestMode) {
+                return new TruffleReadOnlyLongArray(NFAParallelSearch.findAll(matcher, source.getEncoding(), string,
+                                TRegexOptions.TRegexParallelSearchRegressionTestChunkSize, TRegexOptions.TRegexParallelSearchRegressionTestMaxChunks));
+            }
+            return new TruffleReadOnlyLongArray(NFAParallelSearch.findAll(matcher, source.getEncoding(), string));
+        }
+        ByteBuffer bytes = RegexStreamScannerObject.asByteBuffer(input);
+        if (regressionTestMode) {
+            return new TruffleReadOnlyLongArray(NFAParallelSearch.findAll(matcher, source.getEncoding(), bytes,
+                            TRegexOptions.TRegexParallelSearchRegressionTestChunkSize, TRegexOptions.TRegexParallelSearchRegressionTestMaxChunks));
+        }
+        return new TruffleReadOnlyLongArray(NFAParallelSearch.findAll(matcher, source.getEncoding(), bytes));
+    }
+
+    @Override
+    public TruffleReadOnlyKeysArray getKeys() {
+        return KEYS;
+    }
+
+    @Override
+    public Object readMemberImpl(String symbol) throws UnknownIdentifierException {
+        switch (symbol) {
+            case PROP_PATTERN:
+                return source.getPattern();
+            case PROP_OPEN:
+                return new RegexStreamOpenMethod(this);
+            case PROP_FIND_ALL:
+                return new RegexStreamFindAllMethod(this);
+            default:
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                throw UnknownIdentifierException.create(symbol);
+        }
+    }
+
+    @SuppressWarnings("static-method")
+    @ExportMessage
+    boolean isMemberInvocable(String member,
+                    @Shared("isOpenPropNode") @Cached StringEqualsNode isOpenPropNode,
+                    @Shared("isFindAllPropNode") @Cached StringEqualsNode isFindAllPropNode) {
+        return isOpenPropNode.execute(member, PROP_OPEN) || isFindAllPropNode.execute(member, PROP_FIND_ALL);
+    }
+
+    @ExportMessage
+    Object invokeMember(String member, Object[] args,
+                    @Shared("isOpenPropNode") @Cached StringEqualsNode isOpenPropNode,
+                    @Shared("isFindAllPropNode") @Cached StringEqualsNode isFindAllPropNode,
+                    @Shared("inputToStringNode") @Cached ToStringNode inputToStringNode) throws UnknownIdentifierException, ArityException, UnsupportedTypeException {
+        if (isOpenPropNode.execute(member, PROP_OPEN)) {
+            checkArity(args, 0);
+            return open();
+        }
+        if (isFindAllPropNode.execute(member, PROP_FIND_ALL)) {
+            checkArity(args, 1);
+            return findAll(args[0], inputToStringNode);
+        }
+        CompilerDirectives.transferToInterpreterAndInvalidate();
+        throw UnknownIdentifierException.create(member);
+    }
+
+    private static void checkArity(Object[] args, int expected) throws ArityException {
+        if (args.length != expected) {
+            CompilerDirectives.transferToInterpreterAndInvalidate();
+            throw ArityException.create(expected, args.length);
+        }
+    }
+
+    @ExportLibrary(InteropLibrary.class)
+    public static final class RegexStreamOpenMethod extends AbstractRegexObject {
+
+        private final RegexStreamObject regexStream;
+
+        private RegexStreamOpenMethod(RegexStreamObject regexStream) {
+            this.regexStream = regexStream;
+        }
+
+        @SuppressWarnings("static-method")
+        @ExportMessage
+        boolean isExecutable() {
+            return true;
+        }
+
+        @ExportMessage
+        Object execute(Object[] args) throws ArityException {
+            checkArity(args, 0);
+            return regexStream.open();
+        }
+    }
+
+    @ExportLibrary(InteropLibrary.class)
+    public static final class RegexStreamFindAllMethod extends AbstractRegexObject {
+
+        private final RegexStreamObject regexStream;
+
+        private RegexStreamFindAllMethod(RegexStreamObject regexStream) {
+            this.regexStream = regexStream;
+        }
+
+        @SuppressWarnings("static-method")
+        @ExportMessage
+        boolean isExecutable() {
+            return true;
+        }
+
+        @ExportMessage
+        Object execute(Object[] args,
+                        @Cached ToStringNode inputToStringNode) throws ArityException, UnsupportedTypeException {
+            checkArity(args, 1);
+            return regexStream.findAll(args[0], inputToStringNode);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.truffle.regex;
+
+import java.nio.ByteBuffer;
+
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.TruffleLanguage.Env;
+import com.oracle.truffle.api.dsl.Cached;
+import com.oracle.truffle.api.dsl.Cached.Shared;
+import com.oracle.truffle.api.interop.ArityException;
+import com.oracle.truffle.api.interop.InteropLibrary;
+import com.oracle.truffle.api.interop.UnknownIdentifierException;
+import com.oracle.truffle.api.interop.UnsupportedTypeException;
+import com.oracle.truffle.api.library.ExportLibrary;
+import com.oracle.truffle.api.library.ExportMessage;
+import com.oracle.truffle.regex.runtime.nodes.StringEqualsNode;
+import com.oracle.truffle.regex.runtime.nodes.ToStringNode;
+import com.oracle.truffle.regex.tregex.nfa.NFAStreamScanner;
+import com.oracle.truffle.regex.util.TruffleReadOnlyKeysArray;
+import com.oracle.truffle.regex.util.TruffleReadOnlyLongArray;
+
+/**
+ * {@link RegexStreamScannerObject} searches a single input that is fed in chunks for matches of a
+ * {@link RegexStreamObject}. It exposes the following properties:
+ * <ol>
+ * <li>{@code feed}: an executable method that accepts the next chunk of the input and returns the
+ * matches found so far. If the expression's encoding is UTF-16, chunks must be {@link String}s,
+ * otherwise they must be host {@code byte[]}s or {@link ByteBuffer}s, of which the remaining bytes
+ * are read.</li>
+ * <li>{@code finish}: an executable method without parameters that marks the end of the input and
+ * returns the remaining matches.</li>
+ * <li>{@code long inputLength}: the number of {@code char}s or bytes fed so far.</li>
+ * </ol>
+ * Matches are returned as an array of {@code long}s containing the start and end offset of every
+ * match in the whole input, in pairs. Matches are found with the semantics of repeated searches
+ * with the global flag, and they do not contain capture groups. A match is returned as soon as it
+ * cannot be extended anymore, which may be several chunks after its end.
+ * <p>
+ * A scanner must not be used by multiple threads at the same time.
+ */
+@ExportLibrary(InteropLibrary.class)
+public final class RegexStreamScannerObject extends AbstractConstantKeysObject {
+
+    private static final String PROP_FEED = "feed";
+    private static final String PROP_FINISH = "finish";
+    private static final String PROP_INPUT_LENGTH = "inputLength";
+    private static final TruffleReadOnlyKeysArray KEYS = new TruffleReadOnlyKeysArray(PROP_FEED, PROP_FINISH, PROP_INPUT_LENGTH);
+
+    private final NFAStreamScanner scanner;
+
+    RegexStreamScannerObject(NFAStreamScanner scanner) {
+        this.scanner = scanner;
+    }
+
+    public NFAStreamScanner getScanner() {
+        return scanner;
+    }
+
+    TruffleReadOnlyLongArray feed(Object chunk, ToStringNode chunkToStringNode) throws UnsupportedTypeException {
+        if (scanner.isCharInput()) {
+            return new TruffleReadOnlyLongArray(scanner.feed(chunkToStringNode.execute(chunk)));
+        }
+        return feedBytes(chunk);
+    }
+
+    @TruffleBoundary
+    private TruffleReadOnlyLongArray feedBytes(Object chunk) throws UnsupportedTypeException {
+        return new TruffleReadOnlyLongArray(scanner.feed(asByteBuffer(chunk)));
+    }
+
+    /**
+     * Converts a host {@code byte[]} or {@link ByteBuffer} to a {@link ByteBuffer}.
+     */
+    @TruffleBoundary
+    static ByteBuffer asByteBuffer(Object bytes) throws UnsupportedTypeException {
+        Object hostBytes = bytes;
+        Env env = RegexLanguage.getCurrentContext().getEnv();
+        if (env.isHostObject(bytes)) {
+            hostBytes = env.asHostObject(bytes);
+        }
+        if (hostBytes instanceof byte[]) {
+            return ByteBuffer.wrap((byte[]) hostBytes);
+        }
+        if (hostBytes instanceof ByteBuffer) {
+            return (ByteBuffer) hostBytes;
+        }
+        throw UnsupportedTypeException.create(new Object[]{bytes});
+    }
+
+    @TruffleBoundary
+    TruffleReadOnlyLongArray finish() {
+        return new TruffleReadOnlyLongArray(scanner.finish());
+    }
+
+    @Override
+    public TruffleReadOnlyKeysArray getKeys() {
+        return KEYS;
+    }
+
+    @Override
+    public Object readMemberImpl(String symbol) throws UnknownIdentifierException {
+        switch (symbol) {
+            case PROP_FEED:
+                return new RegexStreamScannerMethod(this, true);
+            case PROP_FINISH:
+                return new RegexStreamScannerMethod(this, false);
+            case PROP_INPUT_LENGTH:
+                return scanner.getInputLength();
+            default:
+                CompilerDirectives.transferToInterpreterAndInvalidate();
+                throw UnknownIdentifierException.create(symbol);
+        }
+    }
+
+    @SuppressWarnings("static-method")
+    @ExportMessage
+    boolean isMemberInvocable(String member,
+                    @Shared("isFeedPropNode") @Cached StringEqualsNode isFeedPropNode,
+                    @Shared("isFinishPropNode") @Cached StringEqualsNode isFinishPropNode) {
+        return isFeedPropNode.execute(member, PROP_FEED) || isFinishPropNode.execute(member, PROP_FINISH);
+    }
+
+    @ExportMessage
+    Object invokeMember(String member, Object[] args,
+                    @Shared("isFeedPropNode") @Cached StringEqualsNode isFeedPropNode,
+                    @Shared("isFinishPropNode") @Cached StringEqualsNode isFinishPropNode,
+                    @Shared("chunkToStringNode") @Cached ToStringNode chunkToStringNode) throws UnknownIdentifierException, ArityException, UnsupportedTypeException {
+        if (isFeedPropNode.execute(member, PROP_FEED)) {
+            checkArity(args, 1);
+            return feed(args[0], chunkToStringNode);
+        }
+        if (isFinishPropNode.execute(member, PROP_FINISH)) {
+            checkArity(args, 0);
+            return finish();
+        }
+        CompilerDirectives.transferToInterpreterAndInvalidate();
+        throw UnknownIdentifierException.create(member);
+    }
+
+    private static void checkArity(Object[] args, int expected) throws ArityException {
+        if (args.length != expected) {
+            CompilerDirectives.transferToInterpreterAndInvalidate();
+            throw ArityException.create(expected, args.length);
+        }
+    }
+
+    /**
+     * The {@code feed} and {@code finish} methods of {@link RegexStreamScannerObject}.
+     */
+    @ExportLibrary(InteropLibrary.class)
+    public static final class RegexStreamScannerMethod extends AbstractRegexObject {
+
+        private final RegexStreamScannerObject scanner;
+        private final boolean feed;
+
+        private RegexStreamScannerMethod(RegexStreamScannerObject scanner, boolean feed) {
+            this.scanner = scanner;
+            this.feed = feed;
+        }
+
+        @SuppressWarnings("static-method")
+        @ExportMessage
+        boolean isExecutable() {
+            return true;
+        }
+
+        @ExportMessage
+        Object execute(Object[] args,
+                        @Cached ToStringNode chunkToStringNode) throws ArityException, UnsupportedTypeException {
+            if (feed) {
+                checkArity(args, 1);
+                return scanner.feed(args[0], chunkToStringNode);
+            }
+            checkArity(args, 0);
+            return scanner.finish();
+        }
+    }
+}
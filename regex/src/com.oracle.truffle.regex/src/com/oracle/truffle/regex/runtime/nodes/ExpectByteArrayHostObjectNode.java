@@ -40,17 +40,27 @@
  */
 package com.oracle.truffle.regex.runtime.nodes;
 
+import java.nio.ByteBuffer;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.dsl.CachedContext;
 import com.oracle.truffle.api.dsl.GenerateUncached;
 import com.oracle.truffle.api.dsl.Specialization;
+import com.oracle.truffle.api.interop.UnsupportedTypeException;
 import com.oracle.truffle.api.nodes.Node;
 import com.oracle.truffle.regex.RegexLanguage;
 import com.oracle.truffle.regex.RegexLanguage.RegexContext;
 
+/**
+ * Converts the input of {@code execBytes} to a {@code byte[]}. Accepts a host {@code byte[]} or a
+ * host {@link ByteBuffer}, like the stream scanner does. A buffer is matched from its position to
+ * its limit, so match offsets are relative to its position. Its backing array is used directly if
+ * the buffer covers all of it; otherwise, e.g. for direct buffers, the bytes are copied.
+ */
 @GenerateUncached
 public abstract class ExpectByteArrayHostObjectNode extends Node {
 
-    public abstract byte[] execute(Object arg);
+    public abstract byte[] execute(Object arg) throws UnsupportedTypeException;
 
     @Specialization
     static byte[] doByteArray(byte[] input) {
@@ -59,7 +69,24 @@ public abstract class ExpectByteArrayHostObjectNode extends Node {
 
     @Specialization
     static byte[] doBoxed(Object input,
-                    @CachedContext(RegexLanguage.class) RegexContext context) {
-        return (byte[]) context.getEnv().asHostObject(input);
+                    @CachedContext(RegexLanguage.class) RegexContext context) throws UnsupportedTypeException {
+        Object hostObject = context.getEnv().isHostObject(input) ? context.getEnv().asHostObject(input) : input;
+        if (hostObject instanceof byte[]) {
+            return (byte[]) hostObject;
+        }
+        if (hostObject instanceof ByteBuffer) {
+            return toByteArray((ByteBuffer) hostObject);
+        }
+        throw UnsupportedTypeException.create(new Object[]{input});
+    }
+
+    @TruffleBoundary
+    private static byte[] toByteArray(ByteBuffer buffer) {
+        if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0 && buffer.limit() == buffer.array().length) {
+            return buffer.array();
+        }
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
     }
 }
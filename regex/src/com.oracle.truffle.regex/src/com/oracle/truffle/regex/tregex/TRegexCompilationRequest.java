@@ -58,6 +58,8 @@ import com.oracle.truffle.regex.literal.LiteralRegexExecRootNode;
 import com.oracle.truffle.regex.result.PreCalculatedResultFactory;
 import com.oracle.truffle.regex.tregex.buffer.CompilationBuffer;
 import com.oracle.truffle.regex.tregex.dfa.DFAGenerator;
+import com.oracle.truffle.regex.tregex.dfa.DFATable;
+import com.oracle.truffle.regex.tregex.dfa.DFATableStore;
 import com.oracle.truffle.regex.tregex.nfa.NFA;
 import com.oracle.truffle.regex.tregex.nfa.NFAGenerator;
 import com.oracle.truffle.regex.tregex.nfa.NFATraceFinderGenerator;
@@ -102,6 +104,7 @@ public final class TRegexCompilationRequest {
     private TRegexDFAExecutorNode executorNodeForward = null;
     private TRegexDFAExecutorNode executorNodeBackward = null;
     private TRegexDFAExecutorNode executorNodeCaptureGroups = null;
+    private DFATable lastDFATable = null;
     private final CompilationBuffer compilationBuffer;
 
     TRegexCompilationRequest(TRegexCompiler tRegexCompiler, RegexSource source) {
@@ -171,6 +174,31 @@ public final class TRegexCompilationRequest {
         return new TRegexExecRootNode(tRegexCompiler, ast, compileBacktrackingExecutor());
     }
 
+    /**
+     * Compiles the expression to an {@link NFA} for {@link TRegexCompiler#compileSet} and
+     * {@link TRegexCompiler#compileStream}. Returns {@code null} if the expression can never match.
+     *
+     * @param feature the name of the feature the NFA is used for, in error messages.
+     */
+    @TruffleBoundary
+    NFA compileNFA(String feature) {
+        try {
+            createAST();
+            if (ast.getRoot().isDead()) {
+                return null;
+            }
+            if (!canTransformToDFA(ast)) {
+                throw new UnsupportedRegexException(feature + " do not support expressions that require backtracking");
+            }
+            createNFA();
+            return nfa.isDead() ? null : nfa;
+        } catch (UnsupportedRegexException e) {
+            e.setReason("TRegex: " + e.getReason());
+            e.setRegex(source);
+            throw e;
+        }
+    }
+
     public TRegexBacktrackingNFAExecutorNode compileBacktrackingExecutor() {
         assert ast != null;
         pureNFA = PureNFAGenerator.mapToNFA(ast);
@@ -182,10 +210,10 @@ public final class TRegexCompilationRequest {
             if (pureNFA.getASTSubtree(lookAround).asLookAroundAssertion().isLiteral()) {
                 lookAroundExecutors[i] = new TRegexLiteralLookAroundExecutorNode(pureNFA.getASTSubtree(lookAround).asLookAroundAssertion(), compilationBuffer);
             } else {
-                lookAroundExecutors[i] = new TRegexBacktrackingNFAExecutorNode(pureNFA, lookAround, lookAroundExecutors, compilationBuffer);
+                lookAroundExecutors[i] = new TRegexBacktrackingNFAExecutorNode(pureNFA, lookAround, lookAroundExecutors, tRegexCompiler.getOptions(), compilationBuffer);
             }
         }
-        return new TRegexBacktrackingNFAExecutorNode(pureNFA, pureNFA.getRoot(), lookAroundExecutors, compilationBuffer);
+        return new TRegexBacktrackingNFAExecutorNode(pureNFA, pureNFA.getRoot(), lookAroundExecutors, tRegexCompiler.getOptions(), compilationBuffer);
     }
 
     @TruffleBoundary
@@ -198,6 +226,15 @@ public final class TRegexCompilationRequest {
         if (!(properties.hasAlternations() || properties.hasLookAroundAssertions()) && properties.isFixedCodePointWidth()) {
             preCalculatedResults = new PreCalculatedResultFactory[]{PreCalcResultVisitor.createResultFactory(ast)};
         }
+        DFATableStore.Entry storedDFAs = allowSimpleCG ? tRegexCompiler.getDFATableStore().get(source) : null;
+        if (storedDFAs != null && storedDFAs.getNumberOfCaptureGroups() == ast.getNumberOfCaptureGroups()) {
+            boolean regressionTestMode = tRegexCompiler.getOptions().isRegressionTestMode();
+            executorNodeForward = storedDFAs.getForward().createExecutor(regressionTestMode, source.getEncoding(), compilationBuffer);
+            if (storedDFAs.getBackward() != null) {
+                executorNodeBackward = storedDFAs.getBackward().createExecutor(regressionTestMode, source.getEncoding(), compilationBuffer);
+            }
+            return createLazyCaptureGroupRegexSearchNode(rootNode, preCalculatedResults);
+        }
         if (allowSimpleCG && preCalculatedResults == null && TRegexOptions.TRegexEnableTraceFinder && !ast.getRoot().hasLoops() && properties.isFixedCodePointWidth()) {
             try {
                 phaseStart("TraceFinder NFA");
@@ -213,6 +250,7 @@ public final class TRegexCompilationRequest {
             }
         }
         executorNodeForward = createDFAExecutor(nfa, true, true, false, allowSimpleCG && preCalculatedResults == null && !(ast.getRoot().startsWithCaret() && !properties.hasCaptureGroups()));
+        DFATable forwardTable = lastDFATable;
         final boolean createCaptureGroupTracker = !executorNodeForward.isSimpleCG() && (properties.hasCaptureGroups() || properties.hasLookAroundAssertions()) &&
                         preCalculatedResults == null;
         if (createCaptureGroupTracker) {
@@ -223,6 +261,24 @@ public final class TRegexCompilationRequest {
         } else if (!executorNodeForward.isAnchored() && !executorNodeForward.isSimpleCG() && (preCalculatedResults == null || !nfa.hasReverseUnAnchoredEntry())) {
             executorNodeBackward = createDFAExecutor(nfa, false, false, false, allowSimpleCG && !(ast.getRoot().endsWithDollar() && !properties.hasCaptureGroups()));
         }
+        if (allowSimpleCG && tRegexCompiler.getOptions().isRecordAutomata()) {
+            recordDFAs(forwardTable, executorNodeBackward == null ? null : lastDFATable);
+        }
+        return createLazyCaptureGroupRegexSearchNode(rootNode, preCalculatedResults);
+    }
+
+    /**
+     * DFAs can only be stored if the DFA stage of the expression consists of nothing but a forward
+     * and an optional backward DFA, and both of them are fully described by their {@link DFATable}.
+     */
+    private void recordDFAs(DFATable forwardTable, DFATable backwardTable) {
+        if (forwardTable == null || traceFinderNFA != null || executorNodeCaptureGroups != null || (executorNodeBackward != null && backwardTable == null)) {
+            return;
+        }
+        tRegexCompiler.getDFATableStore().put(source, ast.getNumberOfCaptureGroups(), forwardTable, backwardTable);
+    }
+
+    private TRegexExecRootNode.LazyCaptureGroupRegexSearchNode createLazyCaptureGroupRegexSearchNode(TRegexExecRootNode rootNode, PreCalculatedResultFactory[] preCalculatedResults) {
         logAutomatonSizes(rootNode);
         return new TRegexExecRootNode.LazyCaptureGroupRegexSearchNode(
                         tRegexCompiler.getLanguage(), source, ast.getFlags(), preCalculatedResults,
@@ -293,6 +349,7 @@ public final class TRegexCompilationRequest {
         try {
             dfa.calcDFA();
             executorNode = dfa.createDFAExecutor();
+            lastDFATable = dfa.getTable();
         } finally {
             phaseEnd(dfa.getDebugDumpName(debugDumpName) + " DFA");
         }
@@ -45,24 +45,35 @@ import com.oracle.truffle.regex.CompiledRegexObject;
 import com.oracle.truffle.regex.RegexCompiler;
 import com.oracle.truffle.regex.RegexLanguage;
 import com.oracle.truffle.regex.RegexOptions;
+import com.oracle.truffle.regex.RegexSetObject;
 import com.oracle.truffle.regex.RegexSource;
+import com.oracle.truffle.regex.RegexStreamObject;
 import com.oracle.truffle.regex.RegexSyntaxException;
+import com.oracle.truffle.regex.UnsupportedRegexException;
+import com.oracle.truffle.regex.tregex.dfa.DFATableStore;
 import com.oracle.truffle.regex.tregex.nfa.NFA;
+import com.oracle.truffle.regex.tregex.nfa.NFASetMatcher;
+import com.oracle.truffle.regex.tregex.nfa.NFAStreamMatcher;
+import com.oracle.truffle.regex.tregex.nfa.NFAStreamScanner;
 import com.oracle.truffle.regex.tregex.nodes.TRegexExecRootNode;
 import com.oracle.truffle.regex.tregex.nodes.TRegexExecRootNode.LazyCaptureGroupRegexSearchNode;
 import com.oracle.truffle.regex.tregex.nodes.dfa.TRegexDFAExecutorNode;
 import com.oracle.truffle.regex.tregex.nodes.nfa.TRegexBacktrackingNFAExecutorNode;
 import com.oracle.truffle.regex.tregex.parser.flavors.RegexFlavor;
 import com.oracle.truffle.regex.tregex.parser.flavors.RegexFlavorProcessor;
+import com.oracle.truffle.regex.tregex.string.Encodings;
+import com.oracle.truffle.regex.tregex.string.Encodings.Encoding;
 
 public final class TRegexCompiler implements RegexCompiler {
 
     private final RegexLanguage language;
     private final RegexOptions options;
+    private final DFATableStore dfaTableStore;
 
     public TRegexCompiler(RegexLanguage language, RegexOptions options) {
         this.language = language;
         this.options = options;
+        this.dfaTableStore = new DFATableStore(options);
     }
 
     public RegexLanguage getLanguage() {
@@ -73,6 +84,14 @@ public final class TRegexCompiler implements RegexCompiler {
         return options;
     }
 
+    /**
+     * Returns the store of DFAs recorded by or loaded into this compiler, see
+     * {@link RegexOptions#isRecordAutomata()}.
+     */
+    public DFATableStore getDFATableStore() {
+        return dfaTableStore;
+    }
+
     @TruffleBoundary
     @Override
     public CompiledRegexObject compile(RegexSource source) throws RegexSyntaxException {
@@ -89,6 +108,49 @@ public final class TRegexCompiler implements RegexCompiler {
         return new TRegexCompilationRequest(this, ecmascriptSource).compile();
     }
 
+    /**
+     * Compiles all expressions of a {@link RegexSetObject} to NFAs that are matched together by a
+     * {@link NFASetMatcher}. All sources must share the given encoding, which must be one of the
+     * UTF-16 encodings, since the set is matched against {@link String}s only.
+     */
+    @TruffleBoundary
+    public RegexSetObject compileSet(RegexSource[] sources, Encoding encoding) throws RegexSyntaxException {
+        if (encoding != Encodings.UTF_16 && encoding != Encodings.UTF_16_RAW) {
+            throw new UnsupportedRegexException("TRegex: regex sets do not support encoding " + encoding.getName());
+        }
+        NFA[] nfas = new NFA[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            RegexSource ecmascriptSource = sources[i];
+            if (options.getFlavor() != null) {
+                ecmascriptSource = options.getFlavor().forRegex(sources[i]).toECMAScriptRegex();
+            }
+            nfas[i] = new TRegexCompilationRequest(this, ecmascriptSource).compileNFA("regex sets");
+        }
+        return new RegexSetObject(sources, new NFASetMatcher(nfas, encoding == Encodings.UTF_16));
+    }
+
+    /**
+     * Compiles an expression to a {@link RegexStreamObject}, which searches inputs that are fed in
+     * chunks. The expression is matched by an {@link NFAStreamMatcher}, so it must not require
+     * backtracking, and since the scanner cannot look at input preceding the start of a search, it
+     * must not start with a look-behind assertion.
+     */
+    @TruffleBoundary
+    public RegexStreamObject compileStream(RegexSource source) throws RegexSyntaxException {
+        if (!NFAStreamScanner.supportsEncoding(source.getEncoding())) {
+            throw new UnsupportedRegexException("TRegex: regex streams do not support encoding " + source.getEncoding().getName());
+        }
+        RegexSource ecmascriptSource = source;
+        if (options.getFlavor() != null) {
+            ecmascriptSource = options.getFlavor().forRegex(source).toECMAScriptRegex();
+        }
+        NFA nfa = new TRegexCompilationRequest(this, ecmascriptSource).compileNFA("regex streams");
+        if (nfa != null && nfa.getAnchoredEntry().length > 1) {
+            throw new UnsupportedRegexException("TRegex: regex streams do not support look-behind assertions at the beginning of the expression", source);
+        }
+        return new RegexStreamObject(source, new NFAStreamMatcher(nfa), options.isRegressionTestMode());
+    }
+
     @TruffleBoundary
     public TRegexDFAExecutorNode compileEagerDFAExecutor(RegexSource source) {
         return new TRegexCompilationRequest(this, source).compileEagerDFAExecutor();
@@ -156,12 +156,62 @@ public class TRegexOptions {
      */
     public static final int TRegexMaxDFASize = 2_400;
 
+    /**
+     * Maximum number of DFA states cached by
+     * {@link com.oracle.truffle.regex.tregex.nodes.nfa.TRegexOnTheFlyDFAExecutorNode}, which is
+     * used for expressions whose DFA exceeds {@link #TRegexMaxDFASize}. When the limit is reached,
+     * the cache is cleared.
+     */
+    public static final int TRegexMaxOnTheFlyDFAStates = 10_000;
+
+    /**
+     * Maximum size, in bits, of the bit set used by
+     * {@link com.oracle.truffle.regex.tregex.nodes.nfa.TRegexBacktrackingNFAExecutorNode} to
+     * memoize visited states when {@link com.oracle.truffle.regex.RegexOptions#isMemoizeBacktracking()}
+     * is set. The bit set needs one bit per NFA state and input position. Searches that would need
+     * more run without memoization.
+     */
+    public static final int TRegexMaxBacktrackingMemoSize = 1 << 23;
+
     /**
      * Maximum number of entries in the global compilation cache in
      * {@link com.oracle.truffle.regex.RegexLanguage}.
      */
     public static final int RegexMaxCacheSize = 1_000;
 
+    /**
+     * Maximum total weight of the entries in the global compilation cache. The weight of an entry
+     * is an estimate of the size of the automata it will hold, see
+     * {@link com.oracle.truffle.regex.CachingRegexEngine}.
+     */
+    public static final long RegexMaxCacheWeight = 1_000_000;
+
+    /**
+     * Number of independently locked shards the global compilation cache is split into. Must be a
+     * power of two.
+     */
+    public static final int RegexCacheShards = 16;
+
+    /**
+     * Minimum number of {@code char}s or bytes per chunk when
+     * {@link com.oracle.truffle.regex.tregex.nfa.NFAParallelSearch} splits an input. Inputs shorter
+     * than two chunks are searched on the calling thread.
+     */
+    public static final int TRegexParallelSearchMinChunkSize = 1 << 16;
+
+    /**
+     * Minimum chunk size used by {@link com.oracle.truffle.regex.tregex.nfa.NFAParallelSearch} in
+     * regression test mode, where even short inputs are split, regardless of the number of
+     * available processors.
+     */
+    public static final int TRegexParallelSearchRegressionTestChunkSize = 3;
+
+    /**
+     * Maximum number of chunks used by {@link com.oracle.truffle.regex.tregex.nfa.NFAParallelSearch}
+     * in regression test mode.
+     */
+    public static final int TRegexParallelSearchRegressionTestMaxChunks = 16;
+
     /**
      * The parser will try to unroll bounded quantifiers on single character classes up to this
      * limit.
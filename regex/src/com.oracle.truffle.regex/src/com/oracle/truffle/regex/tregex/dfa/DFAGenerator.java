@@ -144,6 +144,7 @@ public final class DFAGenerator implements JsonConvertible {
     private EconomicMap<Integer, DFAAbstractStateNode> stateReplacements;
 
     private final Matchers.Builder matchersBuilder;
+    private DFATable table;
 
     public DFAGenerator(TRegexCompilationRequest compilationReqest, NFA nfa, TRegexDFAExecutorProperties executorProps, CompilationBuffer compilationBuffer, RegexOptions engineOptions) {
         this.compilationReqest = compilationReqest;
@@ -343,9 +344,38 @@ public final class DFAGenerator implements JsonConvertible {
         }
         executorProps.setSimpleCG(doSimpleCG);
         executorProps.setSimpleCGMustCopy(simpleCGMustCopy);
+        if (canCreateTable() && (getOptions().isRecordAutomata() || getOptions().isRegressionTestMode())) {
+            table = createTable(states);
+            if (getOptions().isRegressionTestMode()) {
+                // in regression test mode, we run the state nodes restored from the serialized table
+                // instead of the ones generated directly
+                table = DFATable.copy(table);
+                states = table.createStates(true, getEncoding(), compilationBuffer);
+            }
+        }
         return new TRegexDFAExecutorNode(executorProps, maxNumberOfNfaStates, states, captureGroupTransitions, TRegexDFAExecutorDebugRecorder.create(engineOptions, this));
     }
 
+    /**
+     * Returns the {@link DFATable} of the DFA created by {@link #createDFAExecutor()}, or
+     * {@code null} if no table was recorded, see {@link RegexOptions#isRecordAutomata()}.
+     */
+    public DFATable getTable() {
+        return table;
+    }
+
+    private boolean canCreateTable() {
+        return !isGenericCG() && !nfa.isTraceFinderNFA() && stateReplacements == null && !TRegexOptions.TRegexEnableNodeSplitter;
+    }
+
+    private DFATable createTable(DFAAbstractStateNode[] states) {
+        CodePointSet[][] transitions = new CodePointSet[states.length][];
+        for (DFAStateNodeBuilder s : stateMap.values()) {
+            transitions[s.getId()] = getCodePointSets(s);
+        }
+        return new DFATable(executorProps, maxNumberOfNfaStates, states, transitions);
+    }
+
     private void createInitialStatesForward() {
         final int numberOfEntryPoints = nfa.getAnchoredEntry().length;
         entryStates = new DFAStateNodeBuilder[numberOfEntryPoints * 2];
@@ -828,17 +858,14 @@ public final class DFAGenerator implements JsonConvertible {
             }
 
             Matchers matchers = null;
-            // Very conservative heuristic for whether we should use AllTransitionsInOneTreeMatcher.
-            // TODO: Potential benefits of this should be further explored.
             AllTransitionsInOneTreeMatcher allTransitionsInOneTreeMatcher = null;
-            boolean useTreeTransitionMatcher = nRanges > 1 && MathUtil.log2ceil(nRanges + 2) * 8 < estimatedTransitionsCost;
-            if (useTreeTransitionMatcher) {
+            if (useTreeTransitionMatcher(nRanges, estimatedTransitionsCost)) {
                 if (getOptions().isRegressionTestMode()) {
                     // in regression test mode, we compare results of regular matchers and
                     // AllTransitionsInOneTreeMatcher
                     matchers = getEncoding().toMatchers(matchersBuilder);
                 }
-                allTransitionsInOneTreeMatcher = createAllTransitionsInOneTreeMatcher(s, coversCharSpace);
+                allTransitionsInOneTreeMatcher = createAllTransitionsInOneTreeMatcher(getCodePointSets(s), coversCharSpace, getEncoding(), compilationBuffer);
             } else {
                 matchers = getEncoding().toMatchers(matchersBuilder);
             }
@@ -905,15 +932,31 @@ public final class DFAGenerator implements JsonConvertible {
         return DFASimpleCGTransition.create(nfaTransition, isForward() && nfaTransition != null && nfaTransition.getSource() == nfa.getInitialLoopBackTransition().getSource());
     }
 
+    private static CodePointSet[] getCodePointSets(DFAStateNodeBuilder state) {
+        CodePointSet[] cpss = new CodePointSet[state.getSuccessors().length];
+        for (int i = 0; i < cpss.length; i++) {
+            cpss[i] = state.getSuccessors()[i].getCodePointSet();
+        }
+        return cpss;
+    }
+
+    /**
+     * Very conservative heuristic for whether we should use AllTransitionsInOneTreeMatcher.
+     * TODO: Potential benefits of this should be further explored.
+     */
+    static boolean useTreeTransitionMatcher(int nRanges, int estimatedTransitionsCost) {
+        return nRanges > 1 && MathUtil.log2ceil(nRanges + 2) * 8 < estimatedTransitionsCost;
+    }
+
     /**
-     * Generate a new {@link AllTransitionsInOneTreeMatcher} from a given {@code state}.
+     * Generate a new {@link AllTransitionsInOneTreeMatcher} from the code point sets of a state's
+     * {@code transitions}.
      */
-    private AllTransitionsInOneTreeMatcher createAllTransitionsInOneTreeMatcher(DFAStateNodeBuilder state, boolean coversCharSpace) {
-        DFAStateTransitionBuilder[] transitions = state.getSuccessors();
+    static AllTransitionsInOneTreeMatcher createAllTransitionsInOneTreeMatcher(CodePointSet[] transitions, boolean coversCharSpace, Encoding encoding, CompilationBuffer compilationBuffer) {
         // convert all transition matchers to CompressedCodePointSets
         CompressedCodePointSet[] ccpss = new CompressedCodePointSet[coversCharSpace ? transitions.length - 1 : transitions.length];
         for (int i = 0; i < ccpss.length; i++) {
-            ccpss[i] = CompressedCodePointSet.create(transitions[i].getCodePointSet(), compilationBuffer);
+            ccpss[i] = CompressedCodePointSet.create(transitions[i], compilationBuffer);
         }
         IntArrayBuffer ranges = compilationBuffer.getIntRangesBuffer1();
         IntArrayBuffer iterators = compilationBuffer.getIntRangesBuffer2().asFixedSizeArray(ccpss.length, 0);
@@ -1003,11 +1046,11 @@ public final class DFAGenerator implements JsonConvertible {
                 successors.add((short) minCPS);
                 iterators.inc(minCPS);
             }
-            if (lastHi <= getEncoding().getMaxValue()) {
+            if (lastHi <= encoding.getMaxValue()) {
                 ranges.add(lastHi);
             }
         }
-        if (lastHi != getEncoding().getMaxValue() + 1) {
+        if (lastHi != encoding.getMaxValue() + 1) {
             successors.add(noMatchSuccessor);
         }
         return new AllTransitionsInOneTreeMatcher(ranges.toArray(), successors.toArray(),
@@ -0,0 +1,458 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.truffle.regex.tregex.dfa;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.oracle.truffle.regex.charset.CodePointSet;
+import com.oracle.truffle.regex.charset.CodePointSetAccumulator;
+import com.oracle.truffle.regex.tregex.buffer.CompilationBuffer;
+import com.oracle.truffle.regex.tregex.nodes.dfa.AllTransitionsInOneTreeMatcher;
+import com.oracle.truffle.regex.tregex.nodes.dfa.BackwardDFAStateNode;
+import com.oracle.truffle.regex.tregex.nodes.dfa.DFAAbstractStateNode;
+import com.oracle.truffle.regex.tregex.nodes.dfa.DFAInitialStateNode;
+import com.oracle.truffle.regex.tregex.nodes.dfa.DFASimpleCG;
+import com.oracle.truffle.regex.tregex.nodes.dfa.DFASimpleCGTransition;
+import com.oracle.truffle.regex.tregex.nodes.dfa.DFAStateNode;
+import com.oracle.truffle.regex.tregex.nodes.dfa.Matchers;
+import com.oracle.truffle.regex.tregex.nodes.dfa.TRegexDFAExecutorNode;
+import com.oracle.truffle.regex.tregex.nodes.dfa.TRegexDFAExecutorProperties;
+import com.oracle.truffle.regex.tregex.string.Encodings.Encoding;
+import com.oracle.truffle.regex.tregex.util.Exceptions;
+
+/**
+ * The transition table of a DFA generated by {@link DFAGenerator}, in a form that can be written to
+ * and read from a compact binary representation. Every state is described by its flags, the code
+ * point sets of its transitions and their successors. Creating a {@link TRegexDFAExecutorNode} from
+ * a table only requires the creation of the state nodes' character matchers, and skips the
+ * expensive power-set construction.
+ * <p>
+ * Tables can be created for DFAs that track capture groups via {@link DFASimpleCG} or not at all.
+ * DFAs with capture group tracking state nodes, DFAs generated from trace finder NFAs and DFAs
+ * containing an inner literal search state are not supported.
+ */
+public final class DFATable {
+
+    private static final byte FLAG_FORWARD = 1;
+    private static final byte FLAG_SEARCHING = 1 << 1;
+    private static final byte FLAG_ALLOW_SIMPLE_CG = 1 << 2;
+    private static final byte FLAG_SIMPLE_CG = 1 << 3;
+    private static final byte FLAG_SIMPLE_CG_MUST_COPY = 1 << 4;
+    private static final byte ALL_FLAGS = FLAG_FORWARD | FLAG_SEARCHING | FLAG_ALLOW_SIMPLE_CG | FLAG_SIMPLE_CG | FLAG_SIMPLE_CG_MUST_COPY;
+
+    /*
+     * The flags of a state. They are independent of the flag layout of DFAStateNode, so that the
+     * binary representation does not change if that layout does.
+     */
+    private static final byte STATE_FINAL = 1;
+    private static final byte STATE_ANCHORED_FINAL = 1 << 1;
+    private static final byte STATE_HAS_BACKWARD_PREFIX_STATE = 1 << 2;
+    private static final byte STATE_UTF_16_MUST_DECODE = 1 << 3;
+    private static final byte ALL_STATE_FLAGS = STATE_FINAL | STATE_ANCHORED_FINAL | STATE_HAS_BACKWARD_PREFIX_STATE | STATE_UTF_16_MUST_DECODE;
+
+    private static final int MAX_RANGES_LENGTH = 2 * (Character.MAX_CODE_POINT + 1);
+
+    private final byte flags;
+    private final int minResultLength;
+    private final int maxNumberOfNFAStates;
+    private final short[] entryStates;
+    private final byte[] stateFlags;
+    private final short[][] successors;
+    private final CodePointSet[][] transitions;
+    private final DFASimpleCG[] simpleCG;
+
+    private DFATable(byte flags, int minResultLength, int maxNumberOfNFAStates, short[] entryStates, byte[] stateFlags, short[][] successors, CodePointSet[][] transitions,
+                    DFASimpleCG[] simpleCG) {
+        this.flags = flags;
+        this.minResultLength = minResultLength;
+        this.maxNumberOfNFAStates = maxNumberOfNFAStates;
+        this.entryStates = entryStates;
+        this.stateFlags = stateFlags;
+        this.successors = successors;
+        this.transitions = transitions;
+        this.simpleCG = simpleCG;
+    }
+
+    /**
+     * Creates a table from the state nodes generated by {@link DFAGenerator}.
+     *
+     * @param transitions the code point sets of all transitions, indexed by state ID.
+     */
+    DFATable(TRegexDFAExecutorProperties props, int maxNumberOfNFAStates, DFAAbstractStateNode[] states, CodePointSet[][] transitions) {
+        this.flags = buildFlags(props);
+        this.minResultLength = props.getMinResultLength();
+        this.maxNumberOfNFAStates = maxNumberOfNFAStates;
+        this.entryStates = states[0].getSuccessors();
+        this.stateFlags = new byte[states.length];
+        this.successors = new short[states.length][];
+        this.transitions = transitions;
+        this.simpleCG = new DFASimpleCG[states.length];
+        for (int i = 1; i < states.length; i++) {
+            DFAStateNode state = (DFAStateNode) states[i];
+            stateFlags[i] = buildStateFlags(state);
+            successors[i] = state.getSuccessors();
+            simpleCG[i] = state.getSimpleCG();
+        }
+    }
+
+    private static byte buildFlags(TRegexDFAExecutorProperties props) {
+        assert !props.isGenericCG();
+        byte flags = 0;
+        if (props.isForward()) {
+            flags |= FLAG_FORWARD;
+        }
+        if (props.isSearching()) {
+            flags |= FLAG_SEARCHING;
+        }
+        if (props.isAllowSimpleCG()) {
+            flags |= FLAG_ALLOW_SIMPLE_CG;
+        }
+        if (props.isSimpleCG()) {
+            flags |= FLAG_SIMPLE_CG;
+        }
+        if (props.isSimpleCGMustCopy()) {
+            flags |= FLAG_SIMPLE_CG_MUST_COPY;
+        }
+        return flags;
+    }
+
+    private static byte buildStateFlags(DFAStateNode state) {
+        byte flags = 0;
+        if (state.isFinalState()) {
+            flags |= STATE_FINAL;
+        }
+        if (state.isAnchoredFinalState()) {
+            flags |= STATE_ANCHORED_FINAL;
+        }
+        if (state.hasBackwardPrefixState()) {
+            flags |= STATE_HAS_BACKWARD_PREFIX_STATE;
+        }
+        if (state.utf16MustDecode()) {
+            flags |= STATE_UTF_16_MUST_DECODE;
+        }
+        return flags;
+    }
+
+    private byte getStateNodeFlags(int stateID) {
+        byte f = stateFlags[stateID];
+        return DFAStateNode.buildFlags((f & STATE_FINAL) != 0, (f & STATE_ANCHORED_FINAL) != 0, (f & STATE_HAS_BACKWARD_PREFIX_STATE) != 0, (f & STATE_UTF_16_MUST_DECODE) != 0);
+    }
+
+    private boolean flagIsSet(byte flag) {
+        return (flags & flag) != 0;
+    }
+
+    public boolean isForward() {
+        return flagIsSet(FLAG_FORWARD);
+    }
+
+    public int getNumberOfStates() {
+        return successors.length;
+    }
+
+    /**
+     * Returns the largest capture group boundary index updated or cleared by the simple capture
+     * group transitions of this DFA, or {@code -1} if there is none.
+     */
+    int getMaxGroupBoundaryIndex() {
+        int max = -1;
+        for (DFASimpleCG cg : simpleCG) {
+            if (cg == null) {
+                continue;
+            }
+            for (DFASimpleCGTransition t : cg.getTransitions()) {
+                max = Math.max(max, getMaxGroupBoundaryIndex(t));
+            }
+            max = Math.max(max, getMaxGroupBoundaryIndex(cg.getTransitionToFinalState()));
+            max = Math.max(max, getMaxGroupBoundaryIndex(cg.getTransitionToAnchoredFinalState()));
+        }
+        return max;
+    }
+
+    private static int getMaxGroupBoundaryIndex(DFASimpleCGTransition t) {
+        int max = -1;
+        for (byte b : t.getIndexUpdates()) {
+            max = Math.max(max, Byte.toUnsignedInt(b));
+        }
+        if (!t.isFullClear()) {
+            for (byte b : t.getIndexClears()) {
+                max = Math.max(max, Byte.toUnsignedInt(b));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Creates a new {@link TRegexDFAExecutorNode} running this DFA.
+     */
+    public TRegexDFAExecutorNode createExecutor(boolean regressionTestMode, Encoding encoding, CompilationBuffer compilationBuffer) {
+        TRegexDFAExecutorProperties props = new TRegexDFAExecutorProperties(isForward(), flagIsSet(FLAG_SEARCHING), false, flagIsSet(FLAG_ALLOW_SIMPLE_CG), regressionTestMode, minResultLength);
+        props.setSimpleCG(flagIsSet(FLAG_SIMPLE_CG));
+        props.setSimpleCGMustCopy(flagIsSet(FLAG_SIMPLE_CG_MUST_COPY));
+        return new TRegexDFAExecutorNode(props, maxNumberOfNFAStates, createStates(regressionTestMode, encoding, compilationBuffer), null);
+    }
+
+    /**
+     * Creates the state nodes of this DFA, analogous to {@link DFAGenerator#createDFAExecutor()}.
+     */
+    DFAAbstractStateNode[] createStates(boolean regressionTestMode, Encoding encoding, CompilationBuffer compilationBuffer) {
+        Matchers.Builder matchersBuilder = encoding.createMatchersBuilder();
+        DFAAbstractStateNode[] states = new DFAAbstractStateNode[successors.length];
+        states[0] = new DFAInitialStateNode(Arrays.copyOf(entryStates, entryStates.length), flagIsSet(FLAG_SEARCHING), false);
+        for (int i = 1; i < states.length; i++) {
+            short id = (short) i;
+            CodePointSet[] cpss = transitions[i];
+            matchersBuilder.reset(cpss.length);
+            boolean coversCharSpace = coversFullCharSpace(cpss, encoding, compilationBuffer);
+            int nRanges = 0;
+            int estimatedTransitionsCost = 0;
+            for (int j = 0; j < cpss.length; j++) {
+                if (j == cpss.length - 1 && coversCharSpace) {
+                    matchersBuilder.setNoMatchSuccessor((short) j);
+                } else {
+                    nRanges += cpss[j].size();
+                    encoding.createMatcher(matchersBuilder, j, cpss[j], compilationBuffer);
+                }
+                estimatedTransitionsCost += matchersBuilder.estimatedCost(j);
+            }
+            Matchers matchers = null;
+            AllTransitionsInOneTreeMatcher allTransitionsInOneTreeMatcher = null;
+            if (DFAGenerator.useTreeTransitionMatcher(nRanges, estimatedTransitionsCost)) {
+                if (regressionTestMode) {
+                    matchers = encoding.toMatchers(matchersBuilder);
+                }
+                allTransitionsInOneTreeMatcher = DFAGenerator.createAllTransitionsInOneTreeMatcher(cpss, coversCharSpace, encoding, compilationBuffer);
+            } else {
+                matchers = encoding.toMatchers(matchersBuilder);
+            }
+            short loopToSelf = -1;
+            DFAStateNode.LoopOptimizationNode loopOptimizationNode = null;
+            for (int j = 0; j < cpss.length; j++) {
+                if (successors[i][j] == id) {
+                    loopToSelf = (short) j;
+                    if (coversCharSpace && !cpss[j].matchesEverything(encoding) && cpss[j].inverseValueCount(encoding) <= 4) {
+                        loopOptimizationNode = encoding.extractLoopOptNode(cpss[j]);
+                    }
+                }
+            }
+            short[] stateSuccessors = Arrays.copyOf(successors[i], successors[i].length);
+            if (isForward()) {
+                states[i] = new DFAStateNode(id, getStateNodeFlags(i), loopToSelf, loopOptimizationNode, stateSuccessors, matchers, simpleCG[i], allTransitionsInOneTreeMatcher);
+            } else {
+                states[i] = new BackwardDFAStateNode(id, getStateNodeFlags(i), loopToSelf, loopOptimizationNode, stateSuccessors, matchers, simpleCG[i], allTransitionsInOneTreeMatcher);
+            }
+        }
+        return states;
+    }
+
+    /**
+     * Returns {@code true} iff the union of {@code cpss} is equal to {@link Encoding#getFullSet()}.
+     * Equivalent to {@link DFAStateNodeBuilder#coversFullCharSpace(CompilationBuffer)}.
+     */
+    private static boolean coversFullCharSpace(CodePointSet[] cpss, Encoding encoding, CompilationBuffer compilationBuffer) {
+        CodePointSetAccumulator acc = compilationBuffer.getCodePointSetAccumulator1();
+        acc.clear();
+        for (CodePointSet cps : cpss) {
+            acc.addSet(cps);
+        }
+        return acc.toCodePointSet().matchesEverything(encoding);
+    }
+
+    public void write(DataOutput out) throws IOException {
+        out.writeByte(flags);
+        out.writeInt(minResultLength);
+        out.writeInt(maxNumberOfNFAStates);
+        writeShorts(out, entryStates);
+        out.writeShort(successors.length);
+        for (int i = 1; i < successors.length; i++) {
+            out.writeByte(stateFlags[i]);
+            writeShorts(out, successors[i]);
+            out.writeShort(transitions[i].length);
+            for (CodePointSet cps : transitions[i]) {
+                writeInts(out, cps.getRanges());
+            }
+            out.writeBoolean(simpleCG[i] != null);
+            if (simpleCG[i] != null) {
+                assert simpleCG[i].getTransitions().length == transitions[i].length;
+                for (DFASimpleCGTransition t : simpleCG[i].getTransitions()) {
+                    writeSimpleCGTransition(out, t);
+                }
+                writeSimpleCGTransition(out, simpleCG[i].getTransitionToFinalState());
+                writeSimpleCGTransition(out, simpleCG[i].getTransitionToAnchoredFinalState());
+            }
+        }
+    }
+
+    /**
+     * Reads a table written by {@link #write(DataOutput)}, and checks that it is well-formed: all
+     * state IDs are in range, every state has a code point set and a successor for each of its
+     * transitions, and all code point sets are valid.
+     *
+     * @throws IOException if the input ends early or the table is malformed.
+     */
+    public static DFATable read(DataInput in) throws IOException {
+        byte flags = in.readByte();
+        int minResultLength = in.readInt();
+        int maxNumberOfNFAStates = in.readInt();
+        check((flags & ~ALL_FLAGS) == 0 && minResultLength >= 0 && maxNumberOfNFAStates >= 0);
+        short[] entryStates = readShorts(in);
+        int nStates = in.readUnsignedShort();
+        check(nStates > 1);
+        for (short entryState : entryStates) {
+            check(entryState == -1 || (entryState > 0 && entryState < nStates));
+        }
+        byte[] stateFlags = new byte[nStates];
+        short[][] successors = new short[nStates][];
+        CodePointSet[][] transitions = new CodePointSet[nStates][];
+        DFASimpleCG[] simpleCG = new DFASimpleCG[nStates];
+        for (int i = 1; i < nStates; i++) {
+            stateFlags[i] = in.readByte();
+            check((stateFlags[i] & ~ALL_STATE_FLAGS) == 0);
+            successors[i] = readShorts(in);
+            transitions[i] = new CodePointSet[in.readUnsignedShort()];
+            check(successors[i].length == transitions[i].length + ((stateFlags[i] & STATE_HAS_BACKWARD_PREFIX_STATE) != 0 ? 1 : 0));
+            for (short successor : successors[i]) {
+                check(successor > 0 && successor < nStates);
+            }
+            for (int j = 0; j < transitions[i].length; j++) {
+                transitions[i][j] = CodePointSet.create(readRanges(in));
+            }
+            if (in.readBoolean()) {
+                DFASimpleCGTransition[] simpleCGTransitions = new DFASimpleCGTransition[transitions[i].length];
+                for (int j = 0; j < simpleCGTransitions.length; j++) {
+                    simpleCGTransitions[j] = readSimpleCGTransition(in);
+                }
+                simpleCG[i] = DFASimpleCG.create(simpleCGTransitions, readSimpleCGTransition(in), readSimpleCGTransition(in));
+            }
+        }
+        return new DFATable(flags, minResultLength, maxNumberOfNFAStates, entryStates, stateFlags, successors, transitions, simpleCG);
+    }
+
+    private static void check(boolean condition) throws IOException {
+        if (!condition) {
+            throw new IOException("malformed DFA table");
+        }
+    }
+
+    /**
+     * Returns a copy of {@code table} obtained by writing it to a byte array and reading it back.
+     */
+    static DFATable copy(DFATable table) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            table.write(new DataOutputStream(bytes));
+            return read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        } catch (IOException e) {
+            throw Exceptions.shouldNotReachHere(e.getMessage());
+        }
+    }
+
+    private static void writeSimpleCGTransition(DataOutput out, DFASimpleCGTransition t) throws IOException {
+        out.writeBoolean(t.isFullClear());
+        writeBytes(out, t.getIndexUpdates());
+        writeBytes(out, t.isFullClear() ? new byte[0] : t.getIndexClears());
+    }
+
+    private static DFASimpleCGTransition readSimpleCGTransition(DataInput in) throws IOException {
+        boolean fullClear = in.readBoolean();
+        return DFASimpleCGTransition.create(readBytes(in), readBytes(in), fullClear);
+    }
+
+    private static void writeBytes(DataOutput out, byte[] array) throws IOException {
+        out.writeShort(array.length);
+        out.write(array);
+    }
+
+    private static byte[] readBytes(DataInput in) throws IOException {
+        byte[] array = new byte[in.readUnsignedShort()];
+        in.readFully(array);
+        return array;
+    }
+
+    private static void writeShorts(DataOutput out, short[] array) throws IOException {
+        out.writeShort(array.length);
+        for (short s : array) {
+            out.writeShort(s);
+        }
+    }
+
+    private static short[] readShorts(DataInput in) throws IOException {
+        short[] array = new short[in.readUnsignedShort()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = in.readShort();
+        }
+        return array;
+    }
+
+    private static void writeInts(DataOutput out, int[] array) throws IOException {
+        out.writeInt(array.length);
+        for (int i : array) {
+            out.writeInt(i);
+        }
+    }
+
+    /**
+     * Reads the ranges of a {@link CodePointSet} written by {@link #writeInts(DataOutput, int[])}
+     * and checks that they are sorted, disjoint and valid code points.
+     */
+    private static int[] readRanges(DataInput in) throws IOException {
+        int length = in.readInt();
+        check(length >= 0 && length <= MAX_RANGES_LENGTH && length % 2 == 0);
+        int[] array = new int[length];
+        int previousHi = -1;
+        for (int i = 0; i < array.length; i += 2) {
+            int lo = in.readInt();
+            int hi = in.readInt();
+            check(lo > previousHi && lo <= hi && hi <= Character.MAX_CODE_POINT);
+            array[i] = lo;
+            array[i + 1] = hi;
+            previousHi = hi;
+        }
+        return array;
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.truffle.regex.tregex.dfa;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.oracle.truffle.regex.RegexOptions;
+import com.oracle.truffle.regex.RegexSource;
+import com.oracle.truffle.regex.tregex.string.Encodings;
+import com.oracle.truffle.regex.tregex.string.Encodings.Encoding;
+
+/**
+ * A collection of {@link DFATable}s, keyed by the {@link RegexSource} they were generated for.
+ * Every entry holds the DFAs of a regular expression's lazy capture group search: the forward DFA
+ * and, if required, the backward DFA. If the engine is created with
+ * {@link RegexOptions#isRecordAutomata()}, all DFAs that can be represented as tables are added to
+ * the store when they are generated. The store can be written to a file, and be loaded into another
+ * engine to skip the generation of these DFAs, e.g. at the startup of an application that uses a
+ * fixed set of regular expressions.
+ * <p>
+ * The sources used as keys are the ones compiled by TRegex, i.e. expressions of other flavors are
+ * translated to ECMAScript before they are looked up. The file header contains the
+ * {@link RegexOptions} that influence the generated automata; files written by an engine with
+ * different options are rejected.
+ * <p>
+ * The entries follow the header as a single block, preceded by its length and CRC32 checksum. A file
+ * is only loaded if the checksum matches and all of its tables are well-formed; otherwise the store
+ * is left unchanged.
+ */
+public final class DFATableStore {
+
+    private static final int MAGIC = 0x54444641; // "TDFA"
+    /**
+     * Must be incremented on every change of the binary representation of {@link DFATable}.
+     */
+    private static final int VERSION = 2;
+    private static final int MAX_OPTIONS_KEY_LENGTH = 1024;
+    private static final int BODY_CHUNK_SIZE = 1 << 16;
+
+    private final RegexOptions options;
+    private final Map<RegexSource, Entry> entries = new ConcurrentHashMap<>();
+
+    public DFATableStore(RegexOptions options) {
+        this.options = options;
+    }
+
+    public Entry get(RegexSource source) {
+        return entries.get(source);
+    }
+
+    public void put(RegexSource source, int numberOfCaptureGroups, DFATable forward, DFATable backward) {
+        entries.put(source, new Entry(numberOfCaptureGroups, forward, backward));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void write(DataOutput out) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream body = new DataOutputStream(bytes);
+        body.writeInt(entries.size());
+        for (Map.Entry<RegexSource, Entry> e : entries.entrySet()) {
+            RegexSource source = e.getKey();
+            Entry entry = e.getValue();
+            writeString(body, source.getPattern());
+            writeString(body, source.getFlags());
+            writeString(body, source.getEncoding().getName());
+            body.writeInt(entry.numberOfCaptureGroups);
+            entry.forward.write(body);
+            body.writeBoolean(entry.backward != null);
+            if (entry.backward != null) {
+                entry.backward.write(body);
+            }
+        }
+        body.flush();
+        byte[] bodyBytes = bytes.toByteArray();
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeString(out, getOptionsKey(options));
+        out.writeInt(bodyBytes.length);
+        out.writeLong(checksum(bodyBytes));
+        out.write(bodyBytes);
+    }
+
+    /**
+     * Adds all entries read from {@code in} to this store. Either all entries are added, or, if the
+     * input is not a valid automaton file, none.
+     *
+     * @return the number of entries read.
+     * @throws IOException if the input cannot be read, was written by an incompatible engine, or
+     *             is truncated or corrupt.
+     */
+    public int read(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("not a TRegex automaton file");
+        }
+        if (in.readInt() != VERSION) {
+            throw new IOException("unsupported TRegex automaton file version");
+        }
+        String optionsKey = readString(in, MAX_OPTIONS_KEY_LENGTH);
+        if (!optionsKey.equals(getOptionsKey(options))) {
+            throw new IOException("automata were generated with incompatible regex options " + optionsKey);
+        }
+        int length = in.readInt();
+        long checksum = in.readLong();
+        if (length < 0) {
+            throw corrupt();
+        }
+        byte[] bodyBytes = readBody(in, length);
+        if (checksum(bodyBytes) != checksum) {
+            throw corrupt();
+        }
+        Map<RegexSource, Entry> read;
+        try {
+            read = readEntries(new DataInputStream(new ByteArrayInputStream(bodyBytes)), length);
+        } catch (RuntimeException e) {
+            throw new IOException("corrupt TRegex automaton file", e);
+        }
+        entries.putAll(read);
+        return read.size();
+    }
+
+    /**
+     * Reads {@code length} bytes in chunks, so that a corrupt length does not cause a huge
+     * allocation before the end of the input is reached.
+     */
+    private static byte[] readBody(DataInput in, int length) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.min(length, BODY_CHUNK_SIZE));
+        byte[] chunk = new byte[BODY_CHUNK_SIZE];
+        int remaining = length;
+        while (remaining > 0) {
+            int n = Math.min(remaining, chunk.length);
+            in.readFully(chunk, 0, n);
+            bytes.write(chunk, 0, n);
+            remaining -= n;
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Map<RegexSource, Entry> readEntries(DataInputStream in, int length) throws IOException {
+        int n = in.readInt();
+        // every entry takes at least 4 bytes, this prevents huge allocations on corrupt input
+        if (n < 0 || n > length / 4) {
+            throw corrupt();
+        }
+        Map<RegexSource, Entry> read = new HashMap<>(n);
+        for (int i = 0; i < n; i++) {
+            String pattern = readString(in, in.available());
+            String flags = readString(in, in.available());
+            Encoding encoding = readEncoding(in);
+            int numberOfCaptureGroups = in.readInt();
+            DFATable forward = DFATable.read(in);
+            DFATable backward = in.readBoolean() ? DFATable.read(in) : null;
+            if (numberOfCaptureGroups < 1 || !forward.isForward() || (backward != null && backward.isForward()) ||
+                            forward.getMaxGroupBoundaryIndex() >= numberOfCaptureGroups * 2 || (backward != null && backward.getMaxGroupBoundaryIndex() >= numberOfCaptureGroups * 2)) {
+                throw corrupt();
+            }
+            read.put(new RegexSource(pattern, flags, encoding), new Entry(numberOfCaptureGroups, forward, backward));
+        }
+        if (in.available() != 0) {
+            throw corrupt();
+        }
+        return read;
+    }
+
+    private static Encoding readEncoding(DataInput in) throws IOException {
+        String name = readString(in, MAX_OPTIONS_KEY_LENGTH);
+        for (Encoding encoding : new Encoding[]{Encodings.UTF_8, Encodings.UTF_16, Encodings.UTF_32, Encodings.UTF_16_RAW, Encodings.LATIN_1}) {
+            if (encoding.getName().equals(name)) {
+                return encoding;
+            }
+        }
+        throw new IOException("unknown encoding " + name);
+    }
+
+    private static IOException corrupt() {
+        return new IOException("corrupt TRegex automaton file");
+    }
+
+    private static long checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        return crc.getValue();
+    }
+
+    /**
+     * Writes a string of arbitrary length as UTF-16 chars, unlike
+     * {@link DataOutput#writeUTF(String)}, which is limited to 65535 bytes. Patterns may contain
+     * unpaired surrogates, so they are not converted to UTF-8.
+     */
+    private static void writeString(DataOutput out, String s) throws IOException {
+        out.writeInt(s.length());
+        out.writeChars(s);
+    }
+
+    private static String readString(DataInput in, int maxBytes) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > maxBytes / 2) {
+            throw corrupt();
+        }
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = in.readChar();
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Returns a string representation of the options that influence the automata generated for a
+     * given {@link RegexSource}.
+     */
+    private static String getOptionsKey(RegexOptions options) {
+        StringBuilder sb = new StringBuilder();
+        if (options.isU180EWhitespace()) {
+            sb.append(RegexOptions.U180E_WHITESPACE_NAME).append(',');
+        }
+        if (options.isUTF16ExplodeAstralSymbols()) {
+            sb.append(RegexOptions.UTF_16_EXPLODE_ASTRAL_SYMBOLS_NAME).append(',');
+        }
+        return sb.toString();
+    }
+
+    public static final class Entry {
+
+        private final int numberOfCaptureGroups;
+        private final DFATable forward;
+        private final DFATable backward;
+
+        Entry(int numberOfCaptureGroups, DFATable forward, DFATable backward) {
+            assert forward.isForward();
+            assert backward == null || !backward.isForward();
+            this.numberOfCaptureGroups = numberOfCaptureGroups;
+            this.forward = forward;
+            this.backward = backward;
+        }
+
+        /**
+         * The number of capture groups of the expression the DFAs were generated for. The DFAs must
+         * not be used for an expression with a different number of capture groups.
+         */
+        public int getNumberOfCaptureGroups() {
+            return numberOfCaptureGroups;
+        }
+
+        public DFATable getForward() {
+            return forward;
+        }
+
+        public DFATable getBackward() {
+            return backward;
+        }
+    }
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.truffle.regex.tregex.nfa;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.regex.tregex.TRegexOptions;
+import com.oracle.truffle.regex.tregex.buffer.IntArrayBuffer;
+import com.oracle.truffle.regex.tregex.buffer.LongArrayBuffer;
+import com.oracle.truffle.regex.tregex.string.Encodings;
+import com.oracle.truffle.regex.tregex.string.Encodings.Encoding;
+
+/**
+ * Finds all matches of an {@link NFAStreamMatcher} in a large input on multiple threads. The input
+ * is split into chunks, and every chunk except the first one is scanned by a speculative
+ * {@link NFAStreamScanner} on the common {@link ForkJoinPool}, assuming that the search for the
+ * next match restarts at the beginning of the chunk. The calling thread scans the first chunk and
+ * stitches the results: it continues scanning each following chunk with the actual state at its
+ * beginning, until it reaches a position where both its own scanner and the chunk's speculative
+ * scanner are quiet, i.e. where no match is pending and no path is active. From there on, the two
+ * scanners find the same matches, so the calling thread adopts the speculative scanner and its
+ * matches. Matches rarely span quiet positions, so the calling thread usually scans only a few
+ * code points per chunk. In the worst case, e.g. if a single match spans the whole input, it scans
+ * the whole input itself.
+ * <p>
+ * The result is the same as when feeding the whole input to a single {@link NFAStreamScanner}.
+ */
+public final class NFAParallelSearch {
+
+    /**
+     * Number of {@code char}s or bytes fed to a scanner at once, which limits the amount of input
+     * it buffers.
+     */
+    private static final int SLICE_SIZE = 1 << 14;
+    /**
+     * Maximum distance a chunk boundary is moved forward to avoid splitting a code point.
+     */
+    private static final int MAX_BOUNDARY_SHIFT = 64;
+
+    private NFAParallelSearch() {
+    }
+
+    /**
+     * Returns the start and end offsets of all matches in {@code input}, in pairs.
+     */
+    @TruffleBoundary
+    public static long[] findAll(NFAStreamMatcher matcher, Encoding encoding, CharSequence input) {
+        return findAll(matcher, encoding, input, TRegexOptions.TRegexParallelSearchMinChunkSize, getDefaultMaxChunks());
+    }
+
+    /**
+     * Like {@link #findAll(NFAStreamMatcher, Encoding, CharSequence)}, but splits the input into
+     * at most {@code maxChunks} chunks of at least {@code minChunkSize} {@code char}s.
+     */
+    @TruffleBoundary
+    public static long[] findAll(NFAStreamMatcher matcher, Encoding encoding, CharSequence input, int minChunkSize, int maxChunks) {
+        return findAll(matcher, encoding, new CharInput(input, encoding), minChunkSize, maxChunks);
+    }
+
+    /**
+     * Returns the start and end offsets of all matches in the remaining bytes of {@code input}, in
+     * pairs. The position of {@code input} is not changed.
+     */
+    @TruffleBoundary
+    public static long[] findAll(NFAStreamMatcher matcher, Encoding encoding, ByteBuffer input) {
+        return findAll(matcher, encoding, input, TRegexOptions.TRegexParallelSearchMinChunkSize, getDefaultMaxChunks());
+    }
+
+    /**
+     * Like {@link #findAll(NFAStreamMatcher, Encoding, ByteBuffer)}, but splits the input into at
+     * most {@code maxChunks} chunks of at least {@code minChunkSize} bytes.
+     */
+    @TruffleBoundary
+    public static long[] findAll(NFAStreamMatcher matcher, Encoding encoding, ByteBuffer input, int minChunkSize, int maxChunks) {
+        return findAll(matcher, encoding, new ByteInput(input, encoding), minChunkSize, maxChunks);
+    }
+
+    /**
+     * Returns the default maximum number of chunks: four per thread of the common pool, or one if
+     * the common pool has a single thread.
+     */
+    private static int getDefaultMaxChunks() {
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        return parallelism > 1 ? parallelism * 4 : 1;
+    }
+
+    private static long[] findAll(NFAStreamMatcher matcher, Encoding encoding, Input input, int minChunkSize, int maxChunks) {
+        int[] bounds = getChunkBounds(matcher, input, minChunkSize, maxChunks);
+        LongArrayBuffer matches = new LongArrayBuffer(16);
+        NFAStreamScanner scanner = new NFAStreamScanner(matcher, encoding);
+        AtomicBoolean cancelled = new AtomicBoolean();
+        List<ForkJoinTask<SpeculativeScan>> speculativeScans = new ArrayList<>(bounds.length - 2);
+        try {
+            for (int i = 1; i < bounds.length - 1; i++) {
+                speculativeScans.add(ForkJoinPool.commonPool().submit(new SpeculativeScan(matcher, encoding, input, bounds[i], bounds[i + 1], cancelled)));
+            }
+            feed(scanner, input, bounds[0], bounds[1], matches);
+            for (int i = 1; i < bounds.length - 1; i++) {
+                SpeculativeScan speculativeScan = speculativeScans.get(i - 1).join();
+                scanner.synchronizeWith(speculativeScan.scanner);
+                for (int from = bounds[i]; from < bounds[i + 1] && scanner.getSyncPosition() < 0 && !scanner.isFinished(); from += SLICE_SIZE) {
+                    addAll(matches, input.feed(scanner, from, Math.min(from + SLICE_SIZE, bounds[i + 1])));
+                }
+                long syncPosition = scanner.getSyncPosition();
+                if (syncPosition < 0) {
+                    scanner.synchronizeWith(null);
+                    continue;
+                }
+                long[] speculativeMatches = speculativeScan.matches.toArray();
+                for (int j = 0; j < speculativeMatches.length; j += 2) {
+                    if (speculativeMatches[j] >= syncPosition) {
+                        matches.add(speculativeMatches[j]);
+                        matches.add(speculativeMatches[j + 1]);
+                    }
+                }
+                scanner = speculativeScan.scanner;
+                scanner.stopRecordingQuietPositions();
+            }
+            addAll(matches, scanner.finish());
+            return matches.toArray();
+        } finally {
+            // If the calling thread's scan fails, e.g. because the search was interrupted, the
+            // speculative scans must not keep searching the rest of the input. ForkJoinTask#cancel
+            // does not stop running tasks, so they check the flag between slices.
+            cancelled.set(true);
+            for (ForkJoinTask<SpeculativeScan> speculativeScan : speculativeScans) {
+                speculativeScan.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Splits the input into at most {@code maxChunks} chunks of at least {@code minChunkSize}
+     * elements. Expressions that cannot match anywhere but at the beginning of the input are not
+     * split.
+     */
+    private static int[] getChunkBounds(NFAStreamMatcher matcher, Input input, int minChunkSize, int maxChunks) {
+        int length = input.length();
+        int nChunks = 1;
+        if (matcher.isSearching()) {
+            nChunks = Math.max(1, Math.min(length / minChunkSize, maxChunks));
+        }
+        IntArrayBuffer bounds = new IntArrayBuffer(nChunks + 1);
+        bounds.add(0);
+        for (int i = 1; i < nChunks; i++) {
+            int bound = (int) ((long) length * i / nChunks);
+            int maxBound = Math.min(bound + MAX_BOUNDARY_SHIFT, length);
+            while (bound < maxBound && !input.isCodePointBoundary(bound)) {
+                bound++;
+            }
+            if (bound < maxBound && bound > bounds.get(bounds.length() - 1)) {
+                bounds.add(bound);
+            }
+        }
+        bounds.add(length);
+        return bounds.toArray();
+    }
+
+    private static void feed(NFAStreamScanner scanner, Input input, int from, int to, LongArrayBuffer matches) {
+        for (int i = from; i < to && !scanner.isFinished(); i += SLICE_SIZE) {
+            addAll(matches, input.feed(scanner, i, Math.min(i + SLICE_SIZE, to)));
+        }
+    }
+
+    private static void addAll(LongArrayBuffer buffer, long[] values) {
+        for (long v : values) {
+            buffer.add(v);
+        }
+    }
+
+    private static final class SpeculativeScan implements Callable<SpeculativeScan> {
+
+        private final Input input;
+        private final int from;
+        private final int to;
+        private final NFAStreamScanner scanner;
+        private final AtomicBoolean cancelled;
+        private final LongArrayBuffer matches = new LongArrayBuffer(16);
+
+        SpeculativeScan(NFAStreamMatcher matcher, Encoding encoding, Input input, int from, int to, AtomicBoolean cancelled) {
+            this.input = input;
+            this.from = from;
+            this.to = to;
+            this.cancelled = cancelled;
+            this.scanner = new NFAStreamScanner(matcher, encoding, from);
+        }
+
+        @Override
+        public SpeculativeScan call() {
+            for (int i = from; i < to && !scanner.isFinished() && !cancelled.get(); i += SLICE_SIZE) {
+                addAll(matches, input.feed(scanner, i, Math.min(i + SLICE_SIZE, to)));
+            }
+            return this;
+        }
+    }
+
+    private abstract static class Input {
+
+        abstract int length();
+
+        /**
+         * Returns {@code true} if a speculative scanner may start at {@code index}, i.e. if the
+         * element at {@code index} does not continue a code point that starts before it.
+         */
+        abstract boolean isCodePointBoundary(int index);
+
+        abstract long[] feed(NFAStreamScanner scanner, int from, int to);
+    }
+
+    private static final class CharInput extends Input {
+
+        private final CharSequence input;
+        private final boolean decodeSurrogates;
+
+        CharInput(CharSequence input, Encoding encoding) {
+            this.input = input;
+            this.decodeSurrogates = encoding == Encodings.UTF_16;
+        }
+
+        @Override
+        int length() {
+            return input.length();
+        }
+
+        @Override
+        boolean isCodePointBoundary(int index) {
+            return !decodeSurrogates || !(Character.isLowSurrogate(input.charAt(index)) && Character.isHighSurrogate(input.charAt(index - 1)));
+        }
+
+        @Override
+        long[] feed(NFAStreamScanner scanner, int from, int to) {
+            return scanner.feed(CharBuffer.wrap(input, from, to));
+        }
+    }
+
+    private static final class ByteInput extends Input {
+
+        private final ByteBuffer input;
+        private final boolean decodeUTF8;
+
+        ByteInput(ByteBuffer input, Encoding encoding) {
+            this.input = input.slice();
+            this.decodeUTF8 = encoding == Encodings.UTF_8;
+        }
+
+        @Override
+        int length() {
+            return input.limit();
+        }
+
+        @Override
+        boolean isCodePointBoundary(int index) {
+            return !decodeUTF8 || (input.get(index) & 0xc0) != 0x80;
+        }
+
+        @Override
+        long[] feed(NFAStreamScanner scanner, int from, int to) {
+            ByteBuffer chunk = input.duplicate();
+            chunk.limit(to);
+            chunk.position(from);
+            return scanner.feed(chunk);
+        }
+    }
+}
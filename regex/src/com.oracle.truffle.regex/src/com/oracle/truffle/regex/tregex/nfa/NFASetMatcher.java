@@ -0,0 +1,428 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.truffle.regex.tregex.nfa;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.regex.RegexRootNode;
+import com.oracle.truffle.regex.tregex.TRegexOptions;
+import com.oracle.truffle.regex.tregex.buffer.IntArrayBuffer;
+import com.oracle.truffle.regex.tregex.nodes.nfa.TRegexOnTheFlyDFAExecutorNode;
+
+/**
+ * Matches a set of regular expressions against an input string in a single pass and reports which
+ * of them match anywhere in the string. The NFAs of all expressions are simulated at the same time:
+ * their states are numbered consecutively, and every set of active states of the union automaton
+ * forms a DFA state. As in {@link TRegexOnTheFlyDFAExecutorNode}, these DFA states and their
+ * transitions are calculated on demand and cached, so the input is read exactly once, and the NFAs
+ * are visited only for character and state combinations that were not seen before.
+ * <p>
+ * Every DFA state also records the expressions that have already matched. Their NFA states are
+ * dropped from all successors, and the search stops as soon as no further expression can match.
+ */
+public final class NFASetMatcher {
+
+    private final NFA[] nfas;
+    private final boolean[] searching;
+    private final int[] loopBackStateIds;
+    /**
+     * The global ID of the first NFA state of every expression.
+     */
+    private final int[] stateIdOffsets;
+    /**
+     * The expression every global NFA state ID belongs to.
+     */
+    private final int[] patternIndices;
+    private final boolean decodeSurrogates;
+    private volatile StateCache cache;
+
+    /**
+     * @param nfas the NFAs of all expressions in the set. {@code null} entries denote expressions
+     *            that can never match.
+     * @param decodeSurrogates {@code true} if the expressions operate on code points of UTF-16
+     *            strings, {@code false} if every {@code char} is a code point.
+     */
+    public NFASetMatcher(NFA[] nfas, boolean decodeSurrogates) {
+        this.nfas = nfas;
+        this.decodeSurrogates = decodeSurrogates;
+        this.searching = new boolean[nfas.length];
+        this.loopBackStateIds = new int[nfas.length];
+        this.stateIdOffsets = new int[nfas.length];
+        int nStates = 0;
+        for (int i = 0; i < nfas.length; i++) {
+            stateIdOffsets[i] = nStates;
+            if (nfas[i] != null) {
+                nfas[i].setInitialLoopBack(false);
+                searching[i] = !nfas[i].getAst().getFlags().isSticky() && !nfas[i].getAst().getRoot().startsWithCaret();
+                loopBackStateIds[i] = nfas[i].getInitialLoopBackTransition().getTarget().getId();
+                nStates += nfas[i].getNumberOfStates();
+            }
+        }
+        this.patternIndices = new int[nStates];
+        for (int i = 0; i < nfas.length; i++) {
+            if (nfas[i] != null) {
+                Arrays.fill(patternIndices, stateIdOffsets[i], stateIdOffsets[i] + nfas[i].getNumberOfStates(), i);
+            }
+        }
+        this.cache = new StateCache();
+    }
+
+    public int getNumberOfPatterns() {
+        return nfas.length;
+    }
+
+    /**
+     * Returns the number of DFA states currently held in the cache.
+     */
+    public int getNumberOfCachedStates() {
+        return cache.size();
+    }
+
+    /**
+     * Returns the indices of all expressions that match anywhere in {@code input}, in ascending
+     * order.
+     */
+    @TruffleBoundary
+    public int[] findMatches(String input) {
+        DFAState state = cache.getInitialState();
+        if (state == null) {
+            state = calcInitialState();
+        }
+        int i = 0;
+        while (!state.isFinal()) {
+            RegexRootNode.checkThreadInterrupted();
+            if (i == input.length()) {
+                return state.getMatchesAtEnd(this);
+            }
+            int c = input.charAt(i++);
+            if (decodeSurrogates && Character.isHighSurrogate((char) c) && i < input.length() && Character.isLowSurrogate(input.charAt(i))) {
+                c = Character.toCodePoint((char) c, input.charAt(i++));
+            }
+            DFAState successor = state.getCachedSuccessor(c);
+            if (successor == null) {
+                successor = calcSuccessor(state, c);
+            }
+            state = successor;
+        }
+        return state.getMatches();
+    }
+
+    private DFAState calcInitialState() {
+        IntArrayBuffer ids = new IntArrayBuffer(nfas.length * 2);
+        for (int i = 0; i < nfas.length; i++) {
+            if (nfas[i] == null) {
+                continue;
+            }
+            int anchoredInitialState = nfas[i].getAnchoredEntry()[0].getTarget().getId();
+            int unAnchoredInitialState = nfas[i].getUnAnchoredEntry()[0].getTarget().getId();
+            if (anchoredInitialState != unAnchoredInitialState && nfas[i].getState(anchoredInitialState) != null) {
+                ids.add(stateIdOffsets[i] + anchoredInitialState);
+            }
+            if (nfas[i].getState(unAnchoredInitialState) != null) {
+                ids.add(stateIdOffsets[i] + unAnchoredInitialState);
+            }
+        }
+        StateCache stateCache = getCache();
+        DFAState state = stateCache.intern(sortedIds(ids), new long[matchedSetSize()]);
+        stateCache.setInitialState(state);
+        return state;
+    }
+
+    /**
+     * Calculates the successor of {@code state} when consuming {@code c}, in the same way as
+     * {@link TRegexOnTheFlyDFAExecutorNode}, but separately for every expression that did not
+     * match yet.
+     */
+    private DFAState calcSuccessor(DFAState state, int c) {
+        long[] matched = state.matched.clone();
+        long[] marks = new long[((patternIndices.length - 1) >> 6) + 1];
+        IntArrayBuffer ids = new IntArrayBuffer(state.size() + nfas.length);
+        for (int i = 0; i < state.size(); i++) {
+            int globalId = state.getNFAStateId(i);
+            int pattern = patternIndices[globalId];
+            if (!isMatched(matched, pattern) && expandState(pattern, globalId - stateIdOffsets[pattern], c, marks, ids)) {
+                setMatched(matched, pattern);
+            }
+        }
+        for (int pattern = 0; pattern < nfas.length; pattern++) {
+            if (searching[pattern] && !isMatched(matched, pattern) && expandState(pattern, loopBackStateIds[pattern], c, marks, ids)) {
+                setMatched(matched, pattern);
+            }
+        }
+        IntArrayBuffer unmatchedIds = new IntArrayBuffer(ids.length());
+        for (int i = 0; i < ids.length(); i++) {
+            if (!isMatched(matched, patternIndices[ids.get(i)])) {
+                unmatchedIds.add(ids.get(i));
+            }
+        }
+        DFAState successor = getCache().intern(sortedIds(unmatchedIds), matched);
+        state.putSuccessor(c, successor);
+        return successor;
+    }
+
+    private boolean expandState(int pattern, int stateId, int c, long[] marks, IntArrayBuffer ids) {
+        NFAState state = nfas[pattern].getState(stateId);
+        int maxTransitionIndex = state.hasTransitionToUnAnchoredFinalState(true) ? state.getTransitionToUnAnchoredFinalStateId(true) + 1 : state.getSuccessors().length;
+        for (int i = 0; i < maxTransitionIndex; i++) {
+            NFAStateTransition t = state.getSuccessors()[i];
+            int targetId = stateIdOffsets[pattern] + t.getTarget().getId();
+            int markIndex = targetId >> 6;
+            long markBit = 1L << targetId;
+            if (!t.getTarget().isAnchoredFinalState(true) && (marks[markIndex] & markBit) == 0) {
+                marks[markIndex] |= markBit;
+                if (t.getTarget().isUnAnchoredFinalState(true)) {
+                    return true;
+                } else if (t.getCodePointSet().contains(c)) {
+                    ids.add(targetId);
+                }
+            }
+        }
+        return false;
+    }
+
+    private int matchedSetSize() {
+        return ((nfas.length - 1) >> 6) + 1;
+    }
+
+    private static boolean isMatched(long[] matched, int pattern) {
+        return (matched[pattern >> 6] & (1L << pattern)) != 0;
+    }
+
+    private static void setMatched(long[] matched, int pattern) {
+        matched[pattern >> 6] |= 1L << pattern;
+    }
+
+    private static int[] sortedIds(IntArrayBuffer ids) {
+        int[] array = ids.toArray();
+        Arrays.sort(array);
+        return array;
+    }
+
+    /**
+     * Returns the current cache, replacing it with an empty one if it is full.
+     */
+    private StateCache getCache() {
+        StateCache stateCache = cache;
+        if (stateCache.size() >= TRegexOptions.TRegexMaxOnTheFlyDFAStates) {
+            synchronized (this) {
+                stateCache = cache;
+                if (stateCache.size() >= TRegexOptions.TRegexMaxOnTheFlyDFAStates) {
+                    stateCache = new StateCache();
+                    cache = stateCache;
+                }
+            }
+        }
+        return stateCache;
+    }
+
+    private boolean isFinal(int[] nfaStateIds, long[] matched) {
+        if (nfaStateIds.length > 0) {
+            return false;
+        }
+        for (int pattern = 0; pattern < nfas.length; pattern++) {
+            if (searching[pattern] && !isMatched(matched, pattern)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private final class StateCache {
+
+        private final HashMap<StateKey, DFAState> states = new HashMap<>();
+        private volatile DFAState initialState;
+
+        DFAState getInitialState() {
+            return initialState;
+        }
+
+        void setInitialState(DFAState state) {
+            initialState = state;
+        }
+
+        synchronized int size() {
+            return states.size();
+        }
+
+        synchronized DFAState intern(int[] nfaStateIds, long[] matched) {
+            StateKey key = new StateKey(nfaStateIds, matched);
+            DFAState state = states.get(key);
+            if (state == null) {
+                state = new DFAState(nfaStateIds, matched, isFinal(nfaStateIds, matched));
+                states.put(key, state);
+            }
+            return state;
+        }
+    }
+
+    private static final class StateKey {
+
+        private final int[] nfaStateIds;
+        private final long[] matched;
+        private final int hash;
+
+        StateKey(int[] nfaStateIds, long[] matched) {
+            this.nfaStateIds = nfaStateIds;
+            this.matched = matched;
+            this.hash = Arrays.hashCode(nfaStateIds) * 31 + Arrays.hashCode(matched);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof StateKey)) {
+                return false;
+            }
+            StateKey o = (StateKey) obj;
+            return Arrays.equals(nfaStateIds, o.nfaStateIds) && Arrays.equals(matched, o.matched);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * A DFA state, represented by the sorted global IDs of the NFA states it consists of and the
+     * set of expressions that already matched. Successors are stored like in
+     * {@link TRegexOnTheFlyDFAExecutorNode}.
+     */
+    private static final class DFAState {
+
+        private static final int ASCII_TABLE_SIZE = 128;
+
+        private final int[] nfaStateIds;
+        private final long[] matched;
+        private final boolean isFinal;
+        private volatile DFAState[] asciiSuccessors;
+        private volatile ConcurrentHashMap<Integer, DFAState> successors;
+        private volatile int[] matchesAtEnd;
+
+        DFAState(int[] nfaStateIds, long[] matched, boolean isFinal) {
+            this.nfaStateIds = nfaStateIds;
+            this.matched = matched;
+            this.isFinal = isFinal;
+        }
+
+        int size() {
+            return nfaStateIds.length;
+        }
+
+        int getNFAStateId(int i) {
+            return nfaStateIds[i];
+        }
+
+        /**
+         * Returns {@code true} if no successor of this state can match any further expression.
+         */
+        boolean isFinal() {
+            return isFinal;
+        }
+
+        DFAState getCachedSuccessor(int c) {
+            if (c < ASCII_TABLE_SIZE) {
+                DFAState[] table = asciiSuccessors;
+                return table == null ? null : table[c];
+            }
+            ConcurrentHashMap<Integer, DFAState> map = successors;
+            return map == null ? null : map.get(c);
+        }
+
+        synchronized void putSuccessor(int c, DFAState successor) {
+            if (c < ASCII_TABLE_SIZE) {
+                DFAState[] table = asciiSuccessors;
+                if (table == null) {
+                    table = new DFAState[ASCII_TABLE_SIZE];
+                    asciiSuccessors = table;
+                }
+                table[c] = successor;
+            } else {
+                ConcurrentHashMap<Integer, DFAState> map = successors;
+                if (map == null) {
+                    map = new ConcurrentHashMap<>();
+                    successors = map;
+                }
+                map.put(c, successor);
+            }
+        }
+
+        int[] getMatches() {
+            return toIndices(matched);
+        }
+
+        int[] getMatchesAtEnd(NFASetMatcher matcher) {
+            int[] result = matchesAtEnd;
+            if (result == null) {
+                long[] matchedAtEnd = matched.clone();
+                for (int globalId : nfaStateIds) {
+                    int pattern = matcher.patternIndices[globalId];
+                    if (matcher.nfas[pattern].getState(globalId - matcher.stateIdOffsets[pattern]).hasTransitionToFinalState(true)) {
+                        setMatched(matchedAtEnd, pattern);
+                    }
+                }
+                for (int pattern = 0; pattern < matcher.nfas.length; pattern++) {
+                    if (matcher.searching[pattern] && !isMatched(matchedAtEnd, pattern) &&
+                                    matcher.nfas[pattern].getState(matcher.loopBackStateIds[pattern]).hasTransitionToFinalState(true)) {
+                        setMatched(matchedAtEnd, pattern);
+                    }
+                }
+                result = toIndices(matchedAtEnd);
+                matchesAtEnd = result;
+            }
+            return result;
+        }
+
+        private static int[] toIndices(long[] bits) {
+            IntArrayBuffer indices = new IntArrayBuffer();
+            for (int i = 0; i < bits.length; i++) {
+                long word = bits[i];
+                while (word != 0) {
+                    indices.add((i << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return indices.toArray();
+        }
+    }
+}
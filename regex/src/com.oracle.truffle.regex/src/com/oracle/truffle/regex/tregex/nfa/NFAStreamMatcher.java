@@ -0,0 +1,411 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.truffle.regex.tregex.nfa;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.regex.tregex.TRegexOptions;
+import com.oracle.truffle.regex.tregex.buffer.IntArrayBuffer;
+import com.oracle.truffle.regex.tregex.nodes.nfa.TRegexNFAExecutorNode;
+import com.oracle.truffle.regex.tregex.nodes.nfa.TRegexOnTheFlyDFAExecutorNode;
+
+/**
+ * Finds all matches of a regular expression in an input that is not available as a whole, but fed
+ * in chunks by an {@link NFAStreamScanner}. The NFA is simulated like in
+ * {@link TRegexNFAExecutorNode}, but instead of capture groups, every active NFA state only tracks
+ * the offset at which its path started. The active NFA states, in priority order, form a DFA state.
+ * As in {@link TRegexOnTheFlyDFAExecutorNode}, DFA states and their transitions are calculated on
+ * demand and cached. Every transition records where the start offsets of its successor's NFA states
+ * come from, so the start offsets can be updated without visiting the NFA.
+ * <p>
+ * A matcher holds no per-input state and can be shared by any number of concurrent streams.
+ */
+public final class NFAStreamMatcher {
+
+    /**
+     * Denotes that no path reached a final state in a transition.
+     */
+    static final int NO_RESULT = -2;
+    /**
+     * Denotes a path that started at the current position, via the initial loop back transition.
+     */
+    static final int LOOP_BACK = -1;
+    private static final int RESULT_UNKNOWN = -3;
+
+    private final NFA nfa;
+    private final boolean searching;
+    private final int loopBackStateId;
+    private final int maxNumberOfNFAStates;
+    private volatile StateCache cache;
+
+    /**
+     * @param nfa the expression's NFA, or {@code null} if the expression can never match.
+     */
+    public NFAStreamMatcher(NFA nfa) {
+        this.nfa = nfa;
+        if (nfa == null) {
+            this.searching = false;
+            this.loopBackStateId = -1;
+            this.maxNumberOfNFAStates = 0;
+        } else {
+            nfa.setInitialLoopBack(false);
+            this.searching = !nfa.getAst().getFlags().isSticky() && !nfa.getAst().getRoot().startsWithCaret();
+            this.loopBackStateId = nfa.getInitialLoopBackTransition().getTarget().getId();
+            this.maxNumberOfNFAStates = nfa.getNumberOfStates();
+        }
+        this.cache = new StateCache();
+    }
+
+    /**
+     * Returns {@code true} if matches may start anywhere in the input, {@code false} if the
+     * expression is sticky or anchored to the beginning of the input.
+     */
+    public boolean isSearching() {
+        return searching;
+    }
+
+    /**
+     * Returns the maximum number of NFA states in a DFA state.
+     */
+    int getMaxNumberOfNFAStates() {
+        return maxNumberOfNFAStates;
+    }
+
+    /**
+     * Returns the number of DFA states currently held in the cache.
+     */
+    public int getNumberOfCachedStates() {
+        return cache.size();
+    }
+
+    /**
+     * Returns the DFA state at the beginning of the input. All of its paths start at offset 0.
+     */
+    DFAState getInitialState() {
+        DFAState state = cache.initialState;
+        if (state == null) {
+            IntArrayBuffer ids = new IntArrayBuffer(2);
+            if (nfa != null) {
+                int anchoredInitialState = nfa.getAnchoredEntry()[0].getTarget().getId();
+                int unAnchoredInitialState = nfa.getUnAnchoredEntry()[0].getTarget().getId();
+                if (anchoredInitialState != unAnchoredInitialState && nfa.getState(anchoredInitialState) != null) {
+                    ids.add(anchoredInitialState);
+                }
+                if (nfa.getState(unAnchoredInitialState) != null) {
+                    ids.add(unAnchoredInitialState);
+                }
+            }
+            StateCache stateCache = getCache();
+            state = stateCache.intern(ids.toArray(), false);
+            stateCache.initialState = state;
+        }
+        return state;
+    }
+
+    /**
+     * Returns the DFA state at the end of a match, where the search for the next match continues.
+     * All of its paths start at the end of the match.
+     */
+    DFAState getRestartState() {
+        DFAState state = cache.restartState;
+        if (state == null) {
+            IntArrayBuffer ids = new IntArrayBuffer(1);
+            if (nfa != null) {
+                int unAnchoredInitialState = nfa.getUnAnchoredEntry()[0].getTarget().getId();
+                if (nfa.getState(unAnchoredInitialState) != null) {
+                    ids.add(unAnchoredInitialState);
+                }
+            }
+            StateCache stateCache = getCache();
+            state = stateCache.intern(ids.toArray(), false);
+            stateCache.restartState = state;
+        }
+        return state;
+    }
+
+    /**
+     * Returns {@code true} if {@code state} consists of the unanchored initial state only, like
+     * {@link #getRestartState()}. Such a state may stem from a discarded cache.
+     */
+    boolean isRestartState(DFAState state) {
+        return state.size() == 1 && state.nfaStateIds[0] == loopBackStateId && !state.isResultPending();
+    }
+
+    /**
+     * Returns the transition of {@code state} when consuming {@code c}.
+     */
+    Transition getTransition(DFAState state, int c) {
+        Transition transition = state.getCachedTransition(c);
+        if (transition == null) {
+            transition = calcTransition(state, c);
+        }
+        return transition;
+    }
+
+    /**
+     * Returns the index of the NFA state of {@code state} whose path ends in a final state at the
+     * end of the input, {@link #LOOP_BACK} for an empty match at the end of the input, or
+     * {@link #NO_RESULT}.
+     */
+    int getResultAtEnd(DFAState state) {
+        int result = state.resultAtEnd;
+        if (result == RESULT_UNKNOWN) {
+            result = calcResultAtEnd(state);
+            state.resultAtEnd = result;
+        }
+        return result;
+    }
+
+    /**
+     * Calculates the transition of {@code state} when consuming {@code c}, in the same way as
+     * {@link TRegexNFAExecutorNode}: the NFA states are expanded in priority order, all paths with
+     * lower priority than a path to a final state are discarded, and new paths are started only as
+     * long as no path reached a final state.
+     */
+    @TruffleBoundary
+    private Transition calcTransition(DFAState state, int c) {
+        long[] marks = new long[((maxNumberOfNFAStates - 1) >> 6) + 1];
+        IntArrayBuffer ids = new IntArrayBuffer(state.size() + 1);
+        IntArrayBuffer sources = new IntArrayBuffer(state.size() + 1);
+        int resultSource = NO_RESULT;
+        for (int i = 0; i < state.size() && resultSource == NO_RESULT; i++) {
+            if (expandState(state.nfaStateIds[i], c, marks, ids)) {
+                resultSource = i;
+            }
+            while (sources.length() < ids.length()) {
+                sources.add(i);
+            }
+        }
+        if (searching && resultSource == NO_RESULT && !state.resultPending) {
+            if (expandState(loopBackStateId, c, marks, ids)) {
+                resultSource = LOOP_BACK;
+            }
+            while (sources.length() < ids.length()) {
+                sources.add(LOOP_BACK);
+            }
+        }
+        DFAState target = getCache().intern(ids.toArray(), state.resultPending || resultSource != NO_RESULT);
+        Transition transition = new Transition(target, sources.toArray(), resultSource);
+        state.putTransition(c, transition);
+        return transition;
+    }
+
+    private boolean expandState(int stateId, int c, long[] marks, IntArrayBuffer ids) {
+        NFAState state = nfa.getState(stateId);
+        int maxTransitionIndex = state.hasTransitionToUnAnchoredFinalState(true) ? state.getTransitionToUnAnchoredFinalStateId(true) + 1 : state.getSuccessors().length;
+        for (int i = 0; i < maxTransitionIndex; i++) {
+            NFAStateTransition t = state.getSuccessors()[i];
+            int targetId = t.getTarget().getId();
+            int markIndex = targetId >> 6;
+            long markBit = 1L << targetId;
+            if (!t.getTarget().isAnchoredFinalState(true) && (marks[markIndex] & markBit) == 0) {
+                marks[markIndex] |= markBit;
+                if (t.getTarget().isUnAnchoredFinalState(true)) {
+                    return true;
+                } else if (t.getCodePointSet().contains(c)) {
+                    ids.add(targetId);
+                }
+            }
+        }
+        return false;
+    }
+
+    private int calcResultAtEnd(DFAState state) {
+        for (int i = 0; i < state.size(); i++) {
+            if (nfa.getState(state.nfaStateIds[i]).hasTransitionToFinalState(true)) {
+                return i;
+            }
+        }
+        if (searching && !state.resultPending && nfa.getState(loopBackStateId).hasTransitionToFinalState(true)) {
+            return LOOP_BACK;
+        }
+        return NO_RESULT;
+    }
+
+    /**
+     * Returns the current cache, replacing it with an empty one if it is full. Streams may keep
+     * using states of a discarded cache, their successors are added to the new one.
+     */
+    private StateCache getCache() {
+        StateCache stateCache = cache;
+        if (stateCache.size() >= TRegexOptions.TRegexMaxOnTheFlyDFAStates) {
+            synchronized (this) {
+                stateCache = cache;
+                if (stateCache.size() >= TRegexOptions.TRegexMaxOnTheFlyDFAStates) {
+                    stateCache = new StateCache();
+                    cache = stateCache;
+                }
+            }
+        }
+        return stateCache;
+    }
+
+    private static final class StateCache {
+
+        private final HashMap<StateKey, DFAState> states = new HashMap<>();
+        private volatile DFAState initialState;
+        private volatile DFAState restartState;
+
+        synchronized int size() {
+            return states.size();
+        }
+
+        synchronized DFAState intern(int[] nfaStateIds, boolean resultPending) {
+            StateKey key = new StateKey(nfaStateIds, resultPending);
+            DFAState state = states.get(key);
+            if (state == null) {
+                state = new DFAState(nfaStateIds, resultPending);
+                states.put(key, state);
+            }
+            return state;
+        }
+    }
+
+    private static final class StateKey {
+
+        private final int[] nfaStateIds;
+        private final boolean resultPending;
+        private final int hash;
+
+        StateKey(int[] nfaStateIds, boolean resultPending) {
+            this.nfaStateIds = nfaStateIds;
+            this.resultPending = resultPending;
+            this.hash = Arrays.hashCode(nfaStateIds) * 31 + Boolean.hashCode(resultPending);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof StateKey)) {
+                return false;
+            }
+            StateKey o = (StateKey) obj;
+            return resultPending == o.resultPending && Arrays.equals(nfaStateIds, o.nfaStateIds);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * A DFA state, represented by the IDs of its NFA states in priority order, and whether a path
+     * has already reached a final state. In the latter case, the remaining paths may only replace
+     * that match with a longer one of higher priority, and no new paths are started.
+     */
+    static final class DFAState {
+
+        private static final int ASCII_TABLE_SIZE = 128;
+
+        private final int[] nfaStateIds;
+        private final boolean resultPending;
+        private volatile Transition[] asciiTransitions;
+        private volatile ConcurrentHashMap<Integer, Transition> transitions;
+        private volatile int resultAtEnd = RESULT_UNKNOWN;
+
+        DFAState(int[] nfaStateIds, boolean resultPending) {
+            this.nfaStateIds = nfaStateIds;
+            this.resultPending = resultPending;
+        }
+
+        int size() {
+            return nfaStateIds.length;
+        }
+
+        boolean isEmpty() {
+            return nfaStateIds.length == 0;
+        }
+
+        boolean isResultPending() {
+            return resultPending;
+        }
+
+        Transition getCachedTransition(int c) {
+            if (c < ASCII_TABLE_SIZE) {
+                Transition[] table = asciiTransitions;
+                return table == null ? null : table[c];
+            }
+            ConcurrentHashMap<Integer, Transition> map = transitions;
+            return map == null ? null : map.get(c);
+        }
+
+        synchronized void putTransition(int c, Transition transition) {
+            if (c < ASCII_TABLE_SIZE) {
+                Transition[] table = asciiTransitions;
+                if (table == null) {
+                    table = new Transition[ASCII_TABLE_SIZE];
+                    asciiTransitions = table;
+                }
+                table[c] = transition;
+            } else {
+                ConcurrentHashMap<Integer, Transition> map = transitions;
+                if (map == null) {
+                    map = new ConcurrentHashMap<>();
+                    transitions = map;
+                }
+                map.put(c, transition);
+            }
+        }
+    }
+
+    /**
+     * A transition between two DFA states. For every NFA state of the target, {@link #sources}
+     * holds the index of the NFA state of the source it was reached from, or {@link #LOOP_BACK} if
+     * its path starts at the current position. {@link #resultSource} denotes the path that
+     * reached a final state before consuming the current code point, in the same way, or is
+     * {@link #NO_RESULT}.
+     */
+    static final class Transition {
+
+        final DFAState target;
+        final int[] sources;
+        final int resultSource;
+
+        Transition(DFAState target, int[] sources, int resultSource) {
+            this.target = target;
+            this.sources = sources;
+            this.resultSource = resultSource;
+        }
+    }
+}
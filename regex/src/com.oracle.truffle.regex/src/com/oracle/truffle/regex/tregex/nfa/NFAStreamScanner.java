@@ -0,0 +1,502 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.truffle.regex.tregex.nfa;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.regex.RegexRootNode;
+import com.oracle.truffle.regex.tregex.buffer.LongArrayBuffer;
+import com.oracle.truffle.regex.tregex.nfa.NFAStreamMatcher.DFAState;
+import com.oracle.truffle.regex.tregex.nfa.NFAStreamMatcher.Transition;
+import com.oracle.truffle.regex.tregex.string.Encodings;
+import com.oracle.truffle.regex.tregex.string.Encodings.Encoding;
+
+/**
+ * Scans a single input that is fed in chunks for matches of an {@link NFAStreamMatcher}. Chunks
+ * may end anywhere, e.g. between the two {@code char}s of a surrogate pair or inside a UTF-8
+ * sequence. The scanner keeps the current DFA state between chunks, and reports matches with their
+ * absolute offsets in the input, counted in {@code char}s for UTF-16 encodings and in bytes
+ * otherwise.
+ * <p>
+ * Matches are reported with the semantics of repeated searches with the global flag: after a
+ * match, the search continues at its end, or after the next code point if the match is empty. A
+ * match is reported as soon as no path of higher priority can extend it. Until then, the scanner
+ * has to keep the input following the end of the match, because the search for the next match has
+ * to start there again. All other input is discarded after every chunk, so the memory used by a
+ * scanner is independent of the length of the input, unless the expression allows arbitrarily
+ * long matches.
+ * <p>
+ * Scanners are not thread-safe.
+ */
+public final class NFAStreamScanner {
+
+    private static final int REPLACEMENT_CHARACTER = 0xfffd;
+
+    private final NFAStreamMatcher matcher;
+    private final Encoding encoding;
+
+    /**
+     * The decoded code points that were not discarded yet, and their width in the input.
+     */
+    private int[] codePoints = new int[64];
+    private byte[] widths = new byte[64];
+    private int bufferLength = 0;
+    /**
+     * The offset of {@code codePoints[0]} in the input.
+     */
+    private long bufferOffset = 0;
+    /**
+     * The index of the next code point to be consumed.
+     */
+    private int cursor = 0;
+    /**
+     * The offset of {@code codePoints[cursor]} in the input.
+     */
+    private long position = 0;
+
+    private DFAState state;
+    /**
+     * The start offsets of the paths of the NFA states in {@link #state}.
+     */
+    private long[] starts;
+    private long[] nextStarts;
+    private long resultStart = -1;
+    private long resultEnd = -1;
+    private boolean skipNextCodePoint = false;
+    private boolean finished;
+    private long inputLength = 0;
+    private final LongArrayBuffer matches = new LongArrayBuffer(8);
+
+    private int pendingHighSurrogate = -1;
+    private int utf8CodePoint = 0;
+    private int utf8Remaining = 0;
+    private int utf8Width = 0;
+
+    /**
+     * The offsets, relative to {@link #quietPositionsOffset}, at which a speculative scanner was
+     * quiet, see {@link #isQuiet()}.
+     */
+    private BitSet quietPositions;
+    private long quietPositionsOffset;
+    /**
+     * The speculative scanner this scanner is synchronized with, see
+     * {@link #synchronizeWith(NFAStreamScanner)}.
+     */
+    private NFAStreamScanner syncTarget;
+    private long syncPosition = -1;
+
+    public NFAStreamScanner(NFAStreamMatcher matcher, Encoding encoding) {
+        assert supportsEncoding(encoding);
+        this.matcher = matcher;
+        this.encoding = encoding;
+        this.starts = new long[Math.max(1, matcher.getMaxNumberOfNFAStates())];
+        this.nextStarts = new long[starts.length];
+        this.state = matcher.getInitialState();
+        this.finished = state.isEmpty() && !matcher.isSearching();
+    }
+
+    /**
+     * Creates a speculative scanner for an input that starts at {@code offset} of a larger input,
+     * assuming that the search for the next match restarts there. The actual state at
+     * {@code offset} is not known, so the matches found by this scanner are valid only from a
+     * position on where a scanner of the whole input was quiet as well. Such positions are recorded
+     * and can be found by {@link #synchronizeWith(NFAStreamScanner)}. The chunks fed to this
+     * scanner must not begin with a low surrogate or a UTF-8 continuation byte.
+     */
+    NFAStreamScanner(NFAStreamMatcher matcher, Encoding encoding, long offset) {
+        this(matcher, encoding);
+        assert matcher.isSearching();
+        this.bufferOffset = offset;
+        this.position = offset;
+        this.inputLength = offset;
+        this.quietPositions = new BitSet();
+        this.quietPositionsOffset = offset;
+        restart();
+    }
+
+    public static boolean supportsEncoding(Encoding encoding) {
+        return encoding == Encodings.UTF_16 || encoding == Encodings.UTF_16_RAW || encoding == Encodings.UTF_8 || encoding == Encodings.LATIN_1;
+    }
+
+    /**
+     * Returns {@code true} if the input is given as {@code char}s, {@code false} if it is given as
+     * bytes.
+     */
+    public boolean isCharInput() {
+        return supportsCharInput(encoding);
+    }
+
+    /**
+     * Returns {@code true} if inputs of the given encoding are given as {@code char}s.
+     */
+    public static boolean supportsCharInput(Encoding encoding) {
+        return encoding == Encodings.UTF_16 || encoding == Encodings.UTF_16_RAW;
+    }
+
+    /**
+     * Returns the number of {@code char}s or bytes fed to this scanner so far.
+     */
+    public long getInputLength() {
+        return inputLength;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * Makes the following chunks stop being scanned at the first position where both this scanner
+     * and the speculative scanner {@code target} are quiet, or stops doing so if {@code target} is
+     * {@code null}. From that position on, both scanners find the same matches. The position is
+     * returned by {@link #getSyncPosition()}.
+     */
+    void synchronizeWith(NFAStreamScanner target) {
+        assert target == null || target.quietPositions != null;
+        syncTarget = target;
+        syncPosition = -1;
+    }
+
+    /**
+     * Returns the position at which this scanner was synchronized with its target, or {@code -1}.
+     * Matches starting at or after this position have not been reported yet.
+     */
+    long getSyncPosition() {
+        return syncPosition;
+    }
+
+    /**
+     * Stops recording the positions at which this speculative scanner is quiet.
+     */
+    void stopRecordingQuietPositions() {
+        quietPositions = null;
+    }
+
+    /**
+     * Returns {@code true} if no path is active and no match is pending, except for paths that
+     * start at the current position. The remaining matches of a quiet scanner depend only on its
+     * position and the following input.
+     */
+    private boolean isQuiet() {
+        if (resultEnd >= 0 || skipNextCodePoint || state.isResultPending()) {
+            return false;
+        }
+        return state.isEmpty() || (matcher.isRestartState(state) && starts[0] == position);
+    }
+
+    private boolean wasQuietAt(long offset) {
+        return offset >= quietPositionsOffset && quietPositions.get((int) (offset - quietPositionsOffset));
+    }
+
+    /**
+     * Feeds the next chunk of a UTF-16 input.
+     *
+     * @return the start and end offsets of all matches found so far, in pairs.
+     */
+    @TruffleBoundary
+    public long[] feed(CharSequence chunk) {
+        assert isCharInput();
+        inputLength += chunk.length();
+        for (int i = 0; i < chunk.length() && !finished; i++) {
+            char c = chunk.charAt(i);
+            if (encoding == Encodings.UTF_16_RAW) {
+                append(c, 1);
+                continue;
+            }
+            if (pendingHighSurrogate >= 0) {
+                if (Character.isLowSurrogate(c)) {
+                    append(Character.toCodePoint((char) pendingHighSurrogate, c), 2);
+                    pendingHighSurrogate = -1;
+                    continue;
+                }
+                append(pendingHighSurrogate, 1);
+                pendingHighSurrogate = -1;
+            }
+            if (Character.isHighSurrogate(c)) {
+                pendingHighSurrogate = c;
+            } else {
+                append(c, 1);
+            }
+        }
+        return scan();
+    }
+
+    /**
+     * Feeds the next chunk of a UTF-8 or Latin-1 input, consisting of the remaining bytes of
+     * {@code chunk}. The position of {@code chunk} is not changed.
+     *
+     * @return the start and end offsets of all matches found so far, in pairs.
+     */
+    @TruffleBoundary
+    public long[] feed(ByteBuffer chunk) {
+        assert !isCharInput();
+        inputLength += chunk.remaining();
+        for (int i = chunk.position(); i < chunk.limit() && !finished; i++) {
+            int b = chunk.get(i) & 0xff;
+            if (encoding == Encodings.LATIN_1) {
+                append(b, 1);
+            } else {
+                decodeUTF8(b);
+            }
+        }
+        return scan();
+    }
+
+    /**
+     * Marks the end of the input.
+     *
+     * @return the start and end offsets of all matches found since the last chunk, in pairs.
+     */
+    @TruffleBoundary
+    public long[] finish() {
+        if (pendingHighSurrogate >= 0) {
+            append(pendingHighSurrogate, 1);
+            pendingHighSurrogate = -1;
+        }
+        if (utf8Remaining > 0) {
+            append(REPLACEMENT_CHARACTER, utf8Width);
+            utf8Remaining = 0;
+        }
+        run();
+        while (!finished && !skipNextCodePoint) {
+            int resultAtEnd = matcher.getResultAtEnd(state);
+            if (resultAtEnd != NFAStreamMatcher.NO_RESULT) {
+                setResult(resultAtEnd);
+            }
+            if (resultEnd < 0) {
+                break;
+            }
+            reportAndRestart();
+            run();
+        }
+        finished = true;
+        return takeMatches();
+    }
+
+    /**
+     * Decodes the next byte of a UTF-8 input. Malformed sequences are replaced with U+FFFD: each
+     * maximal prefix of a valid sequence becomes one replacement character, and so does every byte
+     * that cannot start such a prefix. Overlong forms, encoded surrogates and code points above
+     * U+10FFFF are malformed, as in {@link java.nio.charset.StandardCharsets#UTF_8}.
+     */
+    private void decodeUTF8(int b) {
+        if (utf8Remaining > 0) {
+            if (isUTF8ContinuationByte(b)) {
+                utf8CodePoint = utf8CodePoint << 6 | (b & 0x3f);
+                utf8Width++;
+                if (--utf8Remaining == 0) {
+                    append(utf8CodePoint, utf8Width);
+                }
+                return;
+            }
+            // truncated sequence
+            append(REPLACEMENT_CHARACTER, utf8Width);
+            utf8Remaining = 0;
+        }
+        if (b < 0x80) {
+            append(b, 1);
+        } else if (b >= 0xc2 && b < 0xf5) {
+            int nBytes = Integer.numberOfLeadingZeros(~(b << 24));
+            utf8CodePoint = b & (0x7f >> nBytes);
+            utf8Remaining = nBytes - 1;
+            utf8Width = 1;
+        } else {
+            append(REPLACEMENT_CHARACTER, 1);
+        }
+    }
+
+    private boolean isUTF8ContinuationByte(int b) {
+        if ((b & 0xc0) != 0x80) {
+            return false;
+        }
+        if (utf8Width > 1) {
+            return true;
+        }
+        // The second byte of a sequence is restricted further, see table 3-7 of the Unicode
+        // standard. utf8CodePoint holds the payload bits of the lead byte.
+        if (utf8Remaining == 2) {
+            // E0 A0..BF excludes overlong forms, ED 80..9F excludes surrogates
+            return utf8CodePoint == 0 ? b >= 0xa0 : utf8CodePoint != 0xd || b < 0xa0;
+        }
+        if (utf8Remaining == 3) {
+            // F0 90..BF excludes overlong forms, F4 80..8F excludes code points above U+10FFFF
+            return utf8CodePoint == 0 ? b >= 0x90 : utf8CodePoint != 4 || b < 0x90;
+        }
+        return true;
+    }
+
+    private void append(int codePoint, int width) {
+        if (bufferLength == codePoints.length) {
+            codePoints = Arrays.copyOf(codePoints, bufferLength * 2);
+            widths = Arrays.copyOf(widths, bufferLength * 2);
+        }
+        codePoints[bufferLength] = codePoint;
+        widths[bufferLength] = (byte) width;
+        bufferLength++;
+    }
+
+    private long[] scan() {
+        run();
+        discardConsumedInput();
+        return takeMatches();
+    }
+
+    private void run() {
+        while (cursor < bufferLength && !finished && syncPosition < 0) {
+            RegexRootNode.checkThreadInterrupted();
+            if (skipNextCodePoint) {
+                skipNextCodePoint = false;
+                advance();
+                restart();
+                continue;
+            }
+            if ((quietPositions != null || syncTarget != null) && isQuiet()) {
+                if (quietPositions != null) {
+                    quietPositions.set((int) (position - quietPositionsOffset));
+                }
+                if (syncTarget != null && syncTarget.wasQuietAt(position)) {
+                    syncPosition = position;
+                    return;
+                }
+            }
+            Transition transition = matcher.getTransition(state, codePoints[cursor]);
+            if (transition.resultSource != NFAStreamMatcher.NO_RESULT) {
+                setResult(transition.resultSource);
+            }
+            for (int i = 0; i < transition.sources.length; i++) {
+                int source = transition.sources[i];
+                nextStarts[i] = source == NFAStreamMatcher.LOOP_BACK ? position : starts[source];
+            }
+            long[] tmp = starts;
+            starts = nextStarts;
+            nextStarts = tmp;
+            state = transition.target;
+            advance();
+            if (state.isEmpty()) {
+                if (state.isResultPending()) {
+                    reportAndRestart();
+                } else if (!matcher.isSearching()) {
+                    finished = true;
+                }
+            }
+        }
+    }
+
+    private void advance() {
+        position += widths[cursor];
+        cursor++;
+    }
+
+    private void setResult(int resultSource) {
+        resultStart = resultSource == NFAStreamMatcher.LOOP_BACK ? position : starts[resultSource];
+        resultEnd = position;
+    }
+
+    /**
+     * Reports the pending match and restarts the search at its end.
+     */
+    private void reportAndRestart() {
+        assert resultEnd >= bufferOffset;
+        matches.add(resultStart);
+        matches.add(resultEnd);
+        boolean emptyMatch = resultStart == resultEnd;
+        cursor = 0;
+        position = bufferOffset;
+        while (position < resultEnd) {
+            advance();
+        }
+        resultStart = -1;
+        resultEnd = -1;
+        if (emptyMatch) {
+            if (cursor < bufferLength) {
+                advance();
+            } else {
+                skipNextCodePoint = true;
+                return;
+            }
+        }
+        restart();
+    }
+
+    private void restart() {
+        state = matcher.getRestartState();
+        Arrays.fill(starts, 0, state.size(), position);
+        if (state.isEmpty() && !matcher.isSearching()) {
+            finished = true;
+        }
+    }
+
+    /**
+     * Discards all code points that are not needed anymore. If a match is pending, the search for
+     * the next match restarts at its end, so the input from there on is kept.
+     */
+    private void discardConsumedInput() {
+        if (finished) {
+            bufferLength = 0;
+            cursor = 0;
+            return;
+        }
+        int keep = cursor;
+        long keepOffset = position;
+        if (resultEnd >= 0) {
+            keep = 0;
+            keepOffset = bufferOffset;
+            while (keepOffset < resultEnd) {
+                keepOffset += widths[keep++];
+            }
+        }
+        if (keep > 0) {
+            System.arraycopy(codePoints, keep, codePoints, 0, bufferLength - keep);
+            System.arraycopy(widths, keep, widths, 0, bufferLength - keep);
+            bufferLength -= keep;
+            cursor -= keep;
+            bufferOffset = keepOffset;
+        }
+    }
+
+    private long[] takeMatches() {
+        long[] result = matches.toArray();
+        matches.clear();
+        return result;
+    }
+}
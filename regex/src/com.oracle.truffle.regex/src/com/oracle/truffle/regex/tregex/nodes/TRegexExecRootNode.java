@@ -68,6 +68,7 @@ import com.oracle.truffle.regex.tregex.nodes.dfa.TRegexLazyCaptureGroupsRootNode
 import com.oracle.truffle.regex.tregex.nodes.dfa.TRegexLazyFindStartRootNode;
 import com.oracle.truffle.regex.tregex.nodes.nfa.TRegexBacktrackingNFAExecutorNode;
 import com.oracle.truffle.regex.tregex.nodes.nfa.TRegexNFAExecutorNode;
+import com.oracle.truffle.regex.tregex.nodes.nfa.TRegexOnTheFlyDFAExecutorNode;
 import com.oracle.truffle.regex.tregex.parser.ast.RegexAST;
 import com.oracle.truffle.regex.tregex.string.Encodings.Encoding;
 import com.oracle.truffle.regex.tregex.util.Loggers;
@@ -104,6 +105,12 @@ public class TRegexExecRootNode extends RegexExecRootNode implements RegexProfil
         if (this.regressionTestMode) {
             regressTestBacktrackingNode = new NFARegexSearchNode(createEntryNode(tRegexCompiler.compileBacktrackingExecutor(((TRegexNFAExecutorNode) nfaNode.getExecutor()).getNFA())));
             switchToLazyDFA();
+        } else if (!backtrackingMode && !tRegexCompiler.getOptions().isNFAOnly() &&
+                        (tRegexCompiler.getOptions().isGenerateDFAImmediately() || tRegexCompiler.getDFATableStore().get(ast.getSource()) != null)) {
+            // the DFAs were requested right away or loaded from a persisted store, no need to wait
+            // for the profile
+            switchToLazyDFA();
+            nfaNode = null;
         }
     }
 
@@ -120,7 +127,7 @@ public class TRegexExecRootNode extends RegexExecRootNode implements RegexProfil
             if (lazyDFANode == null) {
                 assert !regressionTestMode;
                 profile.incCalls();
-                if (profile.shouldGenerateDFA()) {
+                if (profile.shouldGenerateDFA() && !tRegexCompiler.getOptions().isNFAOnly()) {
                     switchToLazyDFA();
                     profile.resetCalls();
                     // free the NFA for garbage collection
@@ -180,10 +187,9 @@ public class TRegexExecRootNode extends RegexExecRootNode implements RegexProfil
     }
 
     private boolean nfaProducesSameResult(Object input, int fromIndex, RegexResult result) {
-        if (lazyDFANode == LAZY_DFA_BAILED_OUT) {
+        if (runnerNode == nfaNode) {
             return true;
         }
-        assert !(runnerNode instanceof NFARegexSearchNode);
         RegexResult btResult = nfaNode.run(input, fromIndex, inputLength(input));
         if (resultsEqual(result, btResult, getNumberOfCaptureGroups())) {
             return true;
@@ -266,6 +272,11 @@ public class TRegexExecRootNode extends RegexExecRootNode implements RegexProfil
                     switchToEagerDFA(null);
                 }
             }
+        } else if (runnerNode == nfaNode) {
+            // The DFA could not be generated, e.g. because it is too big. Instead of simulating
+            // the NFA on every search, cache the DFA states calculated on the fly.
+            TRegexOnTheFlyDFAExecutorNode executor = new TRegexOnTheFlyDFAExecutorNode(((TRegexNFAExecutorNode) nfaNode.getExecutor()).getNFA());
+            runnerNode = insert(new NFARegexSearchNode(createEntryNode(executor)));
         }
     }
 
@@ -43,7 +43,7 @@ package com.oracle.truffle.regex.tregex.nodes.dfa;
 import java.util.Arrays;
 
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
-import com.oracle.truffle.regex.tregex.nodes.input.InputIndexOfStringNode;
+import com.oracle.truffle.regex.tregex.nodes.input.InputIndexOfInnerLiteralNode;
 import com.oracle.truffle.regex.tregex.parser.ast.InnerLiteral;
 import com.oracle.truffle.regex.tregex.util.json.Json;
 import com.oracle.truffle.regex.tregex.util.json.JsonValue;
@@ -51,13 +51,14 @@ import com.oracle.truffle.regex.tregex.util.json.JsonValue;
 public final class DFAFindInnerLiteralStateNode extends DFAAbstractStateNode {
 
     private final InnerLiteral innerLiteral;
-    @Child private InputIndexOfStringNode indexOfNode = InputIndexOfStringNode.create();
+    @Child private InputIndexOfInnerLiteralNode indexOfNode;
     @Child private TRegexDFAExecutorNode prefixMatcher;
 
     public DFAFindInnerLiteralStateNode(short id, short[] successors, InnerLiteral innerLiteral, TRegexDFAExecutorNode prefixMatcher) {
         super(id, successors);
         assert successors.length == 1;
         this.innerLiteral = innerLiteral;
+        this.indexOfNode = InputIndexOfInnerLiteralNode.create(innerLiteral);
         this.prefixMatcher = prefixMatcher;
     }
 
@@ -75,7 +76,7 @@ public final class DFAFindInnerLiteralStateNode extends DFAAbstractStateNode {
     }
 
     int executeInnerLiteralSearch(TRegexDFAExecutorLocals locals, TRegexDFAExecutorNode executor) {
-        return indexOfNode.execute(locals.getInput(), locals.getIndex(), executor.getMaxIndex(locals), innerLiteral.getLiteral().content(), innerLiteral.getMaskContent());
+        return indexOfNode.execute(locals.getInput(), locals.getIndex(), executor.getMaxIndex(locals));
     }
 
     boolean prefixMatcherMatches(TRegexDFAExecutorLocals locals, boolean compactString) {
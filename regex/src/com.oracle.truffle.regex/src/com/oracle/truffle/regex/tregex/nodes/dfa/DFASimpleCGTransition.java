@@ -75,10 +75,33 @@ public final class DFASimpleCGTransition implements JsonConvertible {
                         fullClear ? FULL_CLEAR_ARRAY : t.getGroupBoundaries().clearsToByteArray());
     }
 
+    /**
+     * Re-creates a transition from the values returned by {@link #getIndexUpdates()},
+     * {@link #getIndexClears()} and {@link #isFullClear()}.
+     */
+    public static DFASimpleCGTransition create(byte[] indexUpdates, byte[] indexClears, boolean fullClear) {
+        if (!fullClear && indexUpdates.length == 0 && indexClears.length == 0) {
+            return getEmptyInstance();
+        }
+        return new DFASimpleCGTransition(indexUpdates.length == 0 ? EMPTY_ARRAY : indexUpdates, fullClear ? FULL_CLEAR_ARRAY : indexClears);
+    }
+
     public static DFASimpleCGTransition getEmptyInstance() {
         return EMPTY_INSTANCE;
     }
 
+    public byte[] getIndexUpdates() {
+        return indexUpdates;
+    }
+
+    public byte[] getIndexClears() {
+        return indexClears;
+    }
+
+    public boolean isFullClear() {
+        return indexClears == FULL_CLEAR_ARRAY;
+    }
+
     public void apply(int[] result, int currentIndex) {
         CompilerAsserts.partialEvaluationConstant(this);
         if (indexClears == FULL_CLEAR_ARRAY) {
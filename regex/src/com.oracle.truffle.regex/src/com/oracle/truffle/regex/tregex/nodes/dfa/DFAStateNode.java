@@ -244,6 +244,14 @@ public class DFAStateNode extends DFAAbstractStateNode {
         return matchers;
     }
 
+    public final byte getFlags() {
+        return flags;
+    }
+
+    public final DFASimpleCG getSimpleCG() {
+        return simpleCG;
+    }
+
     public BranchProfile getStateReachedProfile() {
         return stateReachedProfile;
     }
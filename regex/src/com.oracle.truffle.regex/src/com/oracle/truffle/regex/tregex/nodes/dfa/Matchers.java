@@ -40,8 +40,10 @@
  */
 package com.oracle.truffle.regex.tregex.nodes.dfa;
 
+import java.util.Arrays;
 import java.util.Objects;
 
+import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.nodes.Node;
 import com.oracle.truffle.regex.charset.CharMatchers;
@@ -226,13 +228,15 @@ public abstract class Matchers extends Node {
         @Children private final CharMatcher[] enc2;
         @Children private final CharMatcher[] enc3;
         @Children private final CharMatcher[] enc4;
+        @CompilationFinal(dimensions = 1) private final byte[] leadByteTransitions;
 
-        public UTF8Matchers(CharMatcher[] ascii, CharMatcher[] enc2, CharMatcher[] enc3, CharMatcher[] enc4, short noMatchSuccessor) {
+        public UTF8Matchers(CharMatcher[] ascii, CharMatcher[] enc2, CharMatcher[] enc3, CharMatcher[] enc4, byte[] leadByteTransitions, short noMatchSuccessor) {
             super(noMatchSuccessor);
             this.ascii = ascii;
             this.enc2 = enc2;
             this.enc3 = enc3;
             this.enc4 = enc4;
+            this.leadByteTransitions = leadByteTransitions;
         }
 
         public CharMatcher[] getAscii() {
@@ -251,6 +255,17 @@ public abstract class Matchers extends Node {
             return enc4;
         }
 
+        /**
+         * Returns the transition taken on any valid UTF-8 sequence starting with the non-ASCII byte
+         * {@code c}, {@link Builder#LEAD_BYTE_NO_MATCH} if no transition matches any such sequence,
+         * or {@link Builder#LEAD_BYTE_DECODE} if the sequence has to be decoded to find the
+         * transition.
+         */
+        public int getLeadByteTransition(int c) {
+            assert 0x80 <= c && c <= 0xff;
+            return leadByteTransitions[c - 0x80];
+        }
+
         @Override
         public int size() {
             return size(ascii, enc2, enc3, enc4);
@@ -270,8 +285,19 @@ public abstract class Matchers extends Node {
 
     public static final class Builder {
 
+        /**
+         * No transition matches any of the UTF-8 sequences starting with a given lead byte.
+         */
+        public static final byte LEAD_BYTE_NO_MATCH = -1;
+        /**
+         * The UTF-8 sequences starting with a given lead byte are split between several transitions,
+         * or the lead byte is invalid.
+         */
+        public static final byte LEAD_BYTE_DECODE = -2;
+
         private final ObjectArrayBuffer<CharMatcher>[] buffers;
         private short noMatchSuccessor = -1;
+        private byte[] leadByteTransitions;
 
         @SuppressWarnings("unchecked")
         public Builder(int nBuffers) {
@@ -286,6 +312,16 @@ public abstract class Matchers extends Node {
                 buf.asFixedSizeArray(nTransitions);
             }
             noMatchSuccessor = -1;
+            if (leadByteTransitions != null) {
+                initLeadByteTransitions();
+            }
+        }
+
+        private void initLeadByteTransitions() {
+            Arrays.fill(leadByteTransitions, LEAD_BYTE_NO_MATCH);
+            // continuation bytes, overlong 2-byte sequences and bytes beyond U+10FFFF
+            Arrays.fill(leadByteTransitions, 0, 0xc2 - 0x80, LEAD_BYTE_DECODE);
+            Arrays.fill(leadByteTransitions, 0xf5 - 0x80, 0x80, LEAD_BYTE_DECODE);
         }
 
         public ObjectArrayBuffer<CharMatcher> getBuffer(int i) {
@@ -320,6 +356,66 @@ public abstract class Matchers extends Node {
             }
         }
 
+        /**
+         * Registers the code point set of transition {@code i} in the UTF-8 lead byte table. All
+         * code points encoded with a given lead byte form a contiguous range, so whenever a single
+         * transition's set contains that whole range, the transition can be determined from the
+         * lead byte alone, without decoding the rest of the sequence. The decoding path decodes
+         * {@code ED A0..BF} to surrogate code points, as they occur e.g. in WTF-8, so the range of
+         * lead byte {@code 0xED} includes the surrogates: it is only mapped to a transition whose
+         * set also contains {@code U+D800..U+DFFF}, and marked {@link #LEAD_BYTE_DECODE} otherwise.
+         * Overlong encodings are not considered.
+         */
+        public void createUTF8LeadByteTransition(int i, CodePointSet cps) {
+            if (leadByteTransitions == null) {
+                leadByteTransitions = new byte[0x80];
+                initLeadByteTransitions();
+            }
+            for (int b = 0xc2; b <= 0xf4; b++) {
+                int lo;
+                int hi;
+                if (b < 0xe0) {
+                    lo = (b & 0x1f) << 6;
+                    hi = lo | 0x3f;
+                } else if (b < 0xf0) {
+                    lo = Math.max((b & 0x0f) << 12, 0x800);
+                    hi = ((b & 0x0f) << 12) | 0xfff;
+                } else {
+                    lo = Math.max((b & 0x07) << 18, Character.MIN_SUPPLEMENTARY_CODE_POINT);
+                    hi = Math.min(((b & 0x07) << 18) | 0x3ffff, Character.MAX_CODE_POINT);
+                }
+                int searchResult = cps.binarySearch(lo);
+                if (cps.binarySearchExactMatch(searchResult, lo, hi)) {
+                    setLeadByteTransition(b, i);
+                    continue;
+                }
+                int firstIntersecting = cps.binarySearchGetFirstIntersecting(searchResult, lo, hi);
+                if (cps.binarySearchNoIntersectingFound(firstIntersecting) || !cps.intersects(firstIntersecting, lo, hi)) {
+                    continue;
+                }
+                if (cps.contains(firstIntersecting, lo, hi)) {
+                    setLeadByteTransition(b, i);
+                } else {
+                    leadByteTransitions[b - 0x80] = LEAD_BYTE_DECODE;
+                }
+            }
+        }
+
+        private void setLeadByteTransition(int b, int i) {
+            if (leadByteTransitions[b - 0x80] == LEAD_BYTE_NO_MATCH && i <= Byte.MAX_VALUE) {
+                leadByteTransitions[b - 0x80] = (byte) i;
+            } else {
+                leadByteTransitions[b - 0x80] = LEAD_BYTE_DECODE;
+            }
+        }
+
+        public byte[] materializeUTF8LeadByteTransitions() {
+            if (leadByteTransitions == null) {
+                createUTF8LeadByteTransition(0, CodePointSet.getEmpty());
+            }
+            return Arrays.copyOf(leadByteTransitions, leadByteTransitions.length);
+        }
+
         public CharMatcher[] materialize(int buf) {
             return isEmpty(buffers[buf]) ? null : buffers[buf].toArray(new CharMatcher[buffers[buf].length()]);
         }
@@ -372,6 +372,21 @@ public final class TRegexDFAExecutorNode extends TRegexExecutorNode {
                             int nBytes = Integer.numberOfLeadingZeros(~(c << 24));
                             assert 1 < nBytes && nBytes < 5 : nBytes;
                             inputIncNextIndexRaw(locals, nBytes);
+                            if (isForward()) {
+                                /*
+                                 * byte-level transition: if a single transition covers all code
+                                 * points starting with this lead byte, skip decoding
+                                 */
+                                int leadByteTransition = utf8Matchers.getLeadByteTransition(c);
+                                assert !isRegressionTestMode() || sameResultAsDecoding(locals, utf8Matchers, c, nBytes, leadByteTransition);
+                                if (leadByteTransition >= 0) {
+                                    ip = transitionMatch(state, leadByteTransition);
+                                    continue outer;
+                                } else if (leadByteTransition == Matchers.Builder.LEAD_BYTE_NO_MATCH) {
+                                    ip = transitionNoMatch(state);
+                                    continue outer;
+                                }
+                            }
                             if (isBackward()) {
                                 codepoint |= (c & (0xff >>> nBytes)) << (6 * (nBytes - 1));
                             }
@@ -560,6 +575,30 @@ public final class TRegexDFAExecutorNode extends TRegexExecutorNode {
         return state.successors[i];
     }
 
+    private boolean sameResultAsDecoding(TRegexDFAExecutorLocals locals, UTF8Matchers utf8Matchers, int c, int nBytes, int leadByteTransition) {
+        if (leadByteTransition == Matchers.Builder.LEAD_BYTE_DECODE) {
+            return true;
+        }
+        int codepoint;
+        switch (nBytes) {
+            case 2:
+                codepoint = inputUTF8Decode2(locals, c, 0);
+                break;
+            case 3:
+                codepoint = inputUTF8Decode3(locals, c, 0);
+                break;
+            default:
+                codepoint = inputUTF8Decode4(locals, c, 0);
+                break;
+        }
+        for (int i = 0; i < utf8Matchers.size(); i++) {
+            if (utf8Matchers.match(i, codepoint)) {
+                return i == leadByteTransition;
+            }
+        }
+        return leadByteTransition == Matchers.Builder.LEAD_BYTE_NO_MATCH;
+    }
+
     private int inputUTF8Decode2(TRegexDFAExecutorLocals locals, int c, int codepoint) {
         if (isForward()) {
             return ((c & 0x3f) << 6) |
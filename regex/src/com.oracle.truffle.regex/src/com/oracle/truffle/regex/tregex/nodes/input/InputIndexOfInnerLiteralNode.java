@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.truffle.regex.tregex.nodes.input;
+
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.regex.RegexRootNode;
+import com.oracle.truffle.regex.tregex.parser.ast.InnerLiteral;
+
+/**
+ * Searches for an {@link InnerLiteral}. If the literal has a {@link InnerLiteral#getRareInfix()
+ * rare infix}, the input is scanned for the infix with the intrinsified two-character search of
+ * {@link InputIndexOfStringNode}, and the entire literal is compared only at the positions where
+ * the infix occurs. Otherwise, the literal is searched for directly.
+ */
+public final class InputIndexOfInnerLiteralNode extends Node {
+
+    private final InnerLiteral innerLiteral;
+    @Child private InputIndexOfStringNode indexOfNode = InputIndexOfStringNode.create();
+    @Child private InputRegionMatchesNode regionMatchesNode;
+
+    public InputIndexOfInnerLiteralNode(InnerLiteral innerLiteral) {
+        this.innerLiteral = innerLiteral;
+    }
+
+    public static InputIndexOfInnerLiteralNode create(InnerLiteral innerLiteral) {
+        return new InputIndexOfInnerLiteralNode(innerLiteral);
+    }
+
+    public int execute(Object input, int fromIndex, int maxIndex) {
+        final int infixOffset = innerLiteral.getRareInfixOffset();
+        if (infixOffset == 0) {
+            return indexOfNode.execute(input, fromIndex, maxIndex, innerLiteral.getLiteral().content(), innerLiteral.getMaskContent());
+        }
+        final int literalLength = innerLiteral.getLiteral().encodedLength();
+        // the infix must end before this index, otherwise the literal would exceed maxIndex
+        final int infixMaxIndex = maxIndex - literalLength + infixOffset + 2;
+        int index = fromIndex + infixOffset;
+        while (index <= infixMaxIndex - 2) {
+            if (CompilerDirectives.inInterpreter()) {
+                RegexRootNode.checkThreadInterrupted();
+            }
+            index = indexOfNode.execute(input, index, infixMaxIndex, innerLiteral.getRareInfix().content(), innerLiteral.getRareInfixMaskContent());
+            if (index < 0 || index > infixMaxIndex - 2) {
+                return -1;
+            }
+            if (getRegionMatchesNode().execute(input, index - infixOffset, innerLiteral.getLiteral().content(), 0, literalLength, innerLiteral.getMaskContent())) {
+                return index - infixOffset;
+            }
+            index++;
+        }
+        return -1;
+    }
+
+    private InputRegionMatchesNode getRegionMatchesNode() {
+        if (regionMatchesNode == null) {
+            CompilerDirectives.transferToInterpreterAndInvalidate();
+            regionMatchesNode = insert(InputRegionMatchesNode.create());
+        }
+        return regionMatchesNode;
+    }
+}
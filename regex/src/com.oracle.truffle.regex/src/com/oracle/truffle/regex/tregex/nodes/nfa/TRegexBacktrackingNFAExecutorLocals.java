@@ -72,6 +72,9 @@ import com.oracle.truffle.regex.util.BitSets;
  *
  * frame size: 2 + n_capture_groups*2 + n_quantifiers + n_zero_width_quantifiers
  * </pre>
+ *
+ * If memoization is enabled, the locals also hold a bit set of all pairs of NFA state and input
+ * index visited so far, see {@link #checkAndSetVisited(int)}.
  */
 public final class TRegexBacktrackingNFAExecutorLocals extends TRegexExecutorLocals {
 
@@ -86,16 +89,23 @@ public final class TRegexBacktrackingNFAExecutorLocals extends TRegexExecutorLoc
     private int lastResultSp = -1;
     private int lastInnerLiteralIndex;
     private int lastInitialStateIndex;
+    private final int nMemoStates;
+    private long[] memo;
 
-    public TRegexBacktrackingNFAExecutorLocals(Object input, int fromIndex, int index, int maxIndex, int nCaptureGroups, int nQuantifiers, int nZeroWidthQuantifiers, int maxNTransitions) {
+    /**
+     * @param nMemoStates the number of NFA states to memoize per input index, or {@code 0} if
+     *            memoization is disabled.
+     */
+    public TRegexBacktrackingNFAExecutorLocals(Object input, int fromIndex, int index, int maxIndex, int nCaptureGroups, int nQuantifiers, int nZeroWidthQuantifiers, int maxNTransitions,
+                    int nMemoStates) {
         this(input, fromIndex, index, maxIndex, nCaptureGroups, nQuantifiers, nZeroWidthQuantifiers, new Stack(new int[getStackFrameSize(nCaptureGroups, nQuantifiers, nZeroWidthQuantifiers) * 4]), 0,
-                        BitSets.createBitSetArray(maxNTransitions));
+                        BitSets.createBitSetArray(maxNTransitions), nMemoStates);
         setIndex(fromIndex);
         clearCaptureGroups();
     }
 
     private TRegexBacktrackingNFAExecutorLocals(Object input, int fromIndex, int index, int maxIndex, int nCaptureGroups, int nQuantifiers, int nZeroWidthQuantifiers, Stack stack, int stackBase,
-                    long[] transitionBitSet) {
+                    long[] transitionBitSet, int nMemoStates) {
         super(input, fromIndex, maxIndex, index);
         this.stackFrameSize = getStackFrameSize(nCaptureGroups, nQuantifiers, nZeroWidthQuantifiers);
         this.nQuantifierCounts = nQuantifiers;
@@ -105,6 +115,7 @@ public final class TRegexBacktrackingNFAExecutorLocals extends TRegexExecutorLoc
         this.sp = stackBase;
         this.result = new int[nCaptureGroups * 2];
         this.transitionBitSet = transitionBitSet;
+        this.nMemoStates = nMemoStates;
     }
 
     private int[] stack() {
@@ -128,7 +139,7 @@ public final class TRegexBacktrackingNFAExecutorLocals extends TRegexExecutorLoc
 
     private TRegexBacktrackingNFAExecutorLocals newSubLocals() {
         return new TRegexBacktrackingNFAExecutorLocals(getInput(), getFromIndex(), getIndex(), getMaxIndex(), result.length / 2, nQuantifierCounts, nZeroWidthQuantifiers, stack, sp + stackFrameSize,
-                        transitionBitSet);
+                        transitionBitSet, 0);
     }
 
     private int offsetIP() {
@@ -311,6 +322,40 @@ public final class TRegexBacktrackingNFAExecutorLocals extends TRegexExecutorLoc
         this.lastInitialStateIndex = i;
     }
 
+    /**
+     * Starts recording visited states, if memoization is enabled and recording has not started
+     * yet. A state can only be visited twice at the same index after backtracking, so recording is
+     * started lazily on the first backtrack, which keeps searches that never backtrack free of the
+     * bit set's allocation cost. Pruning remains correct for visits recorded late: a recorded visit
+     * is only revisited after all paths starting from it have failed.
+     */
+    public void startMemoization() {
+        if (nMemoStates > 0 && memo == null) {
+            memo = BitSets.createBitSetArray(nMemoStates * (getMaxIndex() - getFromIndex() + 1));
+        }
+    }
+
+    /**
+     * Records a visit of the NFA state {@code stateId} at the current index.
+     *
+     * @return {@code true} if the state was already visited at the current index, i.e. it must fail
+     *         again.
+     */
+    public boolean checkAndSetVisited(int stateId) {
+        if (memo == null) {
+            return false;
+        }
+        assert getFromIndex() <= getIndex() && getIndex() <= getMaxIndex();
+        return !BitSets.add(memo, (getIndex() - getFromIndex()) * nMemoStates + stateId);
+    }
+
+    /**
+     * Increments the number of visited states, which is shared with all sub-NFA locals.
+     */
+    public long incSteps() {
+        return ++stack.steps;
+    }
+
     @TruffleBoundary
     public void printStack(int curPc) {
         for (int i = sp; i >= 0; i -= stackFrameSize) {
@@ -322,9 +367,13 @@ public final class TRegexBacktrackingNFAExecutorLocals extends TRegexExecutorLoc
         }
     }
 
+    /**
+     * State shared by a locals object and all sub-NFA locals created from it.
+     */
     private static final class Stack {
 
         private int[] stack;
+        private long steps;
 
         Stack(int[] stack) {
             this.stack = stack;
@@ -45,9 +45,12 @@ import com.oracle.truffle.api.CompilerAsserts;
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.CompilerDirectives.CompilationFinal;
 import com.oracle.truffle.api.nodes.ExplodeLoop;
+import com.oracle.truffle.regex.RegexInterruptedException;
+import com.oracle.truffle.regex.RegexOptions;
 import com.oracle.truffle.regex.RegexRootNode;
 import com.oracle.truffle.regex.charset.CharMatchers;
 import com.oracle.truffle.regex.charset.CodePointSet;
+import com.oracle.truffle.regex.tregex.TRegexOptions;
 import com.oracle.truffle.regex.tregex.buffer.CompilationBuffer;
 import com.oracle.truffle.regex.tregex.matchers.CharMatcher;
 import com.oracle.truffle.regex.tregex.nfa.PureNFA;
@@ -58,7 +61,7 @@ import com.oracle.truffle.regex.tregex.nfa.QuantifierGuard;
 import com.oracle.truffle.regex.tregex.nodes.TRegexExecRootNode;
 import com.oracle.truffle.regex.tregex.nodes.TRegexExecutorLocals;
 import com.oracle.truffle.regex.tregex.nodes.TRegexExecutorNode;
-import com.oracle.truffle.regex.tregex.nodes.input.InputIndexOfStringNode;
+import com.oracle.truffle.regex.tregex.nodes.input.InputIndexOfInnerLiteralNode;
 import com.oracle.truffle.regex.tregex.nodes.input.InputRegionMatchesNode;
 import com.oracle.truffle.regex.tregex.parser.CaseFoldTable;
 import com.oracle.truffle.regex.tregex.parser.Token.Quantifier;
@@ -70,6 +73,13 @@ import com.oracle.truffle.regex.tregex.util.Exceptions;
 /**
  * This regex executor uses a backtracking algorithm on the NFA. It is used for all expressions that
  * cannot be matched with the DFA, such as expressions with backreferences.
+ * <p>
+ * Backtracking may take exponential time. Two options limit this: with
+ * {@link RegexOptions#isMemoizeBacktracking()}, every pair of NFA state and input index is explored
+ * at most once, which is possible if the result of a state depends on the current index only, i.e.
+ * the expression has no back-references and no quantifier guards. With
+ * {@link RegexOptions#getBacktrackingStepLimit()}, the search is aborted after the given number of
+ * visited states.
  */
 public final class TRegexBacktrackingNFAExecutorNode extends TRegexExecutorNode {
 
@@ -85,15 +95,17 @@ public final class TRegexBacktrackingNFAExecutorNode extends TRegexExecutorNode
     private final boolean unicode;
     private final boolean loneSurrogates;
     private final boolean loopbackInitialState;
+    private final boolean memoize;
+    private final int stepLimit;
     private final InnerLiteral innerLiteral;
     @CompilationFinal(dimensions = 1) private final TRegexExecutorNode[] lookAroundExecutors;
     @Children private CharMatcher[] matchers;
 
     @Child InputRegionMatchesNode regionMatchesNode;
-    @Child InputIndexOfStringNode indexOfNode;
+    @Child InputIndexOfInnerLiteralNode indexOfNode;
     @Child CharMatcher loopbackInitialStateMatcher;
 
-    public TRegexBacktrackingNFAExecutorNode(PureNFAMap nfaMap, PureNFA nfa, TRegexExecutorNode[] lookAroundExecutors, CompilationBuffer compilationBuffer) {
+    public TRegexBacktrackingNFAExecutorNode(PureNFAMap nfaMap, PureNFA nfa, TRegexExecutorNode[] lookAroundExecutors, RegexOptions options, CompilationBuffer compilationBuffer) {
         RegexASTSubtreeRootNode subtree = nfaMap.getASTSubtree(nfa);
         this.nfa = nfa;
         this.writesCaptureGroups = subtree.hasCaptureGroups();
@@ -117,6 +129,7 @@ public final class TRegexBacktrackingNFAExecutorNode extends TRegexExecutorNode
         nfa.materializeGroupBoundaries();
         matchers = new CharMatcher[nfa.getNumberOfStates()];
         int maxTransitions = 0;
+        boolean hasQuantifierGuards = false;
         for (int i = 0; i < matchers.length; i++) {
             PureNFAState s = nfa.getState(i);
             if (s.isCharacterClass()) {
@@ -124,8 +137,15 @@ public final class TRegexBacktrackingNFAExecutorNode extends TRegexExecutorNode
             }
             maxTransitions = Math.max(maxTransitions, s.getSuccessors(forward).length);
             s.initIsDeterministic(forward, compilationBuffer);
+            for (PureNFATransition t : s.getSuccessors(forward)) {
+                hasQuantifierGuards |= t.getQuantifierGuards().length > 0;
+            }
         }
         this.maxNTransitions = maxTransitions;
+        // memoization is only done in the root NFA, look-around sub-NFAs are executed with fresh
+        // locals every time.
+        this.memoize = options.isMemoizeBacktracking() && nfa == nfaMap.getRoot() && !nfaMap.getAst().getProperties().hasBackReferences() && !hasQuantifierGuards;
+        this.stepLimit = options.getBacktrackingStepLimit();
     }
 
     public void initialize(TRegexExecRootNode rootNode) {
@@ -151,7 +171,11 @@ public final class TRegexBacktrackingNFAExecutorNode extends TRegexExecutorNode
 
     @Override
     public TRegexExecutorLocals createLocals(Object input, int fromIndex, int index, int maxIndex) {
-        return new TRegexBacktrackingNFAExecutorLocals(input, fromIndex, index, maxIndex, getNumberOfCaptureGroups(), nQuantifiers, nZeroWidthQuantifiers, maxNTransitions);
+        int nMemoStates = 0;
+        if (memoize && fromIndex <= maxIndex && (long) nfa.getNumberOfStates() * (maxIndex - fromIndex + 1) <= TRegexOptions.TRegexMaxBacktrackingMemoSize) {
+            nMemoStates = nfa.getNumberOfStates();
+        }
+        return new TRegexBacktrackingNFAExecutorLocals(input, fromIndex, index, maxIndex, getNumberOfCaptureGroups(), nQuantifiers, nZeroWidthQuantifiers, maxNTransitions, nMemoStates);
     }
 
     private static final int IP_BEGIN = -1;
@@ -199,6 +223,9 @@ public final class TRegexBacktrackingNFAExecutorNode extends TRegexExecutorNode
                     continue;
                 }
             } else if (ip == IP_BACKTRACK) {
+                if (memoize) {
+                    locals.startMemoization();
+                }
                 if (locals.canPopResult()) {
                     // there is a result on the stack, break and return it.
                     break;
@@ -297,11 +324,19 @@ public final class TRegexBacktrackingNFAExecutorNode extends TRegexExecutorNode
     @ExplodeLoop
     private int runState(TRegexBacktrackingNFAExecutorLocals locals, boolean compactString, PureNFAState curState) {
         CompilerDirectives.isPartialEvaluationConstant(curState);
+        if (stepLimit > 0 && locals.incSteps() > stepLimit) {
+            CompilerDirectives.transferToInterpreter();
+            throw new RegexInterruptedException();
+        }
         if (curState.isFinalState(isForward())) {
             locals.setResult();
             locals.pushResult();
             return IP_END;
         }
+        if (memoize && locals.checkAndSetVisited(curState.getId())) {
+            // this state already failed at the current index
+            return IP_BACKTRACK;
+        }
         /*
          * Do very expensive operations per-state instead of per-transition, to avoid code size
          * explosion. Drawback: these postponed operations cannot be checked eagerly, so their state
@@ -688,9 +723,9 @@ public final class TRegexBacktrackingNFAExecutorNode extends TRegexExecutorNode
     private int findInnerLiteral(TRegexBacktrackingNFAExecutorLocals locals) {
         if (indexOfNode == null) {
             CompilerDirectives.transferToInterpreterAndInvalidate();
-            indexOfNode = InputIndexOfStringNode.create();
+            indexOfNode = insert(InputIndexOfInnerLiteralNode.create(innerLiteral));
         }
-        return indexOfNode.execute(locals.getInput(), locals.getIndex(), locals.getMaxIndex(), innerLiteral.getLiteral().content(), innerLiteral.getMaskContent());
+        return indexOfNode.execute(locals.getInput(), locals.getIndex(), locals.getMaxIndex());
     }
 
     private boolean inputBoundsCheck(int i, int min, int max) {
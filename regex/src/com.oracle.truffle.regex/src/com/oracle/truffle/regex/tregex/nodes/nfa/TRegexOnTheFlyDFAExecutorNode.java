@@ -0,0 +1,487 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.truffle.regex.tregex.nodes.nfa;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.regex.RegexRootNode;
+import com.oracle.truffle.regex.charset.CodePointSet;
+import com.oracle.truffle.regex.tregex.TRegexOptions;
+import com.oracle.truffle.regex.tregex.buffer.IntArrayBuffer;
+import com.oracle.truffle.regex.tregex.nfa.NFA;
+import com.oracle.truffle.regex.tregex.nfa.NFAState;
+import com.oracle.truffle.regex.tregex.nfa.NFAStateTransition;
+import com.oracle.truffle.regex.tregex.nodes.TRegexExecRootNode;
+import com.oracle.truffle.regex.tregex.nodes.TRegexExecutorLocals;
+import com.oracle.truffle.regex.tregex.nodes.TRegexExecutorNode;
+import com.oracle.truffle.regex.tregex.nodes.dfa.TRegexDFAExecutorNode;
+
+/**
+ * This regex executor is used instead of {@link TRegexNFAExecutorNode} when the
+ * {@link TRegexDFAExecutorNode DFA} of an expression cannot be generated, e.g. because it would
+ * exceed {@link TRegexOptions#TRegexMaxDFASize}. It determines whether the expression matches by
+ * calculating DFA states from the NFA on the fly, like {@link TRegexNFAExecutorNode}, but without
+ * tracking capture groups, which allows it to cache every calculated DFA state and transition.
+ * Matching therefore runs in linear time and only visits the NFA for input characters and state
+ * combinations it has not seen before. Once a match is found, its capture groups are calculated by
+ * {@link TRegexNFAExecutorNode}, starting at the last position where no path of the search was
+ * active, since no match can start before it. Searches that do not match never touch the NFA
+ * executor.
+ * <p>
+ * The cache is bounded by {@link TRegexOptions#TRegexMaxOnTheFlyDFAStates}. When it is full, all
+ * cached states are dropped and the cache is re-populated by subsequent searches.
+ */
+public final class TRegexOnTheFlyDFAExecutorNode extends TRegexExecutorNode {
+
+    private final NFA nfa;
+    private final boolean searching;
+    private final int loopBackStateId;
+    @Child private TRegexNFAExecutorNode nfaExecutor;
+    private volatile StateCache cache;
+
+    public TRegexOnTheFlyDFAExecutorNode(NFA nfa) {
+        this.nfaExecutor = new TRegexNFAExecutorNode(nfa);
+        this.nfa = nfa;
+        this.searching = !nfa.getAst().getFlags().isSticky() && !nfa.getAst().getRoot().startsWithCaret();
+        this.loopBackStateId = nfa.getInitialLoopBackTransition().getTarget().getId();
+        this.cache = new StateCache(nfa.getAnchoredEntry().length);
+    }
+
+    public NFA getNFA() {
+        return nfa;
+    }
+
+    @Override
+    public void setRoot(TRegexExecRootNode root) {
+        super.setRoot(root);
+        nfaExecutor.setRoot(root);
+    }
+
+    /**
+     * Returns the number of DFA states currently held in the cache.
+     */
+    public int getNumberOfCachedStates() {
+        return cache.size();
+    }
+
+    @Override
+    public boolean isForward() {
+        return true;
+    }
+
+    @Override
+    public boolean writesCaptureGroups() {
+        return true;
+    }
+
+    @Override
+    public TRegexExecutorLocals createLocals(Object input, int fromIndex, int index, int maxIndex) {
+        return new TRegexOnTheFlyDFAExecutorLocals(input, fromIndex, index, maxIndex);
+    }
+
+    @Override
+    public Object execute(TRegexExecutorLocals abstractLocals, boolean compactString) {
+        TRegexOnTheFlyDFAExecutorLocals locals = (TRegexOnTheFlyDFAExecutorLocals) abstractLocals;
+        CompilerDirectives.ensureVirtualized(locals);
+        if (!findMatch(locals)) {
+            return null;
+        }
+        return nfaExecutor.execute(nfaExecutor.createLocals(locals.getInput(), locals.getFromIndex(), locals.getMatchSearchStart(), locals.getMaxIndex()), compactString);
+    }
+
+    private boolean findMatch(TRegexOnTheFlyDFAExecutorLocals locals) {
+        final int offset = rewindUpTo(locals, 0, nfa.getAnchoredEntry().length - 1);
+        int anchoredInitialState = nfa.getAnchoredEntry()[offset].getTarget().getId();
+        int unAnchoredInitialState = nfa.getUnAnchoredEntry()[offset].getTarget().getId();
+        boolean addAnchored = unAnchoredInitialState != anchoredInitialState && inputAtBegin(locals);
+        boolean addUnAnchored = nfa.getState(unAnchoredInitialState) != null;
+        if (!addAnchored && !addUnAnchored) {
+            return false;
+        }
+        int initialStateIndex = (offset << 1) | (addAnchored ? 1 : 0);
+        DFAState state = cache.getInitialState(initialStateIndex);
+        if (state == null) {
+            state = calcInitialState(initialStateIndex, addAnchored ? anchoredInitialState : -1, addUnAnchored ? unAnchoredInitialState : -1);
+        }
+        while (true) {
+            if (CompilerDirectives.inInterpreter()) {
+                RegexRootNode.checkThreadInterrupted();
+            }
+            if (inputHasNext(locals)) {
+                boolean loopBack = searching && locals.getIndex() >= locals.getFromIndex();
+                int c = inputReadAndDecode(locals);
+                DFAState successor = state.getCachedSuccessor(c, loopBack);
+                if (successor == null) {
+                    successor = calcSuccessor(state, c, loopBack);
+                }
+                if (successor == DFAState.MATCH) {
+                    return true;
+                }
+                if (successor.isEmpty() && !searching) {
+                    return false;
+                }
+                state = successor;
+            } else {
+                return state.matchesAtEnd(this);
+            }
+            inputAdvance(locals);
+            if (state.isEmpty() && locals.getIndex() > locals.getMatchSearchStart()) {
+                locals.setMatchSearchStart(locals.getIndex());
+            }
+        }
+    }
+
+    @TruffleBoundary
+    private DFAState calcInitialState(int initialStateIndex, int anchoredInitialState, int unAnchoredInitialState) {
+        IntArrayBuffer ids = new IntArrayBuffer(2);
+        if (anchoredInitialState >= 0) {
+            ids.add(anchoredInitialState);
+        }
+        if (unAnchoredInitialState >= 0) {
+            ids.add(unAnchoredInitialState);
+        }
+        StateCache stateCache = getCache();
+        DFAState state = stateCache.intern(sortedIds(ids));
+        stateCache.setInitialState(initialStateIndex, state);
+        return state;
+    }
+
+    /**
+     * Calculates the set of NFA states reachable from {@code state} by consuming {@code c}, in the
+     * same way as {@link TRegexNFAExecutorNode}. Since we only have to find out whether there is a
+     * match, the priority of the individual paths is irrelevant and the result can be represented
+     * as a sorted set of NFA state IDs.
+     * <p>
+     * Which transitions are visited does not depend on {@code c}, only which of them contain it.
+     * The result is therefore the same for all code points that are contained in the same
+     * transitions as {@code c}, and is cached for the whole range of them around {@code c}.
+     */
+    @TruffleBoundary
+    private DFAState calcSuccessor(DFAState state, int c, boolean loopBack) {
+        long[] marks = new long[((nfa.getNumberOfStates() - 1) >> 6) + 1];
+        IntArrayBuffer ids = new IntArrayBuffer(state.size() + 1);
+        int[] range = {0, Character.MAX_CODE_POINT};
+        boolean match = false;
+        for (int i = 0; i < state.size() && !match; i++) {
+            match = expandState(state.getNFAStateId(i), c, range, marks, ids);
+        }
+        if (!match && loopBack) {
+            match = expandState(loopBackStateId, c, range, marks, ids);
+        }
+        DFAState successor = match ? DFAState.MATCH : getCache().intern(sortedIds(ids));
+        state.putSuccessor(c, range[0], range[1], loopBack, successor);
+        return successor;
+    }
+
+    private boolean expandState(int stateId, int c, int[] range, long[] marks, IntArrayBuffer ids) {
+        NFAState state = nfa.getState(stateId);
+        for (int i = 0; i < maxTransitionIndex(state); i++) {
+            NFAStateTransition t = state.getSuccessors()[i];
+            int targetId = t.getTarget().getId();
+            int markIndex = targetId >> 6;
+            long markBit = 1L << targetId;
+            if (!t.getTarget().isAnchoredFinalState(true) && (marks[markIndex] & markBit) == 0) {
+                marks[markIndex] |= markBit;
+                if (t.getTarget().isUnAnchoredFinalState(true)) {
+                    return true;
+                } else if (containsInRange(t.getCodePointSet(), c, range)) {
+                    ids.add(targetId);
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns {@code true} if {@code cps} contains {@code c}, and narrows {@code range} to the code
+     * points around {@code c} that are contained in {@code cps} if and only if {@code c} is.
+     */
+    private static boolean containsInRange(CodePointSet cps, int c, int[] range) {
+        int low = 0;
+        int high = cps.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (c < cps.getLo(mid)) {
+                high = mid - 1;
+            } else if (c > cps.getHi(mid)) {
+                low = mid + 1;
+            } else {
+                range[0] = Math.max(range[0], cps.getLo(mid));
+                range[1] = Math.min(range[1], cps.getHi(mid));
+                return true;
+            }
+        }
+        // c lies between the ranges at index high and low
+        if (high >= 0) {
+            range[0] = Math.max(range[0], cps.getHi(high) + 1);
+        }
+        if (low < cps.size()) {
+            range[1] = Math.min(range[1], cps.getLo(low) - 1);
+        }
+        return false;
+    }
+
+    private static int maxTransitionIndex(NFAState state) {
+        return state.hasTransitionToUnAnchoredFinalState(true) ? state.getTransitionToUnAnchoredFinalStateId(true) + 1 : state.getSuccessors().length;
+    }
+
+    private static int[] sortedIds(IntArrayBuffer ids) {
+        int[] array = ids.toArray();
+        Arrays.sort(array);
+        return array;
+    }
+
+    /**
+     * Returns the current cache, replacing it with an empty one if it is full. DFA states of the
+     * old cache that are still in use by other searches remain valid, their successors are
+     * interned into the new cache.
+     */
+    private StateCache getCache() {
+        StateCache stateCache = cache;
+        if (stateCache.size() >= TRegexOptions.TRegexMaxOnTheFlyDFAStates) {
+            synchronized (this) {
+                stateCache = cache;
+                if (stateCache.size() >= TRegexOptions.TRegexMaxOnTheFlyDFAStates) {
+                    stateCache = new StateCache(nfa.getAnchoredEntry().length);
+                    cache = stateCache;
+                }
+            }
+        }
+        return stateCache;
+    }
+
+    private static final class StateCache {
+
+        private final HashMap<StateKey, DFAState> states = new HashMap<>();
+        /**
+         * Initial states by number of rewound look-behind characters and whether the search starts
+         * at the beginning of the input.
+         */
+        private final DFAState[] initialStates;
+
+        StateCache(int numberOfEntries) {
+            this.initialStates = new DFAState[numberOfEntries << 1];
+        }
+
+        DFAState getInitialState(int index) {
+            return initialStates[index];
+        }
+
+        void setInitialState(int index, DFAState state) {
+            initialStates[index] = state;
+        }
+
+        synchronized int size() {
+            return states.size();
+        }
+
+        synchronized DFAState intern(int[] nfaStateIds) {
+            StateKey key = new StateKey(nfaStateIds);
+            DFAState state = states.get(key);
+            if (state == null) {
+                state = new DFAState(nfaStateIds);
+                states.put(key, state);
+            }
+            return state;
+        }
+    }
+
+    private static final class StateKey {
+
+        private final int[] nfaStateIds;
+        private final int hash;
+
+        StateKey(int[] nfaStateIds) {
+            this.nfaStateIds = nfaStateIds;
+            this.hash = Arrays.hashCode(nfaStateIds);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof StateKey && Arrays.equals(nfaStateIds, ((StateKey) obj).nfaStateIds);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * A DFA state, represented by the sorted IDs of the NFA states it consists of. Successors of
+     * ASCII characters are stored in an array, all others by the range of code points that lead to
+     * them, so the number of cached successors is bounded by the number of distinct ranges in the
+     * NFA transitions, not by the number of distinct code points in the input. Both are read
+     * without synchronization; a missing entry just causes the successor to be calculated again.
+     */
+    private static final class DFAState {
+
+        private static final int ASCII_TABLE_SIZE = 128;
+
+        static final DFAState MATCH = new DFAState(null);
+
+        private final int[] nfaStateIds;
+        private volatile DFAState[] asciiSuccessors;
+        private volatile SuccessorRanges successors = SuccessorRanges.EMPTY;
+        private volatile SuccessorRanges loopBackSuccessors = SuccessorRanges.EMPTY;
+
+        DFAState(int[] nfaStateIds) {
+            this.nfaStateIds = nfaStateIds;
+        }
+
+        int size() {
+            return nfaStateIds.length;
+        }
+
+        boolean isEmpty() {
+            return nfaStateIds.length == 0;
+        }
+
+        int getNFAStateId(int i) {
+            return nfaStateIds[i];
+        }
+
+        DFAState getCachedSuccessor(int c, boolean loopBack) {
+            if (c < ASCII_TABLE_SIZE) {
+                DFAState[] table = asciiSuccessors;
+                return table == null ? null : table[(c << 1) | (loopBack ? 1 : 0)];
+            }
+            return getCachedNonAsciiSuccessor(c, loopBack);
+        }
+
+        @TruffleBoundary
+        private DFAState getCachedNonAsciiSuccessor(int c, boolean loopBack) {
+            return (loopBack ? loopBackSuccessors : successors).get(c);
+        }
+
+        /**
+         * Caches {@code successor} for {@code c}. If {@code c} is not an ASCII character, the
+         * successor is cached for all non-ASCII code points in {@code [lo, hi]}.
+         */
+        synchronized void putSuccessor(int c, int lo, int hi, boolean loopBack, DFAState successor) {
+            if (c < ASCII_TABLE_SIZE) {
+                DFAState[] table = asciiSuccessors;
+                if (table == null) {
+                    table = new DFAState[ASCII_TABLE_SIZE << 1];
+                    asciiSuccessors = table;
+                }
+                table[(c << 1) | (loopBack ? 1 : 0)] = successor;
+            } else if (loopBack) {
+                loopBackSuccessors = loopBackSuccessors.add(Math.max(lo, ASCII_TABLE_SIZE), hi, successor);
+            } else {
+                successors = successors.add(Math.max(lo, ASCII_TABLE_SIZE), hi, successor);
+            }
+        }
+
+        boolean matchesAtEnd(TRegexOnTheFlyDFAExecutorNode executor) {
+            for (int id : nfaStateIds) {
+                if (executor.nfa.getState(id).hasTransitionToFinalState(true)) {
+                    return true;
+                }
+            }
+            return executor.searching && executor.nfa.getState(executor.loopBackStateId).hasTransitionToFinalState(true);
+        }
+    }
+
+    /**
+     * An immutable list of disjoint code point ranges, sorted by their lower bound, and the DFA
+     * state each of them leads to. Ranges calculated by {@link #calcSuccessor} for the same DFA
+     * state are either equal or disjoint, so a new range never overlaps an existing one partially.
+     */
+    private static final class SuccessorRanges {
+
+        static final SuccessorRanges EMPTY = new SuccessorRanges(new int[0], new DFAState[0]);
+
+        private final int[] ranges;
+        private final DFAState[] successors;
+
+        private SuccessorRanges(int[] ranges, DFAState[] successors) {
+            this.ranges = ranges;
+            this.successors = successors;
+        }
+
+        DFAState get(int c) {
+            int low = 0;
+            int high = successors.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (c < ranges[mid << 1]) {
+                    high = mid - 1;
+                } else if (c > ranges[(mid << 1) + 1]) {
+                    low = mid + 1;
+                } else {
+                    return successors[mid];
+                }
+            }
+            return null;
+        }
+
+        SuccessorRanges add(int lo, int hi, DFAState successor) {
+            int low = 0;
+            int high = successors.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (ranges[mid << 1] < lo) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            if (low < successors.length && ranges[low << 1] == lo) {
+                // calculated concurrently by another search
+                return this;
+            }
+            int[] newRanges = new int[ranges.length + 2];
+            DFAState[] newSuccessors = new DFAState[successors.length + 1];
+            System.arraycopy(ranges, 0, newRanges, 0, low << 1);
+            System.arraycopy(successors, 0, newSuccessors, 0, low);
+            newRanges[low << 1] = lo;
+            newRanges[(low << 1) + 1] = hi;
+            newSuccessors[low] = successor;
+            System.arraycopy(ranges, low << 1, newRanges, (low + 1) << 1, ranges.length - (low << 1));
+            System.arraycopy(successors, low, newSuccessors, low + 1, successors.length - low);
+            return new SuccessorRanges(newRanges, newSuccessors);
+        }
+    }
+}
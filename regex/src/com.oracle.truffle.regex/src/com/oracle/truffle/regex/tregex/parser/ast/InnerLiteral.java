@@ -48,14 +48,66 @@ import com.oracle.truffle.regex.tregex.string.AbstractString;
  */
 public class InnerLiteral {
 
+    /**
+     * Characters ordered from most to least common in typical text, source code and log files.
+     * Characters not listed here are considered rarer than all listed ones.
+     */
+    private static final String COMMON_CHARS = " etaoinsrhldcumfpgwybvkxjqz0123456789.,-_/:=\"'()ETAOINSRHLDCUMFPGWYBVKXJQZ\n\t;[]{}<>";
+
     private final AbstractString literal;
     private final AbstractString mask;
     private final int maxPrefixSize;
+    private final int rareInfixOffset;
+    private final AbstractString rareInfix;
+    private final AbstractString rareInfixMask;
 
     public InnerLiteral(AbstractString literal, AbstractString mask, int maxPrefixSize) {
         this.literal = literal;
         this.mask = mask;
         this.maxPrefixSize = maxPrefixSize;
+        this.rareInfixOffset = findRareInfixOffset(literal, mask);
+        this.rareInfix = rareInfixOffset > 0 ? literal.substring(rareInfixOffset, rareInfixOffset + 2) : null;
+        this.rareInfixMask = rareInfixOffset > 0 && mask != null ? mask.substring(rareInfixOffset, rareInfixOffset + 2) : null;
+    }
+
+    /**
+     * Finds the two consecutive encoded characters of the literal that are least likely to occur
+     * in the input. Literal searches use an intrinsified search for two consecutive characters, so
+     * searching for the rarest pair instead of the first two characters of the literal produces
+     * fewer false candidates that have to be compared with the entire literal.
+     */
+    private static int findRareInfixOffset(AbstractString literal, AbstractString mask) {
+        Object content = literal.content();
+        if (literal.encodedLength() < 3 || !(content instanceof String || content instanceof byte[])) {
+            return 0;
+        }
+        int bestOffset = 0;
+        int bestScore = pairScore(content, mask == null ? null : mask.content(), 0);
+        for (int i = 1; i < literal.encodedLength() - 1; i++) {
+            int score = pairScore(content, mask == null ? null : mask.content(), i);
+            if (score > bestScore) {
+                bestOffset = i;
+                bestScore = score;
+            }
+        }
+        return bestOffset;
+    }
+
+    private static int pairScore(Object content, Object maskContent, int i) {
+        int rank1 = rank(content, maskContent, i);
+        int rank2 = rank(content, maskContent, i + 1);
+        return (Math.max(rank1, rank2) << 8) | Math.min(rank1, rank2);
+    }
+
+    private static int rank(Object content, Object maskContent, int i) {
+        int c = content instanceof String ? ((String) content).charAt(i) : Byte.toUnsignedInt(((byte[]) content)[i]);
+        int m = maskContent == null ? 0 : maskContent instanceof String ? ((String) maskContent).charAt(i) : Byte.toUnsignedInt(((byte[]) maskContent)[i]);
+        return Math.min(rank(c), rank(c & ~m));
+    }
+
+    private static int rank(int c) {
+        int index = COMMON_CHARS.indexOf(c);
+        return index < 0 ? COMMON_CHARS.length() : index;
     }
 
     /**
@@ -84,4 +136,25 @@ public class InnerLiteral {
     public int getMaxPrefixSize() {
         return maxPrefixSize;
     }
+
+    /**
+     * The offset of the two consecutive encoded characters of the literal that should be searched
+     * for when looking for the literal, or {@code 0} if the search should start with the first two
+     * characters.
+     */
+    public int getRareInfixOffset() {
+        return rareInfixOffset;
+    }
+
+    /**
+     * The two consecutive encoded characters at {@link #getRareInfixOffset()}, or {@code null} if
+     * the offset is {@code 0}.
+     */
+    public AbstractString getRareInfix() {
+        return rareInfix;
+    }
+
+    public Object getRareInfixMaskContent() {
+        return rareInfixMask == null ? null : rareInfixMask.content();
+    }
 }
@@ -425,12 +425,13 @@ public final class Encodings {
             @Override
             public void createMatcher(Builder matchersBuilder, int i, CodePointSet cps, CompilationBuffer compilationBuffer) {
                 matchersBuilder.createSplitMatcher(i, cps, compilationBuffer, Constants.ASCII_RANGE, Constants.UTF8_TWO_BYTE_RANGE, Constants.UTF8_THREE_BYTE_RANGE, Constants.ASTRAL_SYMBOLS);
+                matchersBuilder.createUTF8LeadByteTransition(i, cps);
             }
 
             @Override
             public Matchers toMatchers(Builder matchersBuilder) {
                 return new Matchers.UTF8Matchers(matchersBuilder.materialize(0), matchersBuilder.materialize(1), matchersBuilder.materialize(2), matchersBuilder.materialize(3),
-                                matchersBuilder.getNoMatchSuccessor());
+                                matchersBuilder.materializeUTF8LeadByteTransitions(), matchersBuilder.getNoMatchSuccessor());
             }
         }
 
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.truffle.regex.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.ToIntBiFunction;
+
+import com.oracle.truffle.regex.RegexInterruptedException;
+
+/**
+ * A thread-safe cache with a least-recently-used eviction policy. The cache is split into shards by
+ * the hash of the key, each of which is guarded by its own lock, so lookups of different keys
+ * rarely contend. Every shard holds at most its share of the maximum number of entries and of the
+ * maximum total weight of the cache.
+ * <p>
+ * Values are computed at most once per key: if several threads look up a missing key at the same
+ * time, one of them computes the value while the others wait for the result. The computation does
+ * not hold the lock of the shard.
+ */
+public final class ConcurrentLRUCache<K, V> {
+
+    private final Shard<K, V>[] shards;
+    private final ToIntBiFunction<? super K, ? super V> weigher;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder computeTimeNanos = new LongAdder();
+
+    /**
+     * @param maxSize the maximum number of entries.
+     * @param maxWeight the maximum sum of the weights of all entries.
+     * @param nShards the number of shards, must be a power of two.
+     * @param weigher calculates the weight of an entry.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ConcurrentLRUCache(int maxSize, long maxWeight, int nShards, ToIntBiFunction<? super K, ? super V> weigher) {
+        assert Integer.bitCount(nShards) == 1;
+        this.shards = new Shard[nShards];
+        for (int i = 0; i < nShards; i++) {
+            shards[i] = new Shard<>(Math.max(1, maxSize / nShards), Math.max(1, maxWeight / nShards));
+        }
+        this.weigher = weigher;
+    }
+
+    /**
+     * Returns the value cached for {@code key}, computing and caching it with {@code compute} if
+     * there is none. If {@code compute} throws an exception, nothing is cached and the exception is
+     * thrown to all threads waiting for the value.
+     */
+    public V get(K key, Function<? super K, ? extends V> compute) {
+        Shard<K, V> shard = shardFor(key);
+        Entry<V> entry;
+        boolean computeHere = false;
+        synchronized (shard) {
+            entry = shard.map.get(key);
+            if (entry == null) {
+                entry = new Entry<>(() -> compute.apply(key));
+                shard.map.put(key, entry);
+                computeHere = true;
+            }
+        }
+        if (!computeHere) {
+            hits.increment();
+            return entry.await();
+        }
+        misses.increment();
+        long start = System.nanoTime();
+        entry.task.run();
+        computeTimeNanos.add(System.nanoTime() - start);
+        V value;
+        try {
+            value = entry.await();
+        } catch (RuntimeException | Error e) {
+            synchronized (shard) {
+                shard.map.remove(key, entry);
+            }
+            throw e;
+        }
+        entry.weight = weigher.applyAsInt(key, value);
+        synchronized (shard) {
+            if (shard.map.get(key) == entry) {
+                shard.weight += entry.weight;
+                evictions.add(shard.evict());
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Returns the number of lookups that found a cached value or a value that was being computed.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of lookups that had to compute their value.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the total time spent computing values, in nanoseconds.
+     */
+    public long getComputeTimeNanos() {
+        return computeTimeNanos.sum();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Shard<K, V> shard : shards) {
+            synchronized (shard) {
+                size += shard.map.size();
+            }
+        }
+        return size;
+    }
+
+    public long weight() {
+        long weight = 0;
+        for (Shard<K, V> shard : shards) {
+            synchronized (shard) {
+                weight += shard.weight;
+            }
+        }
+        return weight;
+    }
+
+    private Shard<K, V> shardFor(K key) {
+        int h = key.hashCode();
+        return shards[(h ^ (h >>> 16)) & (shards.length - 1)];
+    }
+
+    private static final class Shard<K, V> {
+
+        private final int maxSize;
+        private final long maxWeight;
+        private final LinkedHashMap<K, Entry<V>> map = new LinkedHashMap<>(16, 0.75F, true);
+        private long weight;
+
+        Shard(int maxSize, long maxWeight) {
+            this.maxSize = maxSize;
+            this.maxWeight = maxWeight;
+        }
+
+        /**
+         * Removes least recently used entries until the shard fits into its limits. Entries whose
+         * value is still being computed are skipped.
+         *
+         * @return the number of removed entries.
+         */
+        int evict() {
+            int nEvicted = 0;
+            Iterator<Map.Entry<K, Entry<V>>> iterator = map.entrySet().iterator();
+            while ((map.size() > maxSize || weight > maxWeight) && iterator.hasNext()) {
+                Entry<V> entry = iterator.next().getValue();
+                if (entry.task.isDone()) {
+                    iterator.remove();
+                    weight -= entry.weight;
+                    nEvicted++;
+                }
+            }
+            return nEvicted;
+        }
+    }
+
+    private static final class Entry<V> {
+
+        private final FutureTask<V> task;
+        private int weight;
+
+        Entry(Callable<V> compute) {
+            this.task = new FutureTask<>(compute);
+        }
+
+        V await() {
+            try {
+                return task.get();
+            } catch (InterruptedException e) {
+                throw new RegexInterruptedException();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IllegalStateException(cause);
+            }
+        }
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.graalvm.collections.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.graalvm.collections.ConcurrentEconomicMap;
+import org.graalvm.collections.Equivalence;
+import org.graalvm.collections.MapCursor;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConcurrentEconomicMapTest {
+
+    private static final int THREADS = 8;
+    private static final int KEYS_PER_THREAD = 5000;
+
+    @Test
+    public void testSequential() {
+        for (Equivalence strategy : new Equivalence[]{Equivalence.DEFAULT, Equivalence.IDENTITY_WITH_SYSTEM_HASHCODE}) {
+            Random random = new Random(42);
+            ConcurrentEconomicMap<Integer, Object> map = ConcurrentEconomicMap.create(strategy, 4);
+            LinkedHashMap<Integer, Object> reference = new LinkedHashMap<>();
+            Integer[] keys = new Integer[512];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = i;
+            }
+            for (int i = 0; i < 50000; i++) {
+                Integer key = keys[random.nextInt(i < 25000 ? keys.length : 32)];
+                switch (random.nextInt(6)) {
+                    case 0:
+                    case 1:
+                        Assert.assertEquals(reference.put(key, "v" + i), map.put(key, "v" + i));
+                        break;
+                    case 2:
+                        Assert.assertEquals(reference.remove(key), map.removeKey(key));
+                        break;
+                    case 3:
+                        Assert.assertEquals(reference.put(key, null), map.put(key, null));
+                        break;
+                    case 4:
+                        Assert.assertEquals(reference.putIfAbsent(key, i), map.putIfAbsent(key, i));
+                        break;
+                    default:
+                        Assert.assertEquals(reference.containsKey(key), map.containsKey(key));
+                        Assert.assertEquals(reference.get(key), map.get(key));
+                        break;
+                }
+                Assert.assertEquals(reference.size(), map.size());
+            }
+            assertEqualEntries(reference, map);
+            map.clear();
+            Assert.assertTrue(map.isEmpty());
+            Assert.assertFalse(map.getEntries().advance());
+        }
+    }
+
+    private static void assertEqualEntries(Map<Integer, Object> reference, ConcurrentEconomicMap<Integer, Object> map) {
+        MapCursor<Integer, Object> cursor = map.getEntries();
+        Iterator<Integer> keys = map.getKeys().iterator();
+        Iterator<Object> values = map.getValues().iterator();
+        for (Map.Entry<Integer, Object> entry : reference.entrySet()) {
+            Assert.assertTrue(cursor.advance());
+            Assert.assertEquals(entry.getKey(), cursor.getKey());
+            Assert.assertEquals(entry.getValue(), cursor.getValue());
+            Assert.assertEquals(entry.getKey(), keys.next());
+            Assert.assertEquals(entry.getValue(), values.next());
+        }
+        Assert.assertFalse(cursor.advance());
+        Assert.assertFalse(keys.hasNext());
+        Assert.assertFalse(values.hasNext());
+    }
+
+    @Test
+    public void testCursorRemove() {
+        ConcurrentEconomicMap<Integer, Integer> map = ConcurrentEconomicMap.create();
+        for (int i = 0; i < 1000; i++) {
+            map.put(i, i);
+        }
+        MapCursor<Integer, Integer> cursor = map.getEntries();
+        while (cursor.advance()) {
+            if (cursor.getKey() % 3 != 0) {
+                cursor.remove();
+            }
+        }
+        Assert.assertEquals(334, map.size());
+        int expected = 0;
+        for (Integer key : map.getKeys()) {
+            Assert.assertEquals(expected, (int) key);
+            expected += 3;
+        }
+        map.replaceAll((key, value) -> -value);
+        Assert.assertEquals(-999, (int) map.get(999));
+        Assert.assertNull(map.get(998));
+    }
+
+    @Test
+    public void testConcurrentInsertionOrder() throws InterruptedException {
+        ConcurrentEconomicMap<String, Integer> map = ConcurrentEconomicMap.create();
+        runConcurrently(thread -> {
+            for (int i = 0; i < KEYS_PER_THREAD; i++) {
+                String key = thread + ":" + i;
+                Assert.assertNull(map.put(key, i));
+                Assert.assertEquals(i, (int) map.get(key));
+                if (i % 7 == 0) {
+                    Assert.assertEquals(i, (int) map.removeKey(key));
+                }
+            }
+        });
+        int expectedSize = THREADS * (KEYS_PER_THREAD - (KEYS_PER_THREAD + 6) / 7);
+        Assert.assertEquals(expectedSize, map.size());
+
+        // Keys added by the same thread must be iterated in the order they were added.
+        int[] lastIndex = new int[THREADS];
+        Arrays.fill(lastIndex, -1);
+        int count = 0;
+        MapCursor<String, Integer> cursor = map.getEntries();
+        while (cursor.advance()) {
+            String[] parts = cursor.getKey().split(":");
+            int thread = Integer.parseInt(parts[0]);
+            int index = Integer.parseInt(parts[1]);
+            Assert.assertTrue(index > lastIndex[thread]);
+            Assert.assertNotEquals(0, index % 7);
+            Assert.assertEquals(index, (int) cursor.getValue());
+            lastIndex[thread] = index;
+            count++;
+        }
+        Assert.assertEquals(expectedSize, count);
+    }
+
+    @Test
+    public void testComputeIfAbsentOnce() throws InterruptedException {
+        ConcurrentEconomicMap<Integer, Object> map = ConcurrentEconomicMap.create();
+        AtomicInteger computations = new AtomicInteger();
+        runConcurrently(thread -> {
+            for (int i = 0; i < KEYS_PER_THREAD; i++) {
+                Object value = map.computeIfAbsent(i, key -> {
+                    computations.incrementAndGet();
+                    return "v" + key;
+                });
+                Assert.assertEquals("v" + i, value);
+            }
+        });
+        Assert.assertEquals(KEYS_PER_THREAD, computations.get());
+        Assert.assertEquals(KEYS_PER_THREAD, map.size());
+    }
+
+    @Test
+    public void testConcurrentReadsDuringGrowth() throws InterruptedException {
+        ConcurrentEconomicMap<Integer, Integer> map = ConcurrentEconomicMap.create(Equivalence.DEFAULT, 2);
+        for (int i = 0; i < 64; i++) {
+            map.put(i, i);
+        }
+        runConcurrently(thread -> {
+            if (thread == 0) {
+                for (int i = 64; i < THREADS * KEYS_PER_THREAD; i++) {
+                    map.put(i, i);
+                }
+            } else {
+                // Keys present from the beginning must never be missed while tables are resized.
+                for (int i = 0; i < KEYS_PER_THREAD * 10; i++) {
+                    int key = i & 63;
+                    Assert.assertEquals(key, (int) map.get(key));
+                }
+            }
+        });
+        List<Integer> keys = new ArrayList<>();
+        for (Integer key : map.getKeys()) {
+            keys.add(key);
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            Assert.assertEquals(i, (int) keys.get(i));
+        }
+    }
+
+    interface ThreadAction {
+        void run(int thread);
+    }
+
+    private static void runConcurrently(ThreadAction action) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Throwable> failures = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            int thread = i;
+            Thread t = new Thread(() -> {
+                try {
+                    start.await();
+                    action.run(thread);
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            });
+            t.start();
+            threads.add(t);
+        }
+        start.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+        if (!failures.isEmpty()) {
+            throw new AssertionError(failures.get(0));
+        }
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.graalvm.collections.test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+
+import org.graalvm.collections.Equivalence;
+import org.graalvm.collections.IntEconomicSet;
+import org.graalvm.collections.IntIntEconomicMap;
+import org.graalvm.collections.IntObjectEconomicMap;
+import org.graalvm.collections.LongEconomicSet;
+import org.graalvm.collections.LongObjectEconomicMap;
+import org.graalvm.collections.ObjectIntEconomicMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PrimitiveEconomicMapTest {
+
+    private static final int ITERATIONS = 20000;
+
+    /**
+     * Returns a random key from a range that varies over time so that maps repeatedly cross the
+     * threshold of the hash index and accumulate deleted entries.
+     */
+    private static int randomKey(Random random, int iteration) {
+        int range = (iteration / 1000) % 3 == 0 ? 6 : ((iteration / 1000) % 3 == 1 ? 64 : 1024);
+        return random.nextInt(range) - range / 2;
+    }
+
+    @Test
+    public void testIntObjectMap() {
+        Random random = new Random(42);
+        IntObjectEconomicMap<Object> map = IntObjectEconomicMap.create();
+        LinkedHashMap<Integer, Object> reference = new LinkedHashMap<>();
+        for (int i = 0; i < ITERATIONS; i++) {
+            int key = randomKey(random, i);
+            switch (random.nextInt(5)) {
+                case 0:
+                case 1:
+                    Assert.assertEquals(reference.put(key, "v" + i), map.put(key, "v" + i));
+                    break;
+                case 2:
+                    Assert.assertEquals(reference.remove(key), map.removeKey(key));
+                    break;
+                case 3:
+                    Assert.assertEquals(reference.containsKey(key), map.containsKey(key));
+                    Assert.assertEquals(reference.get(key), map.get(key));
+                    break;
+                default:
+                    removeEveryOtherEntry(map, reference);
+                    break;
+            }
+            Assert.assertEquals(reference.size(), map.size());
+        }
+        assertEqualEntries(reference, map);
+        IntObjectEconomicMap<Object> copy = IntObjectEconomicMap.create(map);
+        assertEqualEntries(reference, copy);
+        map.clear();
+        Assert.assertTrue(map.isEmpty());
+        assertEqualEntries(reference, copy);
+    }
+
+    private static void removeEveryOtherEntry(IntObjectEconomicMap<Object> map, LinkedHashMap<Integer, Object> reference) {
+        boolean remove = false;
+        IntObjectEconomicMap.Cursor<Object> cursor = map.getEntries();
+        Iterator<Map.Entry<Integer, Object>> referenceIterator = reference.entrySet().iterator();
+        while (cursor.advance()) {
+            Map.Entry<Integer, Object> entry = referenceIterator.next();
+            Assert.assertEquals((int) entry.getKey(), cursor.getKey());
+            Assert.assertEquals(entry.getValue(), cursor.getValue());
+            if (remove) {
+                cursor.remove();
+                referenceIterator.remove();
+            }
+            remove = !remove;
+        }
+        Assert.assertFalse(referenceIterator.hasNext());
+    }
+
+    private static void assertEqualEntries(LinkedHashMap<Integer, Object> reference, IntObjectEconomicMap<Object> map) {
+        Assert.assertEquals(reference.size(), map.size());
+        IntObjectEconomicMap.Cursor<Object> cursor = map.getEntries();
+        int[] keys = map.getKeys();
+        int index = 0;
+        for (Map.Entry<Integer, Object> entry : reference.entrySet()) {
+            Assert.assertTrue(cursor.advance());
+            Assert.assertEquals((int) entry.getKey(), cursor.getKey());
+            Assert.assertEquals(entry.getValue(), cursor.getValue());
+            Assert.assertEquals((int) entry.getKey(), keys[index++]);
+        }
+        Assert.assertFalse(cursor.advance());
+    }
+
+    @Test
+    public void testLongObjectMap() {
+        Random random = new Random(43);
+        LongObjectEconomicMap<Object> map = LongObjectEconomicMap.create(16);
+        LinkedHashMap<Long, Object> reference = new LinkedHashMap<>();
+        for (int i = 0; i < ITERATIONS; i++) {
+            // Use keys that only differ in the upper half.
+            long key = ((long) randomKey(random, i)) << 32;
+            switch (random.nextInt(3)) {
+                case 0:
+                    Assert.assertEquals(reference.put(key, i), map.put(key, i));
+                    break;
+                case 1:
+                    Assert.assertEquals(reference.remove(key), map.removeKey(key));
+                    break;
+                default:
+                    Assert.assertEquals(reference.get(key), map.get(key));
+                    break;
+            }
+            Assert.assertEquals(reference.size(), map.size());
+        }
+        LongObjectEconomicMap.Cursor<Object> cursor = map.getEntries();
+        for (Map.Entry<Long, Object> entry : reference.entrySet()) {
+            Assert.assertTrue(cursor.advance());
+            Assert.assertEquals((long) entry.getKey(), cursor.getKey());
+            Assert.assertEquals(entry.getValue(), cursor.getValue());
+        }
+        Assert.assertFalse(cursor.advance());
+    }
+
+    @Test
+    public void testIntIntMap() {
+        Random random = new Random(44);
+        IntIntEconomicMap map = IntIntEconomicMap.create();
+        LinkedHashMap<Integer, Integer> reference = new LinkedHashMap<>();
+        for (int i = 0; i < ITERATIONS; i++) {
+            int key = randomKey(random, i);
+            switch (random.nextInt(4)) {
+                case 0:
+                    map.put(key, i);
+                    reference.put(key, i);
+                    break;
+                case 1:
+                    Assert.assertEquals(reference.remove(key) != null, map.removeKey(key));
+                    break;
+                case 2:
+                    Assert.assertEquals((int) reference.merge(key, 3, Integer::sum), map.addTo(key, 3));
+                    break;
+                default:
+                    Assert.assertEquals((int) reference.getOrDefault(key, -1), map.get(key, -1));
+                    break;
+            }
+            Assert.assertEquals(reference.size(), map.size());
+        }
+        IntIntEconomicMap copy = IntIntEconomicMap.create(map);
+        IntIntEconomicMap.Cursor cursor = copy.getEntries();
+        for (Map.Entry<Integer, Integer> entry : reference.entrySet()) {
+            Assert.assertTrue(cursor.advance());
+            Assert.assertEquals((int) entry.getKey(), cursor.getKey());
+            Assert.assertEquals((int) entry.getValue(), cursor.getValue());
+        }
+        Assert.assertFalse(cursor.advance());
+    }
+
+    @Test
+    public void testObjectIntMap() {
+        for (Equivalence strategy : new Equivalence[]{Equivalence.DEFAULT, Equivalence.IDENTITY, Equivalence.IDENTITY_WITH_SYSTEM_HASHCODE}) {
+            Random random = new Random(45);
+            List<String> keys = new ArrayList<>();
+            for (int i = 0; i < 1024; i++) {
+                keys.add("key" + i);
+            }
+            ObjectIntEconomicMap<String> map = ObjectIntEconomicMap.create(strategy);
+            LinkedHashMap<String, Integer> reference = new LinkedHashMap<>();
+            for (int i = 0; i < ITERATIONS; i++) {
+                String key = keys.get(Math.abs(randomKey(random, i)));
+                switch (random.nextInt(3)) {
+                    case 0:
+                        map.put(key, i);
+                        reference.put(key, i);
+                        break;
+                    case 1:
+                        Assert.assertEquals(reference.remove(key) != null, map.removeKey(key));
+                        break;
+                    default:
+                        Assert.assertEquals((int) reference.getOrDefault(key, -1), map.get(key, -1));
+                        break;
+                }
+                Assert.assertEquals(reference.size(), map.size());
+            }
+            ObjectIntEconomicMap.Cursor<String> cursor = map.getEntries();
+            for (Map.Entry<String, Integer> entry : reference.entrySet()) {
+                Assert.assertTrue(cursor.advance());
+                Assert.assertSame(entry.getKey(), cursor.getKey());
+                Assert.assertEquals((int) entry.getValue(), cursor.getValue());
+            }
+            Assert.assertFalse(cursor.advance());
+        }
+    }
+
+    @Test
+    public void testObjectIntMapEquivalence() {
+        ObjectIntEconomicMap<String> map = ObjectIntEconomicMap.create(Equivalence.DEFAULT);
+        map.put(new String("a"), 1);
+        Assert.assertEquals(1, map.get(new String("a"), -1));
+        ObjectIntEconomicMap<String> identityMap = ObjectIntEconomicMap.create(Equivalence.IDENTITY);
+        identityMap.put(new String("a"), 1);
+        Assert.assertEquals(-1, identityMap.get(new String("a"), -1));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testObjectIntMapPutNull() {
+        ObjectIntEconomicMap<Object> map = ObjectIntEconomicMap.create();
+        map.put(null, 0);
+    }
+
+    @Test
+    public void testIntSet() {
+        Random random = new Random(46);
+        IntEconomicSet set = IntEconomicSet.create();
+        LinkedHashSet<Integer> reference = new LinkedHashSet<>();
+        for (int i = 0; i < ITERATIONS; i++) {
+            int element = randomKey(random, i);
+            switch (random.nextInt(4)) {
+                case 0:
+                case 1:
+                    Assert.assertEquals(reference.add(element), set.add(element));
+                    break;
+                case 2:
+                    Assert.assertEquals(reference.remove(element), set.remove(element));
+                    break;
+                default:
+                    Assert.assertEquals(reference.contains(element), set.contains(element));
+                    break;
+            }
+            if (i % 997 == 0) {
+                PrimitiveIterator.OfInt iterator = set.iterator();
+                Iterator<Integer> referenceIterator = reference.iterator();
+                while (iterator.hasNext()) {
+                    int next = iterator.nextInt();
+                    Assert.assertEquals((int) referenceIterator.next(), next);
+                    if ((next & 1) == 0) {
+                        iterator.remove();
+                        referenceIterator.remove();
+                    }
+                }
+                Assert.assertFalse(referenceIterator.hasNext());
+            }
+            Assert.assertEquals(reference.size(), set.size());
+        }
+        int[] elements = set.toArray();
+        int index = 0;
+        for (int element : reference) {
+            Assert.assertEquals(element, elements[index++]);
+        }
+        Assert.assertEquals(elements.length, IntEconomicSet.create(set).size());
+    }
+
+    @Test
+    public void testLongSet() {
+        LongEconomicSet set = LongEconomicSet.create();
+        for (long i = 0; i < 100; i++) {
+            Assert.assertTrue(set.add(i << 32));
+        }
+        for (long i = 0; i < 100; i += 2) {
+            Assert.assertTrue(set.remove(i << 32));
+        }
+        Assert.assertEquals(50, set.size());
+        PrimitiveIterator.OfLong iterator = set.iterator();
+        for (long i = 1; i < 100; i += 2) {
+            Assert.assertTrue(set.contains(i << 32));
+            Assert.assertEquals(i << 32, iterator.nextLong());
+        }
+        Assert.assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testToString() {
+        IntObjectEconomicMap<String> map = IntObjectEconomicMap.create();
+        map.put(1, "a");
+        map.put(2, "b");
+        Assert.assertEquals("map(size=2, {(1,a),(2,b)})", map.toString());
+        IntEconomicSet set = IntEconomicSet.create();
+        set.add(3);
+        set.add(4);
+        Assert.assertEquals("set(size=2, {3,4})", set.toString());
+    }
+}
@@ -0,0 +1,838 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.graalvm.collections;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Thread-safe map that always preserves insertion order when iterating over keys. In contrast to
+ * wrapping an {@link EconomicMap} with an external lock or using a
+ * {@link java.util.concurrent.ConcurrentHashMap} and sorting its entries afterwards, reads never
+ * block, writes only lock one of several independent segments and iteration reports the entries in
+ * the order in which they were added. If the entries are added in a deterministic order, for
+ * example because each key is only added by a deterministic phase, the iteration order is
+ * therefore deterministic too.
+ *
+ * Like {@link EconomicMap}, it supports a {@code null} value, but it does not support adding or
+ * looking up a {@code null} key. Keys are compared with the {@link Equivalence} strategy given on
+ * creation.
+ *
+ * The entries are distributed over a fixed number of segments by the hash of their key. Each
+ * segment is guarded by its own lock and holds a hash table of {@link Entry} objects. Lookups
+ * traverse these tables without locking; a miss is only trusted if the segment was not resized
+ * concurrently, otherwise the lookup is repeated while holding the segment lock. Independently of
+ * the segments, all entries are linked in a single list in insertion order that is appended to
+ * without locking. Removed entries are marked and skipped by iteration and unlinked from that list
+ * once their number becomes significant.
+ *
+ * Iteration is weakly consistent: it never throws {@link java.util.ConcurrentModificationException}
+ * and reports every entry that was added before the iteration started and not removed in the
+ * meantime. It may or may not report entries added or removed concurrently.
+ *
+ * @since 20.3
+ */
+public final class ConcurrentEconomicMap<K, V> implements EconomicMap<K, V> {
+
+    /**
+     * Default number of segments that can be modified concurrently.
+     */
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+    /**
+     * Maximum number of segments.
+     */
+    private static final int MAX_CONCURRENCY_LEVEL = 1 << 16;
+
+    /**
+     * Number of buckets allocated for the first table of a segment.
+     */
+    private static final int INITIAL_TABLE_SIZE = 4;
+
+    /**
+     * Minimum number of removed entries before the insertion order list is compacted.
+     */
+    private static final int MIN_COMPACTION_THRESHOLD = 16;
+
+    /**
+     * Value of removed entries.
+     */
+    private static final Object REMOVED = new Object();
+
+    /**
+     * Value stored for {@code null} values.
+     */
+    private static final Object NULL_VALUE = new Object();
+
+    @SuppressWarnings("rawtypes") private static final AtomicReferenceFieldUpdater<ConcurrentEconomicMap, Entry> TAIL_UPDATER = AtomicReferenceFieldUpdater.newUpdater(
+                    ConcurrentEconomicMap.class, Entry.class, "tail");
+
+    /**
+     * The strategy used for comparing keys or {@code null} for denoting special strategy
+     * {@link Equivalence#IDENTITY}.
+     */
+    private final Equivalence strategy;
+
+    private final Segment<K, V>[] segments;
+
+    /**
+     * Number of high bits of the hash that are not used for selecting the segment.
+     */
+    private final int segmentShift;
+
+    /**
+     * Sentinel heading the list of entries in insertion order. Never removed.
+     */
+    private final Entry<K, V> head = new Entry<>(null, 0, null);
+
+    /**
+     * Sentinel that terminates the insertion order list of entries removed by {@link #clear()}, so
+     * that iterations over these entries do not wait for an append that will never happen.
+     */
+    private final Entry<K, V> end = new Entry<>(null, 0, REMOVED);
+
+    /**
+     * Last entry of the insertion order list.
+     */
+    private volatile Entry<K, V> tail = head;
+
+    /**
+     * Number of removed entries that are still linked in the insertion order list.
+     */
+    private final AtomicInteger removedEntries = new AtomicInteger();
+
+    /**
+     * Guards unlinking removed entries from the insertion order list.
+     */
+    private final ReentrantLock compactionLock = new ReentrantLock();
+
+    /**
+     * Creates a new map that guarantees insertion order on the key set with the default
+     * {@link Equivalence#DEFAULT} comparison strategy for keys.
+     *
+     * @since 20.3
+     */
+    public static <K, V> ConcurrentEconomicMap<K, V> create() {
+        return create(Equivalence.DEFAULT);
+    }
+
+    /**
+     * Creates a new map that guarantees insertion order on the key set with the given comparison
+     * strategy for keys.
+     *
+     * @since 20.3
+     */
+    public static <K, V> ConcurrentEconomicMap<K, V> create(Equivalence strategy) {
+        return create(strategy, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    /**
+     * Creates a new map that guarantees insertion order on the key set with the given comparison
+     * strategy for keys. The {@code concurrencyLevel} is the estimated number of threads that
+     * modify the map concurrently.
+     *
+     * @since 20.3
+     */
+    public static <K, V> ConcurrentEconomicMap<K, V> create(Equivalence strategy, int concurrencyLevel) {
+        if (concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("concurrency level must be positive");
+        }
+        return new ConcurrentEconomicMap<>(strategy, concurrencyLevel);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private ConcurrentEconomicMap(Equivalence strategy, int concurrencyLevel) {
+        if (strategy == Equivalence.IDENTITY) {
+            this.strategy = null;
+        } else {
+            this.strategy = strategy;
+        }
+        int bits = 0;
+        while ((1 << bits) < Math.min(concurrencyLevel, MAX_CONCURRENCY_LEVEL)) {
+            bits++;
+        }
+        this.segmentShift = Integer.SIZE - bits;
+        this.segments = new Segment[1 << bits];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment<>();
+        }
+    }
+
+    /**
+     * An entry of the map. The {@link #next} field links the entries of the same bucket of a
+     * segment table, the {@link #orderNext} field links all entries in insertion order.
+     */
+    private static final class Entry<K, V> {
+        final K key;
+        final int hash;
+        volatile Object value;
+        volatile Entry<K, V> next;
+        volatile Entry<K, V> orderNext;
+
+        Entry(K key, int hash, Object value) {
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+        }
+
+        boolean isRemoved() {
+            return value == REMOVED;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static final class Segment<K, V> extends ReentrantLock {
+
+        /**
+         * Buckets of the hash table or {@code null} if nothing was added to this segment yet.
+         */
+        volatile AtomicReferenceArray<Entry<K, V>> table;
+
+        /**
+         * Incremented before and after every resize of the table. Odd while a resize is in
+         * progress.
+         */
+        volatile int resizeStamp;
+
+        volatile int count;
+    }
+
+    private int hash(Object key) {
+        int hash;
+        if (strategy != null && strategy != Equivalence.DEFAULT) {
+            if (strategy == Equivalence.IDENTITY_WITH_SYSTEM_HASHCODE) {
+                hash = System.identityHashCode(key);
+            } else {
+                hash = strategy.hashCode(key);
+            }
+        } else {
+            hash = key.hashCode();
+        }
+        // Spread the low bits to the high bits that are used for selecting the segment.
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private boolean compareKeys(Object key, Object entryKey) {
+        if (key == entryKey) {
+            return true;
+        }
+        if (strategy != null && strategy != Equivalence.IDENTITY_WITH_SYSTEM_HASHCODE) {
+            if (strategy == Equivalence.DEFAULT) {
+                return key.equals(entryKey);
+            } else {
+                return strategy.equals(key, entryKey);
+            }
+        }
+        return false;
+    }
+
+    private Segment<K, V> segmentFor(int hash) {
+        return segments[segmentShift == Integer.SIZE ? 0 : hash >>> segmentShift];
+    }
+
+    private static void checkKeyNonNull(Object key) {
+        if (key == null) {
+            throw new UnsupportedOperationException("null not supported as key!");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V unmask(Object value) {
+        return value == NULL_VALUE ? null : (V) value;
+    }
+
+    private static Object mask(Object value) {
+        return value == null ? NULL_VALUE : value;
+    }
+
+    /**
+     * Finds the live entry for {@code key} without locking. Returns {@code null} if there is none.
+     */
+    private Entry<K, V> find(Object key, int hash, Segment<K, V> segment) {
+        int stamp = segment.resizeStamp;
+        AtomicReferenceArray<Entry<K, V>> table = segment.table;
+        if (table != null) {
+            for (Entry<K, V> e = table.get(hash & (table.length() - 1)); e != null; e = e.next) {
+                if (e.hash == hash && compareKeys(key, e.key)) {
+                    return e.isRemoved() ? null : e;
+                }
+            }
+        }
+        if ((stamp & 1) == 0 && stamp == segment.resizeStamp) {
+            return null;
+        }
+        // The table was resized concurrently. Entries might have been moved to other buckets.
+        segment.lock();
+        try {
+            return findLocked(key, hash, segment);
+        } finally {
+            segment.unlock();
+        }
+    }
+
+    private Entry<K, V> findLocked(Object key, int hash, Segment<K, V> segment) {
+        assert segment.isHeldByCurrentThread();
+        AtomicReferenceArray<Entry<K, V>> table = segment.table;
+        if (table != null) {
+            for (Entry<K, V> e = table.get(hash & (table.length() - 1)); e != null; e = e.next) {
+                if (e.hash == hash && compareKeys(key, e.key)) {
+                    return e;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 20.3
+     */
+    @Override
+    public V get(K key) {
+        checkKeyNonNull(key);
+        int hash = hash(key);
+        Entry<K, V> e = find(key, hash, segmentFor(hash));
+        if (e == null) {
+            return null;
+        }
+        Object value = e.value;
+        return value == REMOVED ? null : unmask(value);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 20.3
+     */
+    @Override
+    public boolean containsKey(K key) {
+        if (key == null) {
+            return false;
+        }
+        int hash = hash(key);
+        return find(key, hash, segmentFor(hash)) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 20.3
+     */
+    @Override
+    public V put(K key, V value) {
+        checkKeyNonNull(key);
+        int hash = hash(key);
+        Segment<K, V> segment = segmentFor(hash);
+        segment.lock();
+        try {
+            Entry<K, V> e = findLocked(key, hash, segment);
+            if (e != null) {
+                Object oldValue = e.value;
+                e.value = mask(value);
+                return unmask(oldValue);
+            }
+            insertLocked(key, hash, mask(value), segment);
+            return null;
+        } finally {
+            segment.unlock();
+        }
+    }
+
+    /**
+     * Atomically associates {@code value} with {@code key} if the key is not already associated
+     * with a value or is mapped to {@code null}.
+     *
+     * @since 20.3
+     */
+    @Override
+    public V putIfAbsent(K key, V value) {
+        checkKeyNonNull(key);
+        int hash = hash(key);
+        Segment<K, V> segment = segmentFor(hash);
+        Entry<K, V> existing = find(key, hash, segment);
+        if (existing != null) {
+            Object current = existing.value;
+            if (current != REMOVED && current != NULL_VALUE) {
+                return unmask(current);
+            }
+        }
+        segment.lock();
+        try {
+            Entry<K, V> e = findLocked(key, hash, segment);
+            if (e != null) {
+                Object current = e.value;
+                if (current != NULL_VALUE) {
+                    return unmask(current);
+                }
+                e.value = mask(value);
+                return null;
+            }
+            insertLocked(key, hash, mask(value), segment);
+            return null;
+        } finally {
+            segment.unlock();
+        }
+    }
+
+    /**
+     * Returns the value associated with {@code key}. If the key is not already associated with a
+     * value or is mapped to {@code null}, the value is computed with {@code mappingFunction} and
+     * associated with {@code key} unless it is {@code null}. The function is called at most once
+     * per key even if multiple threads request the same key concurrently. It must not modify this
+     * map.
+     *
+     * @return the current (existing or computed) value associated with {@code key}, or
+     *         {@code null} if the computed value is {@code null}
+     * @since 20.3
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        checkKeyNonNull(key);
+        int hash = hash(key);
+        Segment<K, V> segment = segmentFor(hash);
+        Entry<K, V> existing = find(key, hash, segment);
+        if (existing != null) {
+            Object current = existing.value;
+            if (current != REMOVED && current != NULL_VALUE) {
+                return unmask(current);
+            }
+        }
+        segment.lock();
+        try {
+            Entry<K, V> e = findLocked(key, hash, segment);
+            if (e != null && e.value != NULL_VALUE) {
+                return unmask(e.value);
+            }
+            V value = mappingFunction.apply(key);
+            if (value != null) {
+                if (e != null) {
+                    e.value = value;
+                } else {
+                    insertLocked(key, hash, value, segment);
+                }
+            }
+            return value;
+        } finally {
+            segment.unlock();
+        }
+    }
+
+    private void insertLocked(K key, int hash, Object maskedValue, Segment<K, V> segment) {
+        assert segment.isHeldByCurrentThread();
+        AtomicReferenceArray<Entry<K, V>> table = segment.table;
+        if (table == null) {
+            table = new AtomicReferenceArray<>(INITIAL_TABLE_SIZE);
+            segment.table = table;
+        } else if (segment.count >= table.length() - (table.length() >> 2)) {
+            table = resizeLocked(segment);
+        }
+        Entry<K, V> e = new Entry<>(key, hash, maskedValue);
+        int index = hash & (table.length() - 1);
+        e.next = table.get(index);
+        appendToOrder(e);
+        table.set(index, e);
+        segment.count = segment.count + 1;
+    }
+
+    /**
+     * Doubles the size of the table of {@code segment}. The entries are relinked into the new
+     * table, so concurrent lookups that traverse the old table might miss entries. They detect this
+     * by checking {@link Segment#resizeStamp}.
+     */
+    private static <K, V> AtomicReferenceArray<Entry<K, V>> resizeLocked(Segment<K, V> segment) {
+        AtomicReferenceArray<Entry<K, V>> oldTable = segment.table;
+        AtomicReferenceArray<Entry<K, V>> newTable = new AtomicReferenceArray<>(oldTable.length() << 1);
+        int mask = newTable.length() - 1;
+        segment.resizeStamp = segment.resizeStamp + 1;
+        for (int i = 0; i < oldTable.length(); i++) {
+            Entry<K, V> e = oldTable.get(i);
+            while (e != null) {
+                Entry<K, V> next = e.next;
+                int index = e.hash & mask;
+                e.next = newTable.get(index);
+                newTable.set(index, e);
+                e = next;
+            }
+        }
+        segment.table = newTable;
+        segment.resizeStamp = segment.resizeStamp + 1;
+        return newTable;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void appendToOrder(Entry<K, V> e) {
+        Entry<K, V> previous = TAIL_UPDATER.getAndSet(this, e);
+        previous.orderNext = e;
+    }
+
+    /**
+     * Returns the entry following {@code e} in insertion order. If another thread is just appending
+     * after {@code e}, waits until the entry is linked so that entries added by completed puts are
+     * never missed.
+     */
+    private Entry<K, V> nextInOrder(Entry<K, V> e) {
+        Entry<K, V> next = e.orderNext;
+        while (next == null && e != tail) {
+            Thread.yield();
+            next = e.orderNext;
+        }
+        return next == end ? null : next;
+    }
+
+    private Entry<K, V> nextLiveInOrder(Entry<K, V> e) {
+        Entry<K, V> next = nextInOrder(e);
+        while (next != null && next.isRemoved()) {
+            next = nextInOrder(next);
+        }
+        return next;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 20.3
+     */
+    @Override
+    public V removeKey(K key) {
+        checkKeyNonNull(key);
+        int hash = hash(key);
+        Segment<K, V> segment = segmentFor(hash);
+        Object oldValue;
+        segment.lock();
+        try {
+            Entry<K, V> e = findLocked(key, hash, segment);
+            if (e == null) {
+                return null;
+            }
+            oldValue = e.value;
+            removeLocked(e, segment);
+        } finally {
+            segment.unlock();
+        }
+        maybeCompact();
+        return unmask(oldValue);
+    }
+
+    /**
+     * Removes {@code entry} if it is still part of the map.
+     */
+    private void removeEntry(Entry<K, V> entry) {
+        Segment<K, V> segment = segmentFor(entry.hash);
+        segment.lock();
+        try {
+            if (entry.isRemoved()) {
+                return;
+            }
+            removeLocked(entry, segment);
+        } finally {
+            segment.unlock();
+        }
+        maybeCompact();
+    }
+
+    private void removeLocked(Entry<K, V> entry, Segment<K, V> segment) {
+        assert segment.isHeldByCurrentThread();
+        AtomicReferenceArray<Entry<K, V>> table = segment.table;
+        int index = entry.hash & (table.length() - 1);
+        Entry<K, V> e = table.get(index);
+        if (e == entry) {
+            table.set(index, entry.next);
+        } else {
+            while (e.next != entry) {
+                e = e.next;
+            }
+            // Concurrent lookups that are at the removed entry can continue via its next link.
+            e.next = entry.next;
+        }
+        entry.value = REMOVED;
+        segment.count = segment.count - 1;
+        removedEntries.incrementAndGet();
+    }
+
+    /**
+     * Unlinks removed entries from the insertion order list if they make up a significant part of
+     * it. The last entry of the list is never unlinked as another thread might be appending to it.
+     */
+    private void maybeCompact() {
+        int removed = removedEntries.get();
+        if (removed < MIN_COMPACTION_THRESHOLD || removed < size() || !compactionLock.tryLock()) {
+            return;
+        }
+        try {
+            Entry<K, V> previous = head;
+            Entry<K, V> current;
+            while ((current = previous.orderNext) != null) {
+                Entry<K, V> next = current.orderNext;
+                if (current.isRemoved() && next != null) {
+                    // Concurrent iterators at the removed entry can continue via its order link.
+                    previous.orderNext = next;
+                    removedEntries.decrementAndGet();
+                } else {
+                    previous = current;
+                }
+            }
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 20.3
+     */
+    @Override
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            size += segment.count;
+        }
+        return size;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 20.3
+     */
+    @Override
+    public boolean isEmpty() {
+        for (Segment<K, V> segment : segments) {
+            if (segment.count != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes all of the mappings from this map. Mappings added concurrently may or may not be
+     * removed.
+     *
+     * @since 20.3
+     */
+    @Override
+    public void clear() {
+        compactionLock.lock();
+        for (Segment<K, V> segment : segments) {
+            segment.lock();
+        }
+        try {
+            for (Entry<K, V> e = head.orderNext; e != null; e = e.orderNext) {
+                e.value = REMOVED;
+            }
+            if (tail != head) {
+                tail.orderNext = end;
+            }
+            for (Segment<K, V> segment : segments) {
+                segment.table = null;
+                segment.count = 0;
+            }
+            head.orderNext = null;
+            tail = head;
+            removedEntries.set(0);
+        } finally {
+            for (Segment<K, V> segment : segments) {
+                segment.unlock();
+            }
+            compactionLock.unlock();
+        }
+    }
+
+    /**
+     * Replaces each value with the result of invoking {@code function} on its entry, in insertion
+     * order. The function is called while the segment of the entry is locked and must not modify
+     * this map.
+     *
+     * @since 20.3
+     */
+    @Override
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        for (Entry<K, V> e = nextLiveInOrder(head); e != null; e = nextLiveInOrder(e)) {
+            Segment<K, V> segment = segmentFor(e.hash);
+            segment.lock();
+            try {
+                Object value = e.value;
+                if (value != REMOVED) {
+                    e.value = mask(function.apply(e.key, unmask(value)));
+                }
+            } finally {
+                segment.unlock();
+            }
+        }
+    }
+
+    private abstract class OrderIterator<E> implements Iterator<E> {
+
+        private Entry<K, V> current = head;
+        private Entry<K, V> next = nextLiveInOrder(head);
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public E next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            current = next;
+            next = nextLiveInOrder(current);
+            return get(current);
+        }
+
+        abstract E get(Entry<K, V> entry);
+
+        @Override
+        public void remove() {
+            if (current == head) {
+                throw new IllegalStateException();
+            }
+            removeEntry(current);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 20.3
+     */
+    @Override
+    public Iterable<V> getValues() {
+        return new Iterable<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new OrderIterator<V>() {
+                    @Override
+                    V get(Entry<K, V> entry) {
+                        Object value = entry.value;
+                        return value == REMOVED ? null : unmask(value);
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 20.3
+     */
+    @Override
+    public Iterable<K> getKeys() {
+        return new Iterable<K>() {
+            @Override
+            public Iterator<K> iterator() {
+                return new OrderIterator<K>() {
+                    @Override
+                    K get(Entry<K, V> entry) {
+                        return entry.key;
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 20.3
+     */
+    @Override
+    public MapCursor<K, V> getEntries() {
+        return new MapCursor<K, V>() {
+            Entry<K, V> current = head;
+
+            @Override
+            public boolean advance() {
+                Entry<K, V> next = nextLiveInOrder(current);
+                if (next == null) {
+                    return false;
+                }
+                current = next;
+                return true;
+            }
+
+            @Override
+            public K getKey() {
+                return current.key;
+            }
+
+            @Override
+            public V getValue() {
+                Object value = current.value;
+                return value == REMOVED ? null : unmask(value);
+            }
+
+            @Override
+            public void remove() {
+                removeEntry(current);
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 20.3
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("map(size=").append(size()).append(", {");
+        String sep = "";
+        MapCursor<K, V> cursor = getEntries();
+        while (cursor.advance()) {
+            builder.append(sep).append("(").append(cursor.getKey()).append(",").append(cursor.getValue()).append(")");
+            sep = ",";
+        }
+        builder.append("})");
+        return builder.toString();
+    }
+}
@@ -0,0 +1,369 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.graalvm.collections;
+
+import java.util.Arrays;
+
+/**
+ * Memory efficient map from primitive {@code int} keys to primitive {@code int} values that always
+ * preserves insertion order when iterating over keys. In contrast to an {@link EconomicMap} with
+ * {@link Integer} keys and values, neither keys nor values are boxed. Keys and values are kept in
+ * two flat arrays; a hash index is only created once the map holds more than a few entries.
+ *
+ * @since 20.3
+ */
+public final class IntIntEconomicMap extends PrimitiveEconomicMapBase {
+
+    private int[] keys;
+    private int[] values;
+
+    /**
+     * Creates a new map.
+     *
+     * @since 20.3
+     */
+    public static IntIntEconomicMap create() {
+        return new IntIntEconomicMap();
+    }
+
+    /**
+     * Creates a new map with the expected number of entries.
+     *
+     * @since 20.3
+     */
+    public static IntIntEconomicMap create(int initialCapacity) {
+        IntIntEconomicMap map = new IntIntEconomicMap();
+        map.init(initialCapacity);
+        return map;
+    }
+
+    /**
+     * Creates a new map with the same entries and in the same order as {@code other}.
+     *
+     * @since 20.3
+     */
+    public static IntIntEconomicMap create(IntIntEconomicMap other) {
+        IntIntEconomicMap map = new IntIntEconomicMap();
+        map.initFrom(other);
+        if (other.keys != null) {
+            map.keys = other.keys.clone();
+            map.values = other.values.clone();
+        }
+        return map;
+    }
+
+    private IntIntEconomicMap() {
+    }
+
+    /**
+     * Returns the value to which {@code key} is mapped, or {@code defaultValue} if this map
+     * contains no mapping for {@code key}.
+     *
+     * @since 20.3
+     */
+    public int get(int key, int defaultValue) {
+        int index = find(key);
+        if (index == -1) {
+            return defaultValue;
+        }
+        return values[index];
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for {@code key}.
+     *
+     * @since 20.3
+     */
+    public boolean containsKey(int key) {
+        return find(key) != -1;
+    }
+
+    /**
+     * Associates {@code value} with {@code key} in this map. If the map previously contained a
+     * mapping for {@code key}, the old value is replaced by {@code value} and the key keeps its
+     * position in the iteration order.
+     *
+     * @since 20.3
+     */
+    public void put(int key, int value) {
+        int index = find(key);
+        if (index != -1) {
+            values[index] = value;
+            return;
+        }
+        index = appendEntry();
+        keys[index] = key;
+        values[index] = value;
+        linkEntry(index, hash(key));
+    }
+
+    /**
+     * Adds {@code delta} to the value associated with {@code key}. If there is no mapping for
+     * {@code key} yet, it is associated with {@code delta}.
+     *
+     * @return the new value associated with {@code key}
+     * @since 20.3
+     */
+    public int addTo(int key, int delta) {
+        int index = find(key);
+        if (index != -1) {
+            values[index] += delta;
+            return values[index];
+        }
+        index = appendEntry();
+        keys[index] = key;
+        values[index] = delta;
+        linkEntry(index, hash(key));
+        return delta;
+    }
+
+    /**
+     * Removes the mapping for {@code key} from this map if it is present.
+     *
+     * @return {@code true} if this map contained a mapping for {@code key}
+     * @since 20.3
+     */
+    public boolean removeKey(int key) {
+        int index = find(key);
+        if (index == -1) {
+            return false;
+        }
+        removeEntry(index);
+        return true;
+    }
+
+    /**
+     * Returns the number of mappings in this map.
+     *
+     * @since 20.3
+     */
+    public int size() {
+        return count();
+    }
+
+    /**
+     * Returns {@code true} if this map contains no mappings.
+     *
+     * @since 20.3
+     */
+    public boolean isEmpty() {
+        return count() == 0;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     *
+     * @since 20.3
+     */
+    public void clear() {
+        reset();
+    }
+
+    /**
+     * Returns the keys of this map in insertion order.
+     *
+     * @since 20.3
+     */
+    public int[] getKeys() {
+        int[] result = new int[count()];
+        int z = 0;
+        for (int i = nextLive(0); i < totalEntries; i = nextLive(i + 1)) {
+            result[z++] = keys[i];
+        }
+        return result;
+    }
+
+    /**
+     * Returns a cursor over the entries of this map in insertion order.
+     *
+     * @since 20.3
+     */
+    public Cursor getEntries() {
+        return new Cursor() {
+            int current = -1;
+
+            @Override
+            public boolean advance() {
+                current = nextLive(current + 1);
+                return current < totalEntries;
+            }
+
+            @Override
+            public int getKey() {
+                return keys[current];
+            }
+
+            @Override
+            public int getValue() {
+                return values[current];
+            }
+
+            @Override
+            public void setValue(int newValue) {
+                values[current] = newValue;
+            }
+
+            @Override
+            public void remove() {
+                current = removeEntry(current) - 1;
+            }
+        };
+    }
+
+    /**
+     * Cursor to iterate over the entries of an {@link IntIntEconomicMap}.
+     *
+     * @since 20.3
+     */
+    public interface Cursor {
+        /**
+         * Moves the cursor to the next entry.
+         *
+         * @return {@code true} if there are more entries, {@code false} otherwise
+         * @since 20.3
+         */
+        boolean advance();
+
+        /**
+         * Returns the key of the current entry.
+         *
+         * @since 20.3
+         */
+        int getKey();
+
+        /**
+         * Returns the value of the current entry.
+         *
+         * @since 20.3
+         */
+        int getValue();
+
+        /**
+         * Replaces the value of the current entry.
+         *
+         * @since 20.3
+         */
+        void setValue(int newValue);
+
+        /**
+         * Removes the current entry from the map. May only be called once. After calling
+         * {@link #remove()}, it is no longer valid to call {@link #getKey()} or {@link #getValue()}
+         * on the current entry.
+         *
+         * @since 20.3
+         */
+        void remove();
+    }
+
+    private int find(int key) {
+        if (hasHashTable()) {
+            for (int i = firstInBucket(hash(key)); i != -1; i = nextInBucket(i)) {
+                if (keys[i] == key) {
+                    return i;
+                }
+            }
+        } else {
+            for (int i = 0; i < totalEntries; i++) {
+                if (keys[i] == key) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    int capacity() {
+        return keys == null ? 0 : keys.length;
+    }
+
+    @Override
+    void resize(int newCapacity) {
+        if (keys == null) {
+            keys = new int[newCapacity];
+            values = new int[newCapacity];
+        } else {
+            keys = Arrays.copyOf(keys, newCapacity);
+            values = Arrays.copyOf(values, newCapacity);
+        }
+    }
+
+    @Override
+    void moveEntry(int from, int to) {
+        keys[to] = keys[from];
+        values[to] = values[from];
+    }
+
+    @Override
+    void clearEntry(int index) {
+        // No references to clear.
+    }
+
+    @Override
+    void releaseEntries() {
+        keys = null;
+        values = null;
+    }
+
+    @Override
+    int hashAt(int index) {
+        return hash(keys[index]);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 20.3
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("map(size=").append(size()).append(", {");
+        String sep = "";
+        Cursor cursor = getEntries();
+        while (cursor.advance()) {
+            builder.append(sep).append("(").append(cursor.getKey()).append(",").append(cursor.getValue()).append(")");
+            sep = ",";
+        }
+        builder.append("})");
+        return builder.toString();
+    }
+}
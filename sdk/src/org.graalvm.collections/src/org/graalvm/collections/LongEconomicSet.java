@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.graalvm.collections;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Memory efficient set of primitive {@code long} values that always preserves insertion order when
+ * iterating. In contrast to an {@link EconomicSet} of {@link Long} elements, elements are not
+ * boxed. Elements are kept in a flat array; a hash index is only created once the set holds more
+ * than a few elements.
+ *
+ * @since 20.3
+ */
+public final class LongEconomicSet extends PrimitiveEconomicMapBase {
+
+    private long[] elements;
+
+    /**
+     * Creates a new set.
+     *
+     * @since 20.3
+     */
+    public static LongEconomicSet create() {
+        return new LongEconomicSet();
+    }
+
+    /**
+     * Creates a new set with the expected number of elements.
+     *
+     * @since 20.3
+     */
+    public static LongEconomicSet create(int initialCapacity) {
+        LongEconomicSet set = new LongEconomicSet();
+        set.init(initialCapacity);
+        return set;
+    }
+
+    /**
+     * Creates a new set with the same elements and in the same order as {@code other}.
+     *
+     * @since 20.3
+     */
+    public static LongEconomicSet create(LongEconomicSet other) {
+        LongEconomicSet set = new LongEconomicSet();
+        set.initFrom(other);
+        if (other.elements != null) {
+            set.elements = other.elements.clone();
+        }
+        return set;
+    }
+
+    private LongEconomicSet() {
+    }
+
+    /**
+     * Returns {@code true} if this set contains {@code element}.
+     *
+     * @since 20.3
+     */
+    public boolean contains(long element) {
+        return find(element) != -1;
+    }
+
+    /**
+     * Adds {@code element} to this set if it is not already present.
+     *
+     * @return {@code true} if this set did not already contain {@code element}
+     * @since 20.3
+     */
+    public boolean add(long element) {
+        if (find(element) != -1) {
+            return false;
+        }
+        int index = appendEntry();
+        elements[index] = element;
+        linkEntry(index, hash(element));
+        return true;
+    }
+
+    /**
+     * Removes {@code element} from this set if it is present.
+     *
+     * @return {@code true} if this set contained {@code element}
+     * @since 20.3
+     */
+    public boolean remove(long element) {
+        int index = find(element);
+        if (index == -1) {
+            return false;
+        }
+        removeEntry(index);
+        return true;
+    }
+
+    /**
+     * Returns the number of elements in this set.
+     *
+     * @since 20.3
+     */
+    public int size() {
+        return count();
+    }
+
+    /**
+     * Returns {@code true} if this set contains no elements.
+     *
+     * @since 20.3
+     */
+    public boolean isEmpty() {
+        return count() == 0;
+    }
+
+    /**
+     * Removes all of the elements from this set.
+     *
+     * @since 20.3
+     */
+    public void clear() {
+        reset();
+    }
+
+    /**
+     * Returns the elements of this set in insertion order.
+     *
+     * @since 20.3
+     */
+    public long[] toArray() {
+        long[] result = new long[count()];
+        int z = 0;
+        for (int i = nextLive(0); i < totalEntries; i = nextLive(i + 1)) {
+            result[z++] = elements[i];
+        }
+        return result;
+    }
+
+    /**
+     * Returns an iterator over the elements of this set in insertion order. The iterator supports
+     * removal.
+     *
+     * @since 20.3
+     */
+    public PrimitiveIterator.OfLong iterator() {
+        return new PrimitiveIterator.OfLong() {
+            int current = nextLive(0);
+            int last = -1;
+
+            @Override
+            public boolean hasNext() {
+                return current < totalEntries;
+            }
+
+            @Override
+            public long nextLong() {
+                if (current >= totalEntries) {
+                    throw new NoSuchElementException();
+                }
+                last = current;
+                current = nextLive(current + 1);
+                return elements[last];
+            }
+
+            @Override
+            public void remove() {
+                if (last == -1) {
+                    throw new IllegalStateException();
+                }
+                current = nextLive(removeEntry(last));
+                last = -1;
+            }
+        };
+    }
+
+    private int find(long element) {
+        if (hasHashTable()) {
+            for (int i = firstInBucket(hash(element)); i != -1; i = nextInBucket(i)) {
+                if (elements[i] == element) {
+                    return i;
+                }
+            }
+        } else {
+            for (int i = 0; i < totalEntries; i++) {
+                if (elements[i] == element) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    int capacity() {
+        return elements == null ? 0 : elements.length;
+    }
+
+    @Override
+    void resize(int newCapacity) {
+        if (elements == null) {
+            elements = new long[newCapacity];
+        } else {
+            elements = Arrays.copyOf(elements, newCapacity);
+        }
+    }
+
+    @Override
+    void moveEntry(int from, int to) {
+        elements[to] = elements[from];
+    }
+
+    @Override
+    void clearEntry(int index) {
+        // No references to clear.
+    }
+
+    @Override
+    void releaseEntries() {
+        elements = null;
+    }
+
+    @Override
+    int hashAt(int index) {
+        return hash(elements[index]);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 20.3
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("set(size=").append(size()).append(", {");
+        String sep = "";
+        for (int i = nextLive(0); i < totalEntries; i = nextLive(i + 1)) {
+            builder.append(sep).append(elements[i]);
+            sep = ",";
+        }
+        builder.append("})");
+        return builder.toString();
+    }
+}
@@ -0,0 +1,390 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.graalvm.collections;
+
+import java.util.Arrays;
+
+/**
+ * Memory efficient map from primitive {@code long} keys to object values that always preserves
+ * insertion order when iterating over keys. In contrast to an {@link EconomicMap} with
+ * {@link Long} keys, keys are neither boxed nor compared with {@link Object#equals(Object)}.
+ * Keys and values are kept in two flat arrays; a hash index is only created once the map holds more
+ * than a few entries.
+ *
+ * @param <V> the type of mapped values
+ * @since 20.3
+ */
+public final class LongObjectEconomicMap<V> extends PrimitiveEconomicMapBase {
+
+    private long[] keys;
+    private Object[] values;
+
+    /**
+     * Creates a new map.
+     *
+     * @since 20.3
+     */
+    public static <V> LongObjectEconomicMap<V> create() {
+        return new LongObjectEconomicMap<>();
+    }
+
+    /**
+     * Creates a new map with the expected number of entries.
+     *
+     * @since 20.3
+     */
+    public static <V> LongObjectEconomicMap<V> create(int initialCapacity) {
+        LongObjectEconomicMap<V> map = new LongObjectEconomicMap<>();
+        map.init(initialCapacity);
+        return map;
+    }
+
+    /**
+     * Creates a new map with the same entries and in the same order as {@code other}.
+     *
+     * @since 20.3
+     */
+    public static <V> LongObjectEconomicMap<V> create(LongObjectEconomicMap<V> other) {
+        LongObjectEconomicMap<V> map = new LongObjectEconomicMap<>();
+        map.initFrom(other);
+        if (other.keys != null) {
+            map.keys = other.keys.clone();
+            map.values = other.values.clone();
+        }
+        return map;
+    }
+
+    private LongObjectEconomicMap() {
+    }
+
+    /**
+     * Returns the value to which {@code key} is mapped, or {@code null} if this map contains no
+     * mapping for {@code key}.
+     *
+     * @since 20.3
+     */
+    public V get(long key) {
+        return get(key, null);
+    }
+
+    /**
+     * Returns the value to which {@code key} is mapped, or {@code defaultValue} if this map
+     * contains no mapping for {@code key}.
+     *
+     * @since 20.3
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key, V defaultValue) {
+        int index = find(key);
+        if (index == -1) {
+            return defaultValue;
+        }
+        return (V) values[index];
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for {@code key}.
+     *
+     * @since 20.3
+     */
+    public boolean containsKey(long key) {
+        return find(key) != -1;
+    }
+
+    /**
+     * Associates {@code value} with {@code key} in this map. If the map previously contained a
+     * mapping for {@code key}, the old value is replaced by {@code value} and the key keeps its
+     * position in the iteration order.
+     *
+     * @return the previous value associated with {@code key}, or {@code null} if there was no
+     *         mapping for {@code key}
+     * @since 20.3
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        int index = find(key);
+        if (index != -1) {
+            Object oldValue = values[index];
+            values[index] = value;
+            return (V) oldValue;
+        }
+        index = appendEntry();
+        keys[index] = key;
+        values[index] = value;
+        linkEntry(index, hash(key));
+        return null;
+    }
+
+    /**
+     * Associates {@code value} with {@code key} in this map if the map does not contain a mapping
+     * for {@code key} yet.
+     *
+     * @return the value associated with {@code key} before this call, or {@code null}
+     * @since 20.3
+     */
+    public V putIfAbsent(long key, V value) {
+        V previous = get(key);
+        if (previous == null) {
+            put(key, value);
+        }
+        return previous;
+    }
+
+    /**
+     * Removes the mapping for {@code key} from this map if it is present.
+     *
+     * @return the value previously associated with {@code key}, or {@code null} if there was no
+     *         mapping for {@code key}
+     * @since 20.3
+     */
+    @SuppressWarnings("unchecked")
+    public V removeKey(long key) {
+        int index = find(key);
+        if (index == -1) {
+            return null;
+        }
+        Object oldValue = values[index];
+        removeEntry(index);
+        return (V) oldValue;
+    }
+
+    /**
+     * Returns the number of mappings in this map.
+     *
+     * @since 20.3
+     */
+    public int size() {
+        return count();
+    }
+
+    /**
+     * Returns {@code true} if this map contains no mappings.
+     *
+     * @since 20.3
+     */
+    public boolean isEmpty() {
+        return count() == 0;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     *
+     * @since 20.3
+     */
+    public void clear() {
+        reset();
+    }
+
+    /**
+     * Returns the keys of this map in insertion order.
+     *
+     * @since 20.3
+     */
+    public long[] getKeys() {
+        long[] result = new long[count()];
+        int z = 0;
+        for (int i = nextLive(0); i < totalEntries; i = nextLive(i + 1)) {
+            result[z++] = keys[i];
+        }
+        return result;
+    }
+
+    /**
+     * Returns a cursor over the entries of this map in insertion order.
+     *
+     * @since 20.3
+     */
+    public Cursor<V> getEntries() {
+        return new Cursor<V>() {
+            int current = -1;
+
+            @Override
+            public boolean advance() {
+                current = nextLive(current + 1);
+                return current < totalEntries;
+            }
+
+            @Override
+            public long getKey() {
+                return keys[current];
+            }
+
+            @SuppressWarnings("unchecked")
+            @Override
+            public V getValue() {
+                return (V) values[current];
+            }
+
+            @Override
+            public V setValue(V newValue) {
+                @SuppressWarnings("unchecked")
+                V oldValue = (V) values[current];
+                values[current] = newValue;
+                return oldValue;
+            }
+
+            @Override
+            public void remove() {
+                current = removeEntry(current) - 1;
+            }
+        };
+    }
+
+    /**
+     * Cursor to iterate over the entries of an {@link LongObjectEconomicMap}.
+     *
+     * @since 20.3
+     */
+    public interface Cursor<V> {
+        /**
+         * Moves the cursor to the next entry.
+         *
+         * @return {@code true} if there are more entries, {@code false} otherwise
+         * @since 20.3
+         */
+        boolean advance();
+
+        /**
+         * Returns the key of the current entry.
+         *
+         * @since 20.3
+         */
+        long getKey();
+
+        /**
+         * Returns the value of the current entry.
+         *
+         * @since 20.3
+         */
+        V getValue();
+
+        /**
+         * Replaces the value of the current entry.
+         *
+         * @return the previous value of the current entry
+         * @since 20.3
+         */
+        V setValue(V newValue);
+
+        /**
+         * Removes the current entry from the map. May only be called once. After calling
+         * {@link #remove()}, it is no longer valid to call {@link #getKey()} or {@link #getValue()}
+         * on the current entry.
+         *
+         * @since 20.3
+         */
+        void remove();
+    }
+
+    private int find(long key) {
+        if (hasHashTable()) {
+            for (int i = firstInBucket(hash(key)); i != -1; i = nextInBucket(i)) {
+                if (keys[i] == key) {
+                    return i;
+                }
+            }
+        } else {
+            for (int i = 0; i < totalEntries; i++) {
+                if (keys[i] == key) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    int capacity() {
+        return keys == null ? 0 : keys.length;
+    }
+
+    @Override
+    void resize(int newCapacity) {
+        if (keys == null) {
+            keys = new long[newCapacity];
+            values = new Object[newCapacity];
+        } else {
+            keys = Arrays.copyOf(keys, newCapacity);
+            values = Arrays.copyOf(values, newCapacity);
+        }
+    }
+
+    @Override
+    void moveEntry(int from, int to) {
+        keys[to] = keys[from];
+        values[to] = values[from];
+    }
+
+    @Override
+    void clearEntry(int index) {
+        values[index] = null;
+    }
+
+    @Override
+    void releaseEntries() {
+        keys = null;
+        values = null;
+    }
+
+    @Override
+    int hashAt(int index) {
+        return hash(keys[index]);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 20.3
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("map(size=").append(size()).append(", {");
+        String sep = "";
+        Cursor<V> cursor = getEntries();
+        while (cursor.advance()) {
+            builder.append(sep).append("(").append(cursor.getKey()).append(",").append(cursor.getValue()).append(")");
+            sep = ",";
+        }
+        builder.append("})");
+        return builder.toString();
+    }
+}
@@ -0,0 +1,413 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.graalvm.collections;
+
+import java.util.Arrays;
+
+/**
+ * Memory efficient map from object keys to primitive {@code int} values that always preserves
+ * insertion order when iterating over keys. In contrast to an {@link EconomicMap} with
+ * {@link Integer} values, values are not boxed. Keys and values are kept in two flat arrays; a hash
+ * index is only created once the map holds more than a few entries. Keys are compared with the
+ * {@link Equivalence} strategy given on creation.
+ *
+ * @param <K> the type of keys maintained by this map
+ * @since 20.3
+ */
+public final class ObjectIntEconomicMap<K> extends PrimitiveEconomicMapBase {
+
+    private Object[] keys;
+    private int[] values;
+
+    /**
+     * The strategy used for comparing keys or {@code null} for denoting special strategy
+     * {@link Equivalence#IDENTITY}.
+     */
+    private final Equivalence strategy;
+
+    /**
+     * Creates a new map that guarantees insertion order on the key set with the default
+     * {@link Equivalence#DEFAULT} comparison strategy for keys.
+     *
+     * @since 20.3
+     */
+    public static <K> ObjectIntEconomicMap<K> create() {
+        return create(Equivalence.DEFAULT);
+    }
+
+    /**
+     * Creates a new map that guarantees insertion order on the key set with the given comparison
+     * strategy for keys.
+     *
+     * @since 20.3
+     */
+    public static <K> ObjectIntEconomicMap<K> create(Equivalence strategy) {
+        return new ObjectIntEconomicMap<>(strategy);
+    }
+
+    /**
+     * Creates a new map with the expected number of entries and the given comparison strategy for
+     * keys.
+     *
+     * @since 20.3
+     */
+    public static <K> ObjectIntEconomicMap<K> create(Equivalence strategy, int initialCapacity) {
+        ObjectIntEconomicMap<K> map = new ObjectIntEconomicMap<>(strategy);
+        map.init(initialCapacity);
+        return map;
+    }
+
+    /**
+     * Creates a new map with the same entries, in the same order and with the same comparison
+     * strategy as {@code other}.
+     *
+     * @since 20.3
+     */
+    public static <K> ObjectIntEconomicMap<K> create(ObjectIntEconomicMap<K> other) {
+        ObjectIntEconomicMap<K> map = new ObjectIntEconomicMap<>(other.strategy == null ? Equivalence.IDENTITY : other.strategy);
+        map.initFrom(other);
+        if (other.keys != null) {
+            map.keys = other.keys.clone();
+            map.values = other.values.clone();
+        }
+        return map;
+    }
+
+    private ObjectIntEconomicMap(Equivalence strategy) {
+        if (strategy == Equivalence.IDENTITY) {
+            this.strategy = null;
+        } else {
+            this.strategy = strategy;
+        }
+    }
+
+    /**
+     * Returns the value to which {@code key} is mapped, or {@code defaultValue} if this map
+     * contains no mapping for {@code key}.
+     *
+     * @since 20.3
+     */
+    public int get(K key, int defaultValue) {
+        int index = find(key);
+        if (index == -1) {
+            return defaultValue;
+        }
+        return values[index];
+    }
+
+    /**
+     * Returns {@code true} if this map contains a mapping for {@code key}.
+     *
+     * @since 20.3
+     */
+    public boolean containsKey(K key) {
+        return find(key) != -1;
+    }
+
+    /**
+     * Associates {@code value} with {@code key} in this map. If the map previously contained a
+     * mapping for {@code key}, the old value is replaced by {@code value} and the key keeps its
+     * position in the iteration order.
+     *
+     * @since 20.3
+     */
+    public void put(K key, int value) {
+        int index = find(key);
+        if (index != -1) {
+            values[index] = value;
+            return;
+        }
+        index = appendEntry();
+        keys[index] = key;
+        values[index] = value;
+        linkEntry(index, hashOf(key));
+    }
+
+    /**
+     * Adds {@code delta} to the value associated with {@code key}. If there is no mapping for
+     * {@code key} yet, it is associated with {@code delta}.
+     *
+     * @return the new value associated with {@code key}
+     * @since 20.3
+     */
+    public int addTo(K key, int delta) {
+        int index = find(key);
+        if (index != -1) {
+            values[index] += delta;
+            return values[index];
+        }
+        index = appendEntry();
+        keys[index] = key;
+        values[index] = delta;
+        linkEntry(index, hashOf(key));
+        return delta;
+    }
+
+    /**
+     * Removes the mapping for {@code key} from this map if it is present.
+     *
+     * @return {@code true} if this map contained a mapping for {@code key}
+     * @since 20.3
+     */
+    public boolean removeKey(K key) {
+        int index = find(key);
+        if (index == -1) {
+            return false;
+        }
+        removeEntry(index);
+        return true;
+    }
+
+    /**
+     * Returns the number of mappings in this map.
+     *
+     * @since 20.3
+     */
+    public int size() {
+        return count();
+    }
+
+    /**
+     * Returns {@code true} if this map contains no mappings.
+     *
+     * @since 20.3
+     */
+    public boolean isEmpty() {
+        return count() == 0;
+    }
+
+    /**
+     * Removes all of the mappings from this map.
+     *
+     * @since 20.3
+     */
+    public void clear() {
+        reset();
+    }
+
+    /**
+     * Returns a cursor over the entries of this map in insertion order.
+     *
+     * @since 20.3
+     */
+    public Cursor<K> getEntries() {
+        return new Cursor<K>() {
+            int current = -1;
+
+            @Override
+            public boolean advance() {
+                current = nextLive(current + 1);
+                return current < totalEntries;
+            }
+
+            @SuppressWarnings("unchecked")
+            @Override
+            public K getKey() {
+                return (K) keys[current];
+            }
+
+            @Override
+            public int getValue() {
+                return values[current];
+            }
+
+            @Override
+            public void setValue(int newValue) {
+                values[current] = newValue;
+            }
+
+            @Override
+            public void remove() {
+                current = removeEntry(current) - 1;
+            }
+        };
+    }
+
+    /**
+     * Cursor to iterate over the entries of an {@link ObjectIntEconomicMap}.
+     *
+     * @since 20.3
+     */
+    public interface Cursor<K> {
+        /**
+         * Moves the cursor to the next entry.
+         *
+         * @return {@code true} if there are more entries, {@code false} otherwise
+         * @since 20.3
+         */
+        boolean advance();
+
+        /**
+         * Returns the key of the current entry.
+         *
+         * @since 20.3
+         */
+        K getKey();
+
+        /**
+         * Returns the value of the current entry.
+         *
+         * @since 20.3
+         */
+        int getValue();
+
+        /**
+         * Replaces the value of the current entry.
+         *
+         * @since 20.3
+         */
+        void setValue(int newValue);
+
+        /**
+         * Removes the current entry from the map. May only be called once. After calling
+         * {@link #remove()}, it is no longer valid to call {@link #getKey()} or {@link #getValue()}
+         * on the current entry.
+         *
+         * @since 20.3
+         */
+        void remove();
+    }
+
+    private int find(K key) {
+        if (key == null) {
+            throw new UnsupportedOperationException("null not supported as key!");
+        }
+        if (hasHashTable()) {
+            for (int i = firstInBucket(hashOf(key)); i != -1; i = nextInBucket(i)) {
+                if (compareKeys(key, keys[i])) {
+                    return i;
+                }
+            }
+        } else {
+            for (int i = 0; i < totalEntries; i++) {
+                if (compareKeys(key, keys[i])) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private boolean compareKeys(Object key, Object entryKey) {
+        if (key == entryKey) {
+            return true;
+        }
+        if (strategy != null && strategy != Equivalence.IDENTITY_WITH_SYSTEM_HASHCODE) {
+            if (strategy == Equivalence.DEFAULT) {
+                return key.equals(entryKey);
+            } else {
+                return strategy.equals(key, entryKey);
+            }
+        }
+        return false;
+    }
+
+    private int hashOf(Object key) {
+        int hash;
+        if (strategy != null && strategy != Equivalence.DEFAULT) {
+            if (strategy == Equivalence.IDENTITY_WITH_SYSTEM_HASHCODE) {
+                hash = System.identityHashCode(key);
+            } else {
+                hash = strategy.hashCode(key);
+            }
+        } else {
+            hash = key.hashCode();
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    @Override
+    int capacity() {
+        return keys == null ? 0 : keys.length;
+    }
+
+    @Override
+    void resize(int newCapacity) {
+        if (keys == null) {
+            keys = new Object[newCapacity];
+            values = new int[newCapacity];
+        } else {
+            keys = Arrays.copyOf(keys, newCapacity);
+            values = Arrays.copyOf(values, newCapacity);
+        }
+    }
+
+    @Override
+    void moveEntry(int from, int to) {
+        keys[to] = keys[from];
+        values[to] = values[from];
+    }
+
+    @Override
+    void clearEntry(int index) {
+        keys[index] = null;
+    }
+
+    @Override
+    void releaseEntries() {
+        keys = null;
+        values = null;
+    }
+
+    @Override
+    int hashAt(int index) {
+        return hashOf(keys[index]);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @since 20.3
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("map(size=").append(size()).append(", {");
+        String sep = "";
+        Cursor<K> cursor = getEntries();
+        while (cursor.advance()) {
+            builder.append(sep).append("(").append(cursor.getKey()).append(",").append(cursor.getValue()).append(")");
+            sep = ",";
+        }
+        builder.append("})");
+        return builder.toString();
+    }
+}
@@ -0,0 +1,359 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.graalvm.collections;
+
+/**
+ * Shared storage management of the primitive-specialized economic maps and sets. Subclasses keep
+ * keys and values in flat arrays indexed by entry number in insertion order; this class keeps track
+ * of the number of entries and maintains the optional hash index over them.
+ *
+ * If the collection has smaller or equal to {@link #HASH_THRESHOLD} entries, there is no hash index
+ * and lookups are done via linear checking of the keys. Entries removed in this state are
+ * immediately compacted by moving the following entries one position forward.
+ *
+ * Once the hash index is constructed, {@link #hashTable} maps the hash of a key to the entry number
+ * plus one of the most recently added entry in that bucket, and {@link #chain} links the entries of
+ * a bucket in the same way. Removed entries are unlinked from their bucket and marked with
+ * {@link #DELETED} in the {@link #chain} array. If the number of removed entries exceeds a specific
+ * threshold, the entries are compacted via the {@link #compress(int)} method.
+ */
+abstract class PrimitiveEconomicMapBase {
+
+    /**
+     * Initial number of entries that is allocated in the first entries array.
+     */
+    static final int INITIAL_CAPACITY = 4;
+
+    /**
+     * Minimum number of entries added when the entries array is increased in size.
+     */
+    private static final int MIN_CAPACITY_INCREASE = 8;
+
+    /**
+     * Number of entries above which a hash index is created. Comparing primitive keys is cheap, so
+     * this is the same as the threshold used for identity comparison in {@link EconomicMapImpl}.
+     */
+    private static final int HASH_THRESHOLD = 8;
+
+    /**
+     * Maximum number of entries allowed in the map.
+     */
+    private static final int MAX_ELEMENT_COUNT = Integer.MAX_VALUE >> 1;
+
+    /**
+     * Marker in the {@link #chain} array for a removed entry.
+     */
+    private static final int DELETED = -1;
+
+    /**
+     * Total number of entries (actual entries plus deleted entries).
+     */
+    int totalEntries;
+
+    /**
+     * Number of deleted entries.
+     */
+    private int deletedEntries;
+
+    /**
+     * Bucket heads of the hash index holding the entry number plus one, or {@code null} if the
+     * collection is small enough to be searched linearly.
+     */
+    private int[] hashTable;
+
+    /**
+     * Entry number plus one of the next entry in the same bucket, {@code 0} for the end of the
+     * bucket or {@link #DELETED} for removed entries. Allocated together with {@link #hashTable}.
+     */
+    private int[] chain;
+
+    /**
+     * Returns the number of entries that fit into the currently allocated entries arrays.
+     */
+    abstract int capacity();
+
+    /**
+     * Reallocates the entries arrays such that they can hold {@code newCapacity} entries, keeping
+     * the first {@link #totalEntries} entries.
+     */
+    abstract void resize(int newCapacity);
+
+    /**
+     * Moves the entry at index {@code from} to index {@code to}.
+     */
+    abstract void moveEntry(int from, int to);
+
+    /**
+     * Clears any references held by the entry at {@code index}.
+     */
+    abstract void clearEntry(int index);
+
+    /**
+     * Releases the entries arrays.
+     */
+    abstract void releaseEntries();
+
+    /**
+     * Returns the hash of the key stored at {@code index}.
+     */
+    abstract int hashAt(int index);
+
+    static int hash(int key) {
+        int hash = key * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    static int hash(long key) {
+        return hash((int) (key ^ (key >>> 32)));
+    }
+
+    final void init(int initialCapacity) {
+        if (initialCapacity > INITIAL_CAPACITY) {
+            resize(initialCapacity);
+        }
+    }
+
+    final void initFrom(PrimitiveEconomicMapBase other) {
+        totalEntries = other.totalEntries;
+        deletedEntries = other.deletedEntries;
+        if (other.hashTable != null) {
+            hashTable = other.hashTable.clone();
+            chain = other.chain.clone();
+        }
+    }
+
+    final int count() {
+        return totalEntries - deletedEntries;
+    }
+
+    final void reset() {
+        releaseEntries();
+        hashTable = null;
+        chain = null;
+        totalEntries = deletedEntries = 0;
+    }
+
+    final boolean hasHashTable() {
+        return hashTable != null;
+    }
+
+    /**
+     * Returns the index of the most recently added entry whose key has the given hash, or
+     * {@code -1}. Only valid if {@link #hasHashTable()}.
+     */
+    final int firstInBucket(int hash) {
+        return hashTable[hash & (hashTable.length - 1)] - 1;
+    }
+
+    /**
+     * Returns the index of the next entry in the same bucket as the entry at {@code index}, or
+     * {@code -1}. Only valid if {@link #hasHashTable()}.
+     */
+    final int nextInBucket(int index) {
+        return chain[index] - 1;
+    }
+
+    /**
+     * Returns the first index greater or equal to {@code index} that holds an entry, or
+     * {@link #totalEntries} if there is none.
+     */
+    final int nextLive(int index) {
+        int current = index;
+        if (chain != null) {
+            while (current < totalEntries && chain[current] == DELETED) {
+                current++;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Reserves the next entry at the end of the entries arrays and returns its index. The caller
+     * must initialize the entry and then call {@link #linkEntry(int, int)}.
+     */
+    final int appendEntry() {
+        if (totalEntries == capacity()) {
+            grow();
+        }
+        return totalEntries++;
+    }
+
+    /**
+     * Adds a newly appended entry to the hash index or creates the hash index if necessary.
+     */
+    final void linkEntry(int index, int hash) {
+        if (hashTable != null) {
+            int bucket = hash & (hashTable.length - 1);
+            chain[index] = hashTable[bucket];
+            hashTable[bucket] = index + 1;
+        } else if (totalEntries > HASH_THRESHOLD) {
+            createHash();
+        }
+    }
+
+    private void grow() {
+        int capacity = capacity();
+        if (capacity == 0) {
+            resize(INITIAL_CAPACITY);
+            return;
+        }
+        if (deletedEntries > 0 && deletedEntries >= (totalEntries >> 2)) {
+            // Reuse the space of deleted entries instead of growing.
+            compress(totalEntries);
+            return;
+        }
+        int newCapacity = capacity + Math.max(MIN_CAPACITY_INCREASE, capacity >> 1);
+        if (newCapacity > MAX_ELEMENT_COUNT) {
+            throw new UnsupportedOperationException("map grown too large!");
+        }
+        resize(newCapacity);
+        if (hashTable != null) {
+            createHash();
+        }
+    }
+
+    private void createHash() {
+        // Calculate smallest 2^n that is greater or equal the number of entries.
+        int size = HASH_THRESHOLD;
+        while (size < capacity()) {
+            size <<= 1;
+        }
+        int[] newHashTable = new int[size];
+        int[] newChain = new int[capacity()];
+        for (int i = 0; i < totalEntries; i++) {
+            if (chain != null && chain[i] == DELETED) {
+                newChain[i] = DELETED;
+            } else {
+                int bucket = hashAt(i) & (size - 1);
+                newChain[i] = newHashTable[bucket];
+                newHashTable[bucket] = i + 1;
+            }
+        }
+        hashTable = newHashTable;
+        chain = newChain;
+    }
+
+    /**
+     * Removes the entry at the specific index and returns the index of the next entry. This can be
+     * a different value if the entries were compacted.
+     */
+    final int removeEntry(int index) {
+        if (hashTable == null) {
+            // Without hash index, compress immediately.
+            for (int i = index; i < totalEntries - 1; i++) {
+                moveEntry(i + 1, i);
+            }
+            totalEntries--;
+            clearEntry(totalEntries);
+            return index;
+        }
+
+        unlink(index);
+        clearEntry(index);
+        if (index == totalEntries - 1) {
+            // Make sure last entry is always live.
+            chain[index] = 0;
+            totalEntries--;
+            while (totalEntries > 0 && chain[totalEntries - 1] == DELETED) {
+                chain[totalEntries - 1] = 0;
+                totalEntries--;
+                deletedEntries--;
+            }
+            return index + 1;
+        }
+        chain[index] = DELETED;
+        deletedEntries++;
+        if (deletedEntries >= (totalEntries >> 1) + (totalEntries >> 2)) {
+            return compress(index + 1);
+        }
+        return index + 1;
+    }
+
+    private void unlink(int index) {
+        int bucket = hashAt(index) & (hashTable.length - 1);
+        int current = hashTable[bucket] - 1;
+        if (current == index) {
+            hashTable[bucket] = chain[index];
+            return;
+        }
+        while (true) {
+            assert current != -1 : "entry must be linked in its bucket";
+            int next = chain[current] - 1;
+            if (next == index) {
+                chain[current] = chain[index];
+                return;
+            }
+            current = next;
+        }
+    }
+
+    /**
+     * Moves all entries to the front of the entries arrays and returns the translated new index of
+     * {@code nextIndex}.
+     */
+    private int compress(int nextIndex) {
+        int newNextIndex = count();
+        int z = 0;
+        for (int i = 0; i < totalEntries; i++) {
+            if (i == nextIndex) {
+                newNextIndex = z;
+            }
+            if (chain[i] != DELETED) {
+                if (z != i) {
+                    moveEntry(i, z);
+                }
+                z++;
+            }
+        }
+        for (int i = z; i < totalEntries; i++) {
+            clearEntry(i);
+        }
+        totalEntries = z;
+        deletedEntries = 0;
+        chain = null;
+        if (z <= HASH_THRESHOLD) {
+            hashTable = null;
+        } else {
+            createHash();
+        }
+        return newNextIndex;
+    }
+}
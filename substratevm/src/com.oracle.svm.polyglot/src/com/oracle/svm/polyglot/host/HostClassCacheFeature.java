@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2020, 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.svm.polyglot.host;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+import org.graalvm.nativeimage.hosted.Feature;
+import org.graalvm.nativeimage.hosted.RuntimeReflection;
+
+import com.oracle.svm.core.annotate.AutomaticFeature;
+import com.oracle.svm.core.util.VMError;
+import com.oracle.svm.hosted.FeatureImpl.BeforeAnalysisAccessImpl;
+import com.oracle.svm.util.ReflectionUtil;
+
+/**
+ * Pre-computes the Truffle host class descriptors for the classes configured with
+ * {@code -Dpolyglot.image-build-time.PreinitializeHostClasses}, so that host method lookup and the
+ * overload tables of these classes are available in the image heap at startup. The configured
+ * classes are registered for reflection as the descriptors invoke their members reflectively.
+ */
+@AutomaticFeature
+public class HostClassCacheFeature implements Feature {
+
+    private static final String HOST_CLASS_CACHE = "com.oracle.truffle.polyglot.HostClassCache";
+
+    @Override
+    public boolean isInConfiguration(IsInConfigurationAccess access) {
+        return access.findClassByName(HOST_CLASS_CACHE) != null;
+    }
+
+    @Override
+    public void beforeAnalysis(BeforeAnalysisAccess a) {
+        BeforeAnalysisAccessImpl access = (BeforeAnalysisAccessImpl) a;
+        Class<?> hostClassCache = access.findClassByName(HOST_CLASS_CACHE);
+        List<Class<?>> classes;
+        try {
+            Method initialize = ReflectionUtil.lookupMethod(hostClassCache, "initializeNativeImageState", ClassLoader.class);
+            @SuppressWarnings("unchecked")
+            List<Class<?>> result = (List<Class<?>>) initialize.invoke(null, access.getImageClassLoader().getClassLoader());
+            classes = result;
+        } catch (ReflectiveOperationException e) {
+            throw VMError.shouldNotReachHere(e);
+        }
+        for (Class<?> clazz : classes) {
+            RuntimeReflection.register(clazz);
+            RuntimeReflection.register(clazz.getConstructors());
+            RuntimeReflection.register(clazz.getMethods());
+            RuntimeReflection.register(clazz.getFields());
+        }
+    }
+}
@@ -33,7 +33,15 @@ import com.oracle.truffle.api.interop.ArityException;
 import com.oracle.truffle.api.interop.InteropException;
 import com.oracle.truffle.api.interop.InteropLibrary;
 import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.profiles.BranchProfile;
 
+/**
+ * Invokes the hooks of a script. The hook functions are constants of the node and are called
+ * through a cached {@link InteropLibrary}, so that their call targets can be inlined into the
+ * compilation of the instrumented code. The {@link VariablesObject} is allocated per event but does
+ * not escape when the hook is inlined; the {@link EventContextObject} is shared by all the events of
+ * the node and caches its values as compilation constants.
+ */
 final class AgentExecutionNode extends ExecutionEventNode {
     @Node.Child private InteropLibrary enterDispatch;
     @Node.Child private InteropLibrary exitDispatch;
@@ -41,6 +49,7 @@ final class AgentExecutionNode extends ExecutionEventNode {
     private final Object enter;
     private final Object exit;
     private final EventContextObject ctx;
+    private final BranchProfile errorProfile = BranchProfile.create();
 
     AgentExecutionNode(TruffleInstrument.Env env, Object enter, Object exit, EventContextObject ctx) {
         this.env = env;
@@ -61,8 +70,10 @@ final class AgentExecutionNode extends ExecutionEventNode {
             try {
                 enterDispatch.execute(enter, ctx, new VariablesObject(env, this, frame, null));
             } catch (InteropException ex) {
+                errorProfile.enter();
                 throw ctx.wrap(enter, 2, ex);
             } catch (RuntimeException ex) {
+                errorProfile.enter();
                 throw ctx.rethrow(ex);
             }
         }
@@ -71,26 +82,26 @@ final class AgentExecutionNode extends ExecutionEventNode {
     @Override
     protected void onReturnValue(VirtualFrame frame, Object returnValue) {
         if (exit != null) {
-            try {
-                exitDispatch.execute(exit, ctx, new VariablesObject(env, this, frame, returnValue));
-            } catch (InteropException ex) {
-                throw ctx.wrap(exit, 2, ex);
-            } catch (RuntimeException ex) {
-                throw ctx.rethrow(ex);
-            }
+            invokeExit(frame, returnValue);
         }
     }
 
     @Override
     protected void onReturnExceptional(VirtualFrame frame, Throwable exception) {
         if (exit != null) {
-            try {
-                exitDispatch.execute(exit, ctx, new VariablesObject(env, this, frame, null));
-            } catch (InteropException ex) {
-                throw ctx.wrap(exit, 2, ex);
-            } catch (RuntimeException ex) {
-                throw ctx.rethrow(ex);
-            }
+            invokeExit(frame, null);
+        }
+    }
+
+    private void invokeExit(VirtualFrame frame, Object returnValue) {
+        try {
+            exitDispatch.execute(exit, ctx, new VariablesObject(env, this, frame, returnValue));
+        } catch (InteropException ex) {
+            errorProfile.enter();
+            throw ctx.wrap(exit, 2, ex);
+        } catch (RuntimeException ex) {
+            errorProfile.enter();
+            throw ctx.rethrow(ex);
         }
     }
 
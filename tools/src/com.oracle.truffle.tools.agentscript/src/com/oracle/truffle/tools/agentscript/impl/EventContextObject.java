@@ -45,6 +45,8 @@ final class EventContextObject implements TruffleObject {
                     "column", "startColumn", "endColumn");
     private final EventContext context;
     @CompilerDirectives.CompilationFinal private String name;
+    @CompilerDirectives.CompilationFinal private String characters;
+    @CompilerDirectives.CompilationFinal private SourceEventObject source;
     @CompilerDirectives.CompilationFinal(dimensions = 1) private int[] values;
 
     EventContextObject(EventContext context) {
@@ -88,10 +90,17 @@ final class EventContextObject implements TruffleObject {
                 }
                 return name;
             case "characters":
-                CompilerDirectives.transferToInterpreter();
-                return context.getInstrumentedSourceSection().getCharacters().toString();
+                if (characters == null) {
+                    CompilerDirectives.transferToInterpreterAndInvalidate();
+                    characters = context.getInstrumentedSourceSection().getCharacters().toString();
+                }
+                return characters;
             case "source":
-                return new SourceEventObject(context.getInstrumentedSourceSection().getSource());
+                if (source == null) {
+                    CompilerDirectives.transferToInterpreterAndInvalidate();
+                    source = new SourceEventObject(context.getInstrumentedSourceSection().getSource());
+                }
+                return source;
             case "line":
             case "startLine":
                 index = 0;
@@ -103,6 +103,57 @@ public class SLInspectProfileTest {
         tester.finish();
     }
 
+    @Test
+    public void testCPUProfilerChunks() throws Exception {
+        tester = InspectorTester.start(false);
+        tester.getInspectorContext().setProfileUpdateInterval(10);
+        Source source = Source.newBuilder("sl", CODE1, "SLTest.sl").build();
+        tester.sendMessage("{\"id\":1,\"method\":\"Runtime.enable\"}");
+        assertEquals("{\"result\":{},\"id\":1}", tester.getMessages(true).trim());
+        tester.sendMessage("{\"id\":2,\"method\":\"Profiler.enable\"}");
+        assertEquals("{\"result\":{},\"id\":2}", tester.getMessages(true).trim());
+        tester.sendMessage("{\"id\":3,\"method\":\"Profiler.start\"}");
+        assertEquals("{\"result\":{},\"id\":3}", tester.getMessages(true).trim());
+        tester.eval(source).get();
+        String messages = "";
+        while (messages.split("Profiler.consoleProfileFinished", -1).length < 3) {
+            messages += tester.getMessages(true);
+        }
+        tester.sendMessage("{\"id\":4,\"method\":\"Profiler.stop\"}");
+        while (!messages.contains("\"id\":4}")) {
+            messages += tester.getMessages(true);
+        }
+        int chunks = 0;
+        long endTime = -1;
+        for (String message : messages.trim().split("\n")) {
+            JSONObject json = new JSONObject(message);
+            JSONObject profile;
+            if (json.has("method")) {
+                assertEquals("Profiler.consoleProfileFinished", json.getString("method"));
+                JSONObject params = json.getJSONObject("params");
+                chunks++;
+                assertEquals(Integer.toString(chunks), params.getString("id"));
+                assertEquals("Profile chunk " + chunks, params.getString("title"));
+                assertNotNull(params.getJSONObject("location"));
+                profile = params.getJSONObject("profile");
+            } else {
+                assertEquals(4, json.getInt("id"));
+                profile = json.getJSONObject("result").getJSONObject("profile");
+            }
+            assertEquals("(root)", profile.getJSONArray("nodes").getJSONObject(0).getJSONObject("callFrame").getString("functionName"));
+            assertTrue(profile.getLong("startTime") <= profile.getLong("endTime"));
+            if (endTime != -1) {
+                // the chunks and the final profile are contiguous
+                assertEquals(endTime, profile.getLong("startTime"));
+            }
+            endTime = profile.getLong("endTime");
+        }
+        assertTrue(chunks >= 2);
+        tester.sendMessage("{\"id\":5,\"method\":\"Profiler.disable\"}");
+        assertEquals("{\"result\":{},\"id\":5}", tester.getMessages(true).trim());
+        tester.finish();
+    }
+
     @Test
     public void testCodeCoverage() throws Exception {
         tester = InspectorTester.start(false);
@@ -165,6 +216,34 @@ public class SLInspectProfileTest {
         tester.finish();
     }
 
+    @Test
+    public void testCodeCoverageDeltaUpdates() throws Exception {
+        tester = InspectorTester.start(false);
+        tester.getInspectorContext().setProfileUpdateInterval(10);
+        Source source = Source.newBuilder("sl", CODE2, "SLTest.sl").build();
+        tester.sendMessage("{\"id\":1,\"method\":\"Runtime.enable\"}");
+        assertEquals("{\"result\":{},\"id\":1}", tester.getMessages(true).trim());
+        tester.sendMessage("{\"id\":2,\"method\":\"Profiler.enable\"}");
+        assertEquals("{\"result\":{},\"id\":2}", tester.getMessages(true).trim());
+        tester.sendMessage("{\"id\":3,\"method\":\"Profiler.startPreciseCoverage\",\"params\":{\"allowTriggeredUpdates\":true}}");
+        assertEquals("{\"result\":{},\"id\":3}", tester.getMessages(true).trim());
+        tester.eval(source).get();
+        String messages = "";
+        while (!messages.contains("Profiler.preciseCoverageDeltaUpdate")) {
+            messages += tester.getMessages(true);
+        }
+        assertTrue(messages, messages.contains("\"functionName\":\"add\""));
+        assertTrue(messages, messages.contains("\"occasion\":\"periodic\""));
+        // The update took the coverage, only deltas are reported
+        tester.sendMessage("{\"id\":4,\"method\":\"Profiler.takePreciseCoverage\"}");
+        assertEquals("{\"result\":{\"result\":[]},\"id\":4}", tester.getMessages(true).trim());
+        tester.sendMessage("{\"id\":5,\"method\":\"Profiler.stopPreciseCoverage\"}");
+        assertEquals("{\"result\":{},\"id\":5}", tester.getMessages(true).trim());
+        tester.sendMessage("{\"id\":6,\"method\":\"Profiler.disable\"}");
+        assertEquals("{\"result\":{},\"id\":6}", tester.getMessages(true).trim());
+        tester.finish();
+    }
+
     @Test
     public void testTypeProfile() throws Exception {
         tester = InspectorTester.start(false);
@@ -197,6 +276,49 @@ public class SLInspectProfileTest {
         assertTrue(tester.shouldWaitForClose());
         tester.finish();
     }
+
+    @Test
+    public void testHeapSnapshot() throws Exception {
+        tester = InspectorTester.start(false);
+        Source source = Source.newBuilder("sl", CODE1, "SLTest.sl").build();
+        tester.sendMessage("{\"id\":1,\"method\":\"Runtime.enable\"}");
+        assertEquals("{\"result\":{},\"id\":1}", tester.getMessages(true).trim());
+        tester.sendMessage("{\"id\":2,\"method\":\"HeapProfiler.enable\"}");
+        assertEquals("{\"result\":{},\"id\":2}", tester.getMessages(true).trim());
+        tester.eval(source).get();
+        tester.sendMessage("{\"id\":3,\"method\":\"HeapProfiler.takeHeapSnapshot\",\"params\":{\"reportProgress\":true}}");
+        StringBuilder snapshot = new StringBuilder();
+        boolean finished = false;
+        boolean done = false;
+        while (!done) {
+            for (String message : tester.getMessages(true).split("\n")) {
+                if (message.isEmpty()) {
+                    continue;
+                }
+                assertFalse(message, finished && !message.equals("{\"result\":{},\"id\":3}"));
+                JSONObject json = new JSONObject(message);
+                if (json.has("id")) {
+                    assertEquals("{\"result\":{},\"id\":3}", message);
+                    done = true;
+                } else if ("HeapProfiler.addHeapSnapshotChunk".equals(json.getString("method"))) {
+                    snapshot.append(json.getJSONObject("params").getString("chunk"));
+                } else {
+                    assertEquals("HeapProfiler.reportHeapSnapshotProgress", json.getString("method"));
+                    assertTrue(json.getJSONObject("params").getBoolean("finished"));
+                    finished = true;
+                }
+            }
+        }
+        assertTrue(finished);
+        JSONObject jsonSnapshot = new JSONObject(snapshot.toString());
+        assertTrue(jsonSnapshot.getJSONObject("snapshot").getJSONObject("meta").has("node_fields"));
+        String strings = jsonSnapshot.getJSONArray("strings").toString();
+        assertTrue(strings, strings.contains("\"main\""));
+        assertTrue(strings, strings.contains("\"factorial\""));
+        tester.sendMessage("{\"id\":4,\"method\":\"HeapProfiler.disable\"}");
+        assertEquals("{\"result\":{},\"id\":4}", tester.getMessages(true).trim());
+        tester.finish();
+    }
     // @formatter:on
     // CheckStyle: resume line length check
 }
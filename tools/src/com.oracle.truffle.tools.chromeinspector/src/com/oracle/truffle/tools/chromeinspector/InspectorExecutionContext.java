@@ -76,6 +76,7 @@ public final class InspectorExecutionContext {
     private volatile String lastMimeType = "text/javascript";   // Default JS
     private volatile String lastLanguage = "js";
     private boolean synchronous = false;
+    private volatile long profileUpdateInterval = 0;
     private boolean customObjectFormatterEnabled = false;
 
     public InspectorExecutionContext(String name, boolean inspectInternal, boolean inspectInitialization, TruffleInstrument.Env env, List<URI> sourceRoots, PrintWriter err) {
@@ -347,6 +348,18 @@ public final class InspectorExecutionContext {
         return synchronous;
     }
 
+    /**
+     * Set the interval in milliseconds in which profiles and precise coverage gathered so far are
+     * sent to the client as events. Zero sends them on request only.
+     */
+    public void setProfileUpdateInterval(long intervalMillis) {
+        this.profileUpdateInterval = intervalMillis;
+    }
+
+    public long getProfileUpdateInterval() {
+        return profileUpdateInterval;
+    }
+
     void setCustomObjectFormatterEnabled(boolean enabled) {
         this.customObjectFormatterEnabled = enabled;
     }
@@ -24,6 +24,8 @@
  */
 package com.oracle.truffle.tools.chromeinspector;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -33,24 +35,31 @@ import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
 import java.util.concurrent.TimeUnit;
 
 import com.oracle.truffle.tools.utils.json.JSONArray;
 import com.oracle.truffle.tools.utils.json.JSONObject;
 
 import com.oracle.truffle.api.InstrumentInfo;
+import com.oracle.truffle.api.debug.DebugException;
 import com.oracle.truffle.api.instrumentation.SourceSectionFilter;
 import com.oracle.truffle.api.instrumentation.StandardTags;
 import com.oracle.truffle.api.source.Source;
 import com.oracle.truffle.api.source.SourceSection;
 
+import com.oracle.truffle.tools.chromeinspector.InspectorExecutionContext.NoSuspendedThreadException;
 import com.oracle.truffle.tools.chromeinspector.commands.Params;
 import com.oracle.truffle.tools.chromeinspector.domains.ProfilerDomain;
+import com.oracle.truffle.tools.chromeinspector.events.Event;
 import com.oracle.truffle.tools.chromeinspector.instrument.Enabler;
 import com.oracle.truffle.tools.chromeinspector.instrument.TypeProfileInstrument;
+import com.oracle.truffle.tools.chromeinspector.server.CommandProcessException;
 import com.oracle.truffle.tools.chromeinspector.server.ConnectionWatcher;
 import com.oracle.truffle.tools.chromeinspector.types.CoverageRange;
 import com.oracle.truffle.tools.chromeinspector.types.FunctionCoverage;
+import com.oracle.truffle.tools.chromeinspector.types.Location;
 import com.oracle.truffle.tools.chromeinspector.types.Profile;
 import com.oracle.truffle.tools.chromeinspector.types.ProfileNode;
 import com.oracle.truffle.tools.chromeinspector.types.RuntimeCallFrame;
@@ -62,12 +71,16 @@ import com.oracle.truffle.tools.chromeinspector.types.TypeProfileEntry;
 
 import com.oracle.truffle.tools.profiler.CPUSampler;
 import com.oracle.truffle.tools.profiler.CPUTracer;
+import com.oracle.truffle.tools.profiler.HeapMonitor;
 import com.oracle.truffle.tools.profiler.ProfilerNode;
 import com.oracle.truffle.tools.profiler.impl.CPUSamplerInstrument;
 import com.oracle.truffle.tools.profiler.impl.CPUTracerInstrument;
+import com.oracle.truffle.tools.profiler.impl.HeapMonitorInstrument;
 
 public final class InspectorProfiler extends ProfilerDomain {
 
+    private static final int HEAP_SNAPSHOT_CHUNK_SIZE = 64 * 1024;
+
     private CPUSampler sampler;
     private CPUTracer tracer;
     private TypeHandler typeHandler;
@@ -78,6 +91,10 @@ public final class InspectorProfiler extends ProfilerDomain {
     private final InspectorExecutionContext context;
     private final ConnectionWatcher connectionWatcher;
     private Enabler enabler;
+    private Timer updateTimer;
+    private TimerTask profileUpdate;
+    private TimerTask coverageUpdate;
+    private int profileChunks;
 
     public InspectorProfiler(InspectorExecutionContext context, ConnectionWatcher connectionWatcher) {
         this.context = context;
@@ -97,6 +114,14 @@ public final class InspectorProfiler extends ProfilerDomain {
 
     @Override
     public void doDisable() {
+        synchronized (this) {
+            if (updateTimer != null) {
+                updateTimer.cancel();
+                updateTimer = null;
+                profileUpdate = null;
+                coverageUpdate = null;
+            }
+        }
         if (slh != null) {
             context.releaseScriptsHandler();
             slh = null;
@@ -122,34 +147,127 @@ public final class InspectorProfiler extends ProfilerDomain {
             sampler.setMode(CPUSampler.Mode.ROOTS);
             sampler.setFilter(SourceSectionFilter.newBuilder().includeInternal(context.isInspectInternal()).build());
             sampler.setCollecting(true);
+            startTimestamp = System.currentTimeMillis();
         }
-        startTimestamp = System.currentTimeMillis();
+        profileChunks = 0;
+        profileUpdate = scheduleUpdate(profileUpdate, this::sendProfileChunk);
     }
 
     @Override
     public Params stop() {
+        profileUpdate = cancelUpdate(profileUpdate);
         long time = System.currentTimeMillis();
         synchronized (sampler) {
             sampler.setCollecting(false);
             sampler.setGatherSelfHitTimes(oldGatherSelfHitTimes);
-            long idleHitCount = (time - startTimestamp) / sampler.getPeriod() - sampler.getSampleCount();
-            Params profile = getProfile(sampler.getRootNodes(), idleHitCount, startTimestamp, time);
-            sampler.clearData();
-            return profile;
+            return takeProfile(time);
         }
     }
 
+    /**
+     * Takes the profile gathered since the last profile was taken and starts a new one.
+     */
+    private Params takeProfile(long time) {
+        assert Thread.holdsLock(sampler);
+        // the effective period accounts for sampling intervals extended by the overhead limit
+        long idleHitCount = Math.max(0, Math.round((time - startTimestamp) / sampler.getEffectivePeriod()) - sampler.getSampleCount());
+        Params profile = getProfile(sampler.getRootNodes(), idleHitCount, startTimestamp, time);
+        sampler.clearData();
+        startTimestamp = time;
+        return profile;
+    }
+
+    /**
+     * Sends the samples gathered so far as a console profile, so that long profiling sessions do
+     * not accumulate one large profile in memory and stall the connection when it is stopped. The
+     * protocol has no event for a part of a profile, so every chunk appears as a separate console
+     * profile titled "Profile chunk N" in the client, and the profile returned by
+     * {@code Profiler.stop} only contains the samples taken after the last chunk. Chunks are
+     * contiguous: each one starts at the end time of the previous one. {@code Profiler.start} has
+     * no call site, so the location of the chunks is a placeholder that does not refer to a script.
+     */
+    private void sendProfileChunk() {
+        Params profile;
+        synchronized (sampler) {
+            if (!sampler.isCollecting()) {
+                return;
+            }
+            profile = takeProfile(System.currentTimeMillis());
+        }
+        int chunk = ++profileChunks;
+        JSONObject json = profile.getJSONObject();
+        json.put("id", Integer.toString(chunk));
+        json.put("location", new Location(0, 1, 1).toJSON());
+        json.put("title", "Profile chunk " + chunk);
+        eventHandler.event(new Event("Profiler.consoleProfileFinished", profile));
+    }
+
     @Override
-    public void startPreciseCoverage(boolean callCount, boolean detailed) {
+    public void startPreciseCoverage(boolean callCount, boolean detailed, boolean allowTriggeredUpdates) {
         connectionWatcher.setWaitForClose();
         synchronized (tracer) {
             tracer.setFilter(SourceSectionFilter.newBuilder().tagIs(detailed ? StandardTags.StatementTag.class : StandardTags.RootTag.class).includeInternal(context.isInspectInternal()).build());
             tracer.setCollecting(true);
         }
+        if (allowTriggeredUpdates) {
+            coverageUpdate = scheduleUpdate(coverageUpdate, this::sendCoverageDelta);
+        }
+    }
+
+    /**
+     * Sends the coverage gathered since the coverage was last taken. Like
+     * {@link #takePreciseCoverage()} this resets the counts, so the client receives deltas.
+     */
+    private void sendCoverageDelta() {
+        Params coverage;
+        synchronized (tracer) {
+            if (!tracer.isCollecting() || tracer.getPayloads().isEmpty()) {
+                return;
+            }
+            coverage = getCoverage(tracer.getPayloads());
+            tracer.clearData();
+        }
+        JSONObject json = coverage.getJSONObject();
+        json.put("timestamp", System.nanoTime() / 1e9);
+        json.put("occasion", "periodic");
+        eventHandler.event(new Event("Profiler.preciseCoverageDeltaUpdate", coverage));
+    }
+
+    private synchronized TimerTask scheduleUpdate(TimerTask oldUpdate, Runnable update) {
+        long interval = context.getProfileUpdateInterval();
+        if (oldUpdate != null) {
+            oldUpdate.cancel();
+        }
+        if (interval <= 0) {
+            return null;
+        }
+        if (updateTimer == null) {
+            updateTimer = new Timer("Inspector Profiler Updates", true);
+        }
+        TimerTask task = new TimerTask() {
+            @Override
+            public void run() {
+                synchronized (InspectorProfiler.this) {
+                    if (updateTimer != null) {
+                        update.run();
+                    }
+                }
+            }
+        };
+        updateTimer.schedule(task, interval, interval);
+        return task;
+    }
+
+    private synchronized TimerTask cancelUpdate(TimerTask update) {
+        if (update != null) {
+            update.cancel();
+        }
+        return null;
     }
 
     @Override
     public void stopPreciseCoverage() {
+        coverageUpdate = cancelUpdate(coverageUpdate);
         synchronized (tracer) {
             tracer.setCollecting(false);
             tracer.clearData();
@@ -197,6 +315,79 @@ public final class InspectorProfiler extends ProfilerDomain {
         }
     }
 
+    @Override
+    public void takeHeapSnapshot(boolean reportProgress) throws CommandProcessException {
+        HeapMonitor monitor = context.getEnv().lookup(context.getEnv().getInstruments().get(HeapMonitorInstrument.ID), HeapMonitor.class);
+        if (context.getSuspendedInfo() != null) {
+            // The suspended thread holds the context, walk the heap there.
+            try {
+                context.executeInSuspendThread(new SuspendThreadExecutable<Void>() {
+                    @Override
+                    public Void executeCommand() throws CommandProcessException {
+                        writeHeapSnapshot(monitor);
+                        return null;
+                    }
+
+                    @Override
+                    public Void processException(DebugException dex) {
+                        return null;
+                    }
+                });
+            } catch (NoSuspendedThreadException ex) {
+                writeHeapSnapshot(monitor);
+            }
+        } else {
+            writeHeapSnapshot(monitor);
+        }
+        if (reportProgress) {
+            JSONObject json = new JSONObject();
+            json.put("done", 1);
+            json.put("total", 1);
+            json.put("finished", true);
+            eventHandler.event(new Event("HeapProfiler.reportHeapSnapshotProgress", new Params(json)));
+        }
+    }
+
+    private void writeHeapSnapshot(HeapMonitor monitor) throws CommandProcessException {
+        try (Writer chunks = new HeapSnapshotChunkWriter()) {
+            monitor.takeHeapSnapshot(chunks);
+        } catch (IOException | IllegalStateException ex) {
+            throw new CommandProcessException("Heap snapshot failed: " + ex.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * Sends the snapshot to the client as <code>HeapProfiler.addHeapSnapshotChunk</code> events
+     * while it is written, so that it never needs to be held in memory as a whole.
+     */
+    private final class HeapSnapshotChunkWriter extends Writer {
+
+        private final StringBuilder chunk = new StringBuilder(HEAP_SNAPSHOT_CHUNK_SIZE);
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            chunk.append(cbuf, off, len);
+            if (chunk.length() >= HEAP_SNAPSHOT_CHUNK_SIZE) {
+                flush();
+            }
+        }
+
+        @Override
+        public void flush() {
+            if (chunk.length() > 0) {
+                JSONObject json = new JSONObject();
+                json.put("chunk", chunk.toString());
+                eventHandler.event(new Event("HeapProfiler.addHeapSnapshotChunk", new Params(json)));
+                chunk.setLength(0);
+            }
+        }
+
+        @Override
+        public void close() {
+            flush();
+        }
+    }
+
     private Params getCoverage(Collection<CPUTracer.Payload> payloads) {
         JSONObject json = new JSONObject();
         Map<Source, Map<String, Collection<CPUTracer.Payload>>> sourceToRoots = new LinkedHashMap<>();
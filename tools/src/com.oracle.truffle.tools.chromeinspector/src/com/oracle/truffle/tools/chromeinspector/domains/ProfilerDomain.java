@@ -25,6 +25,7 @@
 package com.oracle.truffle.tools.chromeinspector.domains;
 
 import com.oracle.truffle.tools.chromeinspector.commands.Params;
+import com.oracle.truffle.tools.chromeinspector.server.CommandProcessException;
 
 public abstract class ProfilerDomain extends Domain {
 
@@ -37,7 +38,7 @@ public abstract class ProfilerDomain extends Domain {
 
     public abstract Params stop();
 
-    public abstract void startPreciseCoverage(boolean callCount, boolean detailed);
+    public abstract void startPreciseCoverage(boolean callCount, boolean detailed, boolean allowTriggeredUpdates);
 
     public abstract void stopPreciseCoverage();
 
@@ -51,4 +52,6 @@ public abstract class ProfilerDomain extends Domain {
 
     public abstract Params takeTypeProfile();
 
+    public abstract void takeHeapSnapshot(boolean reportProgress) throws CommandProcessException;
+
 }
@@ -38,6 +38,7 @@ import java.util.Base64;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
@@ -196,6 +197,11 @@ public final class InspectorInstrument extends TruffleInstrument {
     @com.oracle.truffle.api.Option(help = "Inspect language initialization. (default:false)", category = OptionCategory.INTERNAL) //
     static final OptionKey<Boolean> Initialization = new OptionKey<>(false);
 
+    @com.oracle.truffle.api.Option(help = "Send the CPU profile and precise coverage gathered so far to the client every given number of seconds while profiling, 0 sends them at the end only. " +
+                    "Each part of the CPU profile is shown as a separate console profile. (default:0)", //
+                    category = OptionCategory.USER, stability = OptionStability.EXPERIMENTAL) //
+    static final OptionKey<Long> ProfileUpdateInterval = new OptionKey<>(0L);
+
     @com.oracle.truffle.api.Option(help = "Use TLS/SSL. (default: false for loopback address, true otherwise)", category = OptionCategory.USER, stability = OptionStability.STABLE) //
     static final OptionKey<Boolean> Secure = new OptionKey<>(true);
 
@@ -402,6 +408,7 @@ public final class InspectorInstrument extends TruffleInstrument {
 
             PrintWriter err = (hideErrors) ? null : info;
             executionContext = new InspectorExecutionContext(contextName, inspectInternal, inspectInitialization, env, sourcePath, err);
+            executionContext.setProfileUpdateInterval(TimeUnit.SECONDS.toMillis(env.getOptions().get(ProfileUpdateInterval)));
             if (attach) {
                 wss = new InspectWSClient(socketAddress, pathContainingToken, executionContext, debugBreak, secure, keyStoreOptions, connectionWatcher, info);
                 urlContainingToken = ((InspectWSClient) wss).getURI().toString();
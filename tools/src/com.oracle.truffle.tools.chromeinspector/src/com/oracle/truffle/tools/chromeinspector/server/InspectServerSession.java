@@ -230,6 +230,7 @@ public final class InspectServerSession implements MessageEndpoint {
                 return runtime;
             case "Profiler":
                 return profiler;
+            case "HeapProfiler":
             case "Schema":
                 return null;
             default:
@@ -511,9 +512,9 @@ public final class InspectServerSession implements MessageEndpoint {
                 Params params = cmd.getParams();
                 if (params != null) {
                     json = params.getJSONObject();
-                    profiler.startPreciseCoverage(json.optBoolean("callCount"), json.optBoolean("detailed"));
+                    profiler.startPreciseCoverage(json.optBoolean("callCount"), json.optBoolean("detailed"), json.optBoolean("allowTriggeredUpdates"));
                 } else {
-                    profiler.startPreciseCoverage(false, false);
+                    profiler.startPreciseCoverage(false, false, false);
                 }
                 break;
             case "Profiler.stopPreciseCoverage":
@@ -534,6 +535,14 @@ public final class InspectServerSession implements MessageEndpoint {
             case "Profiler.takeTypeProfile":
                 resultParams = profiler.takeTypeProfile();
                 break;
+            case "HeapProfiler.enable":
+            case "HeapProfiler.disable":
+                // heap snapshots are taken on demand, there is no state to enable
+                break;
+            case "HeapProfiler.takeHeapSnapshot":
+                params = cmd.getParams();
+                profiler.takeHeapSnapshot(params != null && params.getJSONObject().optBoolean("reportProgress"));
+                break;
             case "Schema.getDomains":
                 resultParams = getDomains();
                 break;
@@ -548,6 +557,7 @@ public final class InspectServerSession implements MessageEndpoint {
         domains.put(createJsonDomain("Runtime"));
         domains.put(createJsonDomain("Debugger"));
         domains.put(createJsonDomain("Profiler"));
+        domains.put(createJsonDomain("HeapProfiler"));
         domains.put(createJsonDomain("Schema"));
         JSONObject domainsObj = new JSONObject();
         domainsObj.put("domains", domains);
@@ -64,11 +64,14 @@ public final class ProfileNode {
         json.put("id", id);
         json.put("callFrame", callFrame.toJSON());
         json.put("hitCount", hitCount);
-        JSONArray array = new JSONArray();
-        children.forEach(i -> {
-            array.put(i.intValue());
-        });
-        json.put("children", array);
+        // children are optional in the protocol, leaves make up most of a profile
+        if (!children.isEmpty()) {
+            JSONArray array = new JSONArray();
+            children.forEach(i -> {
+                array.put(i.intValue());
+            });
+            json.put("children", array);
+        }
         return json;
     }
 
@@ -25,6 +25,11 @@
 package com.oracle.truffle.tools.coverage.test;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
@@ -60,6 +65,7 @@ import com.oracle.truffle.tools.coverage.RootCoverage;
 import com.oracle.truffle.tools.coverage.SectionCoverage;
 import com.oracle.truffle.tools.coverage.SourceCoverage;
 import com.oracle.truffle.tools.coverage.impl.CoverageInstrument;
+import com.oracle.truffle.tools.coverage.impl.LCOVMerger;
 
 public final class CoverageTest {
 
@@ -161,6 +167,98 @@ public final class CoverageTest {
         }
     }
 
+    @Test
+    public void testCoveredAfterRepeatedExecution() {
+        try (Context context = Context.newBuilder().in(System.in).out(out).err(err).build()) {
+            final CoverageTracker tracker = CoverageInstrument.getTracker(context.getEngine());
+            tracker.start(new CoverageTracker.Config(SourceSectionFilter.ANY, false));
+            // the coverage nodes replace themselves after the first execution
+            for (int i = 0; i < 10; i++) {
+                context.eval(defaultSource);
+            }
+            final SourceCoverage[] coverage = tracker.getCoverage();
+            Assert.assertEquals(1, coverage.length);
+            for (RootCoverage root : coverage[0].getRoots()) {
+                if (root.getName().equals("bar")) {
+                    assertCoverage(root, 1, 1, "bar", true);
+                } else if (root.getName().equals("neverCalled")) {
+                    assertCoverage(root, 1, 0, "neverCalled", false);
+                }
+            }
+            tracker.end();
+        }
+    }
+
+    @Test
+    public void testCountMultiThreaded() throws InterruptedException, ExecutionException {
+        final int threads = 4;
+        final int executions = 5;
+        try (Context context = Context.newBuilder().in(System.in).out(out).err(err).build()) {
+            final CoverageTracker tracker = CoverageInstrument.getTracker(context.getEngine());
+            tracker.start(new CoverageTracker.Config(SourceSectionFilter.ANY, true));
+            ExecutorService executorService = Executors.newFixedThreadPool(threads);
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                tasks.add(executorService.submit(() -> {
+                    for (int j = 0; j < executions; j++) {
+                        context.eval(defaultSource);
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+            executorService.shutdown();
+            final SourceCoverage[] coverage = tracker.getCoverage();
+            Assert.assertEquals(1, coverage.length);
+            for (RootCoverage root : coverage[0].getRoots()) {
+                if (root.getName().equals("foo")) {
+                    Assert.assertEquals(threads * executions * 10, root.getCount());
+                } else if (root.getName().equals("bar")) {
+                    Assert.assertEquals(threads * executions, root.getCount());
+                }
+            }
+            tracker.end();
+        }
+    }
+
+    @Test
+    public void testDumps() throws IOException {
+        final Path directory = Files.createTempDirectory("coverage");
+        try {
+            try (Context context = Context.newBuilder().in(System.in).out(out).err(err).option(CoverageInstrument.ID, "true").option(CoverageInstrument.ID + ".Count", "true").option(
+                            CoverageInstrument.ID + ".DumpDirectory", directory.toString()).build()) {
+                context.eval(defaultSource);
+            }
+            Assert.assertEquals("Nothing is printed when dumping", 0, out.size());
+            final List<Path> dumps = new ArrayList<>();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                for (Path file : files) {
+                    dumps.add(file);
+                }
+            }
+            Assert.assertEquals(1, dumps.size());
+            final String dump = new String(Files.readAllBytes(dumps.get(0)), StandardCharsets.UTF_8);
+            Assert.assertTrue(dump, dump.contains("FNDA:10,foo"));
+            Assert.assertTrue(dump, dump.contains("FNDA:0,neverCalled"));
+
+            final Path merged = directory.resolve("merged.lcov");
+            LCOVMerger.main(new String[]{merged.toString(), dumps.get(0).toString(), dumps.get(0).toString()});
+            final String mergedDump = new String(Files.readAllBytes(merged), StandardCharsets.UTF_8);
+            Assert.assertTrue(mergedDump, mergedDump.contains("FNDA:20,foo"));
+            Assert.assertTrue(mergedDump, mergedDump.contains("FNDA:0,neverCalled"));
+            Assert.assertTrue(mergedDump, mergedDump.contains("FNF:4"));
+            Assert.assertTrue(mergedDump, mergedDump.contains("FNH:3"));
+        } finally {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                for (Path file : files) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
     @Test
     public void testRootAndStatementInDifferentSources() {
         try (Context c = Context.newBuilder(RootAndStatementInDifferentSources.ID).in(System.in).out(out).err(err).build();
@@ -26,9 +26,15 @@ package com.oracle.truffle.tools.coverage;
 
 import com.oracle.truffle.api.CompilerDirectives;
 import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.instrumentation.ExecutionEventNode;
 import com.oracle.truffle.api.nodes.Node;
 import com.oracle.truffle.api.source.SourceSection;
 
+/**
+ * Records the first execution of the instrumented node and then replaces itself with a node that
+ * does nothing, so that covered code runs without coverage overhead in the interpreter as well as
+ * in compiled code. The replaced node is still referenced by the tracker to report the coverage.
+ */
 final class BooleanCoverageNode extends AbstractCoverageNode {
 
     @CompilerDirectives.CompilationFinal volatile boolean covered;
@@ -46,8 +52,17 @@ final class BooleanCoverageNode extends AbstractCoverageNode {
     protected void onEnter(VirtualFrame frame) {
         if (!covered) {
             CompilerDirectives.transferToInterpreterAndInvalidate();
-            covered = true;
+            atomic(() -> {
+                // another thread may have recorded the coverage and replaced this node already
+                if (!covered) {
+                    covered = true;
+                    replace(new CoveredNode(), "Coverage recorded");
+                }
+            });
         }
     }
 
+    private static final class CoveredNode extends ExecutionEventNode {
+    }
+
 }
@@ -24,15 +24,21 @@
  */
 package com.oracle.truffle.tools.coverage;
 
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.frame.VirtualFrame;
 import com.oracle.truffle.api.nodes.Node;
 import com.oracle.truffle.api.source.SourceSection;
 
+/**
+ * Counts the executions of the instrumented node. The count is striped across threads and only
+ * summed up when the coverage is read, so that threads executing the same code do not contend on a
+ * single counter.
+ */
 public class CountingCoverageNode extends AbstractCoverageNode {
 
-    private final AtomicLong count = new AtomicLong(0);
+    private final LongAdder count = new LongAdder();
 
     CountingCoverageNode(SourceSection sourceSection, Node instrumentedNode, boolean isRoot, boolean isStatement) {
         super(sourceSection, instrumentedNode, isRoot, isStatement);
@@ -40,15 +46,20 @@ public class CountingCoverageNode extends AbstractCoverageNode {
 
     @Override
     boolean isCovered() {
-        return count.get() != 0;
+        return count.sum() != 0;
     }
 
     @Override
     protected void onEnter(VirtualFrame frame) {
-        this.count.incrementAndGet();
+        increment();
+    }
+
+    @TruffleBoundary
+    private void increment() {
+        count.increment();
     }
 
     long getCount() {
-        return count.get();
+        return count.sum();
     }
 }
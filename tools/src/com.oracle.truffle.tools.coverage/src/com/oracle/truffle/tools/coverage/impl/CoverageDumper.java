@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.tools.coverage.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import com.oracle.truffle.api.TruffleLogger;
+import com.oracle.truffle.tools.coverage.CoverageTracker;
+
+/**
+ * Periodically writes the coverage gathered since the previous dump into a new LCOV file, so that
+ * long running processes can report coverage without waiting for the context to close. The dumps
+ * only contain the counts added since the previous dump and are combined with {@link LCOVMerger}.
+ */
+final class CoverageDumper {
+
+    static final String SUFFIX = ".info";
+
+    private final CoverageTracker tracker;
+    private final Path directory;
+    private final boolean strictLines;
+    private final TruffleLogger logger;
+    private final LCOVPrinter.Baseline baseline = new LCOVPrinter.Baseline();
+    private final Timer timer;
+    private int dumpIndex;
+
+    CoverageDumper(CoverageTracker tracker, Path directory, long intervalMillis, boolean strictLines, TruffleLogger logger) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid dump interval %s.", intervalMillis));
+        }
+        this.tracker = tracker;
+        this.directory = directory;
+        this.strictLines = strictLines;
+        this.logger = logger;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot create coverage dump directory " + directory, e);
+        }
+        this.timer = new Timer("Coverage dumper", true);
+        this.timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                dump();
+            }
+        }, intervalMillis, intervalMillis);
+    }
+
+    /**
+     * Stops the periodic dumps and writes the coverage gathered since the last one.
+     */
+    void close() {
+        timer.cancel();
+        dump();
+    }
+
+    synchronized void dump() {
+        String name = String.format("%s-%s-%04d%s", CoverageInstrument.ID, new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()), dumpIndex++, SUFFIX);
+        try (OutputStream stream = Files.newOutputStream(directory.resolve(name)); PrintStream out = new PrintStream(stream)) {
+            new LCOVPrinter(out, tracker.getCoverage(), strictLines, baseline).print();
+        } catch (IOException e) {
+            logger.warning("Failed to write coverage dump " + name + ": " + e.getMessage());
+        }
+    }
+}
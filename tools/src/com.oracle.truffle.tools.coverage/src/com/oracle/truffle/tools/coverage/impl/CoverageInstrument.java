@@ -30,6 +30,8 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.PrintStream;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
 import org.graalvm.options.OptionCategory;
@@ -42,6 +44,7 @@ import org.graalvm.polyglot.Engine;
 import org.graalvm.polyglot.Instrument;
 
 import com.oracle.truffle.api.Option;
+import com.oracle.truffle.api.TruffleLogger;
 import com.oracle.truffle.api.instrumentation.SourceSectionFilter;
 import com.oracle.truffle.api.instrumentation.TruffleInstrument;
 import com.oracle.truffle.tools.coverage.CoverageTracker;
@@ -90,6 +93,11 @@ public class CoverageInstrument extends TruffleInstrument {
     static final OptionKey<String> OUTPUT_FILE = new OptionKey<>("");
     @Option(help = "Consider a source code line covered only if covered in it's entirety. (default: true)", category = OptionCategory.USER, stability = OptionStability.EXPERIMENTAL)
     static final OptionKey<Boolean> StrictLines = new OptionKey<>(true);
+    @Option(name = "DumpDirectory", help = "Periodically write the coverage gathered since the previous dump as a new LCOV file into this directory instead of printing it at exit. Merge the dumps with " +
+            "com.oracle.truffle.tools.coverage.impl.LCOVMerger.", category = OptionCategory.USER, stability = OptionStability.EXPERIMENTAL)
+    static final OptionKey<String> DUMP_DIRECTORY = new OptionKey<>("");
+    @Option(name = "DumpInterval", help = "Interval between two coverage dumps in seconds (default: 60).", category = OptionCategory.USER, stability = OptionStability.EXPERIMENTAL)
+    static final OptionKey<Long> DUMP_INTERVAL = new OptionKey<>(60L);
     // @formatter:on
 
     private static Function<Env, CoverageTracker> factory;
@@ -106,6 +114,7 @@ public class CoverageInstrument extends TruffleInstrument {
 
     private CoverageTracker tracker;
     private Boolean enabled;
+    private CoverageDumper dumper;
 
     public static CoverageTracker getTracker(Engine engine) {
         Instrument instrument = engine.getInstruments().get(ID);
@@ -165,12 +174,20 @@ public class CoverageInstrument extends TruffleInstrument {
         enabled = ENABLED.getValue(options);
         if (enabled) {
             tracker.start(new CoverageTracker.Config(getSourceSectionFilter(options), Count.getValue(options)));
+            final String dumpDirectory = DUMP_DIRECTORY.getValue(options);
+            if (!dumpDirectory.isEmpty()) {
+                dumper = new CoverageDumper(tracker, Paths.get(dumpDirectory), TimeUnit.SECONDS.toMillis(DUMP_INTERVAL.getValue(options)), StrictLines.getValue(options),
+                                TruffleLogger.getLogger(ID));
+            }
         }
     }
 
     @Override
     protected void onDispose(Env env) {
-        if (enabled) {
+        if (dumper != null) {
+            dumper.close();
+            tracker.close();
+        } else if (enabled) {
             SourceCoverage[] coverage = tracker.getCoverage();
             final OptionValues options = env.getOptions();
             final boolean strictLines = StrictLines.getValue(options);
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.tools.coverage.impl;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Merges LCOV files by summing up the execution counts of the same lines and functions of each
+ * source file. Used offline to combine the {@link CoverageDumper incremental dumps} of a process
+ * into a single LCOV report:
+ *
+ * <pre>
+ * java -cp coverage.jar com.oracle.truffle.tools.coverage.impl.LCOVMerger merged.info coverage-*.info
+ * </pre>
+ */
+public final class LCOVMerger {
+
+    private final Map<String, SourceRecord> sources = new LinkedHashMap<>();
+
+    private static final class SourceRecord {
+        String name;
+        final Map<String, Integer> functionLines = new LinkedHashMap<>();
+        final Map<String, Long> functionCounts = new LinkedHashMap<>();
+        final Map<Integer, Long> lineCounts = new TreeMap<>();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: LCOVMerger <output file> <input file>...");
+            System.exit(1);
+        }
+        LCOVMerger merger = new LCOVMerger();
+        for (int i = 1; i < args.length; i++) {
+            merger.add(Paths.get(args[i]));
+        }
+        try (PrintStream out = new PrintStream(Files.newOutputStream(Paths.get(args[0])))) {
+            merger.print(out);
+        }
+    }
+
+    void add(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String name = null;
+            SourceRecord record = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("SN:")) {
+                    name = line.substring(3);
+                } else if (line.startsWith("SF:")) {
+                    record = sources.computeIfAbsent(line.substring(3), k -> new SourceRecord());
+                    if (record.name == null) {
+                        record.name = name;
+                    }
+                } else if (line.equals("end_of_record")) {
+                    name = null;
+                    record = null;
+                } else if (record == null) {
+                    continue;
+                } else if (line.startsWith("FN:")) {
+                    int comma = line.indexOf(',');
+                    record.functionLines.putIfAbsent(line.substring(comma + 1), Integer.parseInt(line.substring(3, comma)));
+                } else if (line.startsWith("FNDA:")) {
+                    int comma = line.indexOf(',');
+                    record.functionCounts.merge(line.substring(comma + 1), Long.parseLong(line.substring(5, comma)), Long::sum);
+                } else if (line.startsWith("DA:")) {
+                    // DA:<line>,<count>[,<checksum>]
+                    String[] parts = line.substring(3).split(",");
+                    record.lineCounts.merge(Integer.parseInt(parts[0]), Long.parseLong(parts[1]), Long::sum);
+                }
+                // summary lines are recomputed when printing
+            }
+        }
+    }
+
+    void print(PrintStream out) {
+        for (Map.Entry<String, SourceRecord> entry : sources.entrySet()) {
+            SourceRecord record = entry.getValue();
+            out.println("TN:");
+            if (record.name != null) {
+                out.println("SN:" + record.name);
+            }
+            out.println("SF:" + entry.getKey());
+            for (Map.Entry<String, Integer> function : record.functionLines.entrySet()) {
+                out.println("FN:" + function.getValue() + "," + function.getKey());
+            }
+            int coveredFunctions = 0;
+            for (Map.Entry<String, Long> function : record.functionCounts.entrySet()) {
+                if (function.getValue() > 0) {
+                    coveredFunctions++;
+                }
+                out.println("FNDA:" + function.getValue() + "," + function.getKey());
+            }
+            out.println("FNF:" + record.functionLines.size());
+            out.println("FNH:" + coveredFunctions);
+            int coveredLines = 0;
+            for (Map.Entry<Integer, Long> line : record.lineCounts.entrySet()) {
+                if (line.getValue() > 0) {
+                    coveredLines++;
+                }
+                out.println("DA:" + line.getKey() + "," + line.getValue());
+            }
+            out.println("LF:" + record.lineCounts.size());
+            out.println("LH:" + coveredLines);
+            out.println("end_of_record");
+        }
+    }
+}
@@ -26,7 +26,9 @@ package com.oracle.truffle.tools.coverage.impl;
 
 import java.io.PrintStream;
 import java.util.HashMap;
+import java.util.Map;
 
+import com.oracle.truffle.api.source.Source;
 import com.oracle.truffle.api.source.SourceSection;
 import com.oracle.truffle.tools.coverage.RootCoverage;
 import com.oracle.truffle.tools.coverage.SectionCoverage;
@@ -48,11 +50,51 @@ class LCOVPrinter {
     private final PrintStream out;
     private final SourceCoverage[] coverage;
     private final boolean strictLines;
+    private final Baseline baseline;
 
     LCOVPrinter(PrintStream out, SourceCoverage[] coverage, boolean strictLines) {
+        this(out, coverage, strictLines, null);
+    }
+
+    /**
+     * Creates a printer that only prints the counts accumulated since the given baseline was last
+     * printed, and then advances the baseline to the printed coverage. Summing the counts of all
+     * the printed deltas gives the total coverage.
+     */
+    LCOVPrinter(PrintStream out, SourceCoverage[] coverage, boolean strictLines, Baseline baseline) {
         this.out = out;
         this.coverage = coverage;
         this.strictLines = strictLines;
+        this.baseline = baseline;
+    }
+
+    /**
+     * The line and root counts of each source as of the last printed delta. Its size is bounded by
+     * the loaded code, not by the number of executions.
+     */
+    static final class Baseline {
+
+        private final Map<Source, Map<Integer, Long>> lines = new HashMap<>();
+        private final Map<Source, Map<SourceSection, Long>> roots = new HashMap<>();
+
+        private static <K> long advance(Map<Source, Map<K, Long>> counts, Source source, K key, long count) {
+            final Map<K, Long> perSource = counts.computeIfAbsent(source, s -> new HashMap<>());
+            final Long previous = perSource.get(key);
+            if (previous == null || count > previous) {
+                perSource.put(key, count);
+                return previous == null ? count : count - previous;
+            }
+            // strict lines can become uncovered again when new sections are loaded on them
+            return 0;
+        }
+    }
+
+    private long lineCount(Source source, int line, long count) {
+        return baseline == null ? count : Baseline.advance(baseline.lines, source, line, count);
+    }
+
+    private long rootCount(Source source, RootCoverage root, long count) {
+        return baseline == null ? count : Baseline.advance(baseline.roots, source, root.getSourceSection(), count);
     }
 
     private static void addCoverageCounts(HashMap<Integer, Long> linesToCount, SectionCoverage[] sectionCoverage) {
@@ -127,7 +169,7 @@ class LCOVPrinter {
         for (int i = 1; i <= sourceCoverage.getSource().getLineCount(); i++) {
             if (linesToCount.containsKey(i)) {
                 consideredLines++;
-                final long executionCount = linesToCount.get(i);
+                final long executionCount = lineCount(sourceCoverage.getSource(), i, linesToCount.get(i));
                 if (executionCount > 0) {
                     coveredLines++;
                 }
@@ -145,10 +187,11 @@ class LCOVPrinter {
         }
         int coveredRoots = 0;
         for (RootCoverage root : roots) {
-            if (root.isCovered()) {
+            final long count = rootCount(sourceCoverage.getSource(), root, (root.isCovered() && root.getCount() == -1) ? 1 : root.getCount());
+            if (count > 0) {
                 coveredRoots++;
             }
-            printRootCoverage(root);
+            printRootCoverage(root, count);
         }
         printRootCount(roots);
         printCoveredRootCount(coveredRoots);
@@ -162,8 +205,7 @@ class LCOVPrinter {
         out.println(FUNCTIONS_FOUND + roots.length);
     }
 
-    private void printRootCoverage(RootCoverage root) {
-        final long count = (root.isCovered() && root.getCount() == -1) ? 1 : root.getCount();
+    private void printRootCoverage(RootCoverage root, long count) {
         out.println(FUNCTION_DATA + count + "," + root.getName());
     }
 
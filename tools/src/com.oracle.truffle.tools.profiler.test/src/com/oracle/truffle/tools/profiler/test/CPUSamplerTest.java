@@ -98,6 +98,54 @@ public class CPUSamplerTest extends AbstractProfilerTest {
         Assert.assertFalse(sampler.hasData());
     }
 
+    @Test
+    public void testOverheadLimit() {
+        Assert.assertEquals(0, sampler.getOverheadLimit(), 0);
+        try {
+            sampler.setOverheadLimit(-1);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            sampler.setOverheadLimit(101);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        sampler.setOverheadLimit(2);
+        Assert.assertEquals(2, sampler.getOverheadLimit(), 0);
+        sampler.setCollecting(true);
+        try {
+            sampler.setOverheadLimit(1);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        for (int i = 0; i < executionCount; i++) {
+            eval(defaultSourceForSampling);
+        }
+        sampler.setCollecting(false);
+        Assert.assertNotEquals(0, sampler.getSampleCount());
+        Assert.assertTrue(sampler.hasData());
+    }
+
+    @Test
+    public void testEffectivePeriod() {
+        Assert.assertEquals(sampler.getPeriod(), sampler.getEffectivePeriod(), 0);
+        // Even a sample that takes a microsecond extends the time between samples to 10ms.
+        sampler.setOverheadLimit(0.01);
+        sampler.setCollecting(true);
+        for (int i = 0; i < executionCount; i++) {
+            eval(defaultSourceForSampling);
+        }
+        sampler.setCollecting(false);
+        Assert.assertNotEquals(0, sampler.getSampleCount());
+        Assert.assertTrue(String.valueOf(sampler.getEffectivePeriod()), sampler.getEffectivePeriod() > 2 * sampler.getPeriod());
+        sampler.clearData();
+        Assert.assertEquals(sampler.getPeriod(), sampler.getEffectivePeriod(), 0);
+    }
+
     Source defaultSourceForSampling = makeSource("ROOT(" +
                     "DEFINE(foo,ROOT(SLEEP(1)))," +
                     "DEFINE(bar,ROOT(BLOCK(STATEMENT,LOOP(10, CALL(foo)))))," +
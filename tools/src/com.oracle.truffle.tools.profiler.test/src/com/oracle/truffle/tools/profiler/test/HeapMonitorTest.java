@@ -29,6 +29,8 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -106,6 +108,23 @@ public class HeapMonitorTest extends AbstractProfilerTest {
         }
     }
 
+    @Test
+    public void testHeapSnapshot() throws IOException {
+        eval(defaultSource);
+
+        StringWriter snapshot = new StringWriter();
+        monitor.takeHeapSnapshot(snapshot);
+        String json = snapshot.toString();
+
+        assertTrue(json, json.startsWith("{\"snapshot\":{\"meta\":"));
+        assertTrue(json, json.contains("\"nodes\":[9,0,1,0,1,0,"));
+        assertTrue(json, json.contains("global)\""));
+        for (String function : new String[]{"foo", "bar", "baz"}) {
+            assertTrue(json, json.contains("\"" + function + "\""));
+        }
+        assertFalse("Heap snapshot must not require collecting.", monitor.isCollecting());
+    }
+
     @Test
     public void testActivatedDuringExec() throws InterruptedException {
         assertFalse(monitor.isCollecting());
@@ -127,6 +127,41 @@ public class MemoryTracerTest extends AbstractProfilerTest {
         Assert.assertFalse(tracer.hasData());
     }
 
+    @Test
+    public void testSampledAllocations() {
+        final String allocationsSource = "ROOT(" + "DEFINE(foo,ROOT(BLOCK(STATEMENT,LOOP(20000, ALLOCATION))))," + "CALL(foo)" + ")";
+        tracer.setSamplingInterval(100);
+        Assert.assertEquals(100, tracer.getSamplingInterval());
+        tracer.setCollecting(true);
+        try {
+            tracer.setSamplingInterval(10);
+            Assert.fail("Cannot change the sampling interval while collecting.");
+        } catch (IllegalStateException e) {
+        }
+
+        eval(makeSource(allocationsSource));
+
+        long samples = 0;
+        double estimatedAllocations = 0;
+        double estimatedBytes = 0;
+        for (ProfilerNode<MemoryTracer.Payload> root : tracer.getRootNodes()) {
+            for (ProfilerNode<MemoryTracer.Payload> node : root.getChildren()) {
+                for (MemoryTracer.AllocationEventInfo info : node.getPayload().getEvents()) {
+                    Assert.assertTrue(info.getSampleWeight() > 1);
+                    samples++;
+                    estimatedAllocations += info.getSampleWeight();
+                    estimatedBytes += info.getEstimatedAllocated();
+                }
+                Assert.assertEquals(node.getPayload().getEvents().size(), node.getPayload().getTotalAllocations());
+            }
+        }
+        // each allocation has one byte, so roughly one in a hundred is sampled
+        Assert.assertTrue("Too many samples: " + samples, samples < 1000);
+        Assert.assertTrue("Too few samples: " + samples, samples > 20);
+        Assert.assertEquals(20000, estimatedAllocations, 10000);
+        Assert.assertEquals(estimatedAllocations, estimatedBytes, samples);
+    }
+
     @Test
     public void testOneAllocationInRootRecursive() {
         final String oneAllocationSource = "ROOT(" + "DEFINE(foo,ROOT(BLOCK(STATEMENT,RECURSIVE_CALL(foo, 10))))," + "DEFINE(bar,ROOT(BLOCK(STATEMENT,LOOP(10, CALL(foo)))))," +
@@ -334,4 +369,26 @@ public class MemoryTracerTest extends AbstractProfilerTest {
         tracer.setCollecting(true);
         c.eval(Source.newBuilder(AllocatesDuringReportingAllocation.ID, "", "").buildLiteral());
     }
+
+    @Test
+    public void testSampledAllocationsOfUnknownSize() {
+        Context c = Context.create(AllocatesDuringReportingAllocation.ID);
+        tracer = MemoryTracer.find(c.getEngine());
+        tracer.setSamplingInterval(1);
+        tracer.setCollecting(true);
+        Source source = Source.newBuilder(AllocatesDuringReportingAllocation.ID, "", "").buildLiteral();
+        for (int i = 0; i < 100; i++) {
+            c.eval(source);
+        }
+        long samples = 0;
+        for (ProfilerNode<MemoryTracer.Payload> root : tracer.getRootNodes()) {
+            for (MemoryTracer.AllocationEventInfo info : root.getPayload().getEvents()) {
+                Assert.assertTrue("Unexpected allocated size: " + info.getAllocated(), info.getAllocated() > 0);
+                Assert.assertTrue("Unexpected estimated size: " + info.getEstimatedAllocated(), info.getEstimatedAllocated() > 0);
+                samples++;
+            }
+        }
+        Assert.assertTrue("No samples", samples > 0);
+        c.close();
+    }
 }
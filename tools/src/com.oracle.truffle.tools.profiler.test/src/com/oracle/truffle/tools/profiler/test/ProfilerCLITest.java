@@ -25,12 +25,18 @@
 package com.oracle.truffle.tools.profiler.test;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Engine;
 import org.graalvm.polyglot.Source;
 import org.junit.Assert;
 import org.junit.Test;
@@ -82,6 +88,103 @@ public class ProfilerCLITest {
         deepCompare(samples, profilerNodes);
     }
 
+    @Test
+    public void testSamplerContinuousOutput() throws IOException {
+        Path directory = Files.createTempDirectory("cpusampler");
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Context context = Context.newBuilder().in(System.in).out(out).err(out).option("cpusampler", "true").option("cpusampler.ContinuousOutputDirectory", directory.toString()).build();
+        Source source = makeSource("ROOT(" +
+                        "DEFINE(foo,ROOT(SLEEP(1)))," +
+                        "DEFINE(bar,ROOT(BLOCK(STATEMENT,LOOP(10, CALL(foo)))))," +
+                        "CALL(bar)" +
+                        ")");
+        for (int i = 0; i < 10; i++) {
+            context.eval(source);
+        }
+        context.close();
+        Assert.assertEquals("Nothing is printed in continuous mode", 0, out.size());
+
+        int pprofFiles = 0;
+        int collapsedFiles = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                Assert.assertTrue(name, name.matches("cpusampler-[0-9]{8}-[0-9]{6}-[0-9a-f]{8}-0000\\.(pb\\.gz|collapsed)"));
+                if (name.endsWith(".pb.gz")) {
+                    pprofFiles++;
+                    Assert.assertTrue(Files.size(file) > 0);
+                } else if (name.endsWith(".collapsed")) {
+                    collapsedFiles++;
+                    String collapsed = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+                    Assert.assertTrue(collapsed, collapsed.contains("bar"));
+                    for (String line : collapsed.split("\n")) {
+                        Assert.assertTrue(line, line.matches(".+ [0-9]+"));
+                    }
+                }
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+        Assert.assertEquals(1, pprofFiles);
+        Assert.assertEquals(1, collapsedFiles);
+    }
+
+    @Test
+    public void testSamplerContinuousOutputKeepsOtherRuns() throws IOException {
+        Path directory = Files.createTempDirectory("cpusampler");
+        // the windows of an earlier run, which are older than all windows of this run
+        Path otherPprof = Files.write(directory.resolve("cpusampler-20000101-000000-0123abcd-0000.pb.gz"), new byte[]{1});
+        Path otherCollapsed = Files.write(directory.resolve("cpusampler-20000101-000000-0123abcd-0000.collapsed"), new byte[]{1});
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Context context = Context.newBuilder().in(System.in).out(out).err(out).option("cpusampler", "true").option("cpusampler.ContinuousOutputDirectory", directory.toString()).option(
+                        "cpusampler.ContinuousMaxWindows", "1").build();
+        context.eval(makeSource("ROOT(DEFINE(foo,ROOT(SLEEP(1))),LOOP(10, CALL(foo)))"));
+        context.close();
+
+        Assert.assertTrue(Files.exists(otherPprof));
+        Assert.assertTrue(Files.exists(otherCollapsed));
+        int files = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path file : stream) {
+                files++;
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+        Assert.assertEquals(4, files);
+    }
+
+    @Test
+    public void testHeapSnapshotOnClose() throws IOException {
+        Path directory = Files.createTempDirectory("heapmonitor");
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Engine engine = Engine.newBuilder().out(out).err(out).option("heapmonitor.HeapSnapshot", directory.resolve("heap.heapsnapshot").toString()).build();
+        // both contexts are open at the same time, each snapshot contains only the closed one
+        Context first = Context.newBuilder().engine(engine).build();
+        Context second = Context.newBuilder().engine(engine).build();
+        first.eval(makeSource("ROOT(DEFINE(foo,ROOT(STATEMENT)),CALL(foo))"));
+        second.eval(makeSource("ROOT(DEFINE(bar,ROOT(STATEMENT)),CALL(bar))"));
+        first.close();
+        second.close();
+        engine.close();
+        Assert.assertEquals("", out.toString());
+
+        String[] expected = {"foo", "bar"};
+        for (int i = 0; i < expected.length; i++) {
+            Path file = directory.resolve("heap-" + (i + 1) + ".heapsnapshot");
+            JSONObject snapshot = new JSONObject(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+            Assert.assertTrue(snapshot.has("nodes"));
+            String strings = snapshot.getJSONArray("strings").toString();
+            Assert.assertTrue(strings, strings.contains("\"" + expected[i] + "\""));
+            Assert.assertFalse(strings, strings.contains("\"" + expected[1 - i] + "\""));
+            Files.delete(file);
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            Assert.assertFalse("Only one snapshot per context is written.", stream.iterator().hasNext());
+        }
+        Files.delete(directory);
+    }
+
     private void deepCompare(JSONArray samples, Collection<ProfilerNode<CPUSampler.Payload>> nodes) {
         for (int i = 0; i < samples.length(); i++) {
             JSONObject sample = (JSONObject) samples.get(i);
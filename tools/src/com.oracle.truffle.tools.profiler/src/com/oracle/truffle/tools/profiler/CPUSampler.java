@@ -35,6 +35,8 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
@@ -65,6 +67,11 @@ import com.oracle.truffle.tools.profiler.impl.ProfilerToolFactory;
  * intervals, i.e. the state of the stack is copied and saved into trees of {@linkplain ProfilerNode
  * nodes}, which represent the profile of the execution.
  * <p>
+ * Reading the shadow stacks does not stop the sampled threads. To leave the sampler enabled in
+ * production, {@linkplain #setOverheadLimit(double) limit} the share of time spent on taking
+ * samples. The sampling intervals are then randomized, which avoids samples that are biased by
+ * periodic behavior of the program.
+ * <p>
  * Usage example: {@codesnippet CPUSamplerSnippets#example}
  *
  * @since 0.30
@@ -199,6 +206,8 @@ public final class CPUSampler implements Closeable {
 
     private long delay = 0;
 
+    private double overheadLimit = 0;
+
     private int stackLimit = 10000;
 
     private SourceSectionFilter filter;
@@ -207,6 +216,17 @@ public final class CPUSampler implements Closeable {
 
     private AtomicLong samplesTaken = new AtomicLong(0);
 
+    /**
+     * The sum of the intervals that preceded the taken samples, in milliseconds.
+     */
+    private AtomicLong sampledTime = new AtomicLong(0);
+
+    /**
+     * The time the sampling thread last ran, or is first scheduled to run. Only accessed by the
+     * sampling thread once sampling has started.
+     */
+    private long previousRunTimestamp;
+
     private Timer samplerThread;
 
     private TimerTask samplerTask;
@@ -324,6 +344,35 @@ public final class CPUSampler implements Closeable {
         return period;
     }
 
+    /**
+     * Limits the time the sampling thread spends on taking samples to the given percentage of the
+     * elapsed time. If set, the time between two samples is randomized around the
+     * {@linkplain #setPeriod(long) sampling period} and extended whenever the previous sample took
+     * too long, e.g. because of many threads or deep stacks. The limit does not include the cost of
+     * maintaining the shadow stack in the sampled threads, which is lowest in
+     * {@link Mode#EXCLUDE_INLINED_ROOTS} mode. A limit of {@code 0} disables it, which is the
+     * default.
+     *
+     * @param percentage the maximum overhead in percent, between {@code 0} and {@code 100}
+     * @since 20.3
+     */
+    public synchronized void setOverheadLimit(double percentage) {
+        enterChangeConfig();
+        if (!(percentage >= 0 && percentage <= 100)) {
+            throw new IllegalArgumentException(String.format("Invalid overhead limit %s.", percentage));
+        }
+        this.overheadLimit = percentage;
+    }
+
+    /**
+     * @return the maximum percentage of time spent on taking samples, or {@code 0} if the overhead
+     *         is not limited.
+     * @since 20.3
+     */
+    public synchronized double getOverheadLimit() {
+        return overheadLimit;
+    }
+
     /**
      * Sets the delay period i.e. the time that is allowed to pass between when the first sample
      * would have been taken and when the sampler actually starts taking samples.
@@ -399,6 +448,22 @@ public final class CPUSampler implements Closeable {
         return samplesTaken.get();
     }
 
+    /**
+     * Returns the average time between the samples taken since the data was last
+     * {@linkplain #clearData() cleared}, in milliseconds. Without an
+     * {@linkplain #setOverheadLimit(double) overhead limit} it is the
+     * {@linkplain #getPeriod() sampling period}. With a limit, the time between two samples is
+     * randomized and extended whenever sampling takes too long, so it may be larger. The time
+     * represented by a number of samples is that number multiplied by the effective period.
+     *
+     * @return the average time between two samples, or the sampling period if no sample was taken
+     * @since 20.3
+     */
+    public synchronized double getEffectivePeriod() {
+        long samples = samplesTaken.get();
+        return samples == 0 ? period : sampledTime.get() / (double) samples;
+    }
+
     /**
      * @return was the shadow stack size insufficient for the execution.
      * @since 0.30
@@ -477,6 +542,7 @@ public final class CPUSampler implements Closeable {
      */
     public synchronized void clearData() {
         samplesTaken.set(0);
+        sampledTime.set(0);
         for (ProfilerNode<Payload> node : rootNodes.values()) {
             Map<StackTraceEntry, ProfilerNode<Payload>> rootChildren = node.children;
             if (rootChildren != null) {
@@ -600,8 +666,14 @@ public final class CPUSampler implements Closeable {
         }
         this.stackOverflowed = false;
         initializeShadowStack();
-        this.samplerTask = new SamplingTimerTask();
-        this.samplerThread.schedule(samplerTask, delay, period);
+        this.previousRunTimestamp = System.currentTimeMillis() + delay;
+        if (overheadLimit > 0) {
+            this.samplerTask = new BoundedOverheadSamplingTimerTask();
+            this.samplerThread.schedule(samplerTask, delay + randomizePeriod(period));
+        } else {
+            this.samplerTask = new SamplingTimerTask();
+            this.samplerThread.schedule(samplerTask, delay, period);
+        }
     }
 
     private static SourceSectionFilter combine(SourceSectionFilter filter, Mode mode) {
@@ -658,10 +730,14 @@ public final class CPUSampler implements Closeable {
 
         @Override
         public void run() {
+            long timestamp = System.currentTimeMillis();
+            // the actual time since the previous run, which is longer than the period if the
+            // sampling interval was extended or the sampling thread was delayed
+            long interval = Math.max(0, timestamp - previousRunTimestamp);
+            previousRunTimestamp = timestamp;
             if (delaySamplingUntilNonInternalLangInit && !nonInternalLanguageContextInitialized) {
                 return;
             }
-            long timestamp = System.currentTimeMillis();
             boolean sampleTaken = false;
             ShadowStack localShadowStack = shadowStack;
             if (localShadowStack != null) {
@@ -679,7 +755,10 @@ public final class CPUSampler implements Closeable {
                 }
             }
             if (sampleTaken) {
-                samplesTaken.incrementAndGet();
+                synchronized (CPUSampler.this) {
+                    samplesTaken.incrementAndGet();
+                    sampledTime.addAndGet(interval);
+                }
             }
         }
 
@@ -738,6 +817,37 @@ public final class CPUSampler implements Closeable {
         }
     }
 
+    /**
+     * Returns a random delay that is on average {@code meanPeriod}.
+     */
+    private static long randomizePeriod(long meanPeriod) {
+        return meanPeriod / 2 + ThreadLocalRandom.current().nextLong(meanPeriod + 1);
+    }
+
+    /**
+     * Takes a single sample and schedules the next one after a randomized delay, which is extended
+     * if necessary to keep the sampling overhead below the {@link #overheadLimit}.
+     */
+    private final class BoundedOverheadSamplingTimerTask extends SamplingTimerTask {
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            super.run();
+            long sampleDuration = System.nanoTime() - start;
+            synchronized (CPUSampler.this) {
+                if (samplerTask != this || samplerThread == null) {
+                    // cancelled in the meantime
+                    return;
+                }
+                // Spending sampleDuration out of every interval is within the overhead limit.
+                long minInterval = TimeUnit.NANOSECONDS.toMillis((long) (sampleDuration * 100 / overheadLimit));
+                samplerTask = new BoundedOverheadSamplingTimerTask();
+                samplerThread.schedule(samplerTask, randomizePeriod(Math.max(period, minInterval)));
+            }
+        }
+    }
+
     static {
         CPUSamplerInstrument.setFactory(new ProfilerToolFactory<CPUSampler>() {
             @Override
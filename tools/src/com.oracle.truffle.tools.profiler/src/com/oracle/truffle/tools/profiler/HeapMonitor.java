@@ -25,6 +25,8 @@
 package com.oracle.truffle.tools.profiler;
 
 import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
@@ -44,6 +46,7 @@ import org.graalvm.polyglot.Engine;
 
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
 import com.oracle.truffle.api.CompilerDirectives;
+import com.oracle.truffle.api.Scope;
 import com.oracle.truffle.api.TruffleContext;
 import com.oracle.truffle.api.instrumentation.AllocationEvent;
 import com.oracle.truffle.api.instrumentation.AllocationEventFilter;
@@ -71,6 +74,7 @@ import com.oracle.truffle.tools.profiler.impl.HeapMonitorInstrument;
  *
  * @see #takeSummary()
  * @see #takeMetaObjectSummary()
+ * @see #takeHeapSnapshot(Writer)
  * @since 19.0
  */
 public final class HeapMonitor implements Closeable {
@@ -91,6 +95,7 @@ public final class HeapMonitor implements Closeable {
     private boolean collecting;
     private EventBinding<?> activeBinding;
     private final Map<LanguageInfo, LanguageInfo> initializedLanguages = new ConcurrentHashMap<>();
+    private final Map<TruffleContext, Map<LanguageInfo, LanguageInfo>> contextLanguages = new ConcurrentHashMap<>();
 
     private HeapMonitor(TruffleInstrument.Env env) {
         this.env = env;
@@ -108,6 +113,7 @@ public final class HeapMonitor implements Closeable {
             @Override
             public void onLanguageContextInitialized(TruffleContext context, LanguageInfo language) {
                 initializedLanguages.put(language, language);
+                contextLanguages.computeIfAbsent(context, k -> new ConcurrentHashMap<>()).put(language, language);
             }
 
             @Override
@@ -117,12 +123,16 @@ public final class HeapMonitor implements Closeable {
 
             @Override
             public void onLanguageContextDisposed(TruffleContext context, LanguageInfo language) {
-
+                // finalized language contexts are still part of the heap snapshot
+                Map<LanguageInfo, LanguageInfo> languages = contextLanguages.get(context);
+                if (languages != null) {
+                    languages.remove(language);
+                }
             }
 
             @Override
             public void onContextClosed(TruffleContext context) {
-
+                contextLanguages.remove(context);
             }
         }, true);
     }
@@ -251,6 +261,80 @@ public final class HeapMonitor implements Closeable {
         }
     }
 
+    /**
+     * Writes a snapshot of the guest objects reachable from the top scopes of all initialized
+     * languages in all open contexts in the Chrome DevTools <code>.heapsnapshot</code> format. The
+     * snapshot can be loaded into the memory tab of Chrome DevTools.
+     * <p>
+     * Unlike the summaries this does not require the heap monitor to be
+     * {@link #setCollecting(boolean) collecting} data. Objects are discovered by walking members
+     * and array elements through interop, members whose read has side effects are not followed.
+     * The walk is streamed, only the identities of the visited objects are kept in memory while
+     * the snapshot is written. Each context is entered on the current thread for the duration of
+     * its walk, so the snapshot fails with an {@link IllegalStateException} if a context is
+     * executing on another thread and one of its languages does not allow multi-threaded access.
+     *
+     * @param output the writer the snapshot is written to, it is not closed by this method
+     * @throws IOException if writing the snapshot fails
+     * @throws IllegalStateException if the heap monitor was already closed
+     * @since 20.3
+     */
+    public void takeHeapSnapshot(Writer output) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Heap Allocation Monitor is already closed.");
+        }
+        try (HeapSnapshotWriter snapshot = new HeapSnapshotWriter()) {
+            for (Entry<TruffleContext, Map<LanguageInfo, LanguageInfo>> entry : contextLanguages.entrySet()) {
+                addContext(snapshot, entry.getKey(), entry.getValue());
+            }
+            snapshot.write(output);
+        }
+    }
+
+    /**
+     * Writes a snapshot of the guest objects reachable from the top scopes of the initialized
+     * languages of a single context, in the same format as {@link #takeHeapSnapshot(Writer)}. Only
+     * the given context is entered.
+     *
+     * @param context the context whose objects are written
+     * @param output the writer the snapshot is written to, it is not closed by this method
+     * @throws IOException if writing the snapshot fails
+     * @throws IllegalStateException if the heap monitor was already closed
+     * @since 20.3
+     */
+    public void takeHeapSnapshot(TruffleContext context, Writer output) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Heap Allocation Monitor is already closed.");
+        }
+        try (HeapSnapshotWriter snapshot = new HeapSnapshotWriter()) {
+            Map<LanguageInfo, LanguageInfo> languages = contextLanguages.get(context);
+            if (languages != null) {
+                addContext(snapshot, context, languages);
+            }
+            snapshot.write(output);
+        }
+    }
+
+    private void addContext(HeapSnapshotWriter snapshot, TruffleContext context, Map<LanguageInfo, LanguageInfo> languages) throws IOException {
+        if (context.isClosed() && !context.isActive()) {
+            return;
+        }
+        Object prev = context.enter();
+        try {
+            for (LanguageInfo language : languages.keySet()) {
+                if (language.isInternal()) {
+                    continue;
+                }
+                for (Scope scope : env.findTopScopes(language.getId())) {
+                    snapshot.addRoot("(" + language.getName() + " " + scope.getName() + ")", scope.getVariables());
+                }
+            }
+            snapshot.walk();
+        } finally {
+            context.leave(prev);
+        }
+    }
+
     private void processNewReferences() {
         synchronized (summaryData) {
             ObjectWeakReference reference;
@@ -0,0 +1,393 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.tools.profiler;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.oracle.truffle.api.interop.InteropException;
+import com.oracle.truffle.api.interop.InteropLibrary;
+
+/**
+ * Writes the guest objects reachable from a set of scopes in the Chrome DevTools
+ * <code>.heapsnapshot</code> format. Objects are visited breadth first through the
+ * {@link InteropLibrary}, so a node index is assigned to an object when it is first referenced and
+ * nodes are written in index order. Only the identities of visited objects and the string table are
+ * kept in memory, nodes and edges are spilled to temporary files as they are visited and
+ * concatenated into the output by {@link #write(Writer)}.
+ * <p>
+ * Interop does not expose object sizes, the reported self sizes are estimates based on the number
+ * of references held by an object.
+ */
+final class HeapSnapshotWriter implements Closeable {
+
+    private static final InteropLibrary INTEROP = InteropLibrary.getFactory().getUncached();
+
+    private static final int NODE_HIDDEN = 0;
+    private static final int NODE_ARRAY = 1;
+    private static final int NODE_STRING = 2;
+    private static final int NODE_OBJECT = 3;
+    private static final int NODE_CLOSURE = 5;
+    private static final int NODE_NUMBER = 7;
+    private static final int NODE_SYNTHETIC = 9;
+
+    private static final int EDGE_ELEMENT = 1;
+    private static final int EDGE_PROPERTY = 2;
+
+    private static final int NODE_FIELD_COUNT = 6;
+    private static final int MAX_NAME_LENGTH = 1024;
+    private static final int HEADER_SIZE = 16;
+    private static final int REFERENCE_SIZE = 8;
+
+    // @formatter:off
+    private static final String META =
+                    "{\"node_fields\":[\"type\",\"name\",\"id\",\"self_size\",\"edge_count\",\"trace_node_id\"]," +
+                    "\"node_types\":[[\"hidden\",\"array\",\"string\",\"object\",\"code\",\"closure\",\"regexp\",\"number\",\"native\",\"synthetic\"," +
+                                    "\"concatenated string\",\"sliced string\",\"symbol\",\"bigint\"],\"string\",\"number\",\"number\",\"number\",\"number\"]," +
+                    "\"edge_fields\":[\"type\",\"name_or_index\",\"to_node\"]," +
+                    "\"edge_types\":[[\"context\",\"element\",\"property\",\"internal\",\"hidden\",\"shortcut\",\"weak\"],\"string_or_number\",\"node\"]," +
+                    "\"trace_function_info_fields\":[\"function_id\",\"name\",\"script_name\",\"script_id\",\"line\",\"column\"]," +
+                    "\"trace_node_fields\":[\"id\",\"function_info_index\",\"count\",\"size\",\"children\"]," +
+                    "\"sample_fields\":[\"timestamp_us\",\"last_assigned_id\"]," +
+                    "\"location_fields\":[\"object_index\",\"script_id\",\"line\",\"column\"]}";
+    // @formatter:on
+
+    private final Path nodesFile;
+    private final Path edgesFile;
+    private final Writer nodes;
+    private final Writer edges;
+
+    private final Map<Object, Integer> objects = new IdentityHashMap<>();
+    private final Map<Object, Integer> primitives = new HashMap<>();
+    private final Map<String, Integer> strings = new LinkedHashMap<>();
+    private final ArrayDeque<Object> pending = new ArrayDeque<>();
+    private final List<Integer> roots = new ArrayList<>();
+    private int nodeCount = 1; // the synthetic root
+    private int edgeCount;
+    private int writtenNodes;
+
+    HeapSnapshotWriter() throws IOException {
+        nodesFile = Files.createTempFile("heapsnapshot-nodes", ".tmp");
+        edgesFile = Files.createTempFile("heapsnapshot-edges", ".tmp");
+        nodes = Files.newBufferedWriter(nodesFile, StandardCharsets.UTF_8);
+        edges = Files.newBufferedWriter(edgesFile, StandardCharsets.UTF_8);
+        stringIndex("");
+    }
+
+    /**
+     * Adds the variables of a scope as a root of the snapshot. The objects reachable from the
+     * scope are only visited by {@link #walk()}.
+     */
+    void addRoot(String name, Object variables) {
+        roots.add(reference(new ScopeRoot(name, variables)));
+    }
+
+    /**
+     * Visits all objects referenced from the roots added so far. Must be called while the context
+     * the roots belong to is entered.
+     */
+    void walk() throws IOException {
+        Object value;
+        while ((value = pending.poll()) != null) {
+            visit(value);
+        }
+    }
+
+    void write(Writer out) throws IOException {
+        nodes.close();
+        edges.close();
+        out.write("{\"snapshot\":{\"meta\":");
+        out.write(META);
+        out.write(",\"node_count\":" + nodeCount + ",\"edge_count\":" + (edgeCount + roots.size()) + ",\"trace_function_count\":0},\n\"nodes\":[");
+        writeRecord(out, true, NODE_SYNTHETIC, 0, 1, 0, roots.size(), 0);
+        if (writtenNodes > 0) {
+            out.write(',');
+            copy(nodesFile, out);
+        }
+        out.write("],\n\"edges\":[");
+        for (int i = 0; i < roots.size(); i++) {
+            writeRecord(out, i == 0, EDGE_ELEMENT, i + 1, roots.get(i) * NODE_FIELD_COUNT);
+        }
+        if (edgeCount > 0) {
+            if (!roots.isEmpty()) {
+                out.write(',');
+            }
+            copy(edgesFile, out);
+        }
+        out.write("],\n\"trace_function_infos\":[],\"trace_tree\":[],\"samples\":[],\"locations\":[],\n\"strings\":[");
+        boolean first = true;
+        for (String string : strings.keySet()) {
+            if (!first) {
+                out.write(',');
+            }
+            first = false;
+            writeString(out, string);
+        }
+        out.write("]}\n");
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            nodes.close();
+            edges.close();
+        } finally {
+            Files.deleteIfExists(nodesFile);
+            Files.deleteIfExists(edgesFile);
+        }
+    }
+
+    private int reference(Object value) {
+        Map<Object, Integer> indices = isPrimitive(value) ? primitives : objects;
+        Integer index = indices.get(value);
+        if (index == null) {
+            index = nodeCount++;
+            indices.put(value, index);
+            pending.add(value);
+        }
+        return index;
+    }
+
+    private static boolean isPrimitive(Object value) {
+        return value instanceof String || value instanceof Number || value instanceof Boolean || value instanceof Character;
+    }
+
+    private void visit(Object value) throws IOException {
+        List<int[]> references = new ArrayList<>();
+        int type;
+        String name;
+        long size;
+        if (value instanceof ScopeRoot) {
+            ScopeRoot root = (ScopeRoot) value;
+            type = NODE_SYNTHETIC;
+            name = root.name;
+            collectMembers(root.variables, references);
+            size = 0;
+        } else if (INTEROP.isString(value)) {
+            type = NODE_STRING;
+            name = asString(value);
+            size = HEADER_SIZE + 2L * name.length();
+        } else if (INTEROP.isNumber(value) || INTEROP.isBoolean(value)) {
+            type = INTEROP.isNumber(value) ? NODE_NUMBER : NODE_HIDDEN;
+            name = displayString(value);
+            size = HEADER_SIZE;
+        } else {
+            if (INTEROP.isExecutable(value)) {
+                type = NODE_CLOSURE;
+            } else if (INTEROP.hasArrayElements(value)) {
+                type = NODE_ARRAY;
+            } else {
+                type = NODE_OBJECT;
+            }
+            name = metaName(value);
+            collectMembers(value, references);
+            collectElements(value, references);
+            size = HEADER_SIZE + (long) REFERENCE_SIZE * references.size();
+        }
+        writeRecord(nodes, writtenNodes == 0, type, stringIndex(name), nodeId(objectIndex(value)), size, references.size(), 0);
+        writtenNodes++;
+        for (int[] edge : references) {
+            writeRecord(edges, edgeCount == 0, edge[0], edge[1], edge[2] * NODE_FIELD_COUNT);
+            edgeCount++;
+        }
+    }
+
+    private int objectIndex(Object value) {
+        return (isPrimitive(value) ? primitives : objects).get(value);
+    }
+
+    private void collectMembers(Object receiver, List<int[]> references) {
+        if (!INTEROP.hasMembers(receiver)) {
+            return;
+        }
+        Object members;
+        long size;
+        try {
+            members = INTEROP.getMembers(receiver);
+            size = INTEROP.getArraySize(members);
+        } catch (InteropException e) {
+            return;
+        }
+        for (long i = 0; i < size; i++) {
+            try {
+                String member = INTEROP.asString(INTEROP.readArrayElement(members, i));
+                if (INTEROP.isMemberReadable(receiver, member) && !INTEROP.hasMemberReadSideEffects(receiver, member)) {
+                    Object child = INTEROP.readMember(receiver, member);
+                    if (!INTEROP.isNull(child)) {
+                        references.add(new int[]{EDGE_PROPERTY, stringIndex(member), reference(child)});
+                    }
+                }
+            } catch (InteropException e) {
+                // the member changed while we were reading it, skip it
+            }
+        }
+    }
+
+    private void collectElements(Object receiver, List<int[]> references) {
+        if (!INTEROP.hasArrayElements(receiver)) {
+            return;
+        }
+        long size;
+        try {
+            size = INTEROP.getArraySize(receiver);
+        } catch (InteropException e) {
+            return;
+        }
+        for (long i = 0; i < size && i <= Integer.MAX_VALUE; i++) {
+            try {
+                if (INTEROP.isArrayElementReadable(receiver, i)) {
+                    Object child = INTEROP.readArrayElement(receiver, i);
+                    if (!INTEROP.isNull(child)) {
+                        references.add(new int[]{EDGE_ELEMENT, (int) i, reference(child)});
+                    }
+                }
+            } catch (InteropException e) {
+                // the element changed while we were reading it, skip it
+            }
+        }
+    }
+
+    private static String metaName(Object value) {
+        if (INTEROP.hasMetaObject(value)) {
+            try {
+                return asString(INTEROP.getMetaQualifiedName(INTEROP.getMetaObject(value)));
+            } catch (InteropException e) {
+                // fall through to the display string
+            }
+        }
+        return displayString(value);
+    }
+
+    private static String displayString(Object value) {
+        return asString(INTEROP.toDisplayString(value, false));
+    }
+
+    private static String asString(Object value) {
+        String string;
+        try {
+            string = INTEROP.asString(value);
+        } catch (InteropException e) {
+            string = "";
+        }
+        if (string.length() > MAX_NAME_LENGTH) {
+            string = string.substring(0, MAX_NAME_LENGTH);
+        }
+        return string;
+    }
+
+    private int stringIndex(String string) {
+        Integer index = strings.get(string);
+        if (index == null) {
+            index = strings.size();
+            strings.put(string, index);
+        }
+        return index;
+    }
+
+    /*
+     * V8 uses odd ids for heap objects, keep to that so that tools comparing snapshots by id do
+     * not have to special case us.
+     */
+    private static long nodeId(int index) {
+        return 2L * index + 1;
+    }
+
+    private static void writeRecord(Writer out, boolean first, long... fields) throws IOException {
+        if (!first) {
+            out.write(",\n");
+        }
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            out.write(Long.toString(fields[i]));
+        }
+    }
+
+    private static void copy(Path file, Writer out) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            char[] buffer = new char[8192];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+    }
+
+    private static void writeString(Writer out, String string) throws IOException {
+        out.write('"');
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            switch (c) {
+                case '"':
+                    out.write("\\\"");
+                    break;
+                case '\\':
+                    out.write("\\\\");
+                    break;
+                case '\n':
+                    out.write("\\n");
+                    break;
+                case '\r':
+                    out.write("\\r");
+                    break;
+                case '\t':
+                    out.write("\\t");
+                    break;
+                default:
+                    if (c < ' ' || (c >= '\ud800' && c <= '\udfff')) {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+            }
+        }
+        out.write('"');
+    }
+
+    private static final class ScopeRoot {
+
+        final String name;
+        final Object variables;
+
+        ScopeRoot(String name, Object variables) {
+            this.name = name;
+            this.variables = variables;
+        }
+    }
+}
@@ -25,12 +25,14 @@
 package com.oracle.truffle.tools.profiler;
 
 import java.io.Closeable;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -44,6 +46,7 @@ import com.oracle.truffle.api.TruffleLogger;
 import com.oracle.truffle.api.instrumentation.AllocationEvent;
 import com.oracle.truffle.api.instrumentation.AllocationEventFilter;
 import com.oracle.truffle.api.instrumentation.AllocationListener;
+import com.oracle.truffle.api.instrumentation.AllocationReporter;
 import com.oracle.truffle.api.instrumentation.EventBinding;
 import com.oracle.truffle.api.instrumentation.SourceSectionFilter;
 import com.oracle.truffle.api.instrumentation.StandardTags;
@@ -66,6 +69,13 @@ import com.oracle.truffle.tools.profiler.impl.ProfilerToolFactory;
  * during execution, and listens for {@link AllocationEvent allocation events}. On each event, the
  * allocation information is associated to the top of the stack.
  * <p>
+ * Recording every allocation is expensive. With a {@link #setSamplingInterval(long) sampling
+ * interval} set, only about one allocation every given number of bytes per thread is recorded, at
+ * randomized points, and the shadow stack and meta object of an allocation are only looked up when
+ * it is sampled. Every recorded event then {@link AllocationEventInfo#getSampleWeight() stands for}
+ * the number of allocations it represents, from which the totals per allocation site and type can
+ * be estimated, and {@link AllocationEventInfo#isLive() knows} whether its value is still reachable.
+ * <p>
  * NOTE: This profiler is still experimental with limited capabilities.
  * <p>
  * Usage example: {@codesnippet MemoryTracerSnippets#example}
@@ -93,6 +103,8 @@ public final class MemoryTracer implements Closeable {
 
     private int stackLimit = 1000;
 
+    private long samplingInterval = 0;
+
     private ShadowStack shadowStack;
 
     private EventBinding<?> stacksBinding;
@@ -124,7 +136,7 @@ public final class MemoryTracer implements Closeable {
         this.shadowStack = new ShadowStack(stackLimit, f, env.getInstrumenter(), TruffleLogger.getLogger(CPUTracerInstrument.ID));
         this.stacksBinding = this.shadowStack.install(env.getInstrumenter(), f, false);
 
-        this.activeBinding = env.getInstrumenter().attachAllocationListener(AllocationEventFilter.ANY, new Listener());
+        this.activeBinding = env.getInstrumenter().attachAllocationListener(AllocationEventFilter.ANY, new Listener(samplingInterval));
     }
 
     /**
@@ -200,8 +212,9 @@ public final class MemoryTracer implements Closeable {
         public Payload apply(Payload payload) {
             Payload copy = new Payload();
             copy.totalAllocations = payload.totalAllocations;
+            copy.estimatedTotalAllocations = payload.estimatedTotalAllocations;
             for (AllocationEventInfo info : payload.events) {
-                copy.events.add(new AllocationEventInfo(info.language, info.allocated, info.reallocation, info.metaObjectString));
+                copy.events.add(new AllocationEventInfo(info));
             }
             return copy;
         }
@@ -211,8 +224,9 @@ public final class MemoryTracer implements Closeable {
         @Override
         public void accept(Payload source, Payload dest) {
             dest.totalAllocations += source.totalAllocations;
+            dest.estimatedTotalAllocations += source.estimatedTotalAllocations;
             for (AllocationEventInfo info : source.events) {
-                dest.events.add(new AllocationEventInfo(info.language, info.allocated, info.reallocation, info.metaObjectString));
+                dest.events.add(new AllocationEventInfo(info));
             }
         }
     };
@@ -275,6 +289,34 @@ public final class MemoryTracer implements Closeable {
         return stackOverflowed;
     }
 
+    /**
+     * @return the average number of bytes allocated by a thread between two recorded allocations,
+     *         or <code>0</code> if every allocation is recorded
+     * @since 20.3
+     */
+    public synchronized long getSamplingInterval() {
+        return samplingInterval;
+    }
+
+    /**
+     * Sets the average number of bytes a thread allocates between two recorded allocations. The
+     * actual distance is randomized, so that allocations of all sizes and from all sites get a
+     * chance to be sampled in proportion to the memory they allocate. Only sampled allocations
+     * build a stack and are recorded, which bounds the overhead of the tracer. Each recorded
+     * {@link AllocationEventInfo} carries the {@link AllocationEventInfo#getSampleWeight() weight}
+     * needed to estimate the totals.
+     *
+     * @param bytes the average sampling distance in bytes, <code>0</code> records every allocation
+     * @since 20.3
+     */
+    public synchronized void setSamplingInterval(long bytes) {
+        verifyConfigAllowed();
+        if (bytes < 0) {
+            throw new IllegalArgumentException(String.format("Invalid sampling interval %s.", bytes));
+        }
+        this.samplingInterval = bytes;
+    }
+
     /**
      * Sets the {@link SourceSectionFilter filter} for the sampler. This allows the sampler to
      * observe only parts of the executed source code.
@@ -315,12 +357,48 @@ public final class MemoryTracer implements Closeable {
 
     private final class Listener implements AllocationListener {
 
+        /**
+         * Allocations of unknown size are counted as if they had this size when sampling.
+         */
+        private static final long UNKNOWN_SIZE_ESTIMATE = 16;
+
         /**
          * Used to prevent infinite recursions in case a language does an allocation during meta
          * object lookup or toString call.
          */
         ThreadLocal<Boolean> gettingMetaObject = ThreadLocal.withInitial(() -> false);
 
+        private final long samplingInterval;
+
+        /**
+         * Number of bytes each thread still needs to allocate before its next sample.
+         */
+        private final ThreadLocal<long[]> bytesUntilSample;
+
+        Listener(long samplingInterval) {
+            this.samplingInterval = samplingInterval;
+            this.bytesUntilSample = samplingInterval == 0 ? null : ThreadLocal.withInitial(() -> new long[]{nextSampleDistance()});
+        }
+
+        /**
+         * Distances between samples are drawn from an exponential distribution, which makes the
+         * sampling a Poisson process over the allocated bytes: every byte has the same chance to be
+         * sampled, independent of the sizes and order of the allocations.
+         */
+        private long nextSampleDistance() {
+            double u = ThreadLocalRandom.current().nextDouble();
+            return Math.max(1, (long) (-Math.log(1 - u) * samplingInterval));
+        }
+
+        /**
+         * @return the number of allocations represented by a sampled allocation of the given size.
+         *         An allocation of size s is sampled with probability 1 - exp(-s / interval), so
+         *         weighting it with the inverse of that gives unbiased estimates.
+         */
+        private double sampleWeight(long size) {
+            return 1 / -Math.expm1(-(double) size / samplingInterval);
+        }
+
         @Override
         public void onEnter(AllocationEvent event) {
         }
@@ -331,6 +409,24 @@ public final class MemoryTracer implements Closeable {
             if (gettingMetaObject.get()) {
                 return;
             }
+            double weight = 1;
+            long size = 0;
+            if (samplingInterval != 0) {
+                size = event.getNewSize() == AllocationReporter.SIZE_UNKNOWN ? UNKNOWN_SIZE_ESTIMATE : event.getNewSize();
+                if (event.getOldSize() != AllocationReporter.SIZE_UNKNOWN) {
+                    size -= event.getOldSize();
+                }
+                if (size <= 0) {
+                    return;
+                }
+                long[] remaining = bytesUntilSample.get();
+                remaining[0] -= size;
+                if (remaining[0] > 0) {
+                    return;
+                }
+                remaining[0] = nextSampleDistance();
+                weight = sampleWeight(size);
+            }
             ShadowStack.ThreadLocalStack stack = shadowStack.getStack(Thread.currentThread());
             if (stack == null || stack.getStackIndex() == -1) {
                 // nothing on the stack
@@ -356,7 +452,14 @@ public final class MemoryTracer implements Closeable {
                 metaObjectString = "null";
             }
             gettingMetaObject.set(false);
-            AllocationEventInfo info = new AllocationEventInfo(languageInfo, event.getNewSize() - event.getOldSize(), event.getOldSize() != 0, metaObjectString);
+            AllocationEventInfo info;
+            if (samplingInterval != 0) {
+                // the weight is only valid for the size the sampling decision was based on
+                info = new AllocationEventInfo(languageInfo, size, event.getOldSize() != 0, metaObjectString, weight,
+                                new WeakReference<>(event.getValue()));
+            } else {
+                info = new AllocationEventInfo(languageInfo, event.getNewSize() - event.getOldSize(), event.getOldSize() != 0, metaObjectString);
+            }
             handleEvent(stack, info);
         }
 
@@ -382,6 +485,7 @@ public final class MemoryTracer implements Closeable {
                     }
                     treeNode = child;
                     treeNode.getPayload().incrementTotalAllocations();
+                    treeNode.getPayload().estimatedTotalAllocations += info.sampleWeight;
                 }
                 // insert event at the top of the stack
                 treeNode.getPayload().getEvents().add(info);
@@ -405,6 +509,8 @@ public final class MemoryTracer implements Closeable {
 
         private long totalAllocations = 0;
 
+        private double estimatedTotalAllocations = 0;
+
         /**
          * @return Total number of allocations recorded while the associated element was on the
          *         shadow stack
@@ -424,6 +530,17 @@ public final class MemoryTracer implements Closeable {
             this.totalAllocations++;
         }
 
+        /**
+         * @return Estimated number of allocations while the associated element was on the shadow
+         *         stack, i.e. the sum of the {@link AllocationEventInfo#getSampleWeight() weights}
+         *         of the recorded allocations. Equal to {@link #getTotalAllocations()} when every
+         *         allocation is recorded.
+         * @since 20.3
+         */
+        public double getEstimatedTotalAllocations() {
+            return estimatedTotalAllocations;
+        }
+
         /**
          * @return Information about all the {@link AllocationEventInfo allocation events} that
          *         happened while the associated element was at the top of the shadow stack.
@@ -444,12 +561,24 @@ public final class MemoryTracer implements Closeable {
         private final long allocated;
         private final boolean reallocation;
         private final String metaObjectString;
+        private final double sampleWeight;
+        private final WeakReference<Object> value;
 
         AllocationEventInfo(LanguageInfo language, long allocated, boolean realocation, String metaObjectString) {
+            this(language, allocated, realocation, metaObjectString, 1, null);
+        }
+
+        AllocationEventInfo(LanguageInfo language, long allocated, boolean realocation, String metaObjectString, double sampleWeight, WeakReference<Object> value) {
             this.language = language;
             this.allocated = allocated;
             this.reallocation = realocation;
             this.metaObjectString = metaObjectString;
+            this.sampleWeight = sampleWeight;
+            this.value = value;
+        }
+
+        AllocationEventInfo(AllocationEventInfo info) {
+            this(info.language, info.allocated, info.reallocation, info.metaObjectString, info.sampleWeight, info.value);
         }
 
         /**
@@ -482,6 +611,38 @@ public final class MemoryTracer implements Closeable {
         public String getMetaObjectString() {
             return metaObjectString;
         }
+
+        /**
+         * @return the number of allocations this event stands for. Always <code>1</code> when every
+         *         allocation is recorded, greater than or equal to <code>1</code> when
+         *         {@link MemoryTracer#setSamplingInterval(long) sampling}.
+         * @since 20.3
+         */
+        public double getSampleWeight() {
+            return sampleWeight;
+        }
+
+        /**
+         * @return the estimated amount of memory allocated by all the allocations this event
+         *         stands for
+         * @since 20.3
+         */
+        public long getEstimatedAllocated() {
+            return (long) (allocated * sampleWeight);
+        }
+
+        /**
+         * Whether the allocated value is still reachable. Values are only tracked when
+         * {@link MemoryTracer#setSamplingInterval(long) sampling}, which allows to estimate the
+         * memory that is still live per allocation site.
+         *
+         * @return <code>true</code> if this is a sampled allocation whose value was not yet garbage
+         *         collected
+         * @since 20.3
+         */
+        public boolean isLive() {
+            return value != null && value.get() != null;
+        }
     }
 
     static {
@@ -25,6 +25,7 @@
 package com.oracle.truffle.tools.profiler.impl;
 
 import com.oracle.truffle.api.Option;
+import com.oracle.truffle.api.TruffleLogger;
 import com.oracle.truffle.api.instrumentation.StandardTags;
 import com.oracle.truffle.api.instrumentation.TruffleInstrument;
 import com.oracle.truffle.api.source.SourceSection;
@@ -38,6 +39,7 @@ import org.graalvm.options.OptionStability;
 import org.graalvm.options.OptionType;
 
 import java.io.PrintStream;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -46,8 +48,12 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Locale;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Option.Group(CPUSamplerInstrument.ID)
 class CPUSamplerCLI extends ProfilerCLI {
@@ -94,6 +100,9 @@ class CPUSamplerCLI extends ProfilerCLI {
     @Option(name = "Period", help = "Period in milliseconds to sample the stack.", category = OptionCategory.USER, stability = OptionStability.STABLE) //
     static final OptionKey<Long> SAMPLE_PERIOD = new OptionKey<>(1L);
 
+    @Option(name = "OverheadLimit", help = "Maximum percentage of time spent on taking samples. Randomizes the sampling period and extends it if needed (default: 0, no limit).", category = OptionCategory.USER, stability = OptionStability.EXPERIMENTAL) //
+    static final OptionKey<Double> OVERHEAD_LIMIT = new OptionKey<>(0.0);
+
     @Option(name = "Delay", help = "Delay the sampling for this many milliseconds (default: 0).", category = OptionCategory.USER, stability = OptionStability.STABLE) //
     static final OptionKey<Long> DELAY_PERIOD = new OptionKey<>(0L);
 
@@ -130,6 +139,43 @@ class CPUSamplerCLI extends ProfilerCLI {
     @Option(name = "MinSamples", help = "Remove elements from output if they have less samples than this value (default: 0).", category = OptionCategory.USER, stability = OptionStability.STABLE) //
     static final OptionKey<Integer> MIN_SAMPLES = new OptionKey<>(0);
 
+    @Option(name = "ContinuousOutputDirectory", help = "Continuously write the profile of each window into this directory as pprof and collapsed stack files instead of printing it at exit.", category = OptionCategory.USER, stability = OptionStability.EXPERIMENTAL) //
+    static final OptionKey<String> CONTINUOUS_OUTPUT_DIRECTORY = new OptionKey<>("");
+
+    @Option(name = "ContinuousWindow", help = "Length of a continuous profiling window in seconds (default: 60).", category = OptionCategory.USER, stability = OptionStability.EXPERIMENTAL) //
+    static final OptionKey<Long> CONTINUOUS_WINDOW = new OptionKey<>(60L);
+
+    @Option(name = "ContinuousMaxWindows", help = "Number of most recent continuous profiling windows kept in the output directory, 0 keeps all (default: 60).", category = OptionCategory.USER, stability = OptionStability.EXPERIMENTAL) //
+    static final OptionKey<Integer> CONTINUOUS_MAX_WINDOWS = new OptionKey<>(60);
+
+    static ContinuousProfileWriter<CPUSampler.Payload> startContinuousOutput(TruffleInstrument.Env env, CPUSampler sampler) {
+        String directory = env.getOptions().get(CONTINUOUS_OUTPUT_DIRECTORY);
+        if (directory.isEmpty()) {
+            return null;
+        }
+        // the effective period of the window being written, taken before its data is cleared
+        AtomicLong windowPeriodNanos = new AtomicLong();
+        return new ContinuousProfileWriter<>(CPUSamplerInstrument.ID, Paths.get(directory), TimeUnit.SECONDS.toMillis(env.getOptions().get(CONTINUOUS_WINDOW)),
+                        env.getOptions().get(CONTINUOUS_MAX_WINDOWS),
+                        new Supplier<Collection<ProfilerNode<CPUSampler.Payload>>>() {
+                            @Override
+                            public Collection<ProfilerNode<CPUSampler.Payload>> get() {
+                                synchronized (sampler) {
+                                    Collection<ProfilerNode<CPUSampler.Payload>> rootNodes = sampler.getRootNodes();
+                                    windowPeriodNanos.set((long) (sampler.getEffectivePeriod() * TimeUnit.MILLISECONDS.toNanos(1)));
+                                    sampler.clearData();
+                                    return rootNodes;
+                                }
+                            }
+                        },
+                        new Function<CPUSampler.Payload, long[]>() {
+                            @Override
+                            public long[] apply(CPUSampler.Payload payload) {
+                                return new long[]{payload.getSelfHitCount(), payload.getSelfHitCount() * windowPeriodNanos.get()};
+                            }
+                        }, new String[]{"samples", "cpu"}, new String[]{"count", "nanoseconds"}, 1, TruffleLogger.getLogger(CPUSamplerInstrument.ID));
+    }
+
     static void handleOutput(TruffleInstrument.Env env, CPUSampler sampler) {
         try (PrintStream out = chooseOutputStream(env, OUTPUT_FILE)) {
             if (sampler.hasStackOverflowed()) {
@@ -161,6 +207,7 @@ class CPUSamplerCLI extends ProfilerCLI {
         output.put("version", CPUSamplerInstrument.VERSION);
         output.put("sample_count", sampler.getSampleCount());
         output.put("period", sampler.getPeriod());
+        output.put("effective_period", sampler.getEffectivePeriod());
         output.put("gathered_hit_times", sampler.isGatherSelfHitTimes());
         JSONArray profile = new JSONArray();
         Map<Thread, Collection<ProfilerNode<CPUSampler.Payload>>> threadToNodesMap = sampler.getThreadToNodesMap();
@@ -243,10 +290,9 @@ class CPUSamplerCLI extends ProfilerCLI {
         }
 
         String title = String.format(" %-" + maxLength + "s |      Total Time     |  Opt %% ||       Self Time     |  Opt %% | Location             ", "Name");
-        long samples = sampler.getSampleCount();
         String sep = repeat("-", title.length());
         out.println(sep);
-        printLegend(out, "Histogram", samples, sampler.getPeriod());
+        printLegend(out, "Histogram", sampler);
         out.println(sep);
         for (Map.Entry<Thread, List<List<ProfilerNode<CPUSampler.Payload>>>> entry : linesPerThread.entrySet()) {
             if (!summariseThreads) {
@@ -277,7 +323,7 @@ class CPUSamplerCLI extends ProfilerCLI {
         String title = String.format(" %-" + maxLength + "s |      Total Time     |  Opt %% ||       Self Time     |  Opt %% | Location             ", "Name");
         String sep = repeat("-", title.length());
         out.println(sep);
-        printLegend(out, "CallTree", sampler.getSampleCount(), sampler.getPeriod());
+        printLegend(out, "CallTree", sampler);
         out.println(sep);
         for (Map.Entry<Thread, Collection<ProfilerNode<CPUSampler.Payload>>> node : threadToNodesMap.entrySet()) {
             if (!summariseThreads) {
@@ -309,8 +355,12 @@ class CPUSamplerCLI extends ProfilerCLI {
         }
     }
 
-    private static void printLegend(PrintStream out, String type, long samples, long period) {
-        out.println(String.format("Sampling %s. Recorded %s samples with period %dms.", type, samples, period));
+    private static void printLegend(PrintStream out, String type, CPUSampler sampler) {
+        String period = String.format(Locale.ROOT, "%dms", sampler.getPeriod());
+        if (sampler.getOverheadLimit() > 0) {
+            period += String.format(Locale.ROOT, ", %.1fms on average", sampler.getEffectivePeriod());
+        }
+        out.println(String.format("Sampling %s. Recorded %s samples with period %s.", type, sampler.getSampleCount(), period));
         out.println("  Self Time: Time spent on the top of the stack.");
         out.println("  Total Time: Time spent somewhere on the stack.");
         out.println("  Opt %: Percent of time spent in compiled and therefore non-interpreted code.");
@@ -335,7 +385,7 @@ class CPUSamplerCLI extends ProfilerCLI {
     }
 
     private static boolean printAttributes(PrintStream out, CPUSampler sampler, String prefix, List<ProfilerNode<CPUSampler.Payload>> nodes, int maxRootLength, boolean callTree, Integer minSamples) {
-        long samplePeriod = sampler.getPeriod();
+        double samplePeriod = sampler.getEffectivePeriod();
         long samples = sampler.getSampleCount();
 
         long selfInterpreted = 0;
@@ -374,7 +424,7 @@ class CPUSamplerCLI extends ProfilerCLI {
         }
 
         long selfSamples = selfInterpreted + selfCompiled;
-        long selfTime = selfSamples * samplePeriod;
+        long selfTime = Math.round(selfSamples * samplePeriod);
         double selfCost = selfSamples / (double) samples;
         double selfCompiledP = 0.0;
         if (selfSamples > 0) {
@@ -382,7 +432,7 @@ class CPUSamplerCLI extends ProfilerCLI {
         }
         String selfTimes = String.format("%10dms %5.1f%% | %5.1f%%", selfTime, selfCost * 100, selfCompiledP * 100);
 
-        long totalTime = totalSamples * samplePeriod;
+        long totalTime = Math.round(totalSamples * samplePeriod);
         double totalCost = totalSamples / (double) samples;
         double totalCompiledP = totalCompiled / (double) totalSamples;
         String totalTimes = String.format("%10dms %5.1f%% | %5.1f%%", totalTime, totalCost * 100, totalCompiledP * 100);
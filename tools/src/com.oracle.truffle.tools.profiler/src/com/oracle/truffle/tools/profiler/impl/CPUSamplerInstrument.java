@@ -58,6 +58,7 @@ public class CPUSamplerInstrument extends TruffleInstrument {
     public static final String ID = "cpusampler";
     static final String VERSION = "0.4.0";
     private CPUSampler sampler;
+    private ContinuousProfileWriter<CPUSampler.Payload> continuousWriter;
     private static ProfilerToolFactory<CPUSampler> factory;
 
     /**
@@ -109,11 +110,13 @@ public class CPUSamplerInstrument extends TruffleInstrument {
         if (env.getOptions().get(CPUSamplerCLI.ENABLED)) {
             sampler.setPeriod(env.getOptions().get(CPUSamplerCLI.SAMPLE_PERIOD));
             sampler.setDelay(env.getOptions().get(CPUSamplerCLI.DELAY_PERIOD));
+            sampler.setOverheadLimit(env.getOptions().get(CPUSamplerCLI.OVERHEAD_LIMIT));
             sampler.setStackLimit(env.getOptions().get(CPUSamplerCLI.STACK_LIMIT));
             sampler.setFilter(getSourceSectionFilter(env));
             sampler.setGatherSelfHitTimes(env.getOptions().get(GATHER_HIT_TIMES));
             sampler.setMode(env.getOptions().get(CPUSamplerCLI.MODE));
             sampler.setCollecting(true);
+            continuousWriter = CPUSamplerCLI.startContinuousOutput(env, sampler);
         }
         env.registerService(sampler);
     }
@@ -146,7 +149,9 @@ public class CPUSamplerInstrument extends TruffleInstrument {
      */
     @Override
     protected void onDispose(Env env) {
-        if (env.getOptions().get(CPUSamplerCLI.ENABLED)) {
+        if (continuousWriter != null) {
+            continuousWriter.close();
+        } else if (env.getOptions().get(CPUSamplerCLI.ENABLED)) {
             CPUSamplerCLI.handleOutput(env, sampler);
         }
         sampler.close();
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.tools.profiler.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.oracle.truffle.api.TruffleLogger;
+import com.oracle.truffle.api.source.SourceSection;
+import com.oracle.truffle.tools.profiler.ProfilerNode;
+
+/**
+ * Periodically exports the data gathered by a profiler into a directory and discards it afterwards,
+ * so that only a single window of data is kept in memory. Each window is written as a gzip
+ * compressed <a href="https://github.com/google/pprof">pprof</a> profile ({@code .pb.gz}) and as a
+ * collapsed stack file ({@code .collapsed}) that can be rendered as a flame graph. The files are
+ * named {@code <prefix>-<yyyyMMdd-HHmmss>-<run>-<index>}, where {@code run} is a random token that
+ * distinguishes writers started in the same second, e.g. by different processes. Only the files of
+ * the most recent windows written by this writer are kept; files of other runs or processes in the
+ * same directory are never deleted.
+ *
+ * @param <T> the payload of the profiler nodes
+ */
+final class ContinuousProfileWriter<T> {
+
+    private static final String PPROF_SUFFIX = ".pb.gz";
+    private static final String COLLAPSED_SUFFIX = ".collapsed";
+
+    private final String prefix;
+    private final String runId;
+    private final Path directory;
+    private final int maxWindows;
+    private final Supplier<Collection<ProfilerNode<T>>> takeWindow;
+    private final Function<T, long[]> selfValues;
+    private final String[] sampleTypes;
+    private final String[] sampleUnits;
+    private final long samplePeriod;
+    private final TruffleLogger logger;
+    private final Timer timer;
+    private long windowStart;
+    private int windowIndex;
+    /**
+     * The names of the windows written by this writer that were not deleted yet, oldest first.
+     */
+    private final Deque<String> writtenWindows = new ArrayDeque<>();
+
+    /**
+     * @param prefix the prefix of the names of the written files
+     * @param takeWindow atomically returns the data gathered so far and clears it
+     * @param selfValues the values of a node when it is at the top of the stack, one per sample
+     *            type. The first value is used for the collapsed stack file.
+     * @param samplePeriod the value of the first sample type that a single sample represents
+     */
+    ContinuousProfileWriter(String prefix, Path directory, long windowMillis, int maxWindows, Supplier<Collection<ProfilerNode<T>>> takeWindow, Function<T, long[]> selfValues,
+                    String[] sampleTypes, String[] sampleUnits, long samplePeriod, TruffleLogger logger) {
+        if (windowMillis <= 0) {
+            throw new IllegalArgumentException(String.format("Invalid window length %s.", windowMillis));
+        }
+        this.prefix = prefix;
+        this.runId = String.format(Locale.ROOT, "%08x", ThreadLocalRandom.current().nextInt());
+        this.directory = directory;
+        this.maxWindows = maxWindows;
+        this.takeWindow = takeWindow;
+        this.selfValues = selfValues;
+        this.sampleTypes = sampleTypes;
+        this.sampleUnits = sampleUnits;
+        this.samplePeriod = samplePeriod;
+        this.logger = logger;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot create profile output directory " + directory, e);
+        }
+        this.windowStart = System.currentTimeMillis();
+        this.timer = new Timer(prefix + " profile writer", true);
+        this.timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                writeWindow();
+            }
+        }, windowMillis, windowMillis);
+    }
+
+    /**
+     * Stops the periodic export and writes the data gathered since the last window.
+     */
+    void close() {
+        timer.cancel();
+        writeWindow();
+    }
+
+    private synchronized void writeWindow() {
+        Collection<ProfilerNode<T>> roots = takeWindow.get();
+        long start = windowStart;
+        long end = System.currentTimeMillis();
+        windowStart = end;
+        String name = String.format(Locale.ROOT, "%s-%s-%s-%04d", prefix, new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.ROOT).format(new Date(start)), runId, windowIndex++);
+        // recorded before writing, so that partially written windows are deleted as well
+        writtenWindows.addLast(name);
+        PprofWriter pprof = new PprofWriter(sampleTypes, sampleUnits);
+        try (Writer collapsed = Files.newBufferedWriter(directory.resolve(name + COLLAPSED_SUFFIX), StandardCharsets.UTF_8)) {
+            List<ProfilerNode<T>> stack = new ArrayList<>();
+            for (ProfilerNode<T> root : roots) {
+                writeStacks(root, stack, pprof, collapsed);
+            }
+        } catch (IOException e) {
+            logger.warning("Failed to write collapsed stacks " + name + ": " + e.getMessage());
+            return;
+        }
+        try (OutputStream out = Files.newOutputStream(directory.resolve(name + PPROF_SUFFIX))) {
+            pprof.write(out, TimeUnit.MILLISECONDS.toNanos(start), TimeUnit.MILLISECONDS.toNanos(end - start), 0, samplePeriod);
+        } catch (IOException e) {
+            logger.warning("Failed to write profile " + name + ": " + e.getMessage());
+            return;
+        }
+        deleteOldWindows();
+    }
+
+    private void writeStacks(ProfilerNode<T> node, List<ProfilerNode<T>> stack, PprofWriter pprof, Writer collapsed) throws IOException {
+        stack.add(node);
+        long[] values = selfValues.apply(node.getPayload());
+        if (values[0] > 0) {
+            pprof.addSample(stack, values);
+            String sep = "";
+            for (ProfilerNode<T> frame : stack) {
+                collapsed.write(sep);
+                collapsed.write(frameName(frame));
+                sep = ";";
+            }
+            collapsed.write(" ");
+            collapsed.write(Long.toString(values[0]));
+            collapsed.write("\n");
+        }
+        for (ProfilerNode<T> child : node.getChildren()) {
+            writeStacks(child, stack, pprof, collapsed);
+        }
+        stack.remove(stack.size() - 1);
+    }
+
+    private static String frameName(ProfilerNode<?> node) {
+        StringBuilder b = new StringBuilder();
+        String rootName = node.getRootName();
+        b.append(rootName == null || rootName.isEmpty() ? "<unknown>" : rootName);
+        SourceSection section = node.getSourceSection();
+        if (section != null) {
+            b.append(" (").append(ProfilerCLI.getShortDescription(section)).append(")");
+        }
+        // semicolons separate frames and newlines separate stacks in the collapsed format
+        return b.toString().replace(';', ',').replace('\n', ' ');
+    }
+
+    private void deleteOldWindows() {
+        if (maxWindows <= 0) {
+            return;
+        }
+        while (writtenWindows.size() > maxWindows) {
+            String name = writtenWindows.removeFirst();
+            try {
+                Files.deleteIfExists(directory.resolve(name + PPROF_SUFFIX));
+                Files.deleteIfExists(directory.resolve(name + COLLAPSED_SUFFIX));
+            } catch (IOException e) {
+                logger.warning("Failed to delete old profile " + name + ": " + e.getMessage());
+            }
+        }
+    }
+}
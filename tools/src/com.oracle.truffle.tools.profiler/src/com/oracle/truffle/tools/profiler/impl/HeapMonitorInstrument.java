@@ -24,14 +24,29 @@
  */
 package com.oracle.truffle.tools.profiler.impl;
 
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.graalvm.options.OptionCategory;
 import org.graalvm.options.OptionDescriptors;
 import org.graalvm.options.OptionKey;
+import org.graalvm.options.OptionStability;
 import org.graalvm.polyglot.Engine;
 import org.graalvm.polyglot.Instrument;
 
 import com.oracle.truffle.api.Option;
+import com.oracle.truffle.api.TruffleContext;
+import com.oracle.truffle.api.instrumentation.ContextsListener;
 import com.oracle.truffle.api.instrumentation.TruffleInstrument;
+import com.oracle.truffle.api.nodes.LanguageInfo;
 import com.oracle.truffle.tools.profiler.HeapMonitor;
 
 /**
@@ -109,6 +124,10 @@ public class HeapMonitorInstrument extends TruffleInstrument {
         if (env.getOptions().get(HeapMonitorInstrument.ENABLED)) {
             monitor.setCollecting(true);
         }
+        String snapshotFile = env.getOptions().get(HEAP_SNAPSHOT);
+        if (!snapshotFile.isEmpty()) {
+            env.getInstrumenter().attachContextsListener(new SnapshotOnClose(env, snapshotFile), false);
+        }
         env.registerService(monitor);
     }
 
@@ -136,5 +155,70 @@ public class HeapMonitorInstrument extends TruffleInstrument {
     @Option(name = "",
             help = "Start the heap allocation monitor with the application. This produces no output but improves the precision of the data provided to third party tools.",
             category = OptionCategory.USER) static final OptionKey<Boolean> ENABLED = new OptionKey<>(false);
+    @Option(name = "HeapSnapshot",
+            help = "Write a Chrome DevTools heap snapshot of the guest objects reachable from the global scopes when a context is closed. The number of the closed context is appended to the file name, e.g. heap-1.heapsnapshot for heap.heapsnapshot.",
+            category = OptionCategory.USER, stability = OptionStability.EXPERIMENTAL) static final OptionKey<String> HEAP_SNAPSHOT = new OptionKey<>("");
     // @formatter:on
+
+    /*
+     * Takes the snapshot once the first language of a context is finalized. At that point the
+     * closing thread is entered and the global scopes of all languages are still available. Every
+     * closing context writes its own file, numbered in the order in which the contexts are closed,
+     * and only the closing context is walked, so other contexts are never entered.
+     */
+    private final class SnapshotOnClose implements ContextsListener {
+
+        private final Env env;
+        private final String snapshotFile;
+        private final Map<TruffleContext, Boolean> snapshotTaken = new ConcurrentHashMap<>();
+        private final AtomicInteger snapshotCount = new AtomicInteger();
+
+        SnapshotOnClose(Env env, String snapshotFile) {
+            this.env = env;
+            this.snapshotFile = snapshotFile;
+        }
+
+        @Override
+        public void onLanguageContextFinalized(TruffleContext context, LanguageInfo language) {
+            if (snapshotTaken.putIfAbsent(context, Boolean.TRUE) != null) {
+                return;
+            }
+            Path path = numberedPath(Paths.get(snapshotFile), snapshotCount.incrementAndGet());
+            try (Writer out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+                monitor.takeHeapSnapshot(context, out);
+            } catch (IOException | IllegalStateException e) {
+                new PrintStream(env.err()).println("Failed to write the heap snapshot to " + path + ": " + e.getMessage());
+            }
+        }
+
+        private Path numberedPath(Path path, int number) {
+            String name = path.getFileName().toString();
+            int extension = name.lastIndexOf('.');
+            if (extension <= 0) {
+                return path.resolveSibling(name + "-" + number);
+            }
+            return path.resolveSibling(name.substring(0, extension) + "-" + number + name.substring(extension));
+        }
+
+        @Override
+        public void onContextClosed(TruffleContext context) {
+            snapshotTaken.remove(context);
+        }
+
+        @Override
+        public void onContextCreated(TruffleContext context) {
+        }
+
+        @Override
+        public void onLanguageContextCreated(TruffleContext context, LanguageInfo language) {
+        }
+
+        @Override
+        public void onLanguageContextInitialized(TruffleContext context, LanguageInfo language) {
+        }
+
+        @Override
+        public void onLanguageContextDisposed(TruffleContext context, LanguageInfo language) {
+        }
+    }
 }
@@ -25,15 +25,20 @@
 package com.oracle.truffle.tools.profiler.impl;
 
 import com.oracle.truffle.api.Option;
+import com.oracle.truffle.api.TruffleLogger;
 import com.oracle.truffle.api.instrumentation.TruffleInstrument;
+import com.oracle.truffle.api.source.SourceSection;
 import com.oracle.truffle.tools.profiler.MemoryTracer;
 import com.oracle.truffle.tools.profiler.ProfilerNode;
 import org.graalvm.options.OptionCategory;
 import org.graalvm.options.OptionKey;
+import org.graalvm.options.OptionStability;
 import org.graalvm.options.OptionType;
 
 import java.io.PrintStream;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -41,8 +46,10 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Option.Group(MemoryTracerInstrument.ID)
 class MemoryTracerCLI extends ProfilerCLI {
@@ -106,6 +113,48 @@ class MemoryTracerCLI extends ProfilerCLI {
     @Option(name = "FilterLanguage", help = "Only profile languages with given ID. (eg. js, default:no filter).", category = OptionCategory.USER) static final OptionKey<String> FILTER_LANGUAGE = new OptionKey<>(
                     "");
 
+    @Option(name = "SamplingInterval", help = "Only record one allocation every given number of bytes allocated per thread on average and report estimated totals, 0 records every allocation (default: 0).", category = OptionCategory.USER) static final OptionKey<Long> SAMPLING_INTERVAL = new OptionKey<>(
+                    0L);
+
+    @Option(name = "ContinuousOutputDirectory", help = "Continuously write the allocations of each window into this directory as pprof and collapsed stack files instead of printing them at exit.", category = OptionCategory.USER, stability = OptionStability.EXPERIMENTAL) static final OptionKey<String> CONTINUOUS_OUTPUT_DIRECTORY = new OptionKey<>(
+                    "");
+
+    @Option(name = "ContinuousWindow", help = "Length of a continuous tracing window in seconds (default: 60).", category = OptionCategory.USER, stability = OptionStability.EXPERIMENTAL) static final OptionKey<Long> CONTINUOUS_WINDOW = new OptionKey<>(60L);
+
+    @Option(name = "ContinuousMaxWindows", help = "Number of most recent continuous tracing windows kept in the output directory, 0 keeps all (default: 60).", category = OptionCategory.USER, stability = OptionStability.EXPERIMENTAL) static final OptionKey<Integer> CONTINUOUS_MAX_WINDOWS = new OptionKey<>(
+                    60);
+
+    static ContinuousProfileWriter<MemoryTracer.Payload> startContinuousOutput(TruffleInstrument.Env env, MemoryTracer tracer) {
+        String directory = env.getOptions().get(CONTINUOUS_OUTPUT_DIRECTORY);
+        if (directory.isEmpty()) {
+            return null;
+        }
+        return new ContinuousProfileWriter<>(MemoryTracerInstrument.ID, Paths.get(directory), TimeUnit.SECONDS.toMillis(env.getOptions().get(CONTINUOUS_WINDOW)),
+                        env.getOptions().get(CONTINUOUS_MAX_WINDOWS),
+                        new Supplier<Collection<ProfilerNode<MemoryTracer.Payload>>>() {
+                            @Override
+                            public Collection<ProfilerNode<MemoryTracer.Payload>> get() {
+                                synchronized (tracer) {
+                                    Collection<ProfilerNode<MemoryTracer.Payload>> rootNodes = tracer.getRootNodes();
+                                    tracer.clearData();
+                                    return rootNodes;
+                                }
+                            }
+                        },
+                        new Function<MemoryTracer.Payload, long[]>() {
+                            @Override
+                            public long[] apply(MemoryTracer.Payload payload) {
+                                double count = 0;
+                                long space = 0;
+                                for (MemoryTracer.AllocationEventInfo info : payload.getEvents()) {
+                                    count += info.getSampleWeight();
+                                    space += info.getEstimatedAllocated();
+                                }
+                                return new long[]{Math.round(count), space};
+                            }
+                        }, new String[]{"alloc_objects", "alloc_space"}, new String[]{"count", "bytes"}, 1, TruffleLogger.getLogger(MemoryTracerInstrument.ID));
+    }
+
     static void handleOutput(TruffleInstrument.Env env, MemoryTracer tracer) {
         PrintStream out = new PrintStream(env.out());
         if (tracer.hasStackOverflowed()) {
@@ -116,12 +165,21 @@ class MemoryTracerCLI extends ProfilerCLI {
             out.println("-------------------------------------------------------------------------------- ");
             return;
         }
+        boolean sampled = tracer.getSamplingInterval() != 0;
         switch (env.getOptions().get(OUTPUT)) {
             case TYPE_HISTOGRAM:
-                printMetaObjectHistogram(out, tracer);
+                if (sampled) {
+                    printSampledHistogram(out, tracer, true);
+                } else {
+                    printMetaObjectHistogram(out, tracer);
+                }
                 break;
             case LOCATION_HISTOGRAM:
-                printLocationHistogram(out, tracer);
+                if (sampled) {
+                    printSampledHistogram(out, tracer, false);
+                } else {
+                    printLocationHistogram(out, tracer);
+                }
                 break;
             case CALLTREE:
                 printCallTree(out, tracer);
@@ -129,6 +187,88 @@ class MemoryTracerCLI extends ProfilerCLI {
         }
     }
 
+    private static final class SampledEntry {
+
+        final String name;
+        final String type;
+        final SourceSection sourceSection;
+        double count;
+        double bytes;
+        double liveBytes;
+
+        SampledEntry(String name, String type, SourceSection sourceSection) {
+            this.name = name;
+            this.type = type;
+            this.sourceSection = sourceSection;
+        }
+    }
+
+    private static void computeSampledHistogramImpl(Collection<ProfilerNode<MemoryTracer.Payload>> children, boolean byType, Map<List<Object>, SampledEntry> histogram) {
+        for (ProfilerNode<MemoryTracer.Payload> treeNode : children) {
+            for (MemoryTracer.AllocationEventInfo info : treeNode.getPayload().getEvents()) {
+                List<Object> key = byType ? Collections.singletonList(info.getMetaObjectString())
+                                : Arrays.asList(new SourceLocation(treeNode.getSourceSection(), treeNode.getRootName()), info.getMetaObjectString());
+                SampledEntry entry = histogram.get(key);
+                if (entry == null) {
+                    entry = byType ? new SampledEntry(null, info.getMetaObjectString(), null) : new SampledEntry(treeNode.getRootName(), info.getMetaObjectString(), treeNode.getSourceSection());
+                    histogram.put(key, entry);
+                }
+                long estimated = info.getEstimatedAllocated();
+                entry.count += info.getSampleWeight();
+                entry.bytes += estimated;
+                if (info.isLive()) {
+                    entry.liveBytes += estimated;
+                }
+            }
+            computeSampledHistogramImpl(treeNode.getChildren(), byType, histogram);
+        }
+    }
+
+    private static void printSampledHistogram(PrintStream out, MemoryTracer tracer, boolean byType) {
+        Map<List<Object>, SampledEntry> histogram = new HashMap<>();
+        computeSampledHistogramImpl(tracer.getRootNodes(), byType, histogram);
+        List<SampledEntry> entries = new ArrayList<>(histogram.values());
+        entries.sort(new Comparator<SampledEntry>() {
+            @Override
+            public int compare(SampledEntry o1, SampledEntry o2) {
+                return Double.compare(o2.bytes, o1.bytes);
+            }
+        });
+        int nameMax = 4;
+        double totalCount = 0;
+        double totalBytes = 0;
+        double totalLiveBytes = 0;
+        for (SampledEntry entry : entries) {
+            nameMax = Math.max(nameMax, (byType ? entry.type : entry.name + " " + entry.type).length());
+            totalCount += entry.count;
+            totalBytes += entry.bytes;
+            totalLiveBytes += entry.liveBytes;
+        }
+
+        String format = " %-" + nameMax + "s | %15s | %21s | %21s" + (byType ? "" : " | %s");
+        String title = String.format(format, byType ? "Type" : "Name Type", "Est. Count", "Est. Bytes", "Est. Live Bytes", "Location");
+        String sep = repeat("-", title.length());
+        out.println(sep);
+        out.println(String.format(" Sampled %s Histogram with Estimated Allocations. Recorded one allocation every %d bytes on average.", byType ? "Type" : "Allocation Site",
+                        tracer.getSamplingInterval()));
+        out.println(String.format("   Estimated a total of %.0f allocations of %.0f bytes, %.0f bytes are still live.", totalCount, totalBytes, totalLiveBytes));
+        out.println("   Est. Live Bytes: Estimated memory of allocations whose values were not yet garbage collected.");
+        out.println(sep);
+        out.println(title);
+        out.println(sep);
+        for (SampledEntry entry : entries) {
+            String count = String.format("%.0f %5.1f%%", entry.count, entry.count * 100 / totalCount);
+            String bytes = String.format("%.0f %5.1f%%", entry.bytes, totalBytes == 0 ? 0 : entry.bytes * 100 / totalBytes);
+            String liveBytes = String.format("%.0f %5.1f%%", entry.liveBytes, totalLiveBytes == 0 ? 0 : entry.liveBytes * 100 / totalLiveBytes);
+            if (byType) {
+                out.println(String.format(format, entry.type, count, bytes, liveBytes));
+            } else {
+                out.println(String.format(format, entry.name + " " + entry.type, count, bytes, liveBytes, getShortDescription(entry.sourceSection)));
+            }
+        }
+        out.println(sep);
+    }
+
     private static Map<String, List<MemoryTracer.AllocationEventInfo>> computeMetaObjectHistogram(MemoryTracer tracer) {
         Map<String, List<MemoryTracer.AllocationEventInfo>> histogram = new HashMap<>();
         computeMetaObjectHistogramImpl(tracer.getRootNodes(), histogram);
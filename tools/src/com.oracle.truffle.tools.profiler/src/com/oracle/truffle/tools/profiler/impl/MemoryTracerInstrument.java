@@ -56,6 +56,7 @@ public class MemoryTracerInstrument extends TruffleInstrument {
      */
     public static final String ID = "memtracer";
     private MemoryTracer tracer;
+    private ContinuousProfileWriter<MemoryTracer.Payload> continuousWriter;
     private static ProfilerToolFactory<MemoryTracer> factory;
 
     /**
@@ -107,7 +108,9 @@ public class MemoryTracerInstrument extends TruffleInstrument {
         if (env.getOptions().get(MemoryTracerCLI.ENABLED)) {
             tracer.setFilter(getSourceSectionFilter(env));
             tracer.setStackLimit(env.getOptions().get(MemoryTracerCLI.STACK_LIMIT));
+            tracer.setSamplingInterval(env.getOptions().get(MemoryTracerCLI.SAMPLING_INTERVAL));
             tracer.setCollecting(true);
+            continuousWriter = MemoryTracerCLI.startContinuousOutput(env, tracer);
         }
         env.registerService(tracer);
     }
@@ -141,7 +144,9 @@ public class MemoryTracerInstrument extends TruffleInstrument {
      */
     @Override
     protected void onDispose(Env env) {
-        if (env.getOptions().get(MemoryTracerCLI.ENABLED)) {
+        if (continuousWriter != null) {
+            continuousWriter.close();
+        } else if (env.getOptions().get(MemoryTracerCLI.ENABLED)) {
             MemoryTracerCLI.handleOutput(env, tracer);
         }
         tracer.close();
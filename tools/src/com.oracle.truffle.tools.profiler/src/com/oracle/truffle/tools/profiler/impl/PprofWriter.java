@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.tools.profiler.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import com.oracle.truffle.api.source.SourceSection;
+import com.oracle.truffle.tools.profiler.ProfilerNode;
+
+/**
+ * Writes profiles in the gzip compressed protocol buffer format of
+ * <a href="https://github.com/google/pprof">pprof</a>. Only the subset of the format that is needed
+ * to describe guest stacks is written: sample types, samples, locations, functions and the string
+ * table.
+ */
+final class PprofWriter {
+
+    // field numbers of the Profile message
+    private static final int PROFILE_SAMPLE_TYPE = 1;
+    private static final int PROFILE_SAMPLE = 2;
+    private static final int PROFILE_LOCATION = 4;
+    private static final int PROFILE_FUNCTION = 5;
+    private static final int PROFILE_STRING_TABLE = 6;
+    private static final int PROFILE_TIME_NANOS = 9;
+    private static final int PROFILE_DURATION_NANOS = 10;
+    private static final int PROFILE_PERIOD_TYPE = 11;
+    private static final int PROFILE_PERIOD = 12;
+
+    // field numbers of the ValueType message
+    private static final int VALUE_TYPE_TYPE = 1;
+    private static final int VALUE_TYPE_UNIT = 2;
+
+    // field numbers of the Sample message
+    private static final int SAMPLE_LOCATION_ID = 1;
+    private static final int SAMPLE_VALUE = 2;
+
+    // field numbers of the Location message
+    private static final int LOCATION_ID = 1;
+    private static final int LOCATION_LINE = 4;
+
+    // field numbers of the Line message
+    private static final int LINE_FUNCTION_ID = 1;
+    private static final int LINE_LINE = 2;
+
+    // field numbers of the Function message
+    private static final int FUNCTION_ID = 1;
+    private static final int FUNCTION_NAME = 2;
+    private static final int FUNCTION_SYSTEM_NAME = 3;
+    private static final int FUNCTION_FILENAME = 4;
+    private static final int FUNCTION_START_LINE = 5;
+
+    private static final int WIRETYPE_VARINT = 0;
+    private static final int WIRETYPE_LENGTH_DELIMITED = 2;
+
+    private final String[] sampleTypes;
+    private final String[] sampleUnits;
+
+    private final Map<String, Integer> strings = new HashMap<>();
+    private final List<String> stringTable = new ArrayList<>();
+    private final Map<FunctionKey, Long> functions = new HashMap<>();
+    private final Map<LocationKey, Long> locations = new HashMap<>();
+    private final ProtoBuffer functionsBuffer = new ProtoBuffer();
+    private final ProtoBuffer locationsBuffer = new ProtoBuffer();
+    private final ProtoBuffer samplesBuffer = new ProtoBuffer();
+
+    /**
+     * Creates a writer for samples that carry one value per entry of {@code sampleTypes}, in the
+     * unit given by the matching entry of {@code sampleUnits}.
+     */
+    PprofWriter(String[] sampleTypes, String[] sampleUnits) {
+        assert sampleTypes.length == sampleUnits.length;
+        this.sampleTypes = sampleTypes;
+        this.sampleUnits = sampleUnits;
+        stringIndex("");
+    }
+
+    /**
+     * Adds a sample for the given stack, ordered from the outermost to the innermost frame.
+     */
+    void addSample(List<? extends ProfilerNode<?>> stack, long[] values) {
+        assert values.length == sampleTypes.length;
+        ProtoBuffer sample = new ProtoBuffer();
+        ProtoBuffer locationIds = new ProtoBuffer();
+        // pprof expects the innermost frame first
+        for (int i = stack.size() - 1; i >= 0; i--) {
+            locationIds.writeVarint(locationId(stack.get(i)));
+        }
+        sample.writeBytes(SAMPLE_LOCATION_ID, locationIds);
+        ProtoBuffer packedValues = new ProtoBuffer();
+        for (long value : values) {
+            packedValues.writeVarint(value);
+        }
+        sample.writeBytes(SAMPLE_VALUE, packedValues);
+        samplesBuffer.writeBytes(PROFILE_SAMPLE, sample);
+    }
+
+    /**
+     * Writes the profile to {@code out} and closes it.
+     *
+     * @param periodTypeIndex index of the sample type that describes the sampling period
+     */
+    void write(OutputStream out, long timeNanos, long durationNanos, int periodTypeIndex, long period) throws IOException {
+        ProtoBuffer profile = new ProtoBuffer();
+        for (int i = 0; i < sampleTypes.length; i++) {
+            profile.writeBytes(PROFILE_SAMPLE_TYPE, valueType(sampleTypes[i], sampleUnits[i]));
+        }
+        samplesBuffer.writeTo(profile);
+        locationsBuffer.writeTo(profile);
+        functionsBuffer.writeTo(profile);
+        ProtoBuffer periodType = valueType(sampleTypes[periodTypeIndex], sampleUnits[periodTypeIndex]);
+        for (String s : stringTable) {
+            profile.writeString(PROFILE_STRING_TABLE, s);
+        }
+        profile.writeVarint(PROFILE_TIME_NANOS, timeNanos);
+        profile.writeVarint(PROFILE_DURATION_NANOS, durationNanos);
+        profile.writeBytes(PROFILE_PERIOD_TYPE, periodType);
+        profile.writeVarint(PROFILE_PERIOD, period);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            profile.writeTo(gzip);
+        }
+    }
+
+    private ProtoBuffer valueType(String type, String unit) {
+        ProtoBuffer valueType = new ProtoBuffer();
+        valueType.writeVarint(VALUE_TYPE_TYPE, stringIndex(type));
+        valueType.writeVarint(VALUE_TYPE_UNIT, stringIndex(unit));
+        return valueType;
+    }
+
+    private long locationId(ProfilerNode<?> node) {
+        SourceSection section = node.getSourceSection();
+        int line = section != null && section.isAvailable() ? section.getStartLine() : 0;
+        long functionId = functionId(node);
+        LocationKey key = new LocationKey(functionId, line);
+        Long id = locations.get(key);
+        if (id == null) {
+            id = (long) locations.size() + 1;
+            locations.put(key, id);
+            ProtoBuffer location = new ProtoBuffer();
+            location.writeVarint(LOCATION_ID, id);
+            ProtoBuffer lineMessage = new ProtoBuffer();
+            lineMessage.writeVarint(LINE_FUNCTION_ID, functionId);
+            lineMessage.writeVarint(LINE_LINE, line);
+            location.writeBytes(LOCATION_LINE, lineMessage);
+            locationsBuffer.writeBytes(PROFILE_LOCATION, location);
+        }
+        return id;
+    }
+
+    private long functionId(ProfilerNode<?> node) {
+        String name = node.getRootName() == null || node.getRootName().isEmpty() ? "<unknown>" : node.getRootName();
+        SourceSection section = node.getSourceSection();
+        String fileName = "";
+        int startLine = 0;
+        if (section != null && section.getSource() != null) {
+            String path = section.getSource().getPath();
+            fileName = path != null ? path : section.getSource().getName();
+            startLine = section.isAvailable() ? section.getStartLine() : 0;
+        }
+        FunctionKey key = new FunctionKey(name, fileName);
+        Long id = functions.get(key);
+        if (id == null) {
+            id = (long) functions.size() + 1;
+            functions.put(key, id);
+            ProtoBuffer function = new ProtoBuffer();
+            function.writeVarint(FUNCTION_ID, id);
+            function.writeVarint(FUNCTION_NAME, stringIndex(name));
+            function.writeVarint(FUNCTION_SYSTEM_NAME, stringIndex(name));
+            function.writeVarint(FUNCTION_FILENAME, stringIndex(fileName));
+            function.writeVarint(FUNCTION_START_LINE, startLine);
+            functionsBuffer.writeBytes(PROFILE_FUNCTION, function);
+        }
+        return id;
+    }
+
+    private int stringIndex(String s) {
+        Integer index = strings.get(s);
+        if (index == null) {
+            index = stringTable.size();
+            strings.put(s, index);
+            stringTable.add(s);
+        }
+        return index;
+    }
+
+    private static final class FunctionKey {
+        private final String name;
+        private final String fileName;
+
+        FunctionKey(String name, String fileName) {
+            this.name = name;
+            this.fileName = fileName;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof FunctionKey)) {
+                return false;
+            }
+            FunctionKey other = (FunctionKey) obj;
+            return name.equals(other.name) && fileName.equals(other.fileName);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * name.hashCode() + fileName.hashCode();
+        }
+    }
+
+    private static final class LocationKey {
+        private final long functionId;
+        private final int line;
+
+        LocationKey(long functionId, int line) {
+            this.functionId = functionId;
+            this.line = line;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof LocationKey)) {
+                return false;
+            }
+            LocationKey other = (LocationKey) obj;
+            return functionId == other.functionId && line == other.line;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(functionId) + line;
+        }
+    }
+
+    /**
+     * Minimal protocol buffer encoder.
+     */
+    private static final class ProtoBuffer extends ByteArrayOutputStream {
+
+        void writeVarint(long value) {
+            long v = value;
+            while ((v & ~0x7FL) != 0) {
+                write((int) ((v & 0x7F) | 0x80));
+                v >>>= 7;
+            }
+            write((int) v);
+        }
+
+        void writeTag(int field, int wireType) {
+            writeVarint((field << 3) | wireType);
+        }
+
+        void writeVarint(int field, long value) {
+            writeTag(field, WIRETYPE_VARINT);
+            writeVarint(value);
+        }
+
+        void writeBytes(int field, ProtoBuffer message) {
+            writeTag(field, WIRETYPE_LENGTH_DELIMITED);
+            writeVarint(message.size());
+            write(message.buf, 0, message.count);
+        }
+
+        void writeString(int field, String s) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeTag(field, WIRETYPE_LENGTH_DELIMITED);
+            writeVarint(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+
+        void writeTo(ProtoBuffer other) {
+            other.write(buf, 0, count);
+        }
+    }
+}
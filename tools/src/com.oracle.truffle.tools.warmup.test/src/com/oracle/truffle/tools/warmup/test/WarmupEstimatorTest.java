@@ -25,6 +25,7 @@
 package com.oracle.truffle.tools.warmup.test;
 
 import java.io.ByteArrayOutputStream;
+import java.util.List;
 
 import org.graalvm.polyglot.Context;
 import org.graalvm.polyglot.Source;
@@ -32,7 +33,24 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.oracle.truffle.api.CallTarget;
+import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.TruffleLanguage;
+import com.oracle.truffle.api.frame.VirtualFrame;
+import com.oracle.truffle.api.instrumentation.GenerateWrapper;
+import com.oracle.truffle.api.instrumentation.InstrumentableNode;
+import com.oracle.truffle.api.instrumentation.ProbeNode;
+import com.oracle.truffle.api.instrumentation.ProvidedTags;
+import com.oracle.truffle.api.instrumentation.StandardTags;
+import com.oracle.truffle.api.instrumentation.Tag;
 import com.oracle.truffle.api.instrumentation.test.InstrumentationTestLanguage;
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.nodes.RootNode;
+import com.oracle.truffle.api.source.SourceSection;
+import com.oracle.truffle.api.test.polyglot.ProxyLanguage;
+import com.oracle.truffle.tools.warmup.RootWarmup;
+import com.oracle.truffle.tools.warmup.WarmupEstimator;
 import com.oracle.truffle.tools.warmup.impl.WarmupEstimatorInstrument;
 
 public class WarmupEstimatorTest {
@@ -115,6 +133,62 @@ public class WarmupEstimatorTest {
         Assert.assertEquals(11, output.split(",").length);
     }
 
+    @Test
+    public void testHottest() {
+        try (Context context = defaultContext().option(WarmupEstimatorInstrument.ID + ".Hottest", "2").build()) {
+            for (int i = 0; i < 10; i++) {
+                context.eval(defaultSource);
+            }
+            final List<RootWarmup> roots = WarmupEstimator.find(context.getEngine()).getHottestRoots();
+            Assert.assertEquals(2, roots.size());
+            // the program root contains all the others
+            Assert.assertEquals("", roots.get(0).getName());
+            Assert.assertEquals(10, roots.get(0).getInvocations());
+            Assert.assertEquals("bar", roots.get(1).getName());
+            Assert.assertEquals(10, roots.get(1).getInvocations());
+            Assert.assertTrue(roots.get(0).getTotalTime() >= roots.get(1).getTotalTime());
+            for (RootWarmup root : roots) {
+                Assert.assertTrue(root.getBestLatency() > 0);
+                Assert.assertEquals(root.isAtPeak(), root.getTimeToPeak() >= 0);
+            }
+        }
+        final String output = out.toString();
+        assertContains(output, "Invocations     | 10");
+        assertContains(output, "Time to peak    |");
+        assertContains(output, "Warmup cost     |");
+    }
+
+    @Test
+    public void testPeakAfterPlateau() {
+        final Source source = Source.create(SleepLanguage.ID, "sleep");
+        try (Context context = defaultContext().option(WarmupEstimatorInstrument.ID + ".Hottest", "1").option(WarmupEstimatorInstrument.ID + ".Epsilon", "1.5").build()) {
+            final WarmupEstimator estimator = WarmupEstimator.find(context.getEngine());
+            // a first plateau at 20ms
+            SleepLanguage.sleepMillis = 20;
+            for (int i = 0; i < 80; i++) {
+                context.eval(source);
+            }
+            RootWarmup root = estimator.getHottestRoots().get(0);
+            Assert.assertTrue(root.isAtPeak());
+            Assert.assertTrue(root.getInvocationsToPeak() < 80);
+            Assert.assertTrue(root.getBestLatency() >= 20_000_000);
+            // the latency drops after the first plateau, the actual peak is only reached now
+            SleepLanguage.sleepMillis = 2;
+            for (int i = 0; i < 80; i++) {
+                context.eval(source);
+            }
+            root = estimator.getHottestRoots().get(0);
+            Assert.assertEquals(160, root.getInvocations());
+            Assert.assertTrue(root.getBestLatency() < 10_000_000);
+            Assert.assertTrue(root.isAtPeak());
+            Assert.assertTrue(String.valueOf(root.getInvocationsToPeak()), root.getInvocationsToPeak() >= 80);
+            // the warmup time covers the first plateau, measured against the new best latency
+            Assert.assertTrue(root.getWarmupTime() >= 80 * (20_000_000 - root.getBestLatency()));
+        } finally {
+            SleepLanguage.sleepMillis = 0;
+        }
+    }
+
     private static void assertContains(String output, String expected) {
         Assert.assertTrue(output.contains(expected));
     }
@@ -122,4 +196,69 @@ public class WarmupEstimatorTest {
     private Context.Builder defaultContext() {
         return Context.newBuilder().in(System.in).out(out).err(err).option(WarmupEstimatorInstrument.ID, "true").allowExperimentalOptions(true);
     }
+
+    @TruffleLanguage.Registration(id = SleepLanguage.ID, name = "SleepLanguage", version = "0")
+    @ProvidedTags({StandardTags.RootTag.class})
+    public static class SleepLanguage extends ProxyLanguage {
+
+        static final String ID = "WarmupEstimatorTestSleepLanguage";
+        static volatile int sleepMillis;
+
+        @Override
+        protected CallTarget parse(ParsingRequest request) throws Exception {
+            final com.oracle.truffle.api.source.Source source = request.getSource();
+            return Truffle.getRuntime().createCallTarget(new RootNode(this) {
+                @Child SleepNode child = new SleepNode(source.createSection(1));
+
+                @Override
+                public Object execute(VirtualFrame frame) {
+                    return child.execute(frame);
+                }
+            });
+        }
+
+        @GenerateWrapper
+        static class SleepNode extends Node implements InstrumentableNode {
+
+            private final SourceSection sourceSection;
+
+            SleepNode(SourceSection sourceSection) {
+                this.sourceSection = sourceSection;
+            }
+
+            @Override
+            public boolean isInstrumentable() {
+                return true;
+            }
+
+            @Override
+            public WrapperNode createWrapper(ProbeNode probe) {
+                return new SleepNodeWrapper(sourceSection, this, probe);
+            }
+
+            @Override
+            public boolean hasTag(Class<? extends Tag> tag) {
+                return tag == StandardTags.RootTag.class;
+            }
+
+            @Override
+            public SourceSection getSourceSection() {
+                return sourceSection;
+            }
+
+            public Object execute(@SuppressWarnings("unused") VirtualFrame frame) {
+                sleep();
+                return 0;
+            }
+
+            @TruffleBoundary
+            private static void sleep() {
+                try {
+                    Thread.sleep(sleepMillis);
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+            }
+        }
+    }
 }
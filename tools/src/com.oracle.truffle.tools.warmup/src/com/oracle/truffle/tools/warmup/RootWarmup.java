@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.tools.warmup;
+
+import com.oracle.truffle.api.source.SourceSection;
+
+/**
+ * Warmup of a single {@link com.oracle.truffle.api.instrumentation.StandardTags.RootTag root} as
+ * estimated by the {@link WarmupEstimator}. All times are in nanoseconds.
+ *
+ * @since 20.3
+ */
+public final class RootWarmup {
+
+    private final String name;
+    private final SourceSection sourceSection;
+    private final long invocations;
+    private final long totalTime;
+    private final long bestLatency;
+    private final double epsilon;
+    private final long peakInvocations;
+    private final long timeToPeak;
+    private final long warmupTime;
+
+    RootWarmup(String name, SourceSection sourceSection, long invocations, long totalTime, long bestLatency, double epsilon, long peakInvocations, long timeToPeak, long warmupTime) {
+        this.name = name;
+        this.sourceSection = sourceSection;
+        this.invocations = invocations;
+        this.totalTime = totalTime;
+        this.bestLatency = bestLatency;
+        this.epsilon = epsilon;
+        this.peakInvocations = peakInvocations;
+        this.timeToPeak = timeToPeak;
+        this.warmupTime = warmupTime;
+    }
+
+    /**
+     * @return The name of the root (e.g. function/method name).
+     * @since 20.3
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The source section of the root.
+     * @since 20.3
+     */
+    public SourceSection getSourceSection() {
+        return sourceSection;
+    }
+
+    /**
+     * @return How many times the root was invoked.
+     * @since 20.3
+     */
+    public long getInvocations() {
+        return invocations;
+    }
+
+    /**
+     * @return The time spent executing the root, including its callees.
+     * @since 20.3
+     */
+    public long getTotalTime() {
+        return totalTime;
+    }
+
+    /**
+     * @return The best average latency of an invocation observed so far.
+     * @since 20.3
+     */
+    public long getBestLatency() {
+        return bestLatency;
+    }
+
+    /**
+     * @return The tolerance used to decide whether an invocation runs at peak performance.
+     * @since 20.3
+     */
+    public double getEpsilon() {
+        return epsilon;
+    }
+
+    /**
+     * @return Whether the latency of the root stabilized close to its best latency.
+     * @since 20.3
+     */
+    public boolean isAtPeak() {
+        return peakInvocations != -1;
+    }
+
+    /**
+     * @return The number of invocations before the root reached its peak performance, or
+     *         <code>-1</code> if it did not reach it yet.
+     * @since 20.3
+     */
+    public long getInvocationsToPeak() {
+        return peakInvocations;
+    }
+
+    /**
+     * @return The time from the first invocation of the root until it reached its peak
+     *         performance, or <code>-1</code> if it did not reach it yet.
+     * @since 20.3
+     */
+    public long getTimeToPeak() {
+        return timeToPeak;
+    }
+
+    /**
+     * @return The time spent in the invocations before the peak performance was reached in
+     *         excess of running them at the best latency, or <code>-1</code> if the peak was not
+     *         reached yet.
+     * @since 20.3
+     */
+    public long getWarmupTime() {
+        return warmupTime;
+    }
+
+    /**
+     * @return The {@link #getWarmupTime() warmup time} expressed in invocations at the best
+     *         latency, or <code>-1</code> if the peak was not reached yet.
+     * @since 20.3
+     */
+    public double getWarmupCost() {
+        if (warmupTime == -1 || bestLatency == 0) {
+            return -1;
+        }
+        return (double) warmupTime / bestLatency;
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package com.oracle.truffle.tools.warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.graalvm.polyglot.Engine;
+
+import com.oracle.truffle.api.instrumentation.EventBinding;
+import com.oracle.truffle.api.instrumentation.EventContext;
+import com.oracle.truffle.api.instrumentation.ExecutionEventNode;
+import com.oracle.truffle.api.instrumentation.ExecutionEventNodeFactory;
+import com.oracle.truffle.api.instrumentation.SourceSectionFilter;
+import com.oracle.truffle.api.instrumentation.StandardTags;
+import com.oracle.truffle.api.instrumentation.TruffleInstrument.Env;
+import com.oracle.truffle.api.nodes.RootNode;
+import com.oracle.truffle.api.source.SourceSection;
+import com.oracle.truffle.tools.warmup.impl.WarmupEstimatorInstrument;
+import com.oracle.truffle.tools.warmup.impl.WarmupEstimatorNode;
+
+/**
+ * Estimates the warmup of the hottest roots of a running application. Every invocation of a root
+ * is timed and the invocations of each thread are grouped into batches. A root is considered to
+ * have reached its peak performance once the average latency of several consecutive batches stays
+ * within a tolerance (epsilon) of the best batch seen so far. Only aggregated values are kept per
+ * root, so the estimator can stay enabled in long running processes. Invocations are only
+ * accounted for once their batch is complete.
+ * <p>
+ * Usage example:
+ *
+ * <pre>
+ * WarmupEstimator estimator = WarmupEstimator.find(context.getEngine());
+ * for (RootWarmup root : estimator.getHottestRoots()) {
+ *     System.out.println(root.getName() + " reached its peak after " + root.getTimeToPeak() + "ns");
+ * }
+ * </pre>
+ *
+ * @since 20.3
+ */
+public final class WarmupEstimator {
+
+    static final int BATCH_SIZE = 10;
+    static final int STABLE_BATCHES = 5;
+
+    static {
+        WarmupEstimatorInstrument.setFactory(new Function<Env, WarmupEstimator>() {
+            @Override
+            public WarmupEstimator apply(Env env) {
+                return new WarmupEstimator(env);
+            }
+        });
+    }
+
+    private final Env env;
+    private final Map<SourceSection, RootStatistics> statistics = new HashMap<>();
+    private EventBinding<ExecutionEventNodeFactory> binding;
+    private int hottest;
+    private double epsilon;
+
+    private WarmupEstimator(Env env) {
+        this.env = env;
+    }
+
+    /**
+     * Finds the {@link WarmupEstimator} associated with the given engine.
+     *
+     * @param engine the engine to find the estimator for
+     * @return the associated estimator
+     * @since 20.3
+     */
+    public static WarmupEstimator find(Engine engine) {
+        return WarmupEstimatorInstrument.getEstimator(engine);
+    }
+
+    /**
+     * Starts tracking all non-internal roots.
+     *
+     * @param hottestRoots the number of roots reported by {@link #getHottestRoots()}
+     * @param tolerance the factor by which the batch latency may exceed the best one at peak
+     *            performance, e.g. <code>1.05</code>
+     * @throws IllegalStateException if the estimator is already tracking
+     * @since 20.3
+     */
+    public synchronized void start(int hottestRoots, double tolerance) {
+        if (binding != null) {
+            throw new IllegalStateException("Warmup estimator is already tracking");
+        }
+        if (hottestRoots < 1) {
+            throw new IllegalArgumentException(String.format("Invalid number of hottest roots %s.", hottestRoots));
+        }
+        if (tolerance < 1) {
+            throw new IllegalArgumentException(String.format("Invalid tolerance %s.", tolerance));
+        }
+        this.hottest = hottestRoots;
+        this.epsilon = tolerance;
+        final SourceSectionFilter filter = SourceSectionFilter.newBuilder().includeInternal(false).tagIs(StandardTags.RootTag.class).build();
+        binding = env.getInstrumenter().attachExecutionEventFactory(filter, new ExecutionEventNodeFactory() {
+            @Override
+            public ExecutionEventNode create(EventContext context) {
+                return new WarmupEstimatorNode(statisticsFor(context));
+            }
+        });
+    }
+
+    /**
+     * Stops tracking. The gathered data stays available.
+     *
+     * @since 20.3
+     */
+    public synchronized void stop() {
+        if (binding != null) {
+            binding.dispose();
+            binding = null;
+        }
+    }
+
+    /**
+     * @return whether the estimator is tracking roots
+     * @since 20.3
+     */
+    public synchronized boolean isTracking() {
+        return binding != null;
+    }
+
+    /**
+     * @return the warmup of the roots that spent the most time executing so far, hottest first
+     * @since 20.3
+     */
+    public List<RootWarmup> getHottestRoots() {
+        final List<RootStatistics> all;
+        final int limit;
+        synchronized (this) {
+            all = new ArrayList<>(statistics.values());
+            limit = hottest;
+        }
+        final List<RootWarmup> roots = new ArrayList<>(all.size());
+        for (RootStatistics rootStatistics : all) {
+            RootWarmup warmup = rootStatistics.snapshot();
+            if (warmup.getInvocations() > 0) {
+                roots.add(warmup);
+            }
+        }
+        roots.sort(new Comparator<RootWarmup>() {
+            @Override
+            public int compare(RootWarmup o1, RootWarmup o2) {
+                return Long.compare(o2.getTotalTime(), o1.getTotalTime());
+            }
+        });
+        return Collections.unmodifiableList(roots.size() > limit ? new ArrayList<>(roots.subList(0, limit)) : roots);
+    }
+
+    private synchronized RootStatistics statisticsFor(EventContext context) {
+        final SourceSection section = context.getInstrumentedSourceSection();
+        RootStatistics rootStatistics = statistics.get(section);
+        if (rootStatistics == null) {
+            final RootNode rootNode = context.getInstrumentedNode().getRootNode();
+            rootStatistics = new RootStatistics(rootNode == null ? "" : rootNode.getName(), section, epsilon);
+            statistics.put(section, rootStatistics);
+        }
+        return rootStatistics;
+    }
+
+    /**
+     * Aggregated latencies of one root. The invocations of each thread are collected into a thread
+     * local batch of {@link #BATCH_SIZE} invocations, so the lock is only taken once per batch. For
+     * the peak detection only the best batch, the current run of stable batches and the totals at
+     * the start of that run are kept. If a batch improves the best latency by more than epsilon, the
+     * peak detected so far is discarded and detected again relative to the new best latency.
+     */
+    static final class RootStatistics implements WarmupEstimatorNode.Recorder {
+
+        private final String name;
+        private final SourceSection sourceSection;
+        private final double epsilon;
+        private final ThreadLocal<Batch> batches = new ThreadLocal<Batch>() {
+            @Override
+            protected Batch initialValue() {
+                return new Batch();
+            }
+        };
+
+        private long invocations;
+        private long totalTime;
+        private long firstInvocation;
+
+        private double bestLatency = Double.MAX_VALUE;
+
+        private int stableBatches;
+        private long runStartInvocations;
+        private long runStartTotalTime;
+        private long runStartTimestamp;
+
+        private long peakInvocations = -1;
+        private long peakTotalTime;
+        private long timeToPeak = -1;
+
+        RootStatistics(String name, SourceSection sourceSection, double epsilon) {
+            this.name = name;
+            this.sourceSection = sourceSection;
+            this.epsilon = epsilon;
+        }
+
+        @Override
+        public void record(long start, long duration) {
+            final Batch batch = batches.get();
+            if (batch.invocations == 0) {
+                batch.start = start;
+            }
+            batch.time += duration;
+            if (++batch.invocations == BATCH_SIZE) {
+                endBatch(batch.start, batch.time);
+                batch.invocations = 0;
+                batch.time = 0;
+            }
+        }
+
+        private synchronized void endBatch(long batchStart, long batchTime) {
+            if (invocations == 0 || batchStart < firstInvocation) {
+                firstInvocation = batchStart;
+            }
+            final long previousInvocations = invocations;
+            final long previousTotalTime = totalTime;
+            invocations += BATCH_SIZE;
+            totalTime += batchTime;
+            final double latency = (double) batchTime / BATCH_SIZE;
+            if (latency * epsilon < bestLatency) {
+                // The previous best is not within epsilon of this batch, so a peak detected with it
+                // was only a plateau on the way to the actual peak.
+                stableBatches = 0;
+                peakInvocations = -1;
+                peakTotalTime = 0;
+                timeToPeak = -1;
+            }
+            if (latency < bestLatency) {
+                bestLatency = latency;
+            }
+            if (latency <= bestLatency * epsilon) {
+                if (stableBatches == 0) {
+                    runStartInvocations = previousInvocations;
+                    runStartTotalTime = previousTotalTime;
+                    runStartTimestamp = batchStart;
+                }
+                if (++stableBatches == STABLE_BATCHES && peakInvocations == -1) {
+                    peakInvocations = runStartInvocations;
+                    peakTotalTime = runStartTotalTime;
+                    timeToPeak = runStartTimestamp - firstInvocation;
+                }
+            } else {
+                stableBatches = 0;
+            }
+        }
+
+        synchronized RootWarmup snapshot() {
+            final double best = bestLatency == Double.MAX_VALUE ? (invocations == 0 ? 0 : (double) totalTime / invocations) : bestLatency;
+            final long warmupTime = peakInvocations == -1 ? -1 : Math.max(0, peakTotalTime - (long) (peakInvocations * best));
+            return new RootWarmup(name, sourceSection, invocations, totalTime, (long) best, epsilon, peakInvocations, timeToPeak, warmupTime);
+        }
+    }
+
+    private static final class Batch {
+
+        long start;
+        long time;
+        int invocations;
+    }
+}
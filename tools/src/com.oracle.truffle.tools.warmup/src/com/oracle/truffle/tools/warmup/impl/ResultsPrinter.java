@@ -24,8 +24,10 @@
  */
 package com.oracle.truffle.tools.warmup.impl;
 
+import com.oracle.truffle.api.source.SourceSection;
 import com.oracle.truffle.tools.utils.json.JSONArray;
 import com.oracle.truffle.tools.utils.json.JSONObject;
+import com.oracle.truffle.tools.warmup.RootWarmup;
 
 import java.io.PrintStream;
 import java.util.List;
@@ -77,6 +79,46 @@ class ResultsPrinter {
         stream.print(output.toString(2));
     }
 
+    private static String location(RootWarmup root) {
+        final SourceSection section = root.getSourceSection();
+        if (section == null || section.getSource() == null) {
+            return root.getName();
+        }
+        return root.getName() + ":" + section.getSource().getName() + ":" + section.getStartLine();
+    }
+
+    void printSimpleResults(List<RootWarmup> roots) {
+        for (RootWarmup root : roots) {
+            final String location = location(root);
+            stream.printf(LONG_FORMAT, location, "Invocations", root.getInvocations());
+            stream.printf(LONG_FORMAT, location, "Total time", root.getTotalTime());
+            stream.printf(LONG_FORMAT, location, "Best time", root.getBestLatency());
+            stream.printf(DOUBLE_FORMAT, location, "Epsilon", root.getEpsilon());
+            stream.printf(LONG_FORMAT, location, "Peak Start Iter", root.getInvocationsToPeak());
+            stream.printf(LONG_FORMAT, location, "Time to peak", root.getTimeToPeak());
+            stream.printf(LONG_FORMAT, location, "Warmup time", root.getWarmupTime());
+            stream.printf(DOUBLE_FORMAT, location, "Warmup cost", root.getWarmupCost());
+        }
+    }
+
+    void printJsonResults(List<RootWarmup> roots) {
+        JSONArray output = new JSONArray();
+        for (RootWarmup root : roots) {
+            JSONObject jsonResults = new JSONObject();
+            jsonResults.put("location", location(root));
+            jsonResults.put("iterations", root.getInvocations());
+            jsonResults.put("total_time", root.getTotalTime());
+            jsonResults.put("best_time", root.getBestLatency());
+            jsonResults.put("epsilon", root.getEpsilon());
+            jsonResults.put("peak_start_iteration", root.getInvocationsToPeak());
+            jsonResults.put("time_to_peak", root.getTimeToPeak());
+            jsonResults.put("warmup_time", root.getWarmupTime());
+            jsonResults.put("warmup_cost", root.getWarmupCost());
+            output.put(jsonResults);
+        }
+        stream.print(output.toString(2));
+    }
+
     void printRawResults() {
         JSONArray output = new JSONArray();
         for (Results results : resultsList) {
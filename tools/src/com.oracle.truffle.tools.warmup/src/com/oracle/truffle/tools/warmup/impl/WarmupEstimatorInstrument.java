@@ -34,6 +34,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.Function;
 import java.util.logging.Level;
 
 import org.graalvm.options.OptionCategory;
@@ -42,6 +43,8 @@ import org.graalvm.options.OptionKey;
 import org.graalvm.options.OptionStability;
 import org.graalvm.options.OptionType;
 import org.graalvm.options.OptionValues;
+import org.graalvm.polyglot.Engine;
+import org.graalvm.polyglot.Instrument;
 
 import com.oracle.truffle.api.Option;
 import com.oracle.truffle.api.TruffleLogger;
@@ -51,8 +54,9 @@ import com.oracle.truffle.api.instrumentation.Instrumenter;
 import com.oracle.truffle.api.instrumentation.SourceSectionFilter;
 import com.oracle.truffle.api.instrumentation.StandardTags;
 import com.oracle.truffle.api.instrumentation.TruffleInstrument;
+import com.oracle.truffle.tools.warmup.WarmupEstimator;
 
-@TruffleInstrument.Registration(id = WarmupEstimatorInstrument.ID, name = "Warmup Estimator", version = WarmupEstimatorInstrument.VERSION)
+@TruffleInstrument.Registration(id = WarmupEstimatorInstrument.ID, name = "Warmup Estimator", version = WarmupEstimatorInstrument.VERSION, services = WarmupEstimator.class)
 public class WarmupEstimatorInstrument extends TruffleInstrument {
 
     public static final String ID = "warmup";
@@ -98,8 +102,41 @@ public class WarmupEstimatorInstrument extends TruffleInstrument {
     static final OptionKey<Output> OUTPUT = new OptionKey<>(Output.SIMPLE, CLI_OUTPUT_TYPE);
     @Option(name = "Epsilon", help = "Sets the epsilon value which specifies the tolerance for peak performance detection. It's inferred if the value is 0. (default: 1.05)", category = OptionCategory.USER, stability = OptionStability.EXPERIMENTAL) //
     static final OptionKey<Double> EPSILON = new OptionKey<>(1.05);
+    @Option(name = "Hottest", help = "Automatically track all roots and report the warmup of the given number of hottest ones instead of the roots given by 'Root'. " +
+                    "Meant for production runs where no benchmark iteration is known. (default: 0)", category = OptionCategory.USER, stability = OptionStability.EXPERIMENTAL) //
+    static final OptionKey<Integer> HOTTEST = new OptionKey<>(0);
+    private static final double DEFAULT_EPSILON = 1.05;
+
+    private static Function<Env, WarmupEstimator> factory;
+
+    static {
+        // Be sure that the factory is initialized:
+        try {
+            Class.forName(WarmupEstimator.class.getName(), true, WarmupEstimator.class.getClassLoader());
+        } catch (ClassNotFoundException cannotHappen) {
+            // Can not happen
+            throw new AssertionError();
+        }
+    }
+
     private final Map<Location, List<Long>> locationsToTimes = new HashMap<>();
     private boolean enabled;
+    private WarmupEstimator estimator;
+
+    public static WarmupEstimator getEstimator(Engine engine) {
+        Instrument instrument = engine.getInstruments().get(ID);
+        if (instrument == null) {
+            throw new IllegalStateException("Warmup estimator is not installed.");
+        }
+        return instrument.lookup(WarmupEstimator.class);
+    }
+
+    public static void setFactory(Function<Env, WarmupEstimator> factory) {
+        if (factory == null || !factory.getClass().getName().startsWith("com.oracle.truffle.tools.warmup")) {
+            throw new IllegalArgumentException("Wrong factory: " + factory);
+        }
+        WarmupEstimatorInstrument.factory = factory;
+    }
 
     private static int parseInt(String string) {
         try {
@@ -149,8 +186,13 @@ public class WarmupEstimatorInstrument extends TruffleInstrument {
     @Override
     protected void onCreate(Env env) {
         final OptionValues options = env.getOptions();
+        estimator = factory.apply(env);
+        env.registerService(estimator);
         enabled = options.get(WarmupEstimatorInstrument.ENABLED);
-        if (enabled) {
+        if (enabled && options.get(HOTTEST) > 0) {
+            final double epsilon = options.get(EPSILON);
+            estimator.start(options.get(HOTTEST), epsilon == 0.0 ? DEFAULT_EPSILON : epsilon);
+        } else if (enabled) {
             final List<Location> locations = options.get(Root);
             if (locations.size() == 0) {
                 throw new IllegalArgumentException("Locations must be set");
@@ -167,9 +209,16 @@ public class WarmupEstimatorInstrument extends TruffleInstrument {
         List<Long> times = locationsToTimes.get(location);
         if (times == null) {
             logger.log(Level.INFO, "Instrumenting root like " + location + " on " + context.getInstrumentedSourceSection());
-            times = new ArrayList<>();
-            locationsToTimes.put(location, times);
-            return new WarmupEstimatorNode(times);
+            final List<Long> rootTimes = new ArrayList<>();
+            locationsToTimes.put(location, rootTimes);
+            return new WarmupEstimatorNode(new WarmupEstimatorNode.Recorder() {
+                @Override
+                public void record(long start, long duration) {
+                    synchronized (rootTimes) {
+                        rootTimes.add(duration);
+                    }
+                }
+            });
         }
         logger.log(Level.WARNING, "Ignoring multiple roots like " + location + " on " + context.getInstrumentedSourceSection());
         return null;
@@ -177,6 +226,23 @@ public class WarmupEstimatorInstrument extends TruffleInstrument {
 
     @Override
     protected void onDispose(Env env) {
+        if (estimator.isTracking()) {
+            estimator.stop();
+            final OptionValues options = env.getOptions();
+            try (PrintStream stream = outputStream(env, options)) {
+                final ResultsPrinter printer = new ResultsPrinter(Collections.emptyList(), stream);
+                if (OUTPUT.getValue(options) == Output.SIMPLE) {
+                    printer.printSimpleResults(estimator.getHottestRoots());
+                } else {
+                    printer.printJsonResults(estimator.getHottestRoots());
+                }
+            }
+            super.onDispose(env);
+            return;
+        }
+        if (!enabled) {
+            return;
+        }
         if (locationsToTimes.isEmpty()) {
             env.getLogger(this.getClass()).log(Level.WARNING, "No roots like " + Root.getValue(env.getOptions()) + " found during execution.");
         }
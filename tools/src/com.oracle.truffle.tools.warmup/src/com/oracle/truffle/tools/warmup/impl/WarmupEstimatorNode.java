@@ -24,8 +24,6 @@
  */
 package com.oracle.truffle.tools.warmup.impl;
 
-import java.util.Collections;
-import java.util.List;
 import java.util.concurrent.locks.Lock;
 
 import com.oracle.truffle.api.CompilerDirectives;
@@ -35,13 +33,22 @@ import com.oracle.truffle.api.frame.FrameUtil;
 import com.oracle.truffle.api.frame.VirtualFrame;
 import com.oracle.truffle.api.instrumentation.ExecutionEventNode;
 
-class WarmupEstimatorNode extends ExecutionEventNode {
+public final class WarmupEstimatorNode extends ExecutionEventNode {
 
-    private final List<Long> times;
+    /**
+     * Receives the start timestamp and the duration of every invocation of the instrumented root.
+     * Called behind a boundary, implementations should avoid contended locks.
+     */
+    public interface Recorder {
+
+        void record(long start, long duration);
+    }
+
+    private final Recorder recorder;
     @CompilerDirectives.CompilationFinal private volatile FrameSlot startSlot;
 
-    WarmupEstimatorNode(List<Long> times) {
-        this.times = times;
+    public WarmupEstimatorNode(Recorder recorder) {
+        this.recorder = recorder;
     }
 
     @Override
@@ -62,17 +69,13 @@ class WarmupEstimatorNode extends ExecutionEventNode {
     @Override
     protected void onReturnValue(VirtualFrame frame, Object result) {
         if (startSlot != null) {
-            final long end = System.nanoTime();
-            record(end - FrameUtil.getLongSafe(frame, startSlot));
+            final long start = FrameUtil.getLongSafe(frame, startSlot);
+            record(start, System.nanoTime() - start);
         }
     }
 
     @CompilerDirectives.TruffleBoundary
-    private synchronized void record(long duration) {
-        times.add(duration);
-    }
-
-    synchronized List<Long> getTimes() {
-        return Collections.unmodifiableList(times);
+    private void record(long start, long duration) {
+        recorder.record(start, duration);
     }
 }
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.tools.lsp.test.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import org.graalvm.tools.lsp.instrument.EnvironmentProvider;
+import org.graalvm.tools.lsp.server.types.Location;
+import org.graalvm.tools.lsp.server.types.Range;
+import org.graalvm.tools.lsp.server.types.SymbolInformation;
+import org.graalvm.tools.lsp.server.types.SymbolKind;
+import org.graalvm.tools.lsp.server.utils.SymbolIndex;
+import org.junit.Test;
+
+import com.oracle.truffle.api.instrumentation.TruffleInstrument;
+import com.oracle.truffle.api.source.Source;
+
+public class SymbolTest extends TruffleLSPTest {
+
+    @Test
+    public void definitionTest() throws InterruptedException, ExecutionException {
+        URI uri = createDummyFileUriForSL();
+        truffleAdapter.parse(PROG_OBJ_NOT_CALLED, "sl", uri).get();
+
+        for (int column = 8; column <= 11; column++) {
+            List<? extends Location> definitions = truffleAdapter.definition(uri, 1, column).get();
+            assertEquals(1, definitions.size());
+            assertEquals(uri.toString(), definitions.get(0).getUri());
+            assertTrue(rangeCheck(5, 9, 5, 12, definitions.get(0).getRange()));
+        }
+
+        List<? extends Location> variableDefinitions = truffleAdapter.definition(uri, 8, 10).get();
+        assertEquals(1, variableDefinitions.size());
+        assertTrue(rangeCheck(6, 2, 6, 5, variableDefinitions.get(0).getRange()));
+
+        assertTrue(truffleAdapter.definition(uri, 4, 0).get().isEmpty());
+    }
+
+    @Test
+    public void referencesTest() throws InterruptedException, ExecutionException {
+        URI uri = createDummyFileUriForSL();
+        truffleAdapter.parse(PROG_OBJ_NOT_CALLED, "sl", uri).get();
+
+        List<? extends Location> references = truffleAdapter.references(uri, 5, 10, false).get();
+        assertEquals(3, references.size());
+        assertContainsRange(references, 1, 8, 1, 11);
+        assertContainsRange(references, 12, 2, 12, 5);
+        assertContainsRange(references, 13, 9, 13, 12);
+
+        references = truffleAdapter.references(uri, 12, 3, true).get();
+        assertEquals(4, references.size());
+        assertContainsRange(references, 5, 9, 5, 12);
+
+        references = truffleAdapter.references(uri, 6, 3, true).get();
+        assertEquals(3, references.size());
+        assertContainsRange(references, 6, 2, 6, 5);
+        assertContainsRange(references, 7, 2, 7, 5);
+        assertContainsRange(references, 8, 9, 8, 12);
+    }
+
+    @Test
+    public void symbolTest() throws InterruptedException, ExecutionException {
+        URI uri = createDummyFileUriForSL();
+        truffleAdapter.parse(PROG_OBJ_NOT_CALLED, "sl", uri).get();
+        URI otherUri = createDummyFileUriForSL();
+        truffleAdapter.parse(PROG_OBJ, "sl", otherUri).get();
+
+        List<? extends SymbolInformation> symbols = truffleAdapter.documentSymbol(uri).get();
+        assertEquals(3, symbols.size());
+        for (SymbolInformation symbol : symbols) {
+            assertEquals(SymbolKind.Function, symbol.getKind());
+            assertEquals(uri.toString(), symbol.getLocation().getUri());
+        }
+
+        assertEquals(5, truffleAdapter.workspaceSymbol("").get().size());
+        List<? extends SymbolInformation> found = truffleAdapter.workspaceSymbol("CALLED").get();
+        assertEquals(1, found.size());
+        assertEquals("notCalled", found.get(0).getName());
+        assertTrue(rangeCheck(11, 9, 14, 1, found.get(0).getLocation().getRange()));
+
+        // Definitions are resolved across documents.
+        assertEquals(2, truffleAdapter.definition(otherUri, 1, 5).get().size());
+    }
+
+    @Test
+    public void changeTest() throws InterruptedException, ExecutionException {
+        URI uri = createDummyFileUriForSL();
+        truffleAdapter.parse(PROG_OBJ_NOT_CALLED, "sl", uri).get();
+        truffleAdapter.parse(PROG_OBJ_NOT_CALLED.replace("notCalled", "renamed"), "sl", uri).get();
+
+        assertTrue(truffleAdapter.workspaceSymbol("notCalled").get().isEmpty());
+        assertEquals(1, truffleAdapter.workspaceSymbol("renamed").get().size());
+    }
+
+    @Test
+    public void closeTest() throws InterruptedException, ExecutionException, IOException {
+        URI uri = createDummyFileUriForSL();
+        Files.write(Paths.get(uri), PROG_OBJ_NOT_CALLED.getBytes(StandardCharsets.UTF_8));
+        truffleAdapter.parse(PROG_OBJ_NOT_CALLED.replace("notCalled", "unsaved"), "sl", uri).get();
+        assertEquals(1, truffleAdapter.workspaceSymbol("unsaved").get().size());
+
+        // The file still exists, its symbols are indexed from the saved content.
+        truffleAdapter.didClose(uri).get();
+        assertTrue(truffleAdapter.workspaceSymbol("unsaved").get().isEmpty());
+        assertEquals(1, truffleAdapter.workspaceSymbol("notCalled").get().size());
+
+        truffleAdapter.didDelete(uri);
+        assertTrue(truffleAdapter.workspaceSymbol("notCalled").get().isEmpty());
+    }
+
+    @Test
+    public void reindexTest() throws InterruptedException, ExecutionException, IOException {
+        URI uri = createDummyFileUriForSL();
+        Files.write(Paths.get(uri), PROG_OBJ_NOT_CALLED.getBytes(StandardCharsets.UTF_8));
+        truffleAdapter.reindex(uri).get();
+        assertEquals(1, truffleAdapter.workspaceSymbol("notCalled").get().size());
+
+        // Changed outside of the editor.
+        Files.write(Paths.get(uri), PROG_OBJ_NOT_CALLED.replace("notCalled", "renamed").getBytes(StandardCharsets.UTF_8));
+        truffleAdapter.reindex(uri).get();
+        assertTrue(truffleAdapter.workspaceSymbol("notCalled").get().isEmpty());
+        assertEquals(1, truffleAdapter.workspaceSymbol("renamed").get().size());
+
+        Files.delete(Paths.get(uri));
+        truffleAdapter.reindex(uri).get();
+        assertTrue(truffleAdapter.workspaceSymbol("renamed").get().isEmpty());
+    }
+
+    @Test
+    public void persistentIndexTest() throws InterruptedException, ExecutionException, IOException {
+        URI uri = createDummyFileUriForSL();
+        truffleAdapter.parse(PROG_OBJ_NOT_CALLED, "sl", uri).get();
+
+        File cacheFile = File.createTempFile("truffle-lsp-test-index-", ".json");
+        cacheFile.deleteOnExit();
+        Path cachePath = cacheFile.toPath();
+        TruffleInstrument.Env env = engine.getInstruments().get("lsp").lookup(EnvironmentProvider.class).getEnvironment();
+        Source source = Source.newBuilder("sl", env.getTruffleFile(uri)).content(PROG_OBJ_NOT_CALLED).cached(false).build();
+        SymbolIndex index = new SymbolIndex(cachePath);
+        index.update(uri, source, env);
+        List<SymbolIndex.Symbol> symbols = index.getSymbols(uri);
+        assertFalse(symbols.isEmpty());
+        index.save();
+
+        SymbolIndex restored = new SymbolIndex(cachePath);
+        restored.load();
+        assertTrue(restored.getSymbols(uri).isEmpty());
+        assertTrue(restored.restore(uri, PROG_OBJ_NOT_CALLED));
+        List<SymbolIndex.Symbol> restoredSymbols = restored.getSymbols(uri);
+        assertEquals(symbols.size(), restoredSymbols.size());
+        for (int i = 0; i < symbols.size(); i++) {
+            assertEquals(symbols.get(i).getName(), restoredSymbols.get(i).getName());
+            assertEquals(symbols.get(i).getKind(), restoredSymbols.get(i).getKind());
+            assertEquals(symbols.get(i).getRange(), restoredSymbols.get(i).getRange());
+        }
+
+        SymbolIndex outdated = new SymbolIndex(cachePath);
+        outdated.load();
+        assertFalse(outdated.restore(uri, PROG_OBJ));
+        assertTrue(outdated.getSymbols(uri).isEmpty());
+
+        // "Aa" and "BB" have the same length and String hash code
+        String content = PROG_OBJ_NOT_CALLED + "// Aa\n";
+        truffleAdapter.parse(content, "sl", uri).get();
+        Source commented = Source.newBuilder("sl", env.getTruffleFile(uri)).content(content).cached(false).build();
+        SymbolIndex collision = new SymbolIndex(cachePath);
+        collision.update(uri, commented, env);
+        collision.save();
+        collision = new SymbolIndex(cachePath);
+        collision.load();
+        assertFalse(collision.restore(uri, PROG_OBJ_NOT_CALLED + "// BB\n"));
+    }
+
+    private void assertContainsRange(List<? extends Location> locations, int startLine, int startColumn, int endLine, int endColumn) {
+        for (Location location : locations) {
+            Range range = location.getRange();
+            if (rangeCheck(startLine, startColumn, endLine, endColumn, range)) {
+                return;
+            }
+        }
+        throw new AssertionError("No location with range " + startLine + ":" + startColumn + "-" + endLine + ":" + endColumn + " found in " + locations);
+    }
+}
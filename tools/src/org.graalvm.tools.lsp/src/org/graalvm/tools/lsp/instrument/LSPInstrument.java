@@ -31,6 +31,7 @@ import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.SocketAddress;
 import java.net.UnknownHostException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -117,6 +118,9 @@ public final class LSPInstrument extends TruffleInstrument implements Environmen
     @Option(help = "Delegate language servers", category = OptionCategory.USER) //
     static final OptionKey<List<LanguageAndAddress>> Delegates = new OptionKey<>(Collections.emptyList(), DELEGATES);
 
+    @Option(help = "File to persist the workspace symbol index in, so that unchanged files need not be parsed again on the next start. (default: no persistent index)", category = OptionCategory.USER) //
+    static final OptionKey<String> IndexCache = new OptionKey<>("");
+
     @Override
     protected void onCreate(Env env) {
         env.registerService(this);
@@ -192,7 +196,8 @@ public final class LSPInstrument extends TruffleInstrument implements Environmen
         assert options != null;
         assert options.hasSetOptions();
 
-        TruffleAdapter truffleAdapter = new TruffleAdapter(environment, options.get(DeveloperMode));
+        String indexCache = options.get(IndexCache);
+        TruffleAdapter truffleAdapter = new TruffleAdapter(environment, options.get(DeveloperMode), indexCache.isEmpty() ? null : Paths.get(indexCache));
 
         Context.Builder builder = Context.newBuilder();
         builder.allowAllAccess(true);
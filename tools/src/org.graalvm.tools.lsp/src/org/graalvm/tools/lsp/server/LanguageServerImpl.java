@@ -59,6 +59,7 @@ import org.graalvm.tools.lsp.server.types.CompletionOptions;
 import org.graalvm.tools.lsp.server.types.CompletionParams;
 import org.graalvm.tools.lsp.server.types.Coverage;
 import org.graalvm.tools.lsp.server.types.DidChangeTextDocumentParams;
+import org.graalvm.tools.lsp.server.types.DidChangeWatchedFilesParams;
 import org.graalvm.tools.lsp.server.types.DidCloseTextDocumentParams;
 import org.graalvm.tools.lsp.server.types.DidOpenTextDocumentParams;
 import org.graalvm.tools.lsp.server.types.DidSaveTextDocumentParams;
@@ -69,6 +70,8 @@ import org.graalvm.tools.lsp.server.types.DocumentRangeFormattingParams;
 import org.graalvm.tools.lsp.server.types.DocumentSymbolParams;
 import org.graalvm.tools.lsp.server.types.ExecuteCommandOptions;
 import org.graalvm.tools.lsp.server.types.ExecuteCommandParams;
+import org.graalvm.tools.lsp.server.types.FileChangeType;
+import org.graalvm.tools.lsp.server.types.FileEvent;
 import org.graalvm.tools.lsp.server.types.Hover;
 import org.graalvm.tools.lsp.server.types.InitializeParams;
 import org.graalvm.tools.lsp.server.types.InitializeResult;
@@ -133,16 +136,16 @@ public final class LanguageServerImpl extends LanguageServer {
 
         ServerCapabilities capabilities = ServerCapabilities.create();
         capabilities.setTextDocumentSync(TEXT_DOCUMENT_SYNC_KIND);
-        capabilities.setDocumentSymbolProvider(false);
-        capabilities.setWorkspaceSymbolProvider(false);
-        capabilities.setDefinitionProvider(false);
+        capabilities.setDocumentSymbolProvider(true);
+        capabilities.setWorkspaceSymbolProvider(true);
+        capabilities.setDefinitionProvider(true);
         capabilities.setDocumentHighlightProvider(true);
         capabilities.setCodeLensProvider(CodeLensOptions.create().setResolveProvider(false));
         capabilities.setCompletionProvider(CompletionOptions.create().setResolveProvider(false));
         capabilities.setCodeActionProvider(true);
         capabilities.setSignatureHelpProvider(SignatureHelpOptions.create());
         capabilities.setHoverProvider(true);
-        capabilities.setReferencesProvider(false);
+        capabilities.setReferencesProvider(true);
         capabilities.setExecuteCommandProvider(ExecuteCommandOptions.create(Arrays.asList(DRY_RUN, GET_COVERAGE)));
 
         this.serverCapabilities = capabilities;
@@ -159,6 +162,7 @@ public final class LanguageServerImpl extends LanguageServer {
     @Override
     public CompletableFuture<Object> shutdown() {
         info.println("[Graal LSP] Shutting down server...");
+        truffleAdapter.saveSymbolIndex();
         return CompletableFuture.completedFuture(null);
     }
 
@@ -200,12 +204,18 @@ public final class LanguageServerImpl extends LanguageServer {
 
     @Override
     public CompletableFuture<List<? extends Location>> definition(TextDocumentPositionParams position) {
-        return CompletableFuture.completedFuture(Collections.emptyList());
+        Future<List<? extends Location>> future = truffleAdapter.definition(URI.create(position.getTextDocument().getUri()), position.getPosition().getLine(), position.getPosition().getCharacter());
+        Supplier<List<? extends Location>> supplier = () -> waitForResultAndHandleExceptions(future, Collections.emptyList());
+        return CompletableFuture.supplyAsync(supplier);
     }
 
     @Override
     public CompletableFuture<List<? extends Location>> references(ReferenceParams params) {
-        return CompletableFuture.completedFuture(Collections.emptyList());
+        boolean includeDeclaration = params.getContext() != null && params.getContext().isIncludeDeclaration();
+        Future<List<? extends Location>> future = truffleAdapter.references(URI.create(params.getTextDocument().getUri()), params.getPosition().getLine(), params.getPosition().getCharacter(),
+                        includeDeclaration);
+        Supplier<List<? extends Location>> supplier = () -> waitForResultAndHandleExceptions(future, Collections.emptyList());
+        return CompletableFuture.supplyAsync(supplier);
     }
 
     @Override
@@ -218,7 +228,9 @@ public final class LanguageServerImpl extends LanguageServer {
 
     @Override
     public CompletableFuture<List<? extends SymbolInformation>> documentSymbol(DocumentSymbolParams params) {
-        return CompletableFuture.completedFuture(Collections.emptyList());
+        Future<List<? extends SymbolInformation>> future = truffleAdapter.documentSymbol(URI.create(params.getTextDocument().getUri()));
+        Supplier<List<? extends SymbolInformation>> supplier = () -> waitForResultAndHandleExceptions(future, Collections.emptyList());
+        return CompletableFuture.supplyAsync(supplier);
     }
 
     @Override
@@ -311,7 +323,24 @@ public final class LanguageServerImpl extends LanguageServer {
     public void didClose(DidCloseTextDocumentParams params) {
         URI uri = URI.create(params.getTextDocument().getUri());
         openedFileUri2LangId.remove(uri);
-        truffleAdapter.didClose(uri);
+        Future<?> future = truffleAdapter.didClose(uri);
+        CompletableFuture.runAsync(() -> waitForResultAndHandleExceptions(future));
+    }
+
+    @Override
+    public void didChangeWatchedFiles(DidChangeWatchedFilesParams params) {
+        for (FileEvent event : params.getChanges()) {
+            URI uri = URI.create(event.getUri());
+            if (event.getType() == FileChangeType.Deleted) {
+                openedFileUri2LangId.remove(uri);
+                truffleAdapter.didDelete(uri);
+            } else if (!openedFileUri2LangId.containsKey(uri)) {
+                // Created or changed outside of the editor. Opened documents are indexed with
+                // their editor text instead.
+                Future<?> future = truffleAdapter.reindex(uri);
+                CompletableFuture.runAsync(() -> waitForResultAndHandleExceptions(future));
+            }
+        }
     }
 
     @Override
@@ -333,7 +362,9 @@ public final class LanguageServerImpl extends LanguageServer {
 
     @Override
     public CompletableFuture<List<? extends SymbolInformation>> symbol(WorkspaceSymbolParams params) {
-        return CompletableFuture.completedFuture(Collections.emptyList());
+        Future<List<? extends SymbolInformation>> future = truffleAdapter.workspaceSymbol(params.getQuery());
+        Supplier<List<? extends SymbolInformation>> supplier = () -> waitForResultAndHandleExceptions(future, Collections.emptyList());
+        return CompletableFuture.supplyAsync(supplier);
     }
 
     @Override
@@ -380,6 +411,7 @@ public final class LanguageServerImpl extends LanguageServer {
                 waitForResultAndHandleExceptions(future);
             }
         }
+        truffleAdapter.saveSymbolIndex();
     }
 
     private <T> T waitForResultAndHandleExceptions(Future<T> future) {
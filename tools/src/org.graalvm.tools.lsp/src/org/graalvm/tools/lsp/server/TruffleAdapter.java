@@ -26,6 +26,7 @@ package org.graalvm.tools.lsp.server;
 
 import java.io.IOException;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileVisitResult;
 import java.nio.file.FileVisitor;
 import java.nio.file.Files;
@@ -47,9 +48,11 @@ import org.graalvm.tools.lsp.server.types.CompletionOptions;
 import org.graalvm.tools.lsp.server.types.Coverage;
 import org.graalvm.tools.lsp.server.types.DocumentHighlight;
 import org.graalvm.tools.lsp.server.types.Hover;
+import org.graalvm.tools.lsp.server.types.Location;
 import org.graalvm.tools.lsp.server.types.ServerCapabilities;
 import org.graalvm.tools.lsp.server.types.SignatureHelp;
 import org.graalvm.tools.lsp.server.types.SignatureHelpOptions;
+import org.graalvm.tools.lsp.server.types.SymbolInformation;
 import org.graalvm.tools.lsp.server.types.TextDocumentContentChangeEvent;
 import org.graalvm.tools.lsp.exceptions.DiagnosticsNotification;
 import org.graalvm.tools.lsp.exceptions.UnknownLanguageException;
@@ -60,7 +63,9 @@ import org.graalvm.tools.lsp.server.request.HighlightRequestHandler;
 import org.graalvm.tools.lsp.server.request.HoverRequestHandler;
 import org.graalvm.tools.lsp.server.request.SignatureHelpRequestHandler;
 import org.graalvm.tools.lsp.server.request.SourceCodeEvaluator;
+import org.graalvm.tools.lsp.server.request.SymbolRequestHandler;
 import org.graalvm.tools.lsp.server.utils.SourceUtils;
+import org.graalvm.tools.lsp.server.utils.SymbolIndex;
 import org.graalvm.tools.lsp.server.utils.TextDocumentSurrogate;
 import org.graalvm.tools.lsp.server.utils.TextDocumentSurrogateMap;
 
@@ -93,14 +98,25 @@ public final class TruffleAdapter implements VirtualLanguageServerFileProvider {
     private SignatureHelpRequestHandler signatureHelpHandler;
     private CoverageRequestHandler coverageHandler;
     private HighlightRequestHandler highlightHandler;
+    private SymbolRequestHandler symbolHandler;
+    private final SymbolIndex symbolIndex;
     private TextDocumentSurrogateMap surrogateMap;
     private final LanguageTriggerCharacters completionTriggerCharacters = new LanguageTriggerCharacters();
     private final LanguageTriggerCharacters signatureTriggerCharacters = new LanguageTriggerCharacters();
 
     public TruffleAdapter(TruffleInstrument.Env mainEnv, boolean developerMode) {
+        this(mainEnv, developerMode, null);
+    }
+
+    /**
+     * @param indexCacheFile file to persist the symbol index in between sessions, or
+     *            <code>null</code> to keep the index in memory only
+     */
+    public TruffleAdapter(TruffleInstrument.Env mainEnv, boolean developerMode, Path indexCacheFile) {
         this.envMain = mainEnv;
         this.developerMode = developerMode;
         this.logger = envMain.getLogger("");
+        this.symbolIndex = new SymbolIndex(indexCacheFile);
     }
 
     public void register(Env environment, ContextAwareExecutor executor) {
@@ -108,6 +124,19 @@ public final class TruffleAdapter implements VirtualLanguageServerFileProvider {
         this.contextAwareExecutor = executor;
         initSurrogateMap();
         createLSPRequestHandlers();
+        try {
+            symbolIndex.load();
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.WARNING, "Failed to load the symbol index cache: {0}", e.getMessage());
+        }
+    }
+
+    public void saveSymbolIndex() {
+        try {
+            symbolIndex.save();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to save the symbol index cache: {0}", e.getMessage());
+        }
     }
 
     public TruffleLogger getLogger() {
@@ -121,6 +150,7 @@ public final class TruffleAdapter implements VirtualLanguageServerFileProvider {
         this.signatureHelpHandler = new SignatureHelpRequestHandler(envMain, envInternal, surrogateMap, contextAwareExecutor, sourceCodeEvaluator, completionHandler, signatureTriggerCharacters);
         this.coverageHandler = new CoverageRequestHandler(envMain, envInternal, surrogateMap, contextAwareExecutor, sourceCodeEvaluator);
         this.highlightHandler = new HighlightRequestHandler(envMain, envInternal, surrogateMap, contextAwareExecutor);
+        this.symbolHandler = new SymbolRequestHandler(envMain, envInternal, surrogateMap, contextAwareExecutor, symbolIndex);
     }
 
     private void initSurrogateMap() {
@@ -142,8 +172,44 @@ public final class TruffleAdapter implements VirtualLanguageServerFileProvider {
         return surrogate;
     }
 
-    public void didClose(URI uri) {
+    /**
+     * Drops the editor state of a closed document. If the document exists on disk, its symbols stay
+     * in the index and are updated to the content on disk, which no longer contains unsaved edits.
+     */
+    public Future<?> didClose(URI uri) {
+        return reindex(uri);
+    }
+
+    public void didDelete(URI uri) {
         surrogateMap.remove(uri);
+        symbolIndex.remove(uri);
+    }
+
+    /**
+     * Indexes a document which is not opened in the editor again from its content on disk, e.g.
+     * after it was changed or created outside of the editor. The entry of a document which no
+     * longer exists is removed.
+     */
+    public Future<?> reindex(URI uri) {
+        return contextAwareExecutor.executeWithDefaultContext(() -> {
+            surrogateMap.remove(uri);
+            TruffleFile file = envInternal.getTruffleFile(uri);
+            if (!file.exists()) {
+                symbolIndex.remove(uri);
+                return null;
+            }
+            String langId;
+            try {
+                langId = Source.findLanguage(file);
+            } catch (IOException e) {
+                langId = null;
+            }
+            LanguageInfo languageInfo = langId == null ? null : envInternal.getLanguages().get(langId);
+            if (languageInfo == null || languageInfo.isInternal()) {
+                return null;
+            }
+            return parseWithEnteredContext(getOrCreateSurrogate(uri, null, languageInfo));
+        });
     }
 
     public Future<CallTarget> parse(final String text, final String langId, final URI uri) {
@@ -157,7 +223,14 @@ public final class TruffleAdapter implements VirtualLanguageServerFileProvider {
     }
 
     CallTarget parseWithEnteredContext(TextDocumentSurrogate surrogate) throws DiagnosticsNotification {
-        return sourceCodeEvaluator.parse(surrogate);
+        CallTarget callTarget = surrogate.getUpToDateCallTarget();
+        if (callTarget != null) {
+            // The editor text did not change since the last parsing, e.g. on save.
+            return callTarget;
+        }
+        callTarget = sourceCodeEvaluator.parse(surrogate);
+        symbolIndex.update(surrogate.getUri(), surrogate.getSource(), envInternal);
+        return callTarget;
     }
 
     public Future<?> reparse(URI uri) {
@@ -219,7 +292,7 @@ public final class TruffleAdapter implements VirtualLanguageServerFileProvider {
         surrogate.setLastChange(list.get(list.size() - 1));
         surrogate.setEditorText(SourceUtils.applyTextDocumentChanges(list, surrogate.getSource(), surrogate, logger));
 
-        sourceCodeEvaluator.parse(surrogate);
+        parseWithEnteredContext(surrogate);
 
         return surrogate;
     }
@@ -322,6 +395,10 @@ public final class TruffleAdapter implements VirtualLanguageServerFileProvider {
                 return FileVisitResult.CONTINUE;
             }
             TextDocumentSurrogate surrogate = getOrCreateSurrogate(uri, null, mimeTypesAllLang.get(mimeType));
+            if (symbolIndex.restore(uri, new String(Files.readAllBytes(file), StandardCharsets.UTF_8))) {
+                // Indexed by a previous session and not modified since then.
+                return FileVisitResult.CONTINUE;
+            }
             parsingTasks.add(contextAwareExecutor.executeWithDefaultContext(() -> parseWithEnteredContext(surrogate)));
             return FileVisitResult.CONTINUE;
         }
@@ -393,6 +470,22 @@ public final class TruffleAdapter implements VirtualLanguageServerFileProvider {
         return contextAwareExecutor.executeWithDefaultContext(() -> highlightHandler.highlightWithEnteredContext(uri, line, character));
     }
 
+    public Future<List<? extends Location>> definition(URI uri, int line, int character) {
+        return contextAwareExecutor.executeWithDefaultContext(() -> symbolHandler.definitionWithEnteredContext(uri, line, character));
+    }
+
+    public Future<List<? extends Location>> references(URI uri, int line, int character, boolean includeDeclaration) {
+        return contextAwareExecutor.executeWithDefaultContext(() -> symbolHandler.referencesWithEnteredContext(uri, line, character, includeDeclaration));
+    }
+
+    public Future<List<? extends SymbolInformation>> documentSymbol(URI uri) {
+        return contextAwareExecutor.executeWithDefaultContext(() -> symbolHandler.documentSymbolWithEnteredContext(uri));
+    }
+
+    public Future<List<? extends SymbolInformation>> workspaceSymbol(String query) {
+        return contextAwareExecutor.executeWithDefaultContext(() -> symbolHandler.workspaceSymbolWithEnteredContext(query));
+    }
+
     public boolean hasCoverageData(URI uri) {
         TextDocumentSurrogate surrogate = surrogateMap.get(uri);
         return surrogate != null ? surrogate.hasCoverageData() : false;
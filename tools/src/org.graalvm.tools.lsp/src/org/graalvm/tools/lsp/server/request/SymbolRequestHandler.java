@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.tools.lsp.server.request;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+import org.graalvm.tools.lsp.server.ContextAwareExecutor;
+import org.graalvm.tools.lsp.server.types.Location;
+import org.graalvm.tools.lsp.server.types.SymbolInformation;
+import org.graalvm.tools.lsp.server.types.SymbolKind;
+import org.graalvm.tools.lsp.server.utils.SymbolIndex;
+import org.graalvm.tools.lsp.server.utils.SymbolIndex.Symbol;
+import org.graalvm.tools.lsp.server.utils.TextDocumentSurrogateMap;
+
+import com.oracle.truffle.api.instrumentation.TruffleInstrument;
+
+/**
+ * Answers goto-definition, references and symbol requests from the {@link SymbolIndex}. Functions
+ * are resolved across all indexed documents, variables within the function containing them.
+ */
+public final class SymbolRequestHandler extends AbstractRequestHandler {
+
+    private final SymbolIndex symbolIndex;
+
+    public SymbolRequestHandler(TruffleInstrument.Env envMain, TruffleInstrument.Env env, TextDocumentSurrogateMap surrogateMap, ContextAwareExecutor executor, SymbolIndex symbolIndex) {
+        super(envMain, env, surrogateMap, executor);
+        this.symbolIndex = symbolIndex;
+    }
+
+    public List<? extends Location> definitionWithEnteredContext(URI uri, int line, int character) {
+        Symbol symbol = symbolIndex.findSymbolAt(uri, line, character);
+        if (symbol == null) {
+            return Collections.emptyList();
+        }
+        List<Location> locations = new ArrayList<>();
+        if (symbol.getKind() == SymbolKind.Variable) {
+            for (Symbol other : symbolIndex.getSymbols(uri)) {
+                if (other.isDefinition() && isSameVariable(symbol, other)) {
+                    locations.add(Location.create(uri.toString(), other.getNameRange()));
+                    break;
+                }
+            }
+        } else {
+            for (Symbol definition : symbolIndex.findDefinitions(symbol.getName())) {
+                locations.add(Location.create(definition.getUri().toString(), definition.getNameRange()));
+            }
+        }
+        return locations;
+    }
+
+    public List<? extends Location> referencesWithEnteredContext(URI uri, int line, int character, boolean includeDeclaration) {
+        Symbol symbol = symbolIndex.findSymbolAt(uri, line, character);
+        if (symbol == null) {
+            return Collections.emptyList();
+        }
+        List<Location> locations = new ArrayList<>();
+        if (symbol.getKind() == SymbolKind.Variable) {
+            for (Symbol other : symbolIndex.getSymbols(uri)) {
+                if (isSameVariable(symbol, other)) {
+                    locations.add(Location.create(uri.toString(), other.getNameRange()));
+                }
+            }
+        } else {
+            for (URI indexedUri : symbolIndex.getIndexedUris()) {
+                for (Symbol other : symbolIndex.getSymbols(indexedUri)) {
+                    if (other.getKind() == SymbolKind.Function && other.getName().equals(symbol.getName()) && (includeDeclaration || !other.isDefinition())) {
+                        locations.add(Location.create(indexedUri.toString(), other.getNameRange()));
+                    }
+                }
+            }
+        }
+        return locations;
+    }
+
+    public List<? extends SymbolInformation> documentSymbolWithEnteredContext(URI uri) {
+        List<SymbolInformation> symbols = new ArrayList<>();
+        for (Symbol symbol : symbolIndex.getSymbols(uri)) {
+            if (symbol.isDefinition() && symbol.getKind() == SymbolKind.Function) {
+                symbols.add(SymbolInformation.create(symbol.getName(), symbol.getKind(), symbol.getRange(), uri.toString(), null));
+            }
+        }
+        return symbols;
+    }
+
+    public List<? extends SymbolInformation> workspaceSymbolWithEnteredContext(String query) {
+        String lowerCaseQuery = query != null ? query.toLowerCase(Locale.ROOT) : "";
+        List<SymbolInformation> symbols = new ArrayList<>();
+        for (URI indexedUri : symbolIndex.getIndexedUris()) {
+            for (Symbol symbol : symbolIndex.getSymbols(indexedUri)) {
+                if (symbol.isDefinition() && symbol.getKind() == SymbolKind.Function && symbol.getName().toLowerCase(Locale.ROOT).contains(lowerCaseQuery)) {
+                    symbols.add(SymbolInformation.create(symbol.getName(), symbol.getKind(), symbol.getRange(), indexedUri.toString(), null));
+                }
+            }
+        }
+        return symbols;
+    }
+
+    private static boolean isSameVariable(Symbol symbol, Symbol other) {
+        return other.getKind() == SymbolKind.Variable && other.getName().equals(symbol.getName()) && Objects.equals(other.getContainer(), symbol.getContainer());
+    }
+}
@@ -0,0 +1,405 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package org.graalvm.tools.lsp.server.utils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.graalvm.tools.lsp.server.types.Range;
+import org.graalvm.tools.lsp.server.types.SymbolKind;
+
+import com.oracle.truffle.api.instrumentation.InstrumentableNode;
+import com.oracle.truffle.api.instrumentation.InstrumentableNode.WrapperNode;
+import com.oracle.truffle.api.instrumentation.SourceSectionFilter;
+import com.oracle.truffle.api.instrumentation.StandardTags;
+import com.oracle.truffle.api.instrumentation.TruffleInstrument.Env;
+import com.oracle.truffle.api.nodes.Node;
+import com.oracle.truffle.api.nodes.RootNode;
+import com.oracle.truffle.api.source.Source;
+import com.oracle.truffle.api.source.SourceSection;
+import com.oracle.truffle.tools.utils.json.JSONArray;
+import com.oracle.truffle.tools.utils.json.JSONObject;
+
+/**
+ * A per-workspace index of the function definitions, call sites and variable accesses of all
+ * parsed documents. The index is updated after every successful parse of a document and answers
+ * goto-definition, references and symbol requests without walking the ASTs again. Entries are
+ * keyed by a SHA-256 digest of the document content, so that the index can be persisted to a cache
+ * file and re-used by the next server session for documents which did not change in between.
+ */
+public final class SymbolIndex {
+
+    private static final int VERSION = 2;
+
+    private final Path cacheFile;
+    private final Map<URI, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<URI, Entry> persistedEntries = new ConcurrentHashMap<>();
+
+    public SymbolIndex(Path cacheFile) {
+        this.cacheFile = cacheFile;
+    }
+
+    /**
+     * Re-indexes a successfully parsed document, unless the index already holds an entry for the
+     * same content. Needs to be called with an entered context.
+     */
+    public void update(URI uri, Source source, Env env) {
+        CharSequence content = source.getCharacters();
+        Entry entry = entries.get(uri);
+        if (entry != null && entry.matches(content)) {
+            return;
+        }
+        entries.put(uri, collect(uri, source, env));
+        persistedEntries.remove(uri);
+    }
+
+    /**
+     * Activates an entry loaded from the cache file if it was computed for the given content.
+     *
+     * @return <code>true</code> if the document does not need to be parsed for indexing
+     */
+    public boolean restore(URI uri, CharSequence content) {
+        Entry entry = persistedEntries.remove(uri);
+        if (entry != null && entry.matches(content)) {
+            entries.put(uri, entry);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Drops the entry of a deleted document.
+     */
+    public void remove(URI uri) {
+        entries.remove(uri);
+        persistedEntries.remove(uri);
+    }
+
+    public List<Symbol> getSymbols(URI uri) {
+        Entry entry = entries.get(uri);
+        return entry != null ? entry.symbols : Collections.emptyList();
+    }
+
+    public Collection<URI> getIndexedUris() {
+        return Collections.unmodifiableCollection(entries.keySet());
+    }
+
+    /**
+     * Finds the symbol whose name is under the caret. Call sites and variable accesses take
+     * precedence over the definitions enclosing them.
+     */
+    public Symbol findSymbolAt(URI uri, int line, int character) {
+        Symbol found = null;
+        for (Symbol symbol : getSymbols(uri)) {
+            if (symbol.isNameAt(line, character) && (found == null || found.definition)) {
+                found = symbol;
+            }
+        }
+        return found;
+    }
+
+    public List<Symbol> findDefinitions(String name) {
+        List<Symbol> definitions = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            for (Symbol symbol : entry.symbols) {
+                if (symbol.definition && symbol.kind == SymbolKind.Function && symbol.name.equals(name)) {
+                    definitions.add(symbol);
+                }
+            }
+        }
+        return definitions;
+    }
+
+    public void load() throws IOException {
+        if (cacheFile == null || !Files.isRegularFile(cacheFile)) {
+            return;
+        }
+        JSONObject json = new JSONObject(new String(Files.readAllBytes(cacheFile), StandardCharsets.UTF_8));
+        if (json.optInt("version") != VERSION) {
+            return;
+        }
+        JSONArray documents = json.getJSONArray("documents");
+        for (int i = 0; i < documents.length(); i++) {
+            JSONObject document = documents.getJSONObject(i);
+            URI uri = URI.create(document.getString("uri"));
+            persistedEntries.put(uri, Entry.fromJSON(uri, document));
+        }
+    }
+
+    public void save() throws IOException {
+        if (cacheFile == null) {
+            return;
+        }
+        JSONArray documents = new JSONArray();
+        for (Entry entry : entries.values()) {
+            documents.put(entry.toJSON());
+        }
+        JSONObject json = new JSONObject();
+        json.put("version", VERSION);
+        json.put("documents", documents);
+        Path parent = cacheFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tmp = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+        Files.write(tmp, json.toString().getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static Entry collect(URI uri, Source source, Env env) {
+        List<Symbol> symbols = new ArrayList<>();
+        SourceSectionFilter filter = SourceSectionFilter.newBuilder().sourceIs(source).tagIs(StandardTags.RootTag.class, StandardTags.CallTag.class, StandardTags.ReadVariableTag.class,
+                        StandardTags.WriteVariableTag.class).build();
+        env.getInstrumenter().attachLoadSourceSectionListener(filter, event -> {
+            Node node = event.getNode();
+            SourceSection section = event.getSourceSection();
+            if (!(node instanceof InstrumentableNode) || section == null || !section.isAvailable()) {
+                return;
+            }
+            InstrumentableNode instrumentable = (InstrumentableNode) node;
+            String container = getRootName(node);
+            if (instrumentable.hasTag(StandardTags.RootTag.class)) {
+                if (container != null) {
+                    int nameIndex = section.getCharacters().toString().indexOf(container);
+                    if (nameIndex >= 0) {
+                        symbols.add(Symbol.create(uri, container, SymbolKind.Function, null, true, section, section.getCharIndex() + nameIndex));
+                    }
+                }
+            } else if (instrumentable.hasTag(StandardTags.CallTag.class)) {
+                SourceSection calleeSection = findCalleeSection(node, section);
+                if (calleeSection != null) {
+                    // the called name is the trailing identifier of the callee, e.g. of obj.foo
+                    String text = calleeSection.getCharacters().toString();
+                    int end = text.length();
+                    while (end > 0 && Character.isWhitespace(text.charAt(end - 1))) {
+                        end--;
+                    }
+                    int start = end;
+                    while (start > 0 && Character.isJavaIdentifierPart(text.charAt(start - 1))) {
+                        start--;
+                    }
+                    if (start < end) {
+                        String name = text.substring(start, end);
+                        SourceSection nameSection = source.createSection(calleeSection.getCharIndex() + start, name.length());
+                        symbols.add(Symbol.create(uri, name, SymbolKind.Function, container, false, nameSection, nameSection.getCharIndex()));
+                    }
+                }
+            } else {
+                boolean write = instrumentable.hasTag(StandardTags.WriteVariableTag.class);
+                for (InteropUtils.VariableInfo variable : InteropUtils.getNodeObjectVariables(instrumentable)) {
+                    SourceSection nameSection = variable.getSourceSection();
+                    if (nameSection != null && nameSection.isAvailable()) {
+                        symbols.add(Symbol.create(uri, variable.getName(), SymbolKind.Variable, container, write, nameSection, nameSection.getCharIndex()));
+                    }
+                }
+            }
+        }, true).dispose();
+        return new Entry(uri, digest(source.getCharacters()), Collections.unmodifiableList(symbols));
+    }
+
+    /**
+     * Finds the source section of the expression a call node invokes, which is the child of the
+     * call whose source section starts where the call starts and ends before it, e.g. the section
+     * of {@code foo} or {@code obj.foo} in {@code obj.foo(a)}.
+     */
+    private static SourceSection findCalleeSection(Node call, SourceSection callSection) {
+        for (Node child : call.getChildren()) {
+            Node node = child instanceof WrapperNode ? ((WrapperNode) child).getDelegateNode() : child;
+            SourceSection childSection = node.getSourceSection();
+            if (childSection != null && childSection.isAvailable() && childSection.getSource().equals(callSection.getSource()) &&
+                            childSection.getCharIndex() == callSection.getCharIndex() && childSection.getCharEndIndex() < callSection.getCharEndIndex()) {
+                return childSection;
+            }
+        }
+        return null;
+    }
+
+    private static String getRootName(Node node) {
+        RootNode root = node.getRootNode();
+        String name = root != null ? root.getName() : null;
+        return name == null || name.isEmpty() ? null : name;
+    }
+
+    private static String digest(CharSequence content) {
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError("SHA-256 is a required algorithm", e);
+        }
+        byte[] bytes = sha256.digest(content.toString().getBytes(StandardCharsets.UTF_8));
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+    private static final class Entry {
+
+        private final URI uri;
+        private final String digest;
+        private final List<Symbol> symbols;
+
+        Entry(URI uri, String digest, List<Symbol> symbols) {
+            this.uri = uri;
+            this.digest = digest;
+            this.symbols = symbols;
+        }
+
+        boolean matches(CharSequence content) {
+            return digest.equals(digest(content));
+        }
+
+        JSONObject toJSON() {
+            JSONObject json = new JSONObject();
+            JSONArray array = new JSONArray();
+            for (Symbol symbol : symbols) {
+                array.put(symbol.toJSON());
+            }
+            json.put("uri", uri.toString());
+            json.put("digest", digest);
+            json.put("symbols", array);
+            return json;
+        }
+
+        static Entry fromJSON(URI uri, JSONObject json) {
+            JSONArray array = json.getJSONArray("symbols");
+            List<Symbol> symbols = new ArrayList<>(array.length());
+            for (int i = 0; i < array.length(); i++) {
+                symbols.add(Symbol.fromJSON(uri, array.getJSONObject(i)));
+            }
+            return new Entry(uri, json.getString("digest"), Collections.unmodifiableList(symbols));
+        }
+    }
+
+    /**
+     * A function definition, call site or variable access. Lines and columns are 0-based.
+     */
+    public static final class Symbol {
+
+        private final URI uri;
+        private final String name;
+        private final SymbolKind kind;
+        private final String container;
+        private final boolean definition;
+        private final int[] range;
+        private final int nameLine;
+        private final int nameColumn;
+
+        private Symbol(URI uri, String name, SymbolKind kind, String container, boolean definition, int[] range, int nameLine, int nameColumn) {
+            this.uri = uri;
+            this.name = name;
+            this.kind = kind;
+            this.container = container;
+            this.definition = definition;
+            this.range = range;
+            this.nameLine = nameLine;
+            this.nameColumn = nameColumn;
+        }
+
+        static Symbol create(URI uri, String name, SymbolKind kind, String container, boolean definition, SourceSection section, int nameIndex) {
+            Range r = SourceUtils.sourceSectionToRange(section);
+            int[] range = new int[]{r.getStart().getLine(), r.getStart().getCharacter(), r.getEnd().getLine(), r.getEnd().getCharacter()};
+            Source source = section.getSource();
+            int nameLine = source.getLineNumber(nameIndex);
+            int nameColumn = nameIndex - source.getLineStartOffset(nameLine);
+            return new Symbol(uri, name, kind, container, definition, range, nameLine - 1, nameColumn);
+        }
+
+        public URI getUri() {
+            return uri;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public SymbolKind getKind() {
+            return kind;
+        }
+
+        /**
+         * @return the name of the function containing a call site or variable access
+         */
+        public String getContainer() {
+            return container;
+        }
+
+        /**
+         * @return <code>true</code> for function definitions and variable writes
+         */
+        public boolean isDefinition() {
+            return definition;
+        }
+
+        public Range getRange() {
+            return Range.create(range[0], range[1], range[2], range[3]);
+        }
+
+        public Range getNameRange() {
+            return Range.create(nameLine, nameColumn, nameLine, nameColumn + name.length());
+        }
+
+        boolean isNameAt(int line, int character) {
+            return line == nameLine && nameColumn <= character && character <= nameColumn + name.length();
+        }
+
+        JSONObject toJSON() {
+            JSONObject json = new JSONObject();
+            json.put("name", name);
+            json.put("kind", kind.getIntValue());
+            json.putOpt("container", container);
+            json.put("definition", definition);
+            JSONArray array = new JSONArray();
+            for (int value : range) {
+                array.put(value);
+            }
+            json.put("range", array);
+            json.put("nameLine", nameLine);
+            json.put("nameColumn", nameColumn);
+            return json;
+        }
+
+        static Symbol fromJSON(URI uri, JSONObject json) {
+            JSONArray array = json.getJSONArray("range");
+            int[] range = new int[]{array.getInt(0), array.getInt(1), array.getInt(2), array.getInt(3)};
+            return new Symbol(uri, json.getString("name"), SymbolKind.get(json.getInt("kind")), json.optString("container", null), json.getBoolean("definition"), range,
+                            json.getInt("nameLine"), json.getInt("nameColumn"));
+        }
+    }
+}
@@ -224,6 +224,17 @@ public final class TextDocumentSurrogate {
         }
     }
 
+    /**
+     * Returns the call target of the last successful parsing if the editor text did not change
+     * since then, so that the document does not need to be parsed again.
+     */
+    public CallTarget getUpToDateCallTarget() {
+        if (editorText != null && sourceWrapper != null && sourceWrapper.isParsingSuccessful() && editorText.contentEquals(sourceWrapper.getSource().getCharacters())) {
+            return sourceWrapper.getCallTarget();
+        }
+        return null;
+    }
+
     public boolean isSourceCodeReadyForCodeCompletion() {
         return sourceWrapper.isParsingSuccessful();
     }
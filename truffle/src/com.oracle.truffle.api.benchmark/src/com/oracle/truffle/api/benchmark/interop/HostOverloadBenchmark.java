@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.truffle.api.benchmark.interop;
+
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.HostAccess;
+import org.graalvm.polyglot.Value;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.oracle.truffle.api.benchmark.TruffleBenchmark;
+
+/**
+ * Measures overload resolution of host methods with many overloads, like
+ * {@link StringBuilder#append}, for monomorphic and megamorphic argument types.
+ */
+@State(Scope.Thread)
+public class HostOverloadBenchmark extends TruffleBenchmark {
+
+    private static final int REPEAT = 1000;
+
+    private Context context;
+    private StringBuilder builder;
+    private Value append;
+    private Object[] monomorphicArguments;
+    private Object[] megamorphicArguments;
+
+    @Setup
+    public void setup() {
+        context = Context.newBuilder().allowHostAccess(HostAccess.ALL).build();
+        builder = new StringBuilder();
+        append = context.asValue(builder).getMember("append");
+        monomorphicArguments = new Object[REPEAT];
+        megamorphicArguments = new Object[REPEAT];
+        Object[] kinds = new Object[]{42, "s", 4.2d, true, 'c', 42L, 4.2f, new Object(), new char[]{'a'}};
+        for (int i = 0; i < REPEAT; i++) {
+            monomorphicArguments[i] = i;
+            megamorphicArguments[i] = kinds[i % kinds.length];
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int appendMonomorphic() {
+        return append(monomorphicArguments);
+    }
+
+    @Benchmark
+    public int appendMegamorphic() {
+        return append(megamorphicArguments);
+    }
+
+    private int append(Object[] arguments) {
+        builder.setLength(0);
+        for (int i = 0; i < arguments.length; i++) {
+            append.execute(arguments[i]);
+        }
+        return builder.length();
+    }
+}
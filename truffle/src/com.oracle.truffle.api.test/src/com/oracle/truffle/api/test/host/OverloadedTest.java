@@ -175,6 +175,21 @@ public class OverloadedTest extends ProxyLanguageEnvTest {
         assertEquals("BigInteger", num.parameter);
     }
 
+    @Test
+    public void testOverloadingMegamorphic() throws InteropException {
+        Num num = new Num();
+        TruffleObject numobj = asTruffleObject(num);
+        Object[] arguments = new Object[]{new UnboxableToInt(21), asTruffleObject(new AtomicInteger(22)), asTruffleObject(BigInteger.TEN), 4.2d};
+        String[] expected = new String[]{"int", "Number", "BigInteger", "Number"};
+        // repeated invocations are resolved using the shared overload dispatch table
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < arguments.length; j++) {
+                INTEROP.invokeMember(numobj, "x", arguments[j]);
+                assertEquals(expected[j], num.parameter);
+            }
+        }
+    }
+
     @Test
     public void testVarArgs() throws InteropException {
         TruffleObject stringClass = asTruffleHostSymbol(String.class);
@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.truffle.api.test.polyglot;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.graalvm.polyglot.Context;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.oracle.truffle.api.CallTarget;
+import com.oracle.truffle.api.Truffle;
+import com.oracle.truffle.api.TruffleLanguage;
+import com.oracle.truffle.api.TruffleLanguage.Registration;
+import com.oracle.truffle.api.nodes.RootNode;
+
+public class ContextBackgroundInitializationTest {
+
+    static final String BASE = "BackgroundInitializationBaseLanguage";
+    static final String DEPENDENT = "BackgroundInitializationDependentLanguage";
+    static final String BLOCKING = "BackgroundInitializationBlockingLanguage";
+    static final String BLOCKING_DEPENDENT = "BackgroundInitializationBlockingDependentLanguage";
+    static final String THREAD_SAFE = "BackgroundInitializationThreadSafeLanguage";
+
+    private static final long TIMEOUT_SECONDS = 60;
+
+    private static final AtomicInteger NEXT_ORDER_INDEX = new AtomicInteger();
+    private static final Map<String, InitializationRecord> initialized = new ConcurrentHashMap<>();
+    private static volatile CountDownLatch blockingStarted;
+    private static volatile CountDownLatch blockingReleased;
+
+    @Before
+    public void setup() {
+        initialized.clear();
+        NEXT_ORDER_INDEX.set(0);
+        blockingStarted = new CountDownLatch(1);
+        blockingReleased = new CountDownLatch(1);
+    }
+
+    private static Context createContext(boolean background) {
+        return createContext(background, BASE, DEPENDENT);
+    }
+
+    private static Context createContext(boolean background, String... permittedLanguages) {
+        return Context.newBuilder(permittedLanguages).allowExperimentalOptions(true).option("engine.BackgroundLanguageInitialization", String.valueOf(background)).build();
+    }
+
+    private static InitializationRecord awaitInitialized(String id) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        InitializationRecord record;
+        while ((record = initialized.get(id)) == null && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        return record;
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        try (Context context = createContext(false)) {
+            assertNull(initialized.get(BASE));
+            assertNull(initialized.get(DEPENDENT));
+            context.initialize(DEPENDENT);
+            assertNotNull(initialized.get(DEPENDENT));
+            assertEquals(Thread.currentThread(), initialized.get(DEPENDENT).thread);
+        }
+    }
+
+    @Test
+    public void testInitializedInBackground() throws InterruptedException {
+        try (Context context = createContext(true)) {
+            InitializationRecord base = awaitInitialized(BASE);
+            InitializationRecord dependent = awaitInitialized(DEPENDENT);
+            assertNotNull(base);
+            assertNotNull(dependent);
+            assertNotSame(Thread.currentThread(), base.thread);
+            assertNotSame(Thread.currentThread(), dependent.thread);
+            assertTrue(base.order < dependent.order);
+
+            assertEquals(42, context.eval(DEPENDENT, "").asInt());
+            assertEquals(2, NEXT_ORDER_INDEX.get());
+        }
+    }
+
+    @Test
+    public void testCloseDuringBackgroundInitialization() {
+        for (int i = 0; i < 10; i++) {
+            createContext(true).close();
+        }
+    }
+
+    @Test
+    public void testCloseWhileInitializationBlocks() throws InterruptedException {
+        Context context = createContext(true, BLOCKING, BLOCKING_DEPENDENT);
+        assertTrue(blockingStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        AtomicBoolean closeReturned = new AtomicBoolean();
+        AtomicBoolean closedBeforeRelease = new AtomicBoolean();
+        Thread releaser = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+            closedBeforeRelease.set(closeReturned.get());
+            blockingReleased.countDown();
+        });
+        releaser.start();
+        context.close();
+        closeReturned.set(true);
+        releaser.join();
+
+        // the close must wait for the blocked initialization
+        assertFalse(closedBeforeRelease.get());
+
+        assertNotNull(initialized.get(BLOCKING));
+        // the dependent language was cancelled by the close
+        assertNull(initialized.get(BLOCKING_DEPENDENT));
+    }
+
+    @Test
+    public void testEnterWaitsOnlyForNeededLanguage() throws InterruptedException {
+        try (Context context = createContext(true, BLOCKING, THREAD_SAFE)) {
+            assertTrue(blockingStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            try {
+                assertEquals(42, context.eval(THREAD_SAFE, "").asInt());
+                assertNotNull(initialized.get(THREAD_SAFE));
+                assertNull(initialized.get(BLOCKING));
+            } finally {
+                blockingReleased.countDown();
+            }
+            assertNotNull(awaitInitialized(BLOCKING));
+            assertEquals(42, context.eval(BLOCKING, "").asInt());
+        }
+    }
+
+    static final class InitializationRecord {
+
+        final Thread thread;
+        final int order;
+
+        InitializationRecord(Thread thread, int order) {
+            this.thread = thread;
+            this.order = order;
+        }
+    }
+
+    abstract static class BaseLanguage extends TruffleLanguage<Env> {
+
+        private final String id;
+
+        BaseLanguage(String id) {
+            this.id = id;
+        }
+
+        @Override
+        protected Env createContext(Env env) {
+            return env;
+        }
+
+        @Override
+        protected void initializeContext(Env context) throws Exception {
+            if (initialized.putIfAbsent(id, new InitializationRecord(Thread.currentThread(), NEXT_ORDER_INDEX.getAndIncrement())) != null) {
+                throw new AssertionError("Initialized twice " + id);
+            }
+        }
+
+        @Override
+        protected CallTarget parse(ParsingRequest request) throws Exception {
+            return Truffle.getRuntime().createCallTarget(RootNode.createConstantNode(42));
+        }
+    }
+
+    @Registration(id = BASE, name = BASE)
+    public static final class BackgroundInitializationBaseLanguage extends BaseLanguage {
+
+        public BackgroundInitializationBaseLanguage() {
+            super(BASE);
+        }
+    }
+
+    @Registration(id = DEPENDENT, name = DEPENDENT, dependentLanguages = BASE)
+    public static final class BackgroundInitializationDependentLanguage extends BaseLanguage {
+
+        public BackgroundInitializationDependentLanguage() {
+            super(DEPENDENT);
+        }
+    }
+
+    @Registration(id = BLOCKING, name = BLOCKING)
+    public static final class BackgroundInitializationBlockingLanguage extends BaseLanguage {
+
+        public BackgroundInitializationBlockingLanguage() {
+            super(BLOCKING);
+        }
+
+        @Override
+        protected void initializeContext(Env context) throws Exception {
+            blockingStarted.countDown();
+            if (!blockingReleased.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new AssertionError("Initialization was not released.");
+            }
+            super.initializeContext(context);
+        }
+
+        @Override
+        protected boolean isThreadAccessAllowed(Thread thread, boolean singleThreaded) {
+            return true;
+        }
+    }
+
+    @Registration(id = BLOCKING_DEPENDENT, name = BLOCKING_DEPENDENT, dependentLanguages = BLOCKING)
+    public static final class BackgroundInitializationBlockingDependentLanguage extends BaseLanguage {
+
+        public BackgroundInitializationBlockingDependentLanguage() {
+            super(BLOCKING_DEPENDENT);
+        }
+    }
+
+    @Registration(id = THREAD_SAFE, name = THREAD_SAFE)
+    public static final class BackgroundInitializationThreadSafeLanguage extends BaseLanguage {
+
+        public BackgroundInitializationThreadSafeLanguage() {
+            super(THREAD_SAFE);
+        }
+
+        @Override
+        protected boolean isThreadAccessAllowed(Thread thread, boolean singleThreaded) {
+            return true;
+        }
+    }
+}
@@ -44,6 +44,7 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -54,6 +55,7 @@ import org.graalvm.polyglot.impl.AbstractPolyglotImpl;
 import org.graalvm.polyglot.impl.AbstractPolyglotImpl.APIAccess;
 
 import com.oracle.truffle.api.CompilerDirectives.TruffleBoundary;
+import com.oracle.truffle.api.TruffleOptions;
 
 final class HostClassCache {
 
@@ -181,6 +183,43 @@ final class HostClassCache {
         return descs.get(clazz);
     }
 
+    /**
+     * Pre-computes the host class descriptors of the classes configured with the
+     * {@link ImageBuildTimeOptions#PreinitializeHostClasses} option for the predefined host access
+     * policies. The descriptors are stored in the policies and therefore persisted in the image
+     * heap.
+     *
+     * NOTE: this method is called reflectively by downstream projects.
+     *
+     * @param imageClassLoader class loader passed by the image builder.
+     * @return the pre-initialized classes, which need to be registered for reflection.
+     */
+    @SuppressWarnings("unused")
+    private static List<Class<?>> initializeNativeImageState(ClassLoader imageClassLoader) {
+        assert TruffleOptions.AOT : "Only supported during image generation";
+        String classNames = ImageBuildTimeOptions.get(ImageBuildTimeOptions.PREINITIALIZE_HOST_CLASSES_NAME);
+        if (classNames.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Class<?>> classes = new ArrayList<>();
+        for (String className : classNames.split(",")) {
+            try {
+                classes.add(Class.forName(className.trim(), false, imageClassLoader));
+            } catch (ClassNotFoundException e) {
+                throw new IllegalArgumentException(String.format("Host class %s configured with %s cannot be found.", className, ImageBuildTimeOptions.PREINITIALIZE_HOST_CLASSES_NAME), e);
+            }
+        }
+        APIAccess apiAccess = PolyglotImpl.getInstance().getAPIAccess();
+        for (HostAccess conf : new HostAccess[]{HostAccess.EXPLICIT, HostAccess.ALL}) {
+            // engines use no class loader in AOT mode
+            HostClassCache cache = findOrInitialize(apiAccess, conf, null);
+            for (Class<?> clazz : classes) {
+                cache.forClass(clazz).preInitialize();
+            }
+        }
+        return classes;
+    }
+
     @TruffleBoundary
     boolean allowsAccess(Method m) {
         return apiAccess.allowsAccess(hostAccess, m);
@@ -414,6 +414,14 @@ final class HostClassDesc {
         return m;
     }
 
+    /**
+     * Eagerly computes the member tables of this class, e.g. during native image generation, such
+     * that no reflection is needed on first access.
+     */
+    void preInitialize() {
+        getJNIMembers();
+    }
+
     /**
      * Looks up a public non-static method in this class.
      *
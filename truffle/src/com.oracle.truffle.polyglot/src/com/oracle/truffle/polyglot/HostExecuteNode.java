@@ -242,7 +242,7 @@ abstract class HostExecuteNode extends Node {
                     @Shared("hostMethodProfile") @Cached HostMethodProfileNode methodProfile,
                     @Shared("errorBranch") @Cached BranchProfile errorBranch,
                     @Shared("engine") @Cached(value = "languageContext.context.engine", allowUncached = true) PolyglotEngineImpl engine) throws ArityException, UnsupportedTypeException {
-        SingleMethod overload = selectOverload(method, args, languageContext);
+        SingleMethod overload = selectOverloadShared(method, args, languageContext);
         Object[] convertedArguments;
         try {
             convertedArguments = prepareArgumentsUncached(overload, args, languageContext, toJavaNode, isVarArgsProfile);
@@ -282,7 +282,7 @@ abstract class HostExecuteNode extends Node {
 
     @SuppressWarnings("unchecked")
     private void fillArgTypesArray(Object[] args, TypeCheckNode[] cachedArgTypes, SingleMethod selected, boolean varArgs, List<SingleMethod> applicable, int priority,
-                    PolyglotLanguageContext languageContext) {
+                    PolyglotLanguageContext languageContext, boolean adopt) {
         if (cachedArgTypes == null) {
             return;
         }
@@ -336,9 +336,9 @@ abstract class HostExecuteNode extends Node {
             }
             /*
              * We need to eagerly insert as the cachedArgTypes might be used before they are adopted
-             * by the DSL.
+             * by the DSL. Type checks of the shared dispatch table are not adopted by any node.
              */
-            cachedArgTypes[i] = insert(argType);
+            cachedArgTypes[i] = adopt ? insert(argType) : argType;
         }
 
         assert checkArgTypes(args, cachedArgTypes, InteropLibrary.getFactory().getUncached(), languageContext, false) : Arrays.toString(cachedArgTypes);
@@ -462,6 +462,35 @@ abstract class HostExecuteNode extends Node {
     @TruffleBoundary
     SingleMethod selectOverload(OverloadedMethod method, Object[] args, PolyglotLanguageContext languageContext, TypeCheckNode[] cachedArgTypes)
                     throws ArityException, UnsupportedTypeException {
+        return selectOverload(method, args, languageContext, cachedArgTypes, true);
+    }
+
+    /**
+     * Selects the overload for megamorphic call sites. Instead of scoring the overloads on every
+     * call, the selected overload is looked up in the dispatch table shared by all call sites of
+     * the method, keyed by the type checks that guard the result of a previous resolution. Only
+     * results guarded by stateless type checks are shared, results that depend on target type
+     * mappings are always resolved again.
+     */
+    @TruffleBoundary
+    SingleMethod selectOverloadShared(OverloadedMethod method, Object[] args, PolyglotLanguageContext languageContext) throws ArityException, UnsupportedTypeException {
+        InteropLibrary interop = InteropLibrary.getFactory().getUncached();
+        for (OverloadDispatchEntry entry : method.getDispatchTable()) {
+            if (checkArgTypes(args, entry.argTypes, interop, languageContext, false)) {
+                assert entry.overload == selectOverload(method, args, languageContext);
+                return entry.overload;
+            }
+        }
+        TypeCheckNode[] argTypes = createArgTypesArray(args);
+        SingleMethod overload = selectOverload(method, args, languageContext, argTypes, false);
+        if (OverloadDispatchEntry.isShareable(argTypes)) {
+            method.addDispatchEntry(new OverloadDispatchEntry(argTypes, overload));
+        }
+        return overload;
+    }
+
+    private SingleMethod selectOverload(OverloadedMethod method, Object[] args, PolyglotLanguageContext languageContext, TypeCheckNode[] cachedArgTypes, boolean adopt)
+                    throws ArityException, UnsupportedTypeException {
         SingleMethod[] overloads = method.getOverloads();
         List<SingleMethod> applicableByArity = new ArrayList<>();
         int minOverallArity = Integer.MAX_VALUE;
@@ -492,14 +521,14 @@ abstract class HostExecuteNode extends Node {
 
         SingleMethod best;
         for (int priority : ToHostNode.PRIORITIES) {
-            best = findBestCandidate(applicableByArity, args, languageContext, false, priority, cachedArgTypes);
+            best = findBestCandidate(applicableByArity, args, languageContext, false, priority, cachedArgTypes, adopt);
             if (best != null) {
                 return best;
             }
         }
         if (anyVarArgs) {
             for (int priority : ToHostNode.PRIORITIES) {
-                best = findBestCandidate(applicableByArity, args, languageContext, true, priority, cachedArgTypes);
+                best = findBestCandidate(applicableByArity, args, languageContext, true, priority, cachedArgTypes, adopt);
                 if (best != null) {
                     return best;
                 }
@@ -511,7 +540,7 @@ abstract class HostExecuteNode extends Node {
 
     @SuppressWarnings("static-method")
     private SingleMethod findBestCandidate(List<SingleMethod> applicableByArity, Object[] args, PolyglotLanguageContext languageContext, boolean varArgs, int priority,
-                    TypeCheckNode[] cachedArgTypes) throws UnsupportedTypeException {
+                    TypeCheckNode[] cachedArgTypes, boolean adopt) throws UnsupportedTypeException {
         List<SingleMethod> candidates = new ArrayList<>();
 
         if (!varArgs) {
@@ -583,7 +612,7 @@ abstract class HostExecuteNode extends Node {
                 SingleMethod best = candidates.get(0);
 
                 if (cachedArgTypes != null) {
-                    fillArgTypesArray(args, cachedArgTypes, best, varArgs, applicableByArity, priority, languageContext);
+                    fillArgTypesArray(args, cachedArgTypes, best, varArgs, applicableByArity, priority, languageContext, adopt);
                 }
 
                 return best;
@@ -591,7 +620,7 @@ abstract class HostExecuteNode extends Node {
                 SingleMethod best = findMostSpecificOverload(languageContext, candidates, args, varArgs, priority);
                 if (best != null) {
                     if (cachedArgTypes != null) {
-                        fillArgTypesArray(args, cachedArgTypes, best, varArgs, applicableByArity, priority, languageContext);
+                        fillArgTypesArray(args, cachedArgTypes, best, varArgs, applicableByArity, priority, languageContext, adopt);
                     }
 
                     return best;
@@ -814,6 +843,34 @@ abstract class HostExecuteNode extends Node {
         return sj.toString();
     }
 
+    /**
+     * Overload resolution result shared by the megamorphic call sites of an
+     * {@link OverloadedMethod}. The entry applies to all arguments that pass its type checks.
+     */
+    static final class OverloadDispatchEntry {
+
+        final TypeCheckNode[] argTypes;
+        final SingleMethod overload;
+
+        OverloadDispatchEntry(TypeCheckNode[] argTypes, SingleMethod overload) {
+            this.argTypes = argTypes;
+            this.overload = overload;
+        }
+
+        /*
+         * Target mapping checks specialize their child nodes and therefore cannot be executed
+         * concurrently from multiple call sites.
+         */
+        static boolean isShareable(TypeCheckNode[] argTypes) {
+            for (TypeCheckNode argType : argTypes) {
+                if (argType instanceof TargetMappingType) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
     abstract static class TypeCheckNode extends Node {
 
         abstract boolean execute(Object test, InteropLibrary interop, PolyglotLanguageContext languageContext);
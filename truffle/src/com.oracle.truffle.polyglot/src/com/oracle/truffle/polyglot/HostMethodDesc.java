@@ -49,6 +49,7 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
+import java.util.Arrays;
 import java.util.StringJoiner;
 
 import com.oracle.truffle.api.CallTarget;
@@ -391,7 +392,14 @@ abstract class HostMethodDesc {
     }
 
     static final class OverloadedMethod extends HostMethodDesc {
+        /*
+         * Maximum number of overload resolution results shared by megamorphic call sites.
+         */
+        static final int MAX_SHARED_DISPATCH_ENTRIES = 32;
+        private static final HostExecuteNode.OverloadDispatchEntry[] EMPTY_DISPATCH_TABLE = new HostExecuteNode.OverloadDispatchEntry[0];
+
         private final SingleMethod[] overloads;
+        private volatile HostExecuteNode.OverloadDispatchEntry[] dispatchTable = EMPTY_DISPATCH_TABLE;
 
         OverloadedMethod(SingleMethod[] overloads) {
             this.overloads = overloads;
@@ -403,6 +411,24 @@ abstract class HostMethodDesc {
             return overloads;
         }
 
+        /**
+         * Returns the overload resolution results shared by all megamorphic call sites of this
+         * method. The table is copied on write and can be read without synchronization.
+         */
+        HostExecuteNode.OverloadDispatchEntry[] getDispatchTable() {
+            return dispatchTable;
+        }
+
+        synchronized void addDispatchEntry(HostExecuteNode.OverloadDispatchEntry entry) {
+            HostExecuteNode.OverloadDispatchEntry[] table = dispatchTable;
+            if (table.length >= MAX_SHARED_DISPATCH_ENTRIES) {
+                return;
+            }
+            HostExecuteNode.OverloadDispatchEntry[] newTable = Arrays.copyOf(table, table.length + 1);
+            newTable[table.length] = entry;
+            dispatchTable = newTable;
+        }
+
         @Override
         public String getName() {
             return getOverloads()[0].getName();
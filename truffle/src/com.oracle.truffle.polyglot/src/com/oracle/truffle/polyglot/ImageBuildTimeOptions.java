@@ -57,6 +57,10 @@ final class ImageBuildTimeOptions {
     @Option(name = DISABLE_PRIVILEGES_NAME, category = OptionCategory.EXPERT, help = "Disable Context privileges so the related code can be excluded from the image.")//
     static final OptionKey<String> DisablePrivileges = new OptionKey<>("");
 
+    static final String PREINITIALIZE_HOST_CLASSES_NAME = "PreinitializeHostClasses";
+    @Option(name = PREINITIALIZE_HOST_CLASSES_NAME, category = OptionCategory.EXPERT, help = "Pre-compute the host class descriptors of the given comma separated classes for the predefined host access policies.")//
+    static final OptionKey<String> PreinitializeHostClasses = new OptionKey<>("");
+
     static String get(String optionName) {
         String property = OptionValuesImpl.SYSTEM_PROPERTY_PREFIX + PolyglotEngineImpl.OPTION_GROUP_IMAGE_BUILD_TIME + "." + optionName;
         return System.getProperty(property, "");
@@ -194,6 +194,7 @@ final class PolyglotContextImpl extends AbstractContextImpl implements com.oracl
     final PolyglotContextImpl parent;
     volatile Map<String, Value> polyglotBindings; // for direct legacy access
     volatile Value polyglotHostBindings; // for accesses from the polyglot api
+    volatile PolyglotLanguageInitializer languageInitializer; // set for background initialization
     private final PolyglotBindings polyglotBindingsObject = new PolyglotBindings(this);
     final PolyglotLanguage creator; // creator for internal contexts
     final Map<String, Object> creatorArguments; // special arguments for internal contexts
@@ -491,6 +492,11 @@ final class PolyglotContextImpl extends AbstractContextImpl implements com.oracl
         }
     }
 
+    void startBackgroundInitialization() {
+        assert languageInitializer == null;
+        languageInitializer = PolyglotLanguageInitializer.start(this);
+    }
+
     private void checkCreatorAccess(Context context, String operation) {
         if (context != creatorApi) {
             throw PolyglotEngineException.illegalState(String.format("Context instances that were received using Context.get() cannot be %s.", operation));
@@ -503,6 +509,10 @@ final class PolyglotContextImpl extends AbstractContextImpl implements com.oracl
         PolyglotContextImpl prev;
         boolean needsInitialization = false;
         synchronized (this) {
+            PolyglotLanguageInitializer initializer = languageInitializer;
+            if (initializer != null) {
+                initializer.awaitThreadAccess(current);
+            }
             PolyglotThreadInfo threadInfo = getCurrentThreadInfo();
             checkClosed();
             assert threadInfo != null;
@@ -557,7 +567,9 @@ final class PolyglotContextImpl extends AbstractContextImpl implements com.oracl
             }
 
             // never cache last thread on close or when closingThread
-            setCachedThreadInfo(threadInfo);
+            if (initializer == null || !initializer.hasDeferred()) {
+                setCachedThreadInfo(threadInfo);
+            }
         }
 
         if (needsInitialization) {
@@ -585,6 +597,17 @@ final class PolyglotContextImpl extends AbstractContextImpl implements com.oracl
     }
 
     private void checkAllThreadAccesses(Thread enteringThread, boolean singleThread) {
+        List<PolyglotLanguage> deniedLanguages = getDeniedThreadAccess(enteringThread, singleThread);
+        if (deniedLanguages != null) {
+            throw throwDeniedThreadAccess(enteringThread, singleThread, deniedLanguages);
+        }
+    }
+
+    boolean isThreadAccessAllowed(Thread enteringThread, boolean singleThread) {
+        return getDeniedThreadAccess(enteringThread, singleThread) == null;
+    }
+
+    private List<PolyglotLanguage> getDeniedThreadAccess(Thread enteringThread, boolean singleThread) {
         assert Thread.holdsLock(this);
         List<PolyglotLanguage> deniedLanguages = null;
         for (PolyglotLanguageContext context : contexts) {
@@ -610,9 +633,7 @@ final class PolyglotContextImpl extends AbstractContextImpl implements com.oracl
                 deniedLanguages.add(context.language);
             }
         }
-        if (deniedLanguages != null) {
-            throw throwDeniedThreadAccess(enteringThread, singleThread, deniedLanguages);
-        }
+        return deniedLanguages;
     }
 
     @TruffleBoundary
@@ -629,7 +650,10 @@ final class PolyglotContextImpl extends AbstractContextImpl implements com.oracl
                 notifyThreadClosed();
             }
             info.leave(engine, this);
-            if (!closed && !cancelling && !invalid) {
+            // keep the slow path until deferred background initializations were resumed
+            PolyglotLanguageInitializer initializer = languageInitializer;
+            boolean initializationDeferred = initializer != null && initializer.resumeDeferred();
+            if (!closed && !cancelling && !invalid && !initializationDeferred) {
                 setCachedThreadInfo(threadInfo);
             }
         }
@@ -638,7 +662,8 @@ final class PolyglotContextImpl extends AbstractContextImpl implements com.oracl
 
     private void initializeNewThread(Thread thread) {
         for (PolyglotLanguageContext context : contexts) {
-            if (context.isInitialized()) {
+            // languages initializing in the background initialize the thread when they complete
+            if (context.isInitialized() && !context.isInitializing()) {
                 LANGUAGE.initializeThread(context.env, thread);
             }
         }
@@ -659,7 +684,7 @@ final class PolyglotContextImpl extends AbstractContextImpl implements com.oracl
         assert Thread.holdsLock(this);
 
         for (PolyglotLanguageContext context : contexts) {
-            if (context.isInitialized()) {
+            if (context.isInitialized() && !context.isInitializing()) {
                 LANGUAGE.initializeMultiThreading(context.env);
             }
         }
@@ -1123,6 +1148,10 @@ final class PolyglotContextImpl extends AbstractContextImpl implements com.oracl
     }
 
     boolean closeImpl(boolean cancelIfExecuting, boolean waitForPolyglotThreads, boolean notifyInstruments) {
+        PolyglotLanguageInitializer initializer = languageInitializer;
+        if (initializer != null) {
+            initializer.cancel();
+        }
 
         /*
          * As a first step we prepare for close by waiting for other threads to finish closing and
@@ -1554,6 +1554,9 @@ final class PolyglotEngineImpl extends AbstractPolyglotImpl.AbstractEngineImpl i
                     leave(prev, context);
                 }
             }
+            if (engineOptionValues.get(PolyglotEngineOptions.BackgroundLanguageInitialization)) {
+                context.startBackgroundInitialization();
+            }
             return context.creatorApi;
         } catch (Throwable t) {
             throw PolyglotImpl.guestToHostException(this, t);
@@ -74,4 +74,8 @@ final class PolyglotEngineOptions {
                     "Enabling this flag and the compiler option has major implications on the performance and footprint of the interpreter." + //
                     "Do not use in production environments.")//
     static final OptionKey<Boolean> SpecializationStatistics = new OptionKey<>(false);
+
+    @Option(category = OptionCategory.EXPERT, stability = OptionStability.EXPERIMENTAL, help = "Eagerly initializes all permitted languages of a context on a background thread pool " +
+                    "in the order of their language dependencies. Threads entering the context only wait for initializations in progress that do not allow multi-threaded access.")//
+    static final OptionKey<Boolean> BackgroundLanguageInitialization = new OptionKey<>(false);
 }
@@ -216,6 +216,7 @@ final class PolyglotLanguageContext implements PolyglotImpl.VMObject {
 
     private volatile Thread creatingThread;
     private volatile boolean initialized;
+    private volatile boolean initializing; // guarded by the context lock, see initializeInBackground
     volatile boolean finalized;
     @CompilationFinal private volatile Value hostBindings;
     @CompilationFinal private volatile Lazy lazy;
@@ -353,6 +354,11 @@ final class PolyglotLanguageContext implements PolyglotImpl.VMObject {
         return initialized;
     }
 
+    boolean isInitializing() {
+        assert Thread.holdsLock(context);
+        return initializing;
+    }
+
     CallTarget parseCached(PolyglotLanguage accessingLanguage, Source source, String[] argumentNames) throws AssertionError {
         ensureInitialized(accessingLanguage);
         PolyglotSourceCache cache = lazy.sourceCache;
@@ -573,44 +579,99 @@ final class PolyglotLanguageContext implements PolyglotImpl.VMObject {
     }
 
     boolean ensureInitialized(PolyglotLanguage accessingLanguage) {
-        ensureCreated(accessingLanguage);
-        boolean wasInitialized = false;
-        if (!initialized) {
-            synchronized (context) {
-                if (!initialized) {
-                    initialized = true; // Allow language use during initialization
-                    try {
-                        if (!context.inContextPreInitialization) {
-                            LANGUAGE.initializeThread(env, Thread.currentThread());
-                        }
-                        LANGUAGE.postInitEnv(env);
-
-                        if (!context.isSingleThreaded()) {
-                            LANGUAGE.initializeMultiThreading(env);
-                        }
-
-                        for (PolyglotThreadInfo threadInfo : context.getSeenThreads().values()) {
-                            final Thread thread = threadInfo.getThread();
-                            if (thread == Thread.currentThread()) {
-                                continue;
+        PolyglotLanguageInitializer initializer = context.languageInitializer;
+        // initialized flag is set early, wait until a background initialization completed
+        boolean claimed = initializer != null && initializer.awaitInitialization(language);
+        try {
+            ensureCreated(accessingLanguage);
+            boolean wasInitialized = false;
+            if (!initialized) {
+                if (initializer != null && PolyglotLanguageInitializer.isInitializerThread()) {
+                    wasInitialized = initializeInBackground();
+                } else {
+                    synchronized (context) {
+                        if (!initialized) {
+                            initialized = true; // Allow language use during initialization
+                            try {
+                                if (!context.inContextPreInitialization) {
+                                    LANGUAGE.initializeThread(env, Thread.currentThread());
+                                }
+                                LANGUAGE.postInitEnv(env);
+
+                                if (!context.isSingleThreaded()) {
+                                    LANGUAGE.initializeMultiThreading(env);
+                                }
+
+                                for (PolyglotThreadInfo threadInfo : context.getSeenThreads().values()) {
+                                    final Thread thread = threadInfo.getThread();
+                                    if (thread == Thread.currentThread()) {
+                                        continue;
+                                    }
+                                    LANGUAGE.initializeThread(env, thread);
+                                }
+
+                                wasInitialized = true;
+                            } catch (Throwable e) {
+                                // language not successfully initialized, reset to avoid
+                                // inconsistent language contexts
+                                initialized = false;
+                                throw e;
                             }
-                            LANGUAGE.initializeThread(env, thread);
                         }
-
-                        wasInitialized = true;
-                    } catch (Throwable e) {
-                        // language not successfully initialized, reset to avoid inconsistent
-                        // language contexts
-                        initialized = false;
-                        throw e;
                     }
                 }
             }
+            if (wasInitialized && eventsEnabled) {
+                EngineAccessor.INSTRUMENT.notifyLanguageContextInitialized(context.engine, context.creatorTruffleContext, language.info);
+            }
+            return wasInitialized;
+        } finally {
+            if (claimed) {
+                initializer.complete(language);
+            }
         }
-        if (wasInitialized && eventsEnabled) {
-            EngineAccessor.INSTRUMENT.notifyLanguageContextInitialized(context.engine, context.creatorTruffleContext, language.info);
+    }
+
+    /*
+     * Initializes the language on a background initializer thread. The context lock is only held
+     * to publish the initialized state, so that other threads can enter the context while the
+     * language runs postInitEnv. Threads entering or a transition to multi-threading in the
+     * meantime skip the language while it is initializing, they are caught up with in the last
+     * step, which holds the context lock until the language is fully initialized.
+     */
+    private boolean initializeInBackground() {
+        synchronized (context) {
+            if (initialized) {
+                return false;
+            }
+            initialized = true; // Allow language use during initialization
+            initializing = true;
+        }
+        try {
+            LANGUAGE.initializeThread(env, Thread.currentThread());
+            LANGUAGE.postInitEnv(env);
+            synchronized (context) {
+                if (!context.isSingleThreaded()) {
+                    LANGUAGE.initializeMultiThreading(env);
+                }
+                for (PolyglotThreadInfo threadInfo : context.getSeenThreads().values()) {
+                    final Thread thread = threadInfo.getThread();
+                    if (thread == Thread.currentThread()) {
+                        continue;
+                    }
+                    LANGUAGE.initializeThread(env, thread);
+                }
+                initializing = false;
+            }
+            return true;
+        } catch (Throwable e) {
+            // language not successfully initialized, reset to avoid inconsistent language contexts
+            synchronized (context) {
+                initialized = false;
+                initializing = false;
+            }
+            throw e;
         }
-        return wasInitialized;
     }
 
     void checkAccess(PolyglotLanguage accessingLanguage) {
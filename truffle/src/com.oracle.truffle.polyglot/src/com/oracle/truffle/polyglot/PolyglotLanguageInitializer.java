@@ -0,0 +1,371 @@
+/*
+ * Copyright (c) 2020, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * The Universal Permissive License (UPL), Version 1.0
+ *
+ * Subject to the condition set forth below, permission is hereby granted to any
+ * person obtaining a copy of this software, associated documentation and/or
+ * data (collectively the "Software"), free of charge and under any and all
+ * copyright rights in the Software, and any and all patent rights owned or
+ * freely licensable by each licensor hereunder covering either (i) the
+ * unmodified Software as contributed to or provided by such licensor, or (ii)
+ * the Larger Works (as defined below), to deal in both
+ *
+ * (a) the Software, and
+ *
+ * (b) any piece of software and/or hardware listed in the lrgrwrks.txt file if
+ * one is included with the Software each a "Larger Work" to which the Software
+ * is contributed by such licensors),
+ *
+ * without restriction, including without limitation the rights to copy, create
+ * derivative works of, display, perform, and distribute the Software and make,
+ * use, sell, offer for sale, import, export, have made, and have sold the
+ * Software and the Larger Work(s), and to sublicense the foregoing rights on
+ * either these or other terms.
+ *
+ * This license is subject to the following condition:
+ *
+ * The above copyright notice and either this complete permission notice or at a
+ * minimum a reference to the UPL must be included in all copies or substantial
+ * portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.oracle.truffle.polyglot;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * Initializes the permitted language contexts of an outer polyglot context on a shared background
+ * pool. A language is only initialized after all of its
+ * {@link com.oracle.truffle.api.TruffleLanguage.Registration#dependentLanguages() dependent
+ * languages} that are part of the same context were initialized, independent languages are
+ * initialized in parallel.
+ * <p>
+ * The initializer threads enter the context like any other thread. They only hold the context lock
+ * to publish the initialized state of a language, {@code postInitEnv} runs without it. An
+ * initializer thread is never entered together with other threads unless all initialized languages
+ * allow multi-threaded access. Otherwise the initialization is deferred until the context is no
+ * longer in use, and threads entering the context wait only for the initializations that are
+ * currently in progress. A thread that needs a language that was not started yet initializes it
+ * itself, as without the option.
+ * <p>
+ * Failures are not propagated. If a language fails to initialize in the background it is
+ * initialized lazily on first use on the accessing thread as without the option, which then
+ * reports the error.
+ */
+final class PolyglotLanguageInitializer {
+
+    private static final long KEEP_ALIVE_SECONDS = 10;
+    private static volatile ThreadPoolExecutor executor;
+
+    private static final int PENDING = 0;
+    private static final int RUNNING = 1;
+    private static final int DONE = 2;
+
+    private final PolyglotContextImpl context;
+    private final Map<PolyglotLanguage, Initialization> initializations = new LinkedHashMap<>();
+
+    // guarded by the context lock
+    private int activeThreads;
+    private int waitingThreads;
+    private boolean cancelled;
+    private final List<Initialization> deferred = new ArrayList<>();
+
+    private PolyglotLanguageInitializer(PolyglotContextImpl context) {
+        this.context = context;
+        /*
+         * The engine keeps the languages in dependency order, so the dependencies of a language
+         * are always registered before the language itself.
+         */
+        for (PolyglotLanguage language : context.engine.idToLanguage.values()) {
+            if (language.isHost() || language.cache.isInternal() || language.initError != null) {
+                continue;
+            }
+            if (!context.config.isAccessPermitted(null, language)) {
+                continue;
+            }
+            List<CompletableFuture<Void>> dependencies = new ArrayList<>();
+            for (String dependentLanguage : language.cache.getDependentLanguages()) {
+                PolyglotLanguage dependent = context.engine.idToLanguage.get(dependentLanguage);
+                Initialization dependentInitialization = dependent != null ? initializations.get(dependent) : null;
+                if (dependentInitialization != null) {
+                    dependencies.add(dependentInitialization.done);
+                }
+            }
+            initializations.put(language, new Initialization(language, CompletableFuture.allOf(dependencies.toArray(new CompletableFuture<?>[dependencies.size()]))));
+        }
+    }
+
+    static PolyglotLanguageInitializer start(PolyglotContextImpl context) {
+        assert context.parent == null : "only outer contexts are initialized in the background";
+        PolyglotLanguageInitializer initializer = new PolyglotLanguageInitializer(context);
+        for (Initialization initialization : initializer.initializations.values()) {
+            initialization.dependencies.whenCompleteAsync((r, t) -> initializer.run(initialization), getExecutor());
+        }
+        return initializer;
+    }
+
+    static boolean isInitializerThread() {
+        return Thread.currentThread() instanceof InitializerThread;
+    }
+
+    private void run(Initialization initialization) {
+        if (!initialization.state.compareAndSet(PENDING, RUNNING)) {
+            // claimed by an accessing thread
+            return;
+        }
+        initialization.thread = Thread.currentThread();
+        if (!reserve(initialization)) {
+            return;
+        }
+        try {
+            Object prev = context.engine.enter(context);
+            try {
+                context.getContextInitialized(initialization.language, null);
+            } finally {
+                context.engine.leave(prev, context);
+            }
+        } catch (Throwable t) {
+            context.engine.getEngineLogger().log(Level.FINE, String.format("Background initialization of language %s failed, falling back to initialization on first use.",
+                            initialization.language.getId()), t);
+        } finally {
+            synchronized (context) {
+                activeThreads--;
+                context.notifyAll();
+                resumeDeferred();
+            }
+            initialization.complete();
+        }
+    }
+
+    private boolean reserve(Initialization initialization) {
+        synchronized (context) {
+            if (cancelled || context.closed || context.closingThread != null || context.invalid) {
+                initialization.complete();
+                return false;
+            }
+            if (waitingThreads > 0 || (context.hasActiveOtherThread(true) && !context.isThreadAccessAllowed(Thread.currentThread(), false))) {
+                // resumed when the context is no longer in use
+                initialization.thread = null;
+                initialization.state.set(PENDING);
+                deferred.add(initialization);
+                context.setCachedThreadInfo(PolyglotThreadInfo.NULL);
+                return false;
+            }
+            activeThreads++;
+            // threads entering concurrently need to go through the slow path
+            context.setCachedThreadInfo(PolyglotThreadInfo.NULL);
+            return true;
+        }
+    }
+
+    /*
+     * Resubmits the deferred initializations if the context is no longer in use. Returns true if
+     * initializations are still deferred.
+     */
+    boolean resumeDeferred() {
+        assert Thread.holdsLock(context);
+        if (deferred.isEmpty()) {
+            return false;
+        }
+        if (cancelled) {
+            completeDeferred();
+            return false;
+        }
+        if (activeThreads > 0 || waitingThreads > 0 || context.hasActiveOtherThread(true)) {
+            return true;
+        }
+        ThreadPoolExecutor pool = getExecutor();
+        for (Initialization initialization : deferred) {
+            pool.execute(() -> run(initialization));
+        }
+        deferred.clear();
+        return false;
+    }
+
+    private void completeDeferred() {
+        for (Initialization initialization : deferred) {
+            initialization.complete();
+        }
+        deferred.clear();
+    }
+
+    boolean hasDeferred() {
+        assert Thread.holdsLock(context);
+        return !deferred.isEmpty();
+    }
+
+    /**
+     * Called with the context lock held before a thread enters the context. Waits while a
+     * background initialization is in progress that does not allow the thread to enter
+     * concurrently. Only the initializations that already started are waited for.
+     */
+    void awaitThreadAccess(Thread enteringThread) {
+        assert Thread.holdsLock(context);
+        if (enteringThread instanceof InitializerThread || context.isActive(enteringThread)) {
+            return;
+        }
+        boolean interrupted = false;
+        waitingThreads++;
+        try {
+            while (activeThreads > 0 && !cancelled && !context.isThreadAccessAllowed(enteringThread, false)) {
+                try {
+                    context.wait();
+                } catch (InterruptedException e) {
+                    // Keep waiting
+                    interrupted = true;
+                }
+            }
+        } finally {
+            waitingThreads--;
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits until a running background initialization of the given language completed. A language
+     * whose background initialization did not start yet is claimed by the calling thread, which
+     * then initializes it as without the option and must call {@link #complete(PolyglotLanguage)}
+     * afterwards. Returns immediately if called on an initializer thread or with the context lock
+     * held, as the background initialization might need the lock to make progress.
+     *
+     * @return {@code true} if the language was claimed
+     */
+    boolean awaitInitialization(PolyglotLanguage language) {
+        Initialization initialization = initializations.get(language);
+        Thread current = Thread.currentThread();
+        if (initialization == null || current instanceof InitializerThread || initialization.thread == current) {
+            return false;
+        }
+        if (initialization.state.compareAndSet(PENDING, RUNNING)) {
+            initialization.thread = current;
+            return true;
+        }
+        if (initialization.done.isDone() || Thread.holdsLock(context)) {
+            return false;
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                initialization.done.get();
+                break;
+            } catch (InterruptedException e) {
+                // Keep waiting
+                interrupted = true;
+            } catch (ExecutionException e) {
+                // errors are reported on first use
+                break;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    void complete(PolyglotLanguage language) {
+        initializations.get(language).complete();
+    }
+
+    /**
+     * Cancels the initializations that did not start yet and waits for the ones in progress. Used
+     * before the context is closed.
+     */
+    void cancel() {
+        synchronized (context) {
+            cancelled = true;
+            completeDeferred();
+            if (isInitializerThread()) {
+                return;
+            }
+            boolean interrupted = false;
+            while (activeThreads > 0) {
+                try {
+                    context.wait();
+                } catch (InterruptedException e) {
+                    // Keep waiting
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static ThreadPoolExecutor getExecutor() {
+        ThreadPoolExecutor result = executor;
+        if (result == null) {
+            synchronized (PolyglotLanguageInitializer.class) {
+                result = executor;
+                if (result == null) {
+                    int threads = Runtime.getRuntime().availableProcessors();
+                    result = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new InitializerThreadFactory());
+                    result.allowCoreThreadTimeOut(true);
+                    executor = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static final class Initialization {
+
+        final PolyglotLanguage language;
+        final CompletableFuture<Void> dependencies;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        final AtomicInteger state = new AtomicInteger(PENDING);
+        volatile Thread thread;
+
+        Initialization(PolyglotLanguage language, CompletableFuture<Void> dependencies) {
+            this.language = language;
+            this.dependencies = dependencies;
+        }
+
+        void complete() {
+            thread = null;
+            state.set(DONE);
+            done.complete(null);
+        }
+    }
+
+    private static final class InitializerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new InitializerThread(r, "Polyglot Language Initializer-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+
+    private static final class InitializerThread extends Thread {
+
+        InitializerThread(Runnable target, String name) {
+            super(target, name);
+        }
+    }
+}